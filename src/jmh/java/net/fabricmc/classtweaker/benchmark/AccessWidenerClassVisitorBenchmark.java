@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.classvisitor.AccessWidenerClassVisitor;
+import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+import net.fabricmc.classtweaker.utils.EntryTriple;
+
+/**
+ * Measures the member lookups done by {@link AccessWidenerClassVisitor} for every field, method and
+ * {@code INVOKESPECIAL}. Run with {@code -prof gc}, the name and descriptor lookups should not allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccessWidenerClassVisitorBenchmark {
+	private static final String CLASS_NAME = "net/fabricmc/benchmark/Target";
+
+	@Param({"100"})
+	public int members;
+
+	private ClassTweakerImpl classTweaker;
+	private AccessWidener accessWidener;
+	private String[] names;
+	private String[] descriptors;
+	private AccessWidenerClassVisitor classVisitor;
+	private MethodVisitor methodVisitor;
+
+	@Setup
+	public void setup() {
+		classTweaker = new ClassTweakerImpl();
+		names = new String[members];
+		descriptors = new String[members];
+
+		for (int i = 0; i < members; i++) {
+			names[i] = "member" + i;
+			descriptors[i] = "(I)V";
+
+			// Half of the members are widened
+			if (i % 2 == 0) {
+				classTweaker.visitAccessWidener(CLASS_NAME).visitMethod(names[i], descriptors[i], AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+				classTweaker.visitAccessWidener(CLASS_NAME).visitField(names[i], descriptors[i], AccessWidenerVisitor.AccessType.MUTABLE, false);
+			}
+		}
+
+		accessWidener = classTweaker.getAccessWidener(CLASS_NAME);
+
+		// Fields and methods are dropped, so that only the visitor itself is measured
+		classVisitor = new AccessWidenerClassVisitor(Opcodes.ASM9, null, classTweaker);
+		classVisitor.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, CLASS_NAME, null, "java/lang/Object", null);
+
+		final AccessWidenerClassVisitor methodClassVisitor = new AccessWidenerClassVisitor(Opcodes.ASM9, new ClassVisitor(Opcodes.ASM9) {
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+				return new MethodVisitor(Opcodes.ASM9) { };
+			}
+		}, classTweaker);
+		methodClassVisitor.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, CLASS_NAME, null, "java/lang/Object", null);
+		methodVisitor = methodClassVisitor.visitMethod(Opcodes.ACC_PUBLIC, "caller", "()V", null, null);
+	}
+
+	@Benchmark
+	public void visitMembers(Blackhole blackhole) {
+		for (int i = 0; i < members; i++) {
+			blackhole.consume(classVisitor.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, names[i], descriptors[i], null, null));
+			blackhole.consume(classVisitor.visitMethod(Opcodes.ACC_PRIVATE, names[i], descriptors[i], null, null));
+		}
+	}
+
+	@Benchmark
+	public void visitInvokeSpecial() {
+		for (int i = 0; i < members; i++) {
+			methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, CLASS_NAME, names[i], descriptors[i], false);
+		}
+	}
+
+	@Benchmark
+	public void lookupNameAndDescriptor(Blackhole blackhole) {
+		for (int i = 0; i < members; i++) {
+			blackhole.consume(accessWidener.getMethodAccess(names[i], descriptors[i]));
+			blackhole.consume(accessWidener.getFieldAccess(names[i], descriptors[i]));
+		}
+	}
+
+	@Benchmark
+	public void lookupEntryTriple(Blackhole blackhole) {
+		for (int i = 0; i < members; i++) {
+			blackhole.consume(accessWidener.getMethodAccess(new EntryTriple(CLASS_NAME, names[i], descriptors[i])));
+			blackhole.consume(accessWidener.getFieldAccess(new EntryTriple(CLASS_NAME, names[i], descriptors[i])));
+		}
+	}
+}
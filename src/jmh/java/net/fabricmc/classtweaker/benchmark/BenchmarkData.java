@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.ClassTweakerWriter;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.api.visitor.EnumExtensionVisitor;
+
+/**
+ * Generates deterministic synthetic class tweakers, shaped like the ones found in a large mod pack.
+ */
+final class BenchmarkData {
+	private static final AccessWidenerVisitor.AccessType[] METHOD_ACCESS = {AccessWidenerVisitor.AccessType.ACCESSIBLE, AccessWidenerVisitor.AccessType.EXTENDABLE};
+	private static final AccessWidenerVisitor.AccessType[] FIELD_ACCESS = {AccessWidenerVisitor.AccessType.ACCESSIBLE, AccessWidenerVisitor.AccessType.MUTABLE};
+
+	private BenchmarkData() {
+	}
+
+	static String className(int index) {
+		return "net/minecraft/pkg" + (index % 40) + "/Class" + index + (index % 7 == 0 ? "$Inner" : "");
+	}
+
+	/**
+	 * @param entries the number of rules to generate
+	 * @param classes the number of distinct classes the rules are spread across
+	 */
+	static byte[] classTweaker(int entries, int classes, long seed) {
+		final Random random = new Random(seed);
+		final ClassTweakerWriter writer = ClassTweakerWriter.create(ClassTweaker.CT_V1);
+		writer.visitHeader("named");
+
+		for (int i = 0; i < entries; i++) {
+			final String owner = className(random.nextInt(classes));
+			final boolean transitive = random.nextInt(4) == 0;
+
+			switch (random.nextInt(10)) {
+			case 0:
+				writer.visitAccessWidener(owner).visitClass(METHOD_ACCESS[random.nextInt(2)], transitive);
+				break;
+			case 1:
+			case 2:
+			case 3:
+			case 4:
+				writer.visitAccessWidener(owner).visitMethod("method" + i, "(ILjava/lang/String;Lnet/minecraft/pkg0/Class0;)V", METHOD_ACCESS[random.nextInt(2)], transitive);
+				break;
+			case 5:
+			case 6:
+			case 7:
+				writer.visitAccessWidener(owner).visitField("field" + i, "Lnet/minecraft/pkg1/Class1;", FIELD_ACCESS[random.nextInt(2)], transitive);
+				break;
+			case 8:
+				writer.visitInjectedInterface(owner, "com/example/mod/Interface" + i, transitive);
+				break;
+			default:
+				final EnumExtensionVisitor enumVisitor = writer.visitEnum(owner, "VALUE_" + i, "(Ljava/lang/String;ILjava/lang/String;I)V", "mod" + (i % 300), transitive);
+				enumVisitor.visitParameterConstants(new Object[]{"value" + i, i});
+				enumVisitor.visitEnd();
+			}
+		}
+
+		return writer.writeString().getBytes(StandardCharsets.UTF_8);
+	}
+}
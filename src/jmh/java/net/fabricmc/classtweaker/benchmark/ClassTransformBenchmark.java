@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+
+/**
+ * Compares transforming a class that only needs access changes through the visitors against
+ * {@link net.fabricmc.classtweaker.api.ClassTweaker#transform(byte[])}, which patches the access flags directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassTransformBenchmark {
+	private static final String CLASS_NAME = "net/fabricmc/benchmark/Target";
+
+	@Param({"50"})
+	public int members;
+
+	@Param({"false", "true"})
+	public boolean frozen;
+
+	private ClassTweaker classTweaker;
+	private byte[] classBytes;
+
+	@Setup
+	public void setup() {
+		final ClassTweakerImpl classTweaker = new ClassTweakerImpl();
+		classTweaker.visitAccessWidener(CLASS_NAME).visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+
+		final ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		classWriter.visit(Opcodes.V17, Opcodes.ACC_FINAL, CLASS_NAME, null, "java/lang/Object", null);
+
+		for (int i = 0; i < members; i++) {
+			classWriter.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "field" + i, "I", null, null).visitEnd();
+
+			final MethodVisitor methodVisitor = classWriter.visitMethod(Opcodes.ACC_PRIVATE, "method" + i, "()I", null, null);
+			methodVisitor.visitCode();
+			methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+			methodVisitor.visitFieldInsn(Opcodes.GETFIELD, CLASS_NAME, "field" + i, "I");
+			methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+			methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "hashCode", "()I", false);
+			methodVisitor.visitInsn(Opcodes.IADD);
+			methodVisitor.visitInsn(Opcodes.IRETURN);
+			methodVisitor.visitMaxs(0, 0);
+			methodVisitor.visitEnd();
+
+			// Half of the fields are widened
+			if (i % 2 == 0) {
+				classTweaker.visitAccessWidener(CLASS_NAME).visitField("field" + i, "I", AccessWidenerVisitor.AccessType.MUTABLE, false);
+			}
+		}
+
+		classWriter.visitEnd();
+		classBytes = classWriter.toByteArray();
+		this.classTweaker = frozen ? classTweaker.freeze() : classTweaker;
+	}
+
+	@Benchmark
+	public byte[] visitors() {
+		final ClassReader classReader = new ClassReader(classBytes);
+		final ClassWriter classWriter = new ClassWriter(0);
+		classReader.accept(classTweaker.createClassVisitor(Opcodes.ASM9, classWriter, null), 0);
+		return classWriter.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] visitorsCopyingConstantPool() {
+		final ClassReader classReader = new ClassReader(classBytes);
+		final ClassWriter classWriter = new ClassWriter(classReader, 0);
+		classReader.accept(classTweaker.createClassVisitor(Opcodes.ASM9, CLASS_NAME, classWriter, null), 0);
+		return classWriter.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] transform() {
+		return classTweaker.transform(classBytes).getBytes();
+	}
+}
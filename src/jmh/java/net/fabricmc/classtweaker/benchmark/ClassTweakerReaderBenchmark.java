@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.fabricmc.classtweaker.api.ClassTweakerReader;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.api.visitor.ClassTweakerVisitor;
+import net.fabricmc.classtweaker.api.visitor.EnumExtensionVisitor;
+
+/**
+ * Compares reading a class tweaker from bytes against the previous approach of decoding the whole file and
+ * reading it through a {@link BufferedReader}.
+ *
+ * <p>The entries are passed to a visitor that only consumes them, so that only the parsing is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassTweakerReaderBenchmark {
+	@Param({"1000", "20000"})
+	public int entries;
+
+	private byte[] content;
+
+	@Setup
+	public void setup() {
+		content = BenchmarkData.classTweaker(entries, Math.max(1, entries / 10), 0);
+	}
+
+	@Benchmark
+	public void readBytes(Blackhole blackhole) {
+		ClassTweakerReader.create(new ConsumingVisitor(blackhole)).read(content, "benchmark");
+	}
+
+	@Benchmark
+	public void readBufferedReader(Blackhole blackhole) throws IOException {
+		final String strContent = new String(content, StandardCharsets.UTF_8);
+		ClassTweakerReader.create(new ConsumingVisitor(blackhole)).read(new BufferedReader(new StringReader(strContent)), "benchmark");
+	}
+
+	private static final class ConsumingVisitor implements ClassTweakerVisitor, AccessWidenerVisitor, EnumExtensionVisitor {
+		private final Blackhole blackhole;
+
+		ConsumingVisitor(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public AccessWidenerVisitor visitAccessWidener(String owner) {
+			blackhole.consume(owner);
+			return this;
+		}
+
+		@Override
+		public EnumExtensionVisitor visitEnum(String owner, String name, String constructorDesc, String id, boolean transitive) {
+			blackhole.consume(owner);
+			blackhole.consume(name);
+			blackhole.consume(constructorDesc);
+			return this;
+		}
+
+		@Override
+		public void visitInjectedInterface(String owner, String iface, boolean transitive) {
+			blackhole.consume(owner);
+			blackhole.consume(iface);
+		}
+
+		@Override
+		public void visitClass(AccessType access, boolean transitive) {
+			blackhole.consume(access);
+		}
+
+		@Override
+		public void visitMethod(String name, String descriptor, AccessType access, boolean transitive) {
+			blackhole.consume(name);
+			blackhole.consume(descriptor);
+		}
+
+		@Override
+		public void visitField(String name, String descriptor, AccessType access, boolean transitive) {
+			blackhole.consume(name);
+			blackhole.consume(descriptor);
+		}
+
+		@Override
+		public void visitParameterConstants(Object[] constants) {
+			blackhole.consume(constants);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+
+/**
+ * Measures the throughput of many threads transforming classes with one shared class tweaker.
+ *
+ * <p>Run with increasing thread counts ({@code -t 1}, {@code -t 2}, ...) to check that the throughput scales with the
+ * number of threads, as the read path takes no locks and shares no mutable state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentTransformBenchmark {
+	@Param({"5000"})
+	public int classCount;
+
+	@Param({"mutable", "concurrent", "frozen"})
+	public String type;
+
+	private ClassTweaker classTweaker;
+	private byte[][] classes;
+
+	@Setup
+	public void setup() {
+		final ClassTweaker classTweaker = "concurrent".equals(type) ? ClassTweaker.newConcurrentInstance() : ClassTweaker.newInstance();
+		classes = new byte[classCount][];
+
+		for (int i = 0; i < classCount; i++) {
+			final String className = "net/fabricmc/benchmark/pkg" + i % 10 + "/Class" + i;
+			classes[i] = createClass(className);
+
+			if (i % 2 == 0) {
+				classTweaker.visitAccessWidener(className).visitField("field", "I", AccessWidenerVisitor.AccessType.MUTABLE, false);
+			}
+
+			if (i % 4 == 0) {
+				classTweaker.visitAccessWidener(className).visitMethod("method", "()I", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+			}
+		}
+
+		this.classTweaker = "frozen".equals(type) ? classTweaker.freeze() : classTweaker;
+	}
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		int index;
+	}
+
+	@Benchmark
+	public byte[] transform(Cursor cursor) {
+		final byte[] classBytes = classes[cursor.index];
+		cursor.index = (cursor.index + 1) % classCount;
+		return classTweaker.transform(classBytes).getBytes();
+	}
+
+	private static byte[] createClass(String className) {
+		final ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		classWriter.visit(Opcodes.V17, Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null, "java/lang/Object", null);
+		classWriter.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "field", "I", null, null).visitEnd();
+
+		MethodVisitor methodVisitor = classWriter.visitMethod(Opcodes.ACC_PRIVATE, "method", "()I", null, null);
+		methodVisitor.visitCode();
+		methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+		methodVisitor.visitFieldInsn(Opcodes.GETFIELD, className, "field", "I");
+		methodVisitor.visitInsn(Opcodes.IRETURN);
+		methodVisitor.visitMaxs(0, 0);
+		methodVisitor.visitEnd();
+
+		methodVisitor = classWriter.visitMethod(0, "caller", "()I", null, null);
+		methodVisitor.visitCode();
+		methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+		methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, className, "method", "()I", false);
+		methodVisitor.visitInsn(Opcodes.IRETURN);
+		methodVisitor.visitMaxs(0, 0);
+		methodVisitor.visitEnd();
+
+		classWriter.visitEnd();
+		return classWriter.toByteArray();
+	}
+}
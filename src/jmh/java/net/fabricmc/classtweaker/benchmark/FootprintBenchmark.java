@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.ClassTweakerReader;
+import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+
+/**
+ * Reports the heap retained by a class tweaker with 100k rules before and after freezing it, as the
+ * {@code mutableBytes} and {@code frozenBytes} secondary results. The sizes are measured around
+ * {@link System#gc()} calls, so they are only comparable within a single run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+// The counters are summed over the iterations, so only a single one is measured
+@Warmup(iterations = 2)
+@Measurement(iterations = 1)
+@Fork(1)
+public class FootprintBenchmark {
+	private byte[] content;
+
+	@Setup
+	public void setup() {
+		content = BenchmarkData.classTweaker(100_000, 20_000, 42);
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Footprint {
+		public long mutableBytes;
+		public long frozenBytes;
+	}
+
+	@Benchmark
+	public ClassTweaker freeze(Footprint footprint) {
+		final long baseline = usedHeap();
+		ClassTweakerImpl classTweaker = new ClassTweakerImpl();
+		ClassTweakerReader.create(classTweaker).read(content, "benchmark");
+		footprint.mutableBytes = usedHeap() - baseline;
+
+		final ClassTweaker frozen = classTweaker.freeze();
+		classTweaker = null;
+		footprint.frozenBytes = usedHeap() - baseline;
+		return frozen;
+	}
+
+	private static long usedHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+
+		return used;
+	}
+}
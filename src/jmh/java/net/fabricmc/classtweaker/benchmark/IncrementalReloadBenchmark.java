@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.ClassTweakerReader;
+import net.fabricmc.classtweaker.api.IncrementalClassTweaker;
+
+/**
+ * Compares re-reading every source after one of them changed against re-reading only the changed source.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IncrementalReloadBenchmark {
+	@Param({"100"})
+	public int sources;
+
+	@Param({"500"})
+	public int rulesPerSource;
+
+	private byte[][] contents;
+	// Two versions of the source that changes, differing in a single rule
+	private byte[][] changed;
+	private IncrementalClassTweaker incremental;
+	private int revision;
+
+	@Setup
+	public void setup() {
+		contents = new byte[sources][];
+
+		for (int i = 0; i < sources; i++) {
+			contents[i] = createSource(i, "accessible");
+		}
+
+		changed = new byte[][]{createSource(0, "accessible"), createSource(0, "extendable")};
+		incremental = IncrementalClassTweaker.create();
+
+		for (int i = 0; i < sources; i++) {
+			incremental.read(contents[i], "source" + i);
+		}
+	}
+
+	@Benchmark
+	public ClassTweaker fullReload() {
+		contents[0] = changed[revision++ & 1];
+		final ClassTweaker classTweaker = ClassTweaker.newInstance();
+
+		for (int i = 0; i < sources; i++) {
+			ClassTweakerReader.create(classTweaker).read(contents[i], "source" + i);
+		}
+
+		return classTweaker;
+	}
+
+	@Benchmark
+	public Set<String> incrementalReload() {
+		return incremental.read(changed[revision++ & 1], "source0");
+	}
+
+	private byte[] createSource(int index, String lastAccess) {
+		final StringBuilder sb = new StringBuilder("accessWidener\tv2\tnamed\n");
+
+		for (int i = 0; i < rulesPerSource; i++) {
+			final String access = i == rulesPerSource - 1 ? lastAccess : "accessible";
+			// Sources share some owners, so that changing one rebuilds an owner from several sources
+			sb.append(access).append("\tmethod\tnet/fabricmc/benchmark/Class").append((index * rulesPerSource + i) / 10 % (sources * rulesPerSource / 20))
+					.append("\tmethod").append(i).append("\t()V\n");
+		}
+
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.ClassTweakerJarTransformer;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+
+/**
+ * Transforms a jar containing the classes of the {@code java.base} module, with every 20th class targeted.
+ * Compares {@link ClassTweakerJarTransformer} against transforming every entry through zip streams on one thread,
+ * and against transforming the jar again incrementally after a single class was widened.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JarTransformBenchmark {
+	private Path directory;
+	private Path input;
+	private Path output;
+	private Path previousOutput;
+	private ClassTweaker classTweaker;
+	// The class tweaker with one more class widened
+	private ClassTweaker changedClassTweaker;
+
+	@Setup
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("jar-transform-benchmark");
+		input = directory.resolve("input.jar");
+		output = directory.resolve("output.jar");
+		previousOutput = directory.resolve("previous.jar");
+		classTweaker = ClassTweaker.newInstance();
+		changedClassTweaker = ClassTweaker.newInstance();
+
+		final FileSystem fileSystem = FileSystems.getFileSystem(URI.create("jrt:/"));
+		final Path root = fileSystem.getPath("modules", "java.base");
+
+		try (Stream<Path> stream = Files.walk(root); ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(input))) {
+			final List<Path> classFiles = stream.filter(path -> path.toString().endsWith(".class") && !path.endsWith("module-info.class"))
+					.sorted()
+					.collect(Collectors.toList());
+
+			for (int i = 0; i < classFiles.size(); i++) {
+				final byte[] classBytes = Files.readAllBytes(classFiles.get(i));
+				final String className = new ClassReader(classBytes).getClassName();
+				zos.putNextEntry(new ZipEntry(className + ".class"));
+				zos.write(classBytes);
+				zos.closeEntry();
+
+				if (i % 20 == 0) {
+					classTweaker.visitAccessWidener(className).visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+				}
+
+				if (i % 20 == 0 || i == 1) {
+					changedClassTweaker.visitAccessWidener(className).visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+				}
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		ClassTweakerJarTransformer.create(classTweaker).transform(input, previousOutput);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(input);
+		Files.deleteIfExists(output);
+		Files.deleteIfExists(previousOutput);
+		Files.deleteIfExists(directory);
+	}
+
+	@Benchmark
+	public ClassTweakerJarTransformer.Result jarTransformer() throws IOException {
+		return ClassTweakerJarTransformer.create(classTweaker).transform(input, output);
+	}
+
+	@Benchmark
+	public ClassTweakerJarTransformer.Result incrementalJarTransformer() throws IOException {
+		return ClassTweakerJarTransformer.create(changedClassTweaker).transform(input, previousOutput, classTweaker, output);
+	}
+
+	@Benchmark
+	public void zipStreams() throws IOException {
+		try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(input)); ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(output))) {
+			ZipEntry entry;
+
+			while ((entry = zis.getNextEntry()) != null) {
+				byte[] bytes = zis.readAllBytes();
+
+				if (classTweaker.getTargets().contains(entry.getName().substring(0, entry.getName().length() - 6).replace('/', '.'))) {
+					final ClassReader classReader = new ClassReader(bytes);
+					final ClassWriter classWriter = new ClassWriter(0);
+					classReader.accept(classTweaker.createClassVisitor(Opcodes.ASM9, classWriter, null), 0);
+					bytes = classWriter.toByteArray();
+				}
+
+				zos.putNextEntry(new ZipEntry(entry.getName()));
+				zos.write(bytes);
+				zos.closeEntry();
+			}
+		}
+	}
+}
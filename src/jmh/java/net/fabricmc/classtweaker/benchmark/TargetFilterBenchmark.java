@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.benchmark;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+
+/**
+ * Checks the internal names of 60k loaded classes, 3k of which are targeted, as a class loader would.
+ * Compares the bloom filter of a frozen class tweaker (falling through to the exact lookup on a positive answer)
+ * against a {@link HashSet} of the target names. The names are either binary names, as passed to
+ * {@link ClassLoader#loadClass(String)}, or internal names.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TargetFilterBenchmark {
+	private static final int CLASSES = 60000;
+	private static final int TARGETS = 3000;
+
+	@Param({"true", "false"})
+	public boolean binaryNames;
+
+	private ClassTweaker frozen;
+	private Set<String> targetSet;
+	private String[] names;
+
+	@Setup
+	public void setup() {
+		final ClassTweaker classTweaker = new ClassTweakerImpl();
+		targetSet = new HashSet<>();
+		names = new String[CLASSES];
+
+		for (int i = 0; i < CLASSES; i++) {
+			final String name = BenchmarkData.className(i);
+			names[i] = binaryNames ? name.replace('/', '.') : name;
+
+			if (i % (CLASSES / TARGETS) == 0) {
+				classTweaker.visitAccessWidener(name).visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+				targetSet.add(names[i]);
+			}
+		}
+
+		frozen = classTweaker.freeze();
+	}
+
+	@Benchmark
+	public int hashSet() {
+		int count = 0;
+
+		for (String name : names) {
+			if (targetSet.contains(name)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Benchmark
+	public int mightTarget() {
+		int count = 0;
+
+		for (String name : names) {
+			if (frozen.mightTarget(name) && frozen.isTarget(name)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Benchmark
+	public int mightTargetOnly() {
+		int count = 0;
+
+		for (String name : names) {
+			if (frozen.mightTarget(name)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Benchmark
+	public int isTarget() {
+		int count = 0;
+
+		for (String name : names) {
+			if (frozen.isTarget(name)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+
+/**
+ * Looks up the internal names of loaded classes in the targets of a class tweaker, as a class loader would.
+ * The names are either all targeted, or all in packages without any targets.
+ * Compares {@link ClassTweaker#isTarget} against converting the name and looking it up in {@code getTargets()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TargetLookupBenchmark {
+	private static final int CLASSES = 5000;
+
+	@Param({"true", "false"})
+	public boolean targeted;
+
+	private ClassTweaker classTweaker;
+	private String[] names;
+
+	@Setup
+	public void setup() {
+		classTweaker = new ClassTweakerImpl();
+		names = new String[CLASSES];
+
+		for (int i = 0; i < CLASSES; i++) {
+			classTweaker.visitAccessWidener(BenchmarkData.className(i)).visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+			names[i] = targeted ? BenchmarkData.className(i) : (i % 2 == 0 ? "java/util/concurrent/Class" : "com/mojang/blaze3d/Class") + i;
+		}
+	}
+
+	@Benchmark
+	public int targetSet() {
+		int count = 0;
+
+		for (String name : names) {
+			if (classTweaker.getTargets().contains(name.replace('/', '.'))) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Benchmark
+	public int targetIndex() {
+		int count = 0;
+
+		for (String name : names) {
+			if (classTweaker.isTarget(name)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+}
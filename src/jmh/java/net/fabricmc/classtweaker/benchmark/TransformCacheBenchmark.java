@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.fabricmc.classtweaker.api.TransformCache;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+
+/**
+ * Compares transforming a class that needs the visitors against getting the result from a warm {@link TransformCache},
+ * stored on disk or in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformCacheBenchmark {
+	private static final String CLASS_NAME = "net/fabricmc/benchmark/Target";
+
+	@Param({"50"})
+	public int members;
+
+	private ClassTweakerImpl classTweaker;
+	private byte[] classBytes;
+	private Path cacheDir;
+	private TransformCache cache;
+	private TransformCache memoryCache;
+
+	@Setup
+	public void setup() throws IOException {
+		classTweaker = new ClassTweakerImpl();
+		classTweaker.visitInjectedInterface(CLASS_NAME, "java/lang/Runnable", false);
+
+		final ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		classWriter.visit(Opcodes.V17, Opcodes.ACC_FINAL, CLASS_NAME, null, "java/lang/Object", null);
+
+		for (int i = 0; i < members; i++) {
+			final MethodVisitor methodVisitor = classWriter.visitMethod(Opcodes.ACC_PRIVATE, "method" + i, "()I", null, null);
+			methodVisitor.visitCode();
+			methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+			methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, CLASS_NAME, "method" + ((i + 1) % members), "()I", false);
+			methodVisitor.visitInsn(Opcodes.IRETURN);
+			methodVisitor.visitMaxs(0, 0);
+			methodVisitor.visitEnd();
+
+			// Half of the methods are widened, so the calls to them are rewritten
+			if (i % 2 == 0) {
+				classTweaker.visitAccessWidener(CLASS_NAME).visitMethod("method" + i, "()I", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+			}
+		}
+
+		classWriter.visitEnd();
+		classBytes = classWriter.toByteArray();
+
+		cacheDir = Files.createTempDirectory("transform-cache");
+		cache = TransformCache.create(cacheDir, Long.MAX_VALUE);
+		cache.transform(classTweaker, classBytes, null);
+		memoryCache = TransformCache.createInMemory(Long.MAX_VALUE);
+		memoryCache.transform(classTweaker, classBytes, null);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(cacheDir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public byte[] transform() {
+		return classTweaker.transform(classBytes).getBytes();
+	}
+
+	@Benchmark
+	public byte[] cachedTransform() {
+		return cache.transform(classTweaker, classBytes, null).getBytes();
+	}
+
+	@Benchmark
+	public byte[] memoryCachedTransform() {
+		return memoryCache.transform(classTweaker, classBytes, null).getBytes();
+	}
+}
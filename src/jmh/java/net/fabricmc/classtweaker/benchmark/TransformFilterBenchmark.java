@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.fabricmc.classtweaker.api.TransformFilter;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+
+/**
+ * Decides which classes of the {@code java.base} module need transforming, with every 20th class targeted.
+ * Compares {@link TransformFilter} against reading the name with ASM and looking it up in {@code getTargets()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformFilterBenchmark {
+	// The number of classes to use, 0 for all. Fewer classes stay in the CPU cache, like a class that was just read.
+	@Param({"0", "100"})
+	public int limit;
+
+	private ClassTweakerImpl classTweaker;
+	private TransformFilter filter;
+	private byte[][] classes;
+
+	@Setup
+	public void setup() throws IOException {
+		final FileSystem fileSystem = FileSystems.getFileSystem(URI.create("jrt:/"));
+
+		try (Stream<Path> stream = Files.walk(fileSystem.getPath("modules", "java.base"))) {
+			final List<Path> classFiles = stream.filter(path -> path.toString().endsWith(".class") && !path.endsWith("module-info.class"))
+					.sorted()
+					.collect(Collectors.toList());
+			classes = new byte[limit > 0 ? Math.min(limit, classFiles.size()) : classFiles.size()][];
+
+			for (int i = 0; i < classes.length; i++) {
+				classes[i] = Files.readAllBytes(classFiles.get(i));
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		classTweaker = new ClassTweakerImpl();
+
+		for (int i = 0; i < classes.length; i += 20) {
+			classTweaker.visitAccessWidener(new ClassReader(classes[i]).getClassName()).visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		}
+
+		filter = TransformFilter.create(classTweaker);
+	}
+
+	@Benchmark
+	public int filter() {
+		int count = 0;
+
+		for (byte[] classBytes : classes) {
+			if (filter.needsTransform(classBytes)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Benchmark
+	public int classReaderTargets() {
+		int count = 0;
+
+		for (byte[] classBytes : classes) {
+			if (classTweaker.getTargets().contains(new ClassReader(classBytes).getClassName().replace('/', '.'))) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+}
@@ -16,8 +16,10 @@
 
 package net.fabricmc.classtweaker.api;
 
+import java.util.Iterator;
 import java.util.Map;
 
+import net.fabricmc.classtweaker.utils.AccessUtils;
 import net.fabricmc.classtweaker.utils.EntryTriple;
 
 public interface AccessWidener {
@@ -27,6 +29,55 @@ public interface AccessWidener {
 
 	Access getFieldAccess(EntryTriple entryTriple);
 
+	/**
+	 * Looks up the access of a method of this class, same as {@link #getMethodAccess(EntryTriple)} without having to
+	 * create an {@link EntryTriple}.
+	 *
+	 * <p>The default implementation takes the owner from {@link #getAllMethodAccesses()} and creates the
+	 * {@link EntryTriple}, implementations should override it.
+	 */
+	default Access getMethodAccess(String name, String descriptor) {
+		final Iterator<EntryTriple> entryTriples = getAllMethodAccesses().keySet().iterator();
+		final String owner = entryTriples.hasNext() ? entryTriples.next().getOwner() : "";
+		return getMethodAccess(new EntryTriple(owner, name, descriptor));
+	}
+
+	/**
+	 * Looks up the access of a field of this class, same as {@link #getFieldAccess(EntryTriple)} without having to
+	 * create an {@link EntryTriple}.
+	 *
+	 * <p>The default implementation takes the owner from {@link #getAllFieldAccesses()} and creates the
+	 * {@link EntryTriple}, implementations should override it.
+	 */
+	default Access getFieldAccess(String name, String descriptor) {
+		final Iterator<EntryTriple> entryTriples = getAllFieldAccesses().keySet().iterator();
+		final String owner = entryTriples.hasNext() ? entryTriples.next().getOwner() : "";
+		return getFieldAccess(new EntryTriple(owner, name, descriptor));
+	}
+
+	/**
+	 * Same as the {@link Access#getBits() bits} of {@link #getClassAccess()}.
+	 */
+	default int getClassAccessBits() {
+		return getClassAccess().getBits();
+	}
+
+	/**
+	 * Same as the {@link Access#getBits() bits} of {@link #getMethodAccess(String, String)}, implementations storing
+	 * the bits return them without creating or looking up an {@link Access}.
+	 */
+	default int getMethodAccessBits(String name, String descriptor) {
+		return getMethodAccess(name, descriptor).getBits();
+	}
+
+	/**
+	 * Same as the {@link Access#getBits() bits} of {@link #getFieldAccess(String, String)}, implementations storing
+	 * the bits return them without creating or looking up an {@link Access}.
+	 */
+	default int getFieldAccessBits(String name, String descriptor) {
+		return getFieldAccess(name, descriptor).getBits();
+	}
+
 	Map<EntryTriple, Access> getAllMethodAccesses();
 
 	Map<EntryTriple, Access> getAllFieldAccesses();
@@ -40,6 +91,14 @@ public interface AccessWidener {
 			return isAccessible() || isExtendable() || isMutable();
 		}
 
+		/**
+		 * @return the {@link AccessUtils#ACCESSIBLE}, {@link AccessUtils#EXTENDABLE} and {@link AccessUtils#MUTABLE}
+		 * bits of this access, which can be applied using {@link AccessUtils#apply}
+		 */
+		default int getBits() {
+			return (isAccessible() ? AccessUtils.ACCESSIBLE : 0) | (isExtendable() ? AccessUtils.EXTENDABLE : 0) | (isMutable() ? AccessUtils.MUTABLE : 0);
+		}
+
 		int apply(int access, String targetName, int ownerAccess);
 	}
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import net.fabricmc.classtweaker.api.visitor.ClassTweakerVisitor;
+import net.fabricmc.classtweaker.reader.BinaryClassTweakerReaderImpl;
+
+/**
+ * Reads the compiled binary format written by {@link BinaryClassTweakerWriter}.
+ */
+public interface BinaryClassTweakerReader {
+	static BinaryClassTweakerReader create(ClassTweakerVisitor visitor) {
+		return new BinaryClassTweakerReaderImpl(visitor);
+	}
+
+	/**
+	 * Passes the entries to the visitor, as non-transitive entries sorted by owner.
+	 */
+	void read(byte[] content);
+
+	/**
+	 * Returns a read-only class tweaker that answers lookups directly from the buffer, without decoding it upfront.
+	 * The buffer must not be modified afterwards.
+	 */
+	static ClassTweaker load(ByteBuffer buffer) {
+		return BinaryClassTweakerReaderImpl.load(buffer);
+	}
+
+	/**
+	 * Memory-maps the file and returns a read-only class tweaker backed by it, see {@link #load(ByteBuffer)}.
+	 */
+	static ClassTweaker load(Path path) throws IOException {
+		return BinaryClassTweakerReaderImpl.load(path);
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.api;
+
+import net.fabricmc.classtweaker.api.visitor.ClassTweakerVisitor;
+import net.fabricmc.classtweaker.writer.BinaryClassTweakerWriterImpl;
+
+/**
+ * Writes the compiled binary format, which can be loaded using {@link BinaryClassTweakerReader#load}
+ * without parsing the text format or building the in-memory representation.
+ *
+ * <p>The visited entries are merged the same way as {@link ClassTweaker#newInstance()} does, the binary format
+ * only stores the result. Transitive flags are not stored.
+ */
+public interface BinaryClassTweakerWriter extends ClassTweakerVisitor {
+	static BinaryClassTweakerWriter create() {
+		return new BinaryClassTweakerWriterImpl();
+	}
+
+	/**
+	 * Writes an already loaded class tweaker.
+	 */
+	static byte[] write(ClassTweaker classTweaker) {
+		return BinaryClassTweakerWriterImpl.write(classTweaker);
+	}
+
+	byte[] writeBytes();
+}
@@ -24,8 +24,19 @@ import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassVisitor;
 
 import net.fabricmc.classtweaker.api.visitor.ClassTweakerVisitor;
+import net.fabricmc.classtweaker.impl.ClassTransformer;
 import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+import net.fabricmc.classtweaker.impl.FrozenClassTweakerImpl;
 
+/**
+ * Holds the class tweaks read from any number of sources, and applies them to classes.
+ *
+ * <p>Once all entries have been visited, the lookup methods, {@link #createClassVisitor} and {@link #transform} can be
+ * called from any number of threads at once. The class tweaker must be handed to those threads safely after loading,
+ * for example through a final or volatile field, a concurrent collection or by starting the threads afterwards.
+ * {@link #freeze()} returns a copy that can be shared in any way, and {@link #newConcurrentInstance()} creates one that
+ * can also be read while it is being visited.
+ */
 public interface ClassTweaker extends ClassTweakerVisitor {
 	// Access widener format versions
 	int AW_V1 = 1;
@@ -40,12 +51,39 @@ public interface ClassTweaker extends ClassTweakerVisitor {
 		return new ClassTweakerImpl();
 	}
 
+	/**
+	 * Creates a class tweaker that can be visited from multiple threads at once, for example to read many sources in
+	 * parallel. The lookup methods are lock free and can be called while entries are being added.
+	 *
+	 * <p>Use {@link #visitSource(int)} to keep the order of {@link #getTargets()} and {@link #getClasses()} independent
+	 * of how the threads are scheduled.
+	 *
+	 * @return a new thread safe {@link ClassTweaker} instance.
+	 */
+	static ClassTweaker newConcurrentInstance() {
+		return new ClassTweakerImpl(true);
+	}
+
 	/**
 	 * The mapping namespace of the current class tweaker.
 	 * @return the mappings namespace.
 	 */
 	String getNamespace();
 
+	/**
+	 * Returns a visitor that adds the entries of a single source to this class tweaker.
+	 *
+	 * <p>For concurrent class tweakers the targets and classes are ordered by the index of the first source that
+	 * visited them, so the result is the same as visiting the sources one after another in index order. Each returned
+	 * visitor must only be used by one thread at a time. Other class tweakers return themselves, keeping the order
+	 * the entries are visited in.
+	 *
+	 * @param sourceIndex the position of the source in the list of all sources, must not be negative
+	 */
+	default ClassTweakerVisitor visitSource(int sourceIndex) {
+		return this;
+	}
+
 	/**
 	 * Contains a list of all classes that should be transformed.
 	 * This may contain classes (usually parent classes) that do have a direct class tweak to be applied to them.
@@ -54,6 +92,53 @@ public interface ClassTweaker extends ClassTweakerVisitor {
 	 */
 	Set<String> getTargets();
 
+	/**
+	 * Checks whether the class is in {@link #getTargets()}, accepting names in either form.
+	 * The class tweakers created by this library answer without allocating.
+	 *
+	 * @param className the binary or internal name of the class (i.e. a.b.C$I or a/b/C$I)
+	 */
+	default boolean isTarget(CharSequence className) {
+		return getTargets().contains(className.toString().replace('/', '.'));
+	}
+
+	/**
+	 * Checks whether any of {@link #getTargets()} is in the package or one of its subpackages, so that loaders can skip
+	 * packages without targets. The class tweakers created by this library answer without allocating.
+	 *
+	 * @param packageName the package name separated by either periods or forward slashes, optionally followed by a
+	 * separator (i.e. a.b, a/b or a/b/)
+	 */
+	default boolean hasTargetsInPackage(CharSequence packageName) {
+		String prefix = packageName.toString().replace('/', '.');
+
+		if (!prefix.endsWith(".")) {
+			prefix += ".";
+		}
+
+		for (String target : getTargets()) {
+			if (target.startsWith(prefix)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Quickly rules out classes that are not in {@link #getTargets()}, accepting names in either form. Only a
+	 * {@code true} result needs to be confirmed using {@link #isTarget} or the other lookups.
+	 *
+	 * <p>Frozen class tweakers answer from a bloom filter built by {@link #freeze(double)}, which tests bits in a
+	 * single cache line. Other class tweakers answer exactly, using {@link #isTarget}.
+	 *
+	 * @param className the binary or internal name of the class (i.e. a.b.C$I or a/b/C$I)
+	 * @return {@code false} if the class is not a target, {@code true} if it might be
+	 */
+	default boolean mightTarget(CharSequence className) {
+		return isTarget(className);
+	}
+
 	/**
 	 * Contains a list of all the classes that have class tweakers.
 	 * Names are forward slash separated. (i.e a/b/C$I);
@@ -73,4 +158,69 @@ public interface ClassTweaker extends ClassTweakerVisitor {
 	Map<String, Set<InjectedInterface>> getAllInjectedInterfaces();
 
 	ClassVisitor createClassVisitor(int api, @Nullable ClassVisitor classVisitor, @Nullable BiConsumer<String, byte[]> generatedClassConsumer);
+
+	/**
+	 * Creates a class visitor containing only the stages needed to transform the given class.
+	 * If no class tweak applies to the class the passed visitor is returned unchanged.
+	 *
+	 * <p>The returned visitor must only be used to visit the named class. The default implementation ignores the name
+	 * and returns the visitor of {@link #createClassVisitor(int, ClassVisitor, BiConsumer)}.
+	 *
+	 * @param className the forward slash separated name of the class that will be visited (i.e. a/b/C$I)
+	 */
+	default ClassVisitor createClassVisitor(int api, String className, @Nullable ClassVisitor classVisitor, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
+		return createClassVisitor(api, classVisitor, generatedClassConsumer);
+	}
+
+	/**
+	 * Creates an immutable copy of this class tweaker, that uses less memory and is safe to share between threads.
+	 * Implementations that are already immutable return themselves.
+	 *
+	 * @return the frozen class tweaker, whose visit methods throw {@link UnsupportedOperationException}
+	 */
+	default ClassTweaker freeze() {
+		return new FrozenClassTweakerImpl(this);
+	}
+
+	/**
+	 * Creates an immutable copy of this class tweaker like {@link #freeze()}, choosing the false positive rate of
+	 * {@link #mightTarget}. A lower rate uses more memory, about 23 bits per target for 1% and 35 bits for 0.1%.
+	 *
+	 * @param falsePositiveRate the fraction of names that are not targets for which {@link #mightTarget} returns
+	 * {@code true}, between 0 and 1 exclusive. {@link #freeze()} uses 1%.
+	 */
+	default ClassTweaker freeze(double falsePositiveRate) {
+		return new FrozenClassTweakerImpl(this, falsePositiveRate);
+	}
+
+	/**
+	 * Applies the class tweaks to a class file, see {@link #transform(byte[], BiConsumer)}.
+	 * The class must not have any enum extensions, as the classes they generate would be lost.
+	 */
+	default TransformResult transform(byte[] classBytes) {
+		return transform(classBytes, null);
+	}
+
+	/**
+	 * Applies the class tweaks to a class file.
+	 *
+	 * <p>Only the parts of the class that are affected by a class tweak are rewritten, the constant pool and any
+	 * unchanged methods are copied from the original class.
+	 *
+	 * @param classBytes the class file to transform
+	 * @param generatedClassConsumer receives the classes generated for enum extensions
+	 * @return the result, containing the original array if the class was not changed
+	 */
+	default TransformResult transform(byte[] classBytes, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
+		return ClassTransformer.transform(this, classBytes, generatedClassConsumer);
+	}
+
+	interface TransformResult {
+		/**
+		 * @return the transformed class file, or the passed in array if the class was not changed
+		 */
+		byte[] getBytes();
+
+		boolean isChanged();
+	}
 }
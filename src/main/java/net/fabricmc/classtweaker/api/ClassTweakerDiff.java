@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.api;
+
+import java.util.Set;
+
+import net.fabricmc.classtweaker.impl.ClassTweakerDiffImpl;
+
+public final class ClassTweakerDiff {
+	private ClassTweakerDiff() {
+	}
+
+	/**
+	 * Finds the classes that are transformed differently by two class tweakers, so that only those need to be
+	 * transformed again after a class tweaker changed.
+	 *
+	 * <p>A class is affected when the access of the class or any of its members, its enum extensions (including the
+	 * id and hash code written to the generated fields) or its injected interfaces differ. The outer classes of an
+	 * affected class are included too, as they are in {@link ClassTweaker#getTargets()}.
+	 *
+	 * @return the forward slash separated names of the affected classes (i.e. a/b/C$I)
+	 */
+	public static Set<String> compute(ClassTweaker before, ClassTweaker after) {
+		return ClassTweakerDiffImpl.compute(before, after);
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.api;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import net.fabricmc.classtweaker.impl.JarTransformerImpl;
+
+/**
+ * Applies a class tweaker to all the classes of a jar.
+ *
+ * <p>The targeted classes are transformed and compressed in parallel, the classes generated for enum extensions are
+ * added after the enum they belong to. All other entries are copied without inflating and compressing them again.
+ * Zip64 jars are not supported.
+ */
+public interface ClassTweakerJarTransformer {
+	static ClassTweakerJarTransformer create(ClassTweaker classTweaker) {
+		return create(classTweaker, ForkJoinPool.commonPool());
+	}
+
+	static ClassTweakerJarTransformer create(ClassTweaker classTweaker, ForkJoinPool pool) {
+		return new JarTransformerImpl(classTweaker, pool);
+	}
+
+	/**
+	 * Transforms the input jar, replacing the output jar once it has been fully written.
+	 */
+	Result transform(Path input, Path output) throws IOException;
+
+	/**
+	 * Transforms the input jar again after the class tweaker changed, reusing the output of the previous transform.
+	 *
+	 * <p>Only the classes found by {@link ClassTweakerDiff#compute} are transformed again, along with the classes
+	 * generated for them. All other entries are copied from the previous output, which must have been created by
+	 * {@link #transform(Path, Path)}. Entries that have changed in the input since are taken from the input, or
+	 * transformed again, instead. For this, the crc of the input of every transformed class is recorded in an extra
+	 * field of its entry, and generated classes are marked with another extra field.
+	 *
+	 * @param previousClassTweaker the class tweaker the previous output was created with
+	 * @param output the output jar, which can be the same as the previous output
+	 */
+	Result transform(Path input, Path previousOutput, ClassTweaker previousClassTweaker, Path output) throws IOException;
+
+	interface Result {
+		/**
+		 * @return the number of classes that were changed
+		 */
+		int getTransformedClasses();
+
+		/**
+		 * @return the number of classes that were added for enum extensions
+		 */
+		int getGeneratedClasses();
+
+		/**
+		 * @return the number of entries that were copied without changes
+		 */
+		int getCopiedEntries();
+	}
+}
@@ -18,8 +18,14 @@ package net.fabricmc.classtweaker.api;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.jetbrains.annotations.Nullable;
 
 import net.fabricmc.classtweaker.api.visitor.ClassTweakerVisitor;
+import net.fabricmc.classtweaker.reader.ClassTweakerCacheImpl;
 import net.fabricmc.classtweaker.reader.ClassTweakerReaderImpl;
 
 public interface ClassTweakerReader {
@@ -27,6 +33,14 @@ public interface ClassTweakerReader {
 		return new ClassTweakerReaderImpl(visitor);
 	}
 
+	/**
+	 * Creates a reader that caches the result of reading bytes, unchanged content is then passed to the visitor
+	 * without parsing it again. Reads from a {@link BufferedReader} are not cached.
+	 */
+	static ClassTweakerReader create(ClassTweakerVisitor visitor, Cache cache) {
+		return new ClassTweakerReaderImpl(visitor, (ClassTweakerCacheImpl) cache);
+	}
+
 	void read(byte[] content, String id);
 
 	void read(byte[] content, String currentNamespace, String id);
@@ -35,6 +49,15 @@ public interface ClassTweakerReader {
 
 	void read(BufferedReader reader, String currentNamespace, String id) throws IOException;
 
+	/**
+	 * Reads all sources, parsing them in parallel on the given executor.
+	 *
+	 * <p>The visitor receives the entries of each source in the order of the list, so the result (including any
+	 * thrown exception) is the same as reading the sources one after another on the calling thread.
+	 * Reading stops at the first source that fails.
+	 */
+	void readAll(List<? extends Source> sources, Executor executor);
+
 	static int readVersion(byte[] content) {
 		return ClassTweakerReaderImpl.readVersion(content);
 	}
@@ -51,6 +74,38 @@ public interface ClassTweakerReader {
 		return ClassTweakerReaderImpl.readHeader(reader);
 	}
 
+	/**
+	 * An on-disk cache of read class tweakers, keyed by a hash of the content and the current namespace.
+	 * The directory can safely be shared between processes.
+	 */
+	interface Cache {
+		/**
+		 * @param maxSize the size in bytes above which the least recently used entries are removed
+		 */
+		static Cache create(Path directory, long maxSize) {
+			return new ClassTweakerCacheImpl(directory, maxSize);
+		}
+
+		long getHits();
+
+		long getMisses();
+	}
+
+	interface Source {
+		static Source of(byte[] content, String id) {
+			return of(content, null, id);
+		}
+
+		static Source of(byte[] content, @Nullable String currentNamespace, String id) {
+			return new ClassTweakerReaderImpl.SourceImpl(content, currentNamespace, id);
+		}
+
+		byte[] getContent();
+		@Nullable
+		String getCurrentNamespace();
+		String getId();
+	}
+
 	interface Header {
 		int getVersion();
 		String getNamespace();
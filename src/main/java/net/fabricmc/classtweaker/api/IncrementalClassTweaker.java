@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.api;
+
+import java.util.Set;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.classtweaker.impl.IncrementalClassTweakerImpl;
+
+/**
+ * A class tweaker built from a set of sources that can be re-read one at a time, for example when a single class
+ * tweaker file changes during development.
+ *
+ * <p>The rules of every source are kept, so re-reading a source only updates the classes whose rules in that source
+ * changed, rebuilding them from all the sources that contribute to them. The result has the same contents as reading
+ * all the sources into a new class tweaker, but classes that were added by an update come after the existing ones in
+ * {@link ClassTweaker#getTargets()} and {@link ClassTweaker#getClasses()}.
+ *
+ * <p>This is not thread safe, use a {@link VersionedClassTweaker} to publish the result to threads transforming classes.
+ */
+public interface IncrementalClassTweaker {
+	static IncrementalClassTweaker create() {
+		return new IncrementalClassTweakerImpl();
+	}
+
+	/**
+	 * The class tweaker containing the rules of all sources, which is updated in place.
+	 */
+	ClassTweaker getClassTweaker();
+
+	/**
+	 * See {@link #read(byte[], String, String)}.
+	 */
+	default Set<String> read(byte[] content, String id) {
+		return read(content, null, id);
+	}
+
+	/**
+	 * Reads a source, replacing the rules previously read with the same id.
+	 * If reading fails nothing is changed.
+	 *
+	 * @return the targets whose class tweaks changed, as period-separated binary names (i.e. a.b.C), see {@link ClassTweaker#getTargets()}
+	 */
+	Set<String> read(byte[] content, @Nullable String currentNamespace, String id);
+
+	/**
+	 * Removes the rules of a source.
+	 *
+	 * @return the targets whose class tweaks changed, as period-separated binary names (i.e. a.b.C)
+	 */
+	Set<String> remove(String id);
+
+	/**
+	 * @return the ids of all sources, in the order they were first read
+	 */
+	Set<String> getSourceIds();
+
+	/**
+	 * @param className the forward slash separated name of a class (i.e. a/b/C$I)
+	 * @return the ids of the sources that have a class tweak for the class
+	 */
+	Set<String> getSourceIds(String className);
+
+	/**
+	 * Returns the rules of a single source, with the accesses of each member merged within that source.
+	 *
+	 * @return an immutable copy of the rules of the source, or {@code null} if there is no source with the id
+	 */
+	@Nullable
+	ClassTweaker getSource(String id);
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.api;
+
+import java.nio.file.Path;
+import java.util.function.BiConsumer;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.classtweaker.impl.MemoryTransformCacheImpl;
+import net.fabricmc.classtweaker.impl.TransformCacheImpl;
+
+/**
+ * A cache of transformed classes, so that classes that were transformed before are not read with ASM again.
+ * The classes generated for enum extensions are stored with the class they belong to.
+ */
+public interface TransformCache {
+	/**
+	 * Creates a cache that stores the classes in a directory, to reuse them in later runs.
+	 *
+	 * <p>Entries are keyed by a hash of the class file and of the class tweaks that apply to that class only, so
+	 * changes to the class tweaks of other classes keep the entry valid. The directory can safely be shared between
+	 * processes.
+	 *
+	 * @param maxSize the size in bytes above which the least recently used entries are removed
+	 */
+	static TransformCache create(Path directory, long maxSize) {
+		return new TransformCacheImpl(directory, maxSize);
+	}
+
+	/**
+	 * Creates a cache that keeps the classes in memory, for when the same class is defined by several class loaders.
+	 *
+	 * <p>Entries are keyed by the class file and the identity of the class tweaker, which must not be changed after it
+	 * was first used with the cache. To pick up changes, use a new class tweaker, such as the snapshots of a
+	 * {@link VersionedClassTweaker}. The cache doesn't keep class tweakers from being garbage collected.
+	 * The returned class files are shared between all hits, and must not be modified.
+	 *
+	 * @param maxSize the approximate memory use in bytes above which the least recently used entries are removed
+	 */
+	static TransformCache createInMemory(long maxSize) {
+		return new MemoryTransformCacheImpl(maxSize);
+	}
+
+	/**
+	 * Applies the class tweaks to a class file like {@link ClassTweaker#transform(byte[], BiConsumer)}, using the
+	 * cached result if there is one. Classes that are not targeted by the class tweaker are returned unchanged
+	 * without accessing the cache.
+	 */
+	ClassTweaker.TransformResult transform(ClassTweaker classTweaker, byte[] classBytes, @Nullable BiConsumer<String, byte[]> generatedClassConsumer);
+
+	long getHits();
+
+	long getMisses();
+}
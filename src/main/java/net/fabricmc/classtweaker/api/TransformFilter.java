@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.api;
+
+import net.fabricmc.classtweaker.impl.TransformFilterImpl;
+
+/**
+ * Quickly decides whether a class file needs to be transformed by a {@link ClassTweaker}, without parsing it with ASM.
+ */
+public interface TransformFilter {
+	/**
+	 * Creates a filter for the classes targeted by the class tweaker, later changes to the class tweaker are not reflected.
+	 */
+	static TransformFilter create(ClassTweaker classTweaker) {
+		return new TransformFilterImpl(classTweaker);
+	}
+
+	/**
+	 * Checks the name of the class, and whether it is an enum, against the classes targeted by the class tweaker.
+	 * Only the constant pool, access flags and name of the class are read.
+	 *
+	 * <p>Classes that are only in {@link ClassTweaker#getTargets()} as the outer class of a targeted class are not
+	 * changed by the class tweaker, and do not need to be transformed.
+	 *
+	 * @return whether the class should be transformed, or {@code true} if the class file could not be read
+	 */
+	boolean needsTransform(byte[] classBytes);
+}
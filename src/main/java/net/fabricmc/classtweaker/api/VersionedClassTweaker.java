@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.api;
+
+import java.util.function.Consumer;
+
+import net.fabricmc.classtweaker.api.visitor.ClassTweakerVisitor;
+import net.fabricmc.classtweaker.impl.VersionedClassTweakerImpl;
+
+/**
+ * Holds the current version of a class tweaker that can be replaced while classes are being transformed, for example
+ * to reload the class tweaker files during development.
+ *
+ * <p>Every version is an immutable {@linkplain ClassTweaker#freeze() frozen} class tweaker, published atomically
+ * without locking. Class visitors created from a snapshot keep using it, even if a newer version is published while
+ * the class is being transformed.
+ */
+public interface VersionedClassTweaker {
+	/**
+	 * @return a holder whose first version, numbered 0, is an empty class tweaker
+	 */
+	static VersionedClassTweaker create() {
+		return create(ClassTweaker.newInstance());
+	}
+
+	/**
+	 * @return a holder whose first version, numbered 0, is a frozen copy of the class tweaker
+	 */
+	static VersionedClassTweaker create(ClassTweaker classTweaker) {
+		return new VersionedClassTweakerImpl(classTweaker);
+	}
+
+	/**
+	 * @return the current version, use {@link Snapshot#getVersion()} to know which version the class tweaker is
+	 */
+	Snapshot getSnapshot();
+
+	/**
+	 * @return the class tweaker of the current version
+	 */
+	default ClassTweaker get() {
+		return getSnapshot().getClassTweaker();
+	}
+
+	/**
+	 * The number of the current version, which increases by one every time a new version is published.
+	 * Caches of transformed classes can store this number to know when they need to be invalidated.
+	 */
+	default long getVersion() {
+		return getSnapshot().getVersion();
+	}
+
+	/**
+	 * Publishes a frozen copy of the class tweaker as the next version.
+	 *
+	 * @return the number of the published version
+	 */
+	long set(ClassTweaker classTweaker);
+
+	/**
+	 * Publishes a frozen copy of the class tweaker, only if the current version has the expected number.
+	 *
+	 * @return whether the version was published
+	 */
+	boolean compareAndSet(long expectedVersion, ClassTweaker classTweaker);
+
+	/**
+	 * Reads the next version into a new class tweaker on the calling thread and then publishes it.
+	 * The current version stays in use while reading, and is kept if the loader throws.
+	 *
+	 * @param loader visits all the entries of the new version, for example by passing the visitor to a {@link ClassTweakerReader}
+	 * @return the number of the published version
+	 */
+	default long reload(Consumer<? super ClassTweakerVisitor> loader) {
+		final ClassTweaker classTweaker = ClassTweaker.newInstance();
+		loader.accept(classTweaker);
+		return set(classTweaker);
+	}
+
+	interface Snapshot {
+		ClassTweaker getClassTweaker();
+
+		long getVersion();
+	}
+}
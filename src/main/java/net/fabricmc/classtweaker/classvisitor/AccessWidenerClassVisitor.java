@@ -16,6 +16,8 @@
 
 package net.fabricmc.classtweaker.classvisitor;
 
+import java.util.Map;
+
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.Handle;
@@ -25,6 +27,7 @@ import org.objectweb.asm.Opcodes;
 import net.fabricmc.classtweaker.api.AccessWidener;
 import net.fabricmc.classtweaker.api.ClassTweaker;
 import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+import net.fabricmc.classtweaker.utils.AccessUtils;
 import net.fabricmc.classtweaker.utils.EntryTriple;
 
 /**
@@ -34,8 +37,11 @@ public final class AccessWidenerClassVisitor extends ClassVisitor {
 	private final ClassTweaker classTweaker;
 	private String className;
 	private int classAccess;
+	private int classAccessBits;
 
 	private AccessWidener accessWidener = null;
+	// Whether any calls to methods of this class need to be rewritten
+	private boolean rewriteCalls;
 
 	public AccessWidenerClassVisitor(int api, ClassVisitor classVisitor, ClassTweaker classTweaker) {
 		super(api, classVisitor);
@@ -47,10 +53,12 @@ public final class AccessWidenerClassVisitor extends ClassVisitor {
 		className = name;
 		classAccess = access;
 		accessWidener = classTweaker.getAccessWidener(name);
+		classAccessBits = accessWidener.getClassAccessBits();
+		rewriteCalls = rewritesCalls(accessWidener);
 
 		super.visit(
 				version,
-				accessWidener.getClassAccess().apply(access, name, classAccess),
+				AccessUtils.apply(AccessUtils.KIND_CLASS, classAccessBits, access, name, classAccess),
 				name,
 				signature,
 				superName,
@@ -60,9 +68,7 @@ public final class AccessWidenerClassVisitor extends ClassVisitor {
 
 	@Override
 	public void visitPermittedSubclass(String permittedSubclass) {
-		final AccessWidener.Access access = accessWidener.getClassAccess();
-
-		if (access.isExtendable()) {
+		if ((classAccessBits & AccessUtils.EXTENDABLE) != 0) {
 			return;
 		}
 
@@ -75,14 +81,14 @@ public final class AccessWidenerClassVisitor extends ClassVisitor {
 				name,
 				outerName,
 				innerName,
-				accessWidener.getClassAccess().apply(access, name, classAccess)
+				AccessUtils.apply(AccessUtils.KIND_CLASS, classAccessBits, access, name, classAccess)
 		);
 	}
 
 	@Override
 	public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
 		return super.visitField(
-				accessWidener.getFieldAccess(new EntryTriple(className, name, descriptor)).apply(access, name, classAccess),
+				AccessUtils.apply(AccessUtils.KIND_FIELD, accessWidener.getFieldAccessBits(name, descriptor), access, name, classAccess),
 				name,
 				descriptor,
 				signature,
@@ -92,13 +98,33 @@ public final class AccessWidenerClassVisitor extends ClassVisitor {
 
 	@Override
 	public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
-		return new AccessWidenerMethodVisitor(super.visitMethod(
-				accessWidener.getMethodAccess(new EntryTriple(className, name, descriptor)).apply(access, name, classAccess),
+		final MethodVisitor methodVisitor = super.visitMethod(
+				AccessUtils.apply(AccessUtils.KIND_METHOD, accessWidener.getMethodAccessBits(name, descriptor), access, name, classAccess),
 				name,
 				descriptor,
 				signature,
 				exceptions
-		));
+		);
+
+		// Only wrap methods that can contain a call to rewrite, this allows ASM to copy the others without parsing the code.
+		if (methodVisitor == null || !rewriteCalls || (access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) {
+			return methodVisitor;
+		}
+
+		return new AccessWidenerMethodVisitor(methodVisitor);
+	}
+
+	/**
+	 * @return whether calls to methods of the class need to be rewritten, as one of its methods has changed access
+	 */
+	public static boolean rewritesCalls(AccessWidener accessWidener) {
+		for (Map.Entry<EntryTriple, AccessWidener.Access> entry : accessWidener.getAllMethodAccesses().entrySet()) {
+			if (!entry.getKey().getName().equals("<init>") && entry.getValue().isChanged()) {
+				return true;
+			}
+		}
+
+		return false;
 	}
 
 	private class AccessWidenerMethodVisitor extends MethodVisitor {
@@ -131,7 +157,7 @@ public final class AccessWidenerClassVisitor extends ClassVisitor {
 		}
 
 		private boolean isTargetMethod(String owner, String name, String descriptor) {
-			return owner.equals(className) && !name.equals("<init>") && accessWidener.getMethodAccess(new EntryTriple(owner, name, descriptor)).isChanged();
+			return owner.equals(className) && !name.equals("<init>") && accessWidener.getMethodAccess(name, descriptor).isChanged();
 		}
 	}
 }
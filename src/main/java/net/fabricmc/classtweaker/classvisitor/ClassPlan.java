@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.classvisitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.EnumExtension;
+import net.fabricmc.classtweaker.api.InjectedInterface;
+
+/**
+ * Everything the {@link ClassTweakerClassVisitor} needs to transform one class, computed from the class tweaker
+ * ahead of time so that transforming the class only does work for its own members.
+ *
+ * <p>A frozen class tweaker builds the plans of all of its classes when it is frozen. Other class tweakers create a
+ * plan each time a class is visited, which copies the enum extensions and checks the method accesses of the class
+ * just like the separate visitors do. Plans are immutable and can be shared between threads.
+ */
+public final class ClassPlan {
+	private static final String[] NO_STRINGS = new String[0];
+
+	final AccessWidener accessWidener;
+	final int classAccessBits;
+	// Whether any calls to methods of this class need to be rewritten
+	final boolean rewriteCalls;
+
+	// The injected interface names without duplicates, the class signature of each, and all of them concatenated
+	final String[] interfaceNames;
+	final String[] interfaceSignatures;
+	private final String interfaceSignatureSuffix;
+
+	// In the order the enum fields are generated, must not be modified
+	final Map<String, EnumExtension> enumExtensions;
+	final boolean generateOverrides;
+	// Enum field name to the name of the class generated for its method overrides
+	final Map<String, String> innerClassNames;
+
+	private ClassPlan(AccessWidener accessWidener, String[] interfaceNames, String[] interfaceSignatures, Map<String, EnumExtension> enumExtensions, Map<String, String> innerClassNames) {
+		this.accessWidener = accessWidener;
+		this.classAccessBits = accessWidener.getClassAccessBits();
+		this.rewriteCalls = AccessWidenerClassVisitor.rewritesCalls(accessWidener);
+		this.interfaceNames = interfaceNames;
+		this.interfaceSignatures = interfaceSignatures;
+		this.interfaceSignatureSuffix = String.join("", interfaceSignatures);
+		this.enumExtensions = enumExtensions;
+		this.generateOverrides = !innerClassNames.isEmpty();
+		this.innerClassNames = innerClassNames;
+	}
+
+	public static ClassPlan create(ClassTweaker classTweaker, String className) {
+		return create(
+				className,
+				classTweaker.getAccessWidener(className),
+				classTweaker.getEnumExtensions(className),
+				classTweaker.getInjectedInterfaces(className)
+		);
+	}
+
+	public static ClassPlan create(String className, AccessWidener accessWidener, Map<String, EnumExtension> enumExtensions, Set<InjectedInterface> injectedInterfaces) {
+		String[] interfaceNames = NO_STRINGS;
+		String[] interfaceSignatures = NO_STRINGS;
+
+		if (!injectedInterfaces.isEmpty()) {
+			final List<String> names = new ArrayList<>(injectedInterfaces.size());
+
+			for (InjectedInterface injectedInterface : injectedInterfaces) {
+				if (!names.contains(injectedInterface.getInterfaceName())) {
+					names.add(injectedInterface.getInterfaceName());
+				}
+			}
+
+			interfaceNames = names.toArray(NO_STRINGS);
+			interfaceSignatures = new String[interfaceNames.length];
+
+			for (int i = 0; i < interfaceNames.length; i++) {
+				interfaceSignatures[i] = "L" + interfaceNames[i] + ";";
+			}
+		}
+
+		Map<String, EnumExtension> orderedEnumExtensions = Collections.emptyMap();
+		Map<String, String> innerClassNames = Collections.emptyMap();
+
+		if (!enumExtensions.isEmpty()) {
+			// The same HashMap the enum visitor copies, so the fields are generated in the same order
+			orderedEnumExtensions = Collections.unmodifiableMap(new HashMap<>(enumExtensions));
+
+			for (EnumExtension extension : orderedEnumExtensions.values()) {
+				if (extension.getMethodOverrides().isEmpty()) continue;
+
+				if (innerClassNames.isEmpty()) {
+					innerClassNames = new HashMap<>();
+				}
+
+				// Use the hashcode to provide a deterministic name for the anonymous class
+				innerClassNames.put(extension.getName(), String.format("%s$%s$%d", className, extension.getId(), extension.getName().hashCode()));
+			}
+		}
+
+		return new ClassPlan(accessWidener, interfaceNames, interfaceSignatures, orderedEnumExtensions, innerClassNames);
+	}
+
+	boolean hasEnumExtensions() {
+		return !enumExtensions.isEmpty();
+	}
+
+	/**
+	 * @return the interfaces of the class followed by the injected interfaces it does not implement yet
+	 */
+	String[] injectInterfaces(String[] interfaces) {
+		if (interfaceNames.length == 0) {
+			return interfaces;
+		}
+
+		final String[] merged = new String[interfaces.length + interfaceNames.length];
+		int size = 0;
+
+		for (String name : interfaces) {
+			size = addIfAbsent(merged, size, name);
+		}
+
+		for (String name : interfaceNames) {
+			size = addIfAbsent(merged, size, name);
+		}
+
+		return size == merged.length ? merged : Arrays.copyOf(merged, size);
+	}
+
+	/**
+	 * @return the class signature with the injected interfaces appended, unless it already contains them
+	 */
+	@Nullable
+	String injectSignature(@Nullable String signature) {
+		if (signature == null || interfaceSignatures.length == 0) {
+			return signature;
+		}
+
+		// See JVMS: https://docs.oracle.com/javase/specs/jvms/se17/html/jvms-4.html#jvms-ClassSignature
+		int present = -1;
+
+		for (int i = 0; i < interfaceSignatures.length; i++) {
+			if (signature.contains(interfaceSignatures[i])) {
+				present = i;
+				break;
+			}
+		}
+
+		if (present < 0) {
+			// Usually none of the interfaces are in the signature yet
+			return signature.concat(interfaceSignatureSuffix);
+		}
+
+		final StringBuilder resultingSignature = new StringBuilder(signature.length() + interfaceSignatureSuffix.length()).append(signature);
+
+		for (int i = 0; i < interfaceSignatures.length; i++) {
+			// The ones before the first present interface are known to be absent
+			if (i < present || i > present && !signature.contains(interfaceSignatures[i])) {
+				resultingSignature.append(interfaceSignatures[i]);
+			}
+		}
+
+		return resultingSignature.toString();
+	}
+
+	private static int addIfAbsent(String[] names, int size, String name) {
+		for (int i = 0; i < size; i++) {
+			if (names[i].equals(name)) {
+				return size;
+			}
+		}
+
+		names[size] = name;
+		return size + 1;
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.classvisitor;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.utils.AccessUtils;
+
+/**
+ * Applies interface injection, access widening and enum extension in a single visitor, producing the same class as
+ * chaining {@link InterfaceInjectionClassVisitor}, {@link EnumExtensionClassVisitor} and
+ * {@link AccessWidenerClassVisitor}.
+ *
+ * <p>The {@link ClassPlan} of the class is looked up once in {@link #visit}. Only enums that are extended route
+ * their events through an {@link EnumExtensionClassVisitor}, every other class is transformed by this visitor alone.
+ */
+public final class ClassTweakerClassVisitor extends ClassVisitor {
+	private final Function<String, ClassPlan> classPlans;
+	@Nullable
+	private final BiConsumer<String, byte[]> generatedClassConsumer;
+
+	// Receives the events of an extended enum, null for all other classes
+	@Nullable
+	private ClassVisitor enumExtensionVisitor;
+
+	private String className;
+	private int classAccess;
+	private ClassPlan plan;
+
+	public ClassTweakerClassVisitor(int api, ClassVisitor classVisitor, ClassTweaker classTweaker, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
+		this(api, classVisitor, className -> ClassPlan.create(classTweaker, className), generatedClassConsumer);
+	}
+
+	/**
+	 * @param classPlans returns the plan of a class from its internal name
+	 */
+	public ClassTweakerClassVisitor(int api, ClassVisitor classVisitor, Function<String, ClassPlan> classPlans, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
+		super(api, classVisitor);
+		this.classPlans = classPlans;
+		this.generatedClassConsumer = generatedClassConsumer;
+	}
+
+	@Override
+	public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+		plan = classPlans.apply(name);
+		signature = plan.injectSignature(signature);
+		interfaces = plan.injectInterfaces(interfaces);
+
+		if ((access & Opcodes.ACC_ENUM) != 0 && plan.hasEnumExtensions()) {
+			enumExtensionVisitor = new EnumExtensionClassVisitor(api, new AccessWidenerStage(), plan, generatedClassConsumer);
+			enumExtensionVisitor.visit(version, access, name, signature, superName, interfaces);
+		} else {
+			widenClass(version, access, name, signature, superName, interfaces);
+		}
+	}
+
+	@Override
+	public void visitPermittedSubclass(String permittedSubclass) {
+		if (enumExtensionVisitor != null) {
+			enumExtensionVisitor.visitPermittedSubclass(permittedSubclass);
+		} else {
+			widenPermittedSubclass(permittedSubclass);
+		}
+	}
+
+	@Override
+	public void visitInnerClass(String name, String outerName, String innerName, int access) {
+		if (enumExtensionVisitor != null) {
+			enumExtensionVisitor.visitInnerClass(name, outerName, innerName, access);
+		} else {
+			widenInnerClass(name, outerName, innerName, access);
+		}
+	}
+
+	@Override
+	public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+		if (enumExtensionVisitor != null) {
+			return enumExtensionVisitor.visitField(access, name, descriptor, signature, value);
+		}
+
+		return widenField(access, name, descriptor, signature, value);
+	}
+
+	@Override
+	public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+		if (enumExtensionVisitor != null) {
+			return enumExtensionVisitor.visitMethod(access, name, descriptor, signature, exceptions);
+		}
+
+		return widenMethod(access, name, descriptor, signature, exceptions);
+	}
+
+	@Override
+	public void visitEnd() {
+		if (enumExtensionVisitor != null) {
+			enumExtensionVisitor.visitEnd();
+		} else {
+			super.visitEnd();
+		}
+	}
+
+	private void widenClass(int version, int access, String name, String signature, String superName, String[] interfaces) {
+		className = name;
+		classAccess = access;
+
+		super.visit(
+				version,
+				AccessUtils.apply(AccessUtils.KIND_CLASS, plan.classAccessBits, access, name, classAccess),
+				name,
+				signature,
+				superName,
+				interfaces
+		);
+	}
+
+	private void widenPermittedSubclass(String permittedSubclass) {
+		if ((plan.classAccessBits & AccessUtils.EXTENDABLE) != 0) {
+			return;
+		}
+
+		super.visitPermittedSubclass(permittedSubclass);
+	}
+
+	private void widenInnerClass(String name, String outerName, String innerName, int access) {
+		super.visitInnerClass(
+				name,
+				outerName,
+				innerName,
+				AccessUtils.apply(AccessUtils.KIND_CLASS, plan.classAccessBits, access, name, classAccess)
+		);
+	}
+
+	private FieldVisitor widenField(int access, String name, String descriptor, String signature, Object value) {
+		return super.visitField(
+				AccessUtils.apply(AccessUtils.KIND_FIELD, plan.accessWidener.getFieldAccessBits(name, descriptor), access, name, classAccess),
+				name,
+				descriptor,
+				signature,
+				value
+		);
+	}
+
+	private MethodVisitor widenMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+		final MethodVisitor methodVisitor = super.visitMethod(
+				AccessUtils.apply(AccessUtils.KIND_METHOD, plan.accessWidener.getMethodAccessBits(name, descriptor), access, name, classAccess),
+				name,
+				descriptor,
+				signature,
+				exceptions
+		);
+
+		// Only wrap methods that can contain a call to rewrite, this allows ASM to copy the others without parsing the code.
+		if (methodVisitor == null || !plan.rewriteCalls || (access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) {
+			return methodVisitor;
+		}
+
+		return new AccessWidenerMethodVisitor(methodVisitor);
+	}
+
+	/**
+	 * Sits behind the {@link EnumExtensionClassVisitor} of an extended enum, so that the members it adds are widened
+	 * exactly as they would be by an {@link AccessWidenerClassVisitor} further down the chain.
+	 */
+	private final class AccessWidenerStage extends ClassVisitor {
+		AccessWidenerStage() {
+			super(ClassTweakerClassVisitor.this.api, ClassTweakerClassVisitor.this.cv);
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+			widenClass(version, access, name, signature, superName, interfaces);
+		}
+
+		@Override
+		public void visitPermittedSubclass(String permittedSubclass) {
+			widenPermittedSubclass(permittedSubclass);
+		}
+
+		@Override
+		public void visitInnerClass(String name, String outerName, String innerName, int access) {
+			widenInnerClass(name, outerName, innerName, access);
+		}
+
+		@Override
+		public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+			return widenField(access, name, descriptor, signature, value);
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+			return widenMethod(access, name, descriptor, signature, exceptions);
+		}
+	}
+
+	private class AccessWidenerMethodVisitor extends MethodVisitor {
+		AccessWidenerMethodVisitor(MethodVisitor methodVisitor) {
+			super(ClassTweakerClassVisitor.this.api, methodVisitor);
+		}
+
+		@Override
+		public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+			if (opcode == Opcodes.INVOKESPECIAL && isTargetMethod(owner, name, descriptor)) {
+				opcode = Opcodes.INVOKEVIRTUAL;
+			}
+
+			super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+		}
+
+		@Override
+		public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+			for (int i = 0; i < bootstrapMethodArguments.length; i++) {
+				if (bootstrapMethodArguments[i] instanceof Handle) {
+					final Handle handle = (Handle) bootstrapMethodArguments[i];
+
+					if (handle.getTag() == Opcodes.H_INVOKESPECIAL && isTargetMethod(handle.getOwner(), handle.getName(), handle.getDesc())) {
+						bootstrapMethodArguments[i] = new Handle(Opcodes.H_INVOKEVIRTUAL, handle.getOwner(), handle.getName(), handle.getDesc(), handle.isInterface());
+					}
+				}
+			}
+
+			super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+		}
+
+		private boolean isTargetMethod(String owner, String name, String descriptor) {
+			return owner.equals(className) && !name.equals("<init>") && plan.accessWidener.getMethodAccess(name, descriptor).isChanged();
+		}
+	}
+}
@@ -54,10 +54,13 @@ import net.fabricmc.classtweaker.utils.InsnListGeneratorAdapter;
 
 public final class EnumExtensionClassVisitor extends ClassVisitor {
 	private static final String ANNOTATION_DESC = "Lnet/fabricmc/accesswidener/Extended;";
+	@Nullable
 	private final ClassTweaker classTweaker;
 	@Nullable
 	private final BiConsumer<String, byte[]> generatedClassConsumer;
 
+	@Nullable
+	private ClassPlan plan;
 	private Map<String, EnumExtension> enumExtensions = Collections.emptyMap();
 	private boolean generateOverrides = false;
 	private String className;
@@ -72,14 +75,26 @@ public final class EnumExtensionClassVisitor extends ClassVisitor {
 		this.generatedClassConsumer = generatedClassConsumer;
 	}
 
+	EnumExtensionClassVisitor(int api, ClassVisitor classVisitor, ClassPlan plan, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
+		super(api, classVisitor);
+		this.classTweaker = null;
+		this.plan = plan;
+		this.generatedClassConsumer = generatedClassConsumer;
+	}
+
 	@Override
 	public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
 		this.className = name;
 		this.version = version;
 
 		if ((access & Opcodes.ACC_ENUM) != 0) {
-			enumExtensions = new HashMap<>(classTweaker.getEnumExtensions(name));
-			generateOverrides = enumExtensions.values().stream().anyMatch(enumExtension -> !enumExtension.getMethodOverrides().isEmpty());
+			if (plan == null) {
+				plan = ClassPlan.create(Objects.requireNonNull(classTweaker), name);
+			}
+
+			// Shared with other visitors of the class, copied before an entry is removed
+			enumExtensions = plan.enumExtensions;
+			generateOverrides = plan.generateOverrides;
 		}
 
 		if (generateOverrides) {
@@ -320,8 +335,7 @@ public final class EnumExtensionClassVisitor extends ClassVisitor {
 				String targetClassName = className;
 
 				if (!entry.getMethodOverrides().isEmpty()) {
-					// Use the hashcode to provide a deterministic name for the anonymous class
-					targetClassName = String.format("%s$%s$%d", className, entry.getId(), entry.getName().hashCode());
+					targetClassName = plan.innerClassNames.get(entry.getName());
 					innerClassNames.put(entry.getName(), targetClassName);
 				}
 
@@ -516,6 +530,10 @@ public final class EnumExtensionClassVisitor extends ClassVisitor {
 				}
 
 				// Enum extension has already been applied to this class, safe to skip.
+				if (enumExtensions == plan.enumExtensions) {
+					enumExtensions = new HashMap<>(enumExtensions);
+				}
+
 				enumExtensions.remove(name);
 			}
 
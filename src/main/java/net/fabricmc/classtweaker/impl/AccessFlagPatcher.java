@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import static net.fabricmc.classtweaker.utils.ClassFileUtils.readInt;
+import static net.fabricmc.classtweaker.utils.ClassFileUtils.writeShort;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.classvisitor.AccessWidenerClassVisitor;
+import net.fabricmc.classtweaker.utils.AccessUtils;
+import net.fabricmc.classtweaker.utils.ClassFileUtils;
+
+/**
+ * Applies access widener rules by rewriting the access flags of a class file in a copy of its bytes, without
+ * reading it with ASM. The result matches that of {@link AccessWidenerClassVisitor}.
+ *
+ * <p>This can only be used when the access flags are the only change to the class. Classes with other class tweaks,
+ * with calls that need to be rewritten or with permitted subclasses that need to be removed must use the visitors.
+ */
+public final class AccessFlagPatcher {
+	private final byte[] classBytes;
+	// The offset of each constant's tag
+	private final int[] constantOffsets;
+	private final String[] strings;
+	// The offset of the access_flags item following the constant pool
+	private final int header;
+	private final String className;
+
+	private AccessFlagPatcher(byte[] classBytes, int[] constantOffsets, int header, String className) {
+		this.classBytes = classBytes;
+		this.constantOffsets = constantOffsets;
+		this.strings = new String[constantOffsets.length];
+		this.header = header;
+		this.className = className;
+	}
+
+	/**
+	 * @return the patched class file, the passed array if no class tweak targets the class,
+	 * or {@code null} if the class must be transformed using the visitors
+	 */
+	@Nullable
+	public static byte[] patch(ClassTweaker classTweaker, byte[] classBytes) {
+		final AccessFlagPatcher patcher = create(classBytes);
+
+		if (patcher == null) {
+			// Let ASM deal with anything it does not understand
+			return null;
+		}
+
+		final String className = patcher.className;
+
+		if (!classTweaker.getClasses().contains(className)) {
+			return classBytes;
+		}
+
+		if (!classTweaker.getEnumExtensions(className).isEmpty() || !classTweaker.getInjectedInterfaces(className).isEmpty()) {
+			return null;
+		}
+
+		final AccessWidener accessWidener = classTweaker.getAccessWidener(className);
+
+		if (AccessWidenerClassVisitor.rewritesCalls(accessWidener)) {
+			return null;
+		}
+
+		return patcher.patch(className, accessWidener);
+	}
+
+	@Nullable
+	private static AccessFlagPatcher create(byte[] classBytes) {
+		if (!ClassFileUtils.isClassFile(classBytes)) {
+			return null;
+		}
+
+		final int[] constantOffsets = new int[ClassFileUtils.readUnsignedShort(classBytes, ClassFileUtils.CONSTANT_POOL_COUNT)];
+		final int offset = ClassFileUtils.readConstantPool(classBytes, constantOffsets);
+
+		final int nameOffset = ClassFileUtils.findClassName(classBytes, offset, constantOffsets);
+		final String className = nameOffset >= 0 ? ClassFileUtils.decodeUtf8(classBytes, nameOffset) : null;
+
+		if (className == null) {
+			return null;
+		}
+
+		return new AccessFlagPatcher(classBytes, constantOffsets, offset, className);
+	}
+
+	@Nullable
+	private byte[] patch(String className, AccessWidener accessWidener) {
+		final byte[] result = classBytes.clone();
+		final int classAccessBits = accessWidener.getClassAccessBits();
+		int offset = header;
+
+		final int classAccess = readUnsignedShort(offset);
+		writeShort(result, offset, AccessUtils.apply(AccessUtils.KIND_CLASS, classAccessBits, classAccess, className, classAccess));
+		offset += 6;
+
+		// Skip the interfaces
+		offset += 2 + 2 * readUnsignedShort(offset);
+
+		offset = patchMembers(result, offset, accessWidener, classAccess, false);
+		offset = offset >= 0 ? patchMembers(result, offset, accessWidener, classAccess, true) : -1;
+
+		if (offset < 0) {
+			return null;
+		}
+
+		int attributeCount = readUnsignedShort(offset);
+		offset += 2;
+
+		while (attributeCount-- > 0) {
+			final String attributeName = readUtf8(readUnsignedShort(offset));
+
+			if (attributeName == null) {
+				return null;
+			}
+
+			final int attributeEnd = offset + 6 + readInt(classBytes, offset + 2);
+
+			if (attributeName.equals("InnerClasses")) {
+				int innerClassCount = readUnsignedShort(offset + 6);
+				int innerClassOffset = offset + 8;
+
+				while (innerClassCount-- > 0) {
+					final String innerClassName = readClass(readUnsignedShort(innerClassOffset));
+
+					if (innerClassName == null) {
+						return null;
+					}
+
+					final int innerClassAccess = readUnsignedShort(innerClassOffset + 6);
+					writeShort(result, innerClassOffset + 6, AccessUtils.apply(AccessUtils.KIND_CLASS, classAccessBits, innerClassAccess, innerClassName, classAccess));
+					innerClassOffset += 8;
+				}
+			} else if (attributeName.equals("PermittedSubclasses") && (classAccessBits & AccessUtils.EXTENDABLE) != 0) {
+				// The attribute needs to be removed
+				return null;
+			}
+
+			offset = attributeEnd;
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return the offset following the members, or -1 if the name or descriptor of a member is invalid
+	 */
+	private int patchMembers(byte[] result, int offset, AccessWidener accessWidener, int classAccess, boolean methods) {
+		int memberCount = readUnsignedShort(offset);
+		offset += 2;
+
+		while (memberCount-- > 0) {
+			final int memberAccess = readUnsignedShort(offset);
+			final String name = readUtf8(readUnsignedShort(offset + 2));
+			final String descriptor = readUtf8(readUnsignedShort(offset + 4));
+
+			if (name == null || descriptor == null) {
+				return -1;
+			}
+
+			final int accessBits = methods ? accessWidener.getMethodAccessBits(name, descriptor) : accessWidener.getFieldAccessBits(name, descriptor);
+			writeShort(result, offset, AccessUtils.apply(methods ? AccessUtils.KIND_METHOD : AccessUtils.KIND_FIELD, accessBits, memberAccess, name, classAccess));
+
+			int attributeCount = readUnsignedShort(offset + 6);
+			offset += 8;
+
+			while (attributeCount-- > 0) {
+				offset += 6 + readInt(classBytes, offset + 2);
+			}
+		}
+
+		return offset;
+	}
+
+	/**
+	 * @return the name of the class constant, or {@code null} if the index isn't a valid class constant
+	 */
+	@Nullable
+	private String readClass(int constantIndex) {
+		final int offset = ClassFileUtils.getConstant(classBytes, constantOffsets, constantIndex, ClassFileUtils.CONSTANT_CLASS);
+		return offset >= 0 ? readUtf8(readUnsignedShort(offset + 1)) : null;
+	}
+
+	/**
+	 * @return the utf8 constant, or {@code null} if the index isn't a valid utf8 constant
+	 */
+	@Nullable
+	private String readUtf8(int constantIndex) {
+		final int offset = ClassFileUtils.getConstant(classBytes, constantOffsets, constantIndex, ClassFileUtils.CONSTANT_UTF8);
+
+		if (offset < 0) {
+			return null;
+		}
+
+		String string = strings[constantIndex];
+
+		if (string == null) {
+			string = ClassFileUtils.decodeUtf8(classBytes, offset + 1);
+			strings[constantIndex] = string;
+		}
+
+		return string;
+	}
+
+	private int readUnsignedShort(int offset) {
+		return ClassFileUtils.readUnsignedShort(classBytes, offset);
+	}
+}
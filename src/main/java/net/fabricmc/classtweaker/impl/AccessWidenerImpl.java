@@ -16,31 +16,64 @@
 
 package net.fabricmc.classtweaker.impl;
 
-import static net.fabricmc.classtweaker.utils.AccessUtils.makeFinalIfPrivate;
-import static net.fabricmc.classtweaker.utils.AccessUtils.makeProtected;
-import static net.fabricmc.classtweaker.utils.AccessUtils.makePublic;
-import static net.fabricmc.classtweaker.utils.AccessUtils.removeFinal;
-
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.VisibleForTesting;
-import org.objectweb.asm.Opcodes;
 
+import net.fabricmc.classtweaker.utils.AccessUtils;
 import net.fabricmc.classtweaker.utils.EntryTriple;
 import net.fabricmc.classtweaker.api.AccessWidener;
 import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
 
 public final class AccessWidenerImpl implements AccessWidener, AccessWidenerVisitor {
 	private final String owner;
-
-	MutableAccess classAccess = ClassAccess.DEFAULT;
-	final Map<EntryTriple, MutableAccess> methodAccess = new HashMap<>();
-	final Map<EntryTriple, MutableAccess> fieldAccess = new HashMap<>();
+	private final boolean concurrent;
+	@Nullable
+	private final StringPool strings;
+
+	volatile MutableAccess classAccess = ClassAccess.DEFAULT;
+	final Map<EntryTriple, MutableAccess> methodAccess;
+	final Map<EntryTriple, MutableAccess> fieldAccess;
+	// The same accesses indexed by name and then descriptor, so that they can be looked up without an EntryTriple
+	final Map<String, Map<String, MutableAccess>> methodAccessByName;
+	final Map<String, Map<String, MutableAccess>> fieldAccessByName;
+	// Unmodifiable views returned by the getters
+	private final Map<EntryTriple, Access> methodAccessView;
+	private final Map<EntryTriple, Access> fieldAccessView;
 
 	public AccessWidenerImpl(String owner) {
+		this(owner, false);
+	}
+
+	/**
+	 * @param concurrent whether the accesses can be visited from multiple threads at once, the visit methods
+	 *                   lock on this access widener and the lookups can be made at any time without locking
+	 */
+	public AccessWidenerImpl(String owner, boolean concurrent) {
+		this(owner, concurrent, null);
+	}
+
+	/**
+	 * @param strings deduplicates the visited names and descriptors, shared with the class tweaker owning this
+	 */
+	AccessWidenerImpl(String owner, boolean concurrent, @Nullable StringPool strings) {
 		this.owner = owner;
+		this.concurrent = concurrent;
+		this.strings = strings;
+		this.methodAccess = newMap();
+		this.fieldAccess = newMap();
+		this.methodAccessByName = newMap();
+		this.fieldAccessByName = newMap();
+		this.methodAccessView = Collections.unmodifiableMap(methodAccess);
+		this.fieldAccessView = Collections.unmodifiableMap(fieldAccess);
+	}
+
+	private <K, V> Map<K, V> newMap() {
+		return concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
 	}
 
 	@Override
@@ -70,29 +103,94 @@ public final class AccessWidenerImpl implements AccessWidener, AccessWidenerVisi
 		return access;
 	}
 
+	@Override
+	public Access getMethodAccess(String name, String descriptor) {
+		final Access access = getAccess(methodAccessByName, name, descriptor);
+		return access != null ? access : MutableAccess.DEFAULT;
+	}
+
+	@Override
+	public Access getFieldAccess(String name, String descriptor) {
+		final Access access = getAccess(fieldAccessByName, name, descriptor);
+		return access != null ? access : MutableAccess.DEFAULT;
+	}
+
+	@Override
+	public int getClassAccessBits() {
+		return classAccess.getBits();
+	}
+
+	@Override
+	public int getMethodAccessBits(String name, String descriptor) {
+		final Access access = getAccess(methodAccessByName, name, descriptor);
+		return access != null ? access.getBits() : 0;
+	}
+
+	@Override
+	public int getFieldAccessBits(String name, String descriptor) {
+		final Access access = getAccess(fieldAccessByName, name, descriptor);
+		return access != null ? access.getBits() : 0;
+	}
+
+	@Nullable
+	private static Access getAccess(Map<String, Map<String, MutableAccess>> accessByName, String name, String descriptor) {
+		final Map<String, MutableAccess> accessByDescriptor = accessByName.get(name);
+		return accessByDescriptor != null ? accessByDescriptor.get(descriptor) : null;
+	}
+
 	@Override
 	public Map<EntryTriple, Access> getAllMethodAccesses() {
-		return (Map) methodAccess;
+		return methodAccessView;
 	}
 
 	@Override
 	public Map<EntryTriple, Access> getAllFieldAccesses() {
-		return (Map) fieldAccess;
+		return fieldAccessView;
 	}
 
 	@Override
-	public void visitClass(AccessWidenerVisitor.AccessType access, boolean transitive) {
+	public synchronized void visitClass(AccessWidenerVisitor.AccessType access, boolean transitive) {
 		classAccess = applyAccess(access, classAccess, null);
 	}
 
 	@Override
-	public void visitMethod(String name, String descriptor, AccessWidenerVisitor.AccessType access, boolean transitive) {
-		addOrMerge(methodAccess, new EntryTriple(owner, name, descriptor), access, MethodAccess.DEFAULT);
+	public synchronized void visitMethod(String name, String descriptor, AccessWidenerVisitor.AccessType access, boolean transitive) {
+		addOrMerge(methodAccess, methodAccessByName, newEntryTriple(name, descriptor), access, MethodAccess.DEFAULT);
 	}
 
 	@Override
-	public void visitField(String name, String descriptor, AccessWidenerVisitor.AccessType access, boolean transitive) {
-		addOrMerge(fieldAccess, new EntryTriple(owner, name, descriptor), access, FieldAccess.DEFAULT);
+	public synchronized void visitField(String name, String descriptor, AccessWidenerVisitor.AccessType access, boolean transitive) {
+		addOrMerge(fieldAccess, fieldAccessByName, newEntryTriple(name, descriptor), access, FieldAccess.DEFAULT);
+	}
+
+	private EntryTriple newEntryTriple(String name, String descriptor) {
+		if (strings == null) {
+			return new EntryTriple(owner, name, descriptor);
+		}
+
+		return new EntryTriple(owner, strings.intern(name), strings.intern(descriptor));
+	}
+
+	/**
+	 * Visits the merged accesses, visiting them into an empty access widener results in the same accesses.
+	 */
+	void accept(AccessWidenerVisitor visitor) {
+		if (classAccess.isAccessible()) visitor.visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		if (classAccess.isExtendable()) visitor.visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+
+		for (Map.Entry<EntryTriple, MutableAccess> entry : methodAccess.entrySet()) {
+			final EntryTriple method = entry.getKey();
+
+			if (entry.getValue().isAccessible()) visitor.visitMethod(method.getName(), method.getDesc(), AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+			if (entry.getValue().isExtendable()) visitor.visitMethod(method.getName(), method.getDesc(), AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		}
+
+		for (Map.Entry<EntryTriple, MutableAccess> entry : fieldAccess.entrySet()) {
+			final EntryTriple field = entry.getKey();
+
+			if (entry.getValue().isAccessible()) visitor.visitField(field.getName(), field.getDesc(), AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+			if (entry.getValue().isMutable()) visitor.visitField(field.getName(), field.getDesc(), AccessWidenerVisitor.AccessType.MUTABLE, false);
+		}
 	}
 
 	MutableAccess applyAccess(AccessWidenerVisitor.AccessType input, MutableAccess access, EntryTriple entryTriple) {
@@ -120,12 +218,15 @@ public final class AccessWidenerImpl implements AccessWidener, AccessWidenerVisi
 		classAccess = applyAccess(AccessWidenerVisitor.AccessType.EXTENDABLE, classAccess, null);
 	}
 
-	void addOrMerge(Map<EntryTriple, MutableAccess> map, EntryTriple entry, AccessWidenerVisitor.AccessType access, MutableAccess defaultAccess) {
+	// Called with the lock on this held, so the merge and both maps are updated atomically when concurrent
+	void addOrMerge(Map<EntryTriple, MutableAccess> map, Map<String, Map<String, MutableAccess>> accessByName, EntryTriple entry, AccessWidenerVisitor.AccessType access, MutableAccess defaultAccess) {
 		if (entry == null || access == null) {
 			throw new RuntimeException("Input entry or access is null");
 		}
 
-		map.put(entry, applyAccess(access, map.getOrDefault(entry, defaultAccess), entry));
+		final MutableAccess merged = applyAccess(access, map.getOrDefault(entry, defaultAccess), entry);
+		map.put(entry, merged);
+		accessByName.computeIfAbsent(entry.getName(), s -> newMap()).put(entry.getDesc(), merged);
 	}
 
 	interface MutableAccess extends Access {
@@ -151,6 +252,11 @@ public final class AccessWidenerImpl implements AccessWidener, AccessWidenerVisi
 				return false;
 			}
 
+			@Override
+			public int getBits() {
+				return 0;
+			}
+
 			@Override
 			public int apply(int access, String targetName, int ownerAccess) {
 				return access;
@@ -158,40 +264,43 @@ public final class AccessWidenerImpl implements AccessWidener, AccessWidenerVisi
 		};
 	}
 
-	@FunctionalInterface
-	public interface AccessOperator {
-		int apply(int access, String targetName, int ownerAccess);
-	}
-
+	/**
+	 * The accesses of classes, methods and fields are backed by their {@link AccessUtils} bits, they are applied
+	 * using {@link AccessUtils#apply}.
+	 */
 	@VisibleForTesting
 	public enum ClassAccess implements MutableAccess {
-		DEFAULT((access, name, ownerAccess) -> access),
-		ACCESSIBLE((access, name, ownerAccess) -> makePublic(access)),
-		EXTENDABLE((access, name, ownerAccess) -> makePublic(removeFinal(access))),
-		ACCESSIBLE_EXTENDABLE((access, name, ownerAccess) -> makePublic(removeFinal(access)));
+		DEFAULT(0),
+		ACCESSIBLE(AccessUtils.ACCESSIBLE),
+		EXTENDABLE(AccessUtils.EXTENDABLE),
+		ACCESSIBLE_EXTENDABLE(AccessUtils.ACCESSIBLE | AccessUtils.EXTENDABLE);
+
+		private static final ClassAccess[] BY_BITS = new ClassAccess[4];
+
+		static {
+			for (ClassAccess access : values()) {
+				BY_BITS[access.bits] = access;
+			}
+		}
+
+		private final int bits;
 
-		private final AccessOperator operator;
+		ClassAccess(int bits) {
+			this.bits = bits;
+		}
 
-		ClassAccess(AccessOperator operator) {
-			this.operator = operator;
+		static ClassAccess forBits(int bits) {
+			return BY_BITS[bits & (AccessUtils.ACCESSIBLE | AccessUtils.EXTENDABLE)];
 		}
 
 		@Override
 		public MutableAccess makeAccessible() {
-			if (this == EXTENDABLE || this == ACCESSIBLE_EXTENDABLE) {
-				return ACCESSIBLE_EXTENDABLE;
-			}
-
-			return ACCESSIBLE;
+			return forBits(bits | AccessUtils.ACCESSIBLE);
 		}
 
 		@Override
 		public MutableAccess makeExtendable() {
-			if (isAccessible()) {
-				return ACCESSIBLE_EXTENDABLE;
-			}
-
-			return EXTENDABLE;
+			return forBits(bits | AccessUtils.EXTENDABLE);
 		}
 
 		@Override
@@ -201,12 +310,12 @@ public final class AccessWidenerImpl implements AccessWidener, AccessWidenerVisi
 
 		@Override
 		public boolean isAccessible() {
-			return this == ACCESSIBLE || this == ACCESSIBLE_EXTENDABLE;
+			return (bits & AccessUtils.ACCESSIBLE) != 0;
 		}
 
 		@Override
 		public boolean isExtendable() {
-			return this == EXTENDABLE || this == ACCESSIBLE_EXTENDABLE;
+			return (bits & AccessUtils.EXTENDABLE) != 0;
 		}
 
 		@Override
@@ -214,41 +323,50 @@ public final class AccessWidenerImpl implements AccessWidener, AccessWidenerVisi
 			return false;
 		}
 
+		@Override
+		public int getBits() {
+			return bits;
+		}
+
 		@Override
 		public int apply(int access, String targetName, int ownerAccess) {
-			return operator.apply(access, targetName, ownerAccess);
+			return AccessUtils.apply(AccessUtils.KIND_CLASS, bits, access, targetName, ownerAccess);
 		}
 	}
 
 	@VisibleForTesting
 	public enum MethodAccess implements MutableAccess {
-		DEFAULT((access, name, ownerAccess) -> access),
-		ACCESSIBLE((access, name, ownerAccess) -> makePublic(makeFinalIfPrivate(access, name, ownerAccess))),
-		EXTENDABLE((access, name, ownerAccess) -> makeProtected(removeFinal(access))),
-		ACCESSIBLE_EXTENDABLE((access, name, owner) -> makePublic(removeFinal(access)));
+		DEFAULT(0),
+		ACCESSIBLE(AccessUtils.ACCESSIBLE),
+		EXTENDABLE(AccessUtils.EXTENDABLE),
+		ACCESSIBLE_EXTENDABLE(AccessUtils.ACCESSIBLE | AccessUtils.EXTENDABLE);
 
-		private final AccessOperator operator;
+		private static final MethodAccess[] BY_BITS = new MethodAccess[4];
 
-		MethodAccess(AccessOperator operator) {
-			this.operator = operator;
+		static {
+			for (MethodAccess access : values()) {
+				BY_BITS[access.bits] = access;
+			}
+		}
+
+		private final int bits;
+
+		MethodAccess(int bits) {
+			this.bits = bits;
+		}
+
+		static MethodAccess forBits(int bits) {
+			return BY_BITS[bits & (AccessUtils.ACCESSIBLE | AccessUtils.EXTENDABLE)];
 		}
 
 		@Override
 		public MutableAccess makeAccessible() {
-			if (isExtendable()) {
-				return ACCESSIBLE_EXTENDABLE;
-			}
-
-			return ACCESSIBLE;
+			return forBits(bits | AccessUtils.ACCESSIBLE);
 		}
 
 		@Override
 		public MutableAccess makeExtendable() {
-			if (isAccessible()) {
-				return ACCESSIBLE_EXTENDABLE;
-			}
-
-			return EXTENDABLE;
+			return forBits(bits | AccessUtils.EXTENDABLE);
 		}
 
 		@Override
@@ -258,12 +376,12 @@ public final class AccessWidenerImpl implements AccessWidener, AccessWidenerVisi
 
 		@Override
 		public boolean isAccessible() {
-			return this == ACCESSIBLE || this == ACCESSIBLE_EXTENDABLE;
+			return (bits & AccessUtils.ACCESSIBLE) != 0;
 		}
 
 		@Override
 		public boolean isExtendable() {
-			return this == EXTENDABLE || this == ACCESSIBLE_EXTENDABLE;
+			return (bits & AccessUtils.EXTENDABLE) != 0;
 		}
 
 		@Override
@@ -271,46 +389,45 @@ public final class AccessWidenerImpl implements AccessWidener, AccessWidenerVisi
 			return false;
 		}
 
+		@Override
+		public int getBits() {
+			return bits;
+		}
+
 		@Override
 		public int apply(int access, String targetName, int ownerAccess) {
-			return operator.apply(access, targetName, ownerAccess);
+			return AccessUtils.apply(AccessUtils.KIND_METHOD, bits, access, targetName, ownerAccess);
 		}
 	}
 
 	@VisibleForTesting
 	public enum FieldAccess implements MutableAccess {
-		DEFAULT((access, name, ownerAccess) -> access),
-		ACCESSIBLE((access, name, ownerAccess) -> makePublic(access)),
-		MUTABLE((access, name, ownerAccess) -> {
-			if ((ownerAccess & Opcodes.ACC_INTERFACE) != 0 && (access & Opcodes.ACC_STATIC) != 0) {
-				// Don't make static interface fields mutable.
-				return access;
-			}
+		DEFAULT(0),
+		ACCESSIBLE(AccessUtils.ACCESSIBLE),
+		MUTABLE(AccessUtils.MUTABLE),
+		ACCESSIBLE_MUTABLE(AccessUtils.ACCESSIBLE | AccessUtils.MUTABLE);
+
+		private static final FieldAccess[] BY_BITS = new FieldAccess[8];
 
-			return removeFinal(access);
-		}),
-		ACCESSIBLE_MUTABLE((access, name, ownerAccess) -> {
-			if ((ownerAccess & Opcodes.ACC_INTERFACE) != 0 && (access & Opcodes.ACC_STATIC) != 0) {
-				// Don't make static interface fields mutable.
-				return makePublic(access);
+		static {
+			for (FieldAccess access : values()) {
+				BY_BITS[access.bits] = access;
 			}
+		}
 
-			return makePublic(removeFinal(access));
-		});
+		private final int bits;
 
-		private final AccessOperator operator;
+		FieldAccess(int bits) {
+			this.bits = bits;
+		}
 
-		FieldAccess(AccessOperator operator) {
-			this.operator = operator;
+		static FieldAccess forBits(int bits) {
+			return BY_BITS[bits & (AccessUtils.ACCESSIBLE | AccessUtils.MUTABLE)];
 		}
 
 		@Override
 		public MutableAccess makeAccessible() {
-			if (isMutable()) {
-				return ACCESSIBLE_MUTABLE;
-			}
-
-			return ACCESSIBLE;
+			return forBits(bits | AccessUtils.ACCESSIBLE);
 		}
 
 		@Override
@@ -320,16 +437,12 @@ public final class AccessWidenerImpl implements AccessWidener, AccessWidenerVisi
 
 		@Override
 		public MutableAccess makeMutable() {
-			if (isAccessible()) {
-				return ACCESSIBLE_MUTABLE;
-			}
-
-			return MUTABLE;
+			return forBits(bits | AccessUtils.MUTABLE);
 		}
 
 		@Override
 		public boolean isAccessible() {
-			return this == ACCESSIBLE || this == ACCESSIBLE_MUTABLE;
+			return (bits & AccessUtils.ACCESSIBLE) != 0;
 		}
 
 		@Override
@@ -339,12 +452,17 @@ public final class AccessWidenerImpl implements AccessWidener, AccessWidenerVisi
 
 		@Override
 		public boolean isMutable() {
-			return this == MUTABLE || this == ACCESSIBLE_MUTABLE;
+			return (bits & AccessUtils.MUTABLE) != 0;
+		}
+
+		@Override
+		public int getBits() {
+			return bits;
 		}
 
 		@Override
 		public int apply(int access, String targetName, int ownerAccess) {
-			return operator.apply(access, targetName, ownerAccess);
+			return AccessUtils.apply(AccessUtils.KIND_FIELD, bits, access, targetName, ownerAccess);
 		}
 	}
 
@@ -364,6 +482,16 @@ public final class AccessWidenerImpl implements AccessWidener, AccessWidenerVisi
 			return MutableAccess.DEFAULT;
 		}
 
+		@Override
+		public Access getMethodAccess(String name, String descriptor) {
+			return MutableAccess.DEFAULT;
+		}
+
+		@Override
+		public Access getFieldAccess(String name, String descriptor) {
+			return MutableAccess.DEFAULT;
+		}
+
 		@Override
 		public Map<EntryTriple, Access> getAllMethodAccesses() {
 			return Collections.emptyMap();
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.utils.AccessUtils;
+
+/**
+ * Constants describing the compiled binary class tweaker format, see {@link MappedClassTweakerImpl} for the layout.
+ */
+public final class BinaryClassTweakerFormat {
+	public static final int MAGIC = 0x43544246; // CTBF
+	public static final int VERSION = 1;
+
+	// Marks a missing string, such as the namespace of an empty class tweaker
+	public static final int NO_STRING = -1;
+
+	// Access flags, stored for the class, every method and every field
+	public static final int ACCESSIBLE = AccessUtils.ACCESSIBLE;
+	public static final int EXTENDABLE = AccessUtils.EXTENDABLE;
+	public static final int MUTABLE = AccessUtils.MUTABLE;
+
+	// Enum extension parameter kinds
+	public static final int NO_PARAMETERS = 0;
+	public static final int LIST_PARAMETERS = 1;
+	public static final int CONSTANT_PARAMETERS = 2;
+
+	// Enum extension constant tags
+	public static final int CONSTANT_NULL = 0;
+	public static final int CONSTANT_STRING = 1;
+	public static final int CONSTANT_CHAR = 2;
+	public static final int CONSTANT_BYTE = 3;
+	public static final int CONSTANT_SHORT = 4;
+	public static final int CONSTANT_INT = 5;
+	public static final int CONSTANT_LONG = 6;
+	public static final int CONSTANT_FLOAT = 7;
+	public static final int CONSTANT_DOUBLE = 8;
+	public static final int CONSTANT_BOOLEAN = 9;
+
+	private BinaryClassTweakerFormat() {
+	}
+
+	public static int getFlags(AccessWidener.Access access) {
+		return access.getBits();
+	}
+
+	static AccessWidenerImpl.MutableAccess getClassAccess(int flags) {
+		return AccessWidenerImpl.ClassAccess.forBits(flags);
+	}
+
+	static AccessWidenerImpl.MutableAccess getMethodAccess(int flags) {
+		return AccessWidenerImpl.MethodAccess.forBits(flags);
+	}
+
+	static AccessWidenerImpl.MutableAccess getFieldAccess(int flags) {
+		return AccessWidenerImpl.FieldAccess.forBits(flags);
+	}
+}
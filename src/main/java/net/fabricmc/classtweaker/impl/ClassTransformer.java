@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+
+public final class ClassTransformer {
+	private ClassTransformer() {
+	}
+
+	public static ClassTweaker.TransformResult transform(ClassTweaker classTweaker, byte[] classBytes, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
+		final byte[] patchedBytes = AccessFlagPatcher.patch(classTweaker, classBytes);
+
+		if (patchedBytes != null) {
+			return createResult(classBytes, patchedBytes);
+		}
+
+		final ClassReader classReader = new ClassReader(classBytes);
+		// Creating the writer from the reader copies the constant pool, and lets ASM copy methods that reach the writer unchanged as raw bytes.
+		final ClassWriter classWriter = new ClassWriter(classReader, 0);
+		final ClassVisitor classVisitor = classTweaker.createClassVisitor(Opcodes.ASM9, classReader.getClassName(), classWriter, generatedClassConsumer);
+
+		if (classVisitor == classWriter) {
+			return new TransformResultImpl(classBytes, false);
+		}
+
+		classReader.accept(classVisitor, 0);
+		return createResult(classBytes, classWriter.toByteArray());
+	}
+
+	private static ClassTweaker.TransformResult createResult(byte[] classBytes, byte[] transformedBytes) {
+		if (classBytes == transformedBytes || Arrays.equals(classBytes, transformedBytes)) {
+			return new TransformResultImpl(classBytes, false);
+		}
+
+		return new TransformResultImpl(transformedBytes, true);
+	}
+
+	static final class TransformResultImpl implements ClassTweaker.TransformResult {
+		private final byte[] bytes;
+		private final boolean changed;
+
+		TransformResultImpl(byte[] bytes, boolean changed) {
+			this.bytes = bytes;
+			this.changed = changed;
+		}
+
+		@Override
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+		@Override
+		public boolean isChanged() {
+			return changed;
+		}
+	}
+}
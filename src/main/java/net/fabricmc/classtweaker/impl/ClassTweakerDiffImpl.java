@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.EnumExtension;
+import net.fabricmc.classtweaker.api.InjectedInterface;
+import net.fabricmc.classtweaker.utils.EntryTriple;
+
+public final class ClassTweakerDiffImpl {
+	private ClassTweakerDiffImpl() {
+	}
+
+	public static Set<String> compute(ClassTweaker before, ClassTweaker after) {
+		final Set<String> owners = new LinkedHashSet<>(before.getClasses());
+		owners.addAll(after.getClasses());
+
+		final Set<String> affected = new LinkedHashSet<>();
+
+		for (String owner : owners) {
+			if (isSameOwner(before, after, owner)) {
+				continue;
+			}
+
+			affected.add(owner);
+
+			// Also the outer classes, which are targets of the owner
+			String outer = owner;
+
+			while (outer.contains("$")) {
+				outer = outer.substring(0, outer.lastIndexOf("$"));
+				affected.add(outer);
+			}
+		}
+
+		return affected;
+	}
+
+	/**
+	 * Checks whether the class tweaks of the owner have the same effect in both class tweakers.
+	 */
+	static boolean isSameOwner(ClassTweaker a, ClassTweaker b, String owner) {
+		return isSameAccessWidener(a.getAccessWidener(owner), b.getAccessWidener(owner))
+				&& isSameEnumExtensions(a.getEnumExtensions(owner), b.getEnumExtensions(owner))
+				&& getInterfaceNames(a.getInjectedInterfaces(owner)).equals(getInterfaceNames(b.getInjectedInterfaces(owner)));
+	}
+
+	private static boolean isSameAccessWidener(AccessWidener a, AccessWidener b) {
+		return isSameAccess(a.getClassAccess(), b.getClassAccess())
+				&& isSameAccesses(a.getAllMethodAccesses(), b.getAllMethodAccesses())
+				&& isSameAccesses(a.getAllFieldAccesses(), b.getAllFieldAccesses());
+	}
+
+	private static boolean isSameAccesses(Map<EntryTriple, AccessWidener.Access> a, Map<EntryTriple, AccessWidener.Access> b) {
+		final Set<EntryTriple> members = new HashSet<>(a.keySet());
+		members.addAll(b.keySet());
+
+		for (EntryTriple member : members) {
+			if (!isSameAccess(a.get(member), b.get(member))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	// A missing access is the same as an unchanged one
+	private static boolean isSameAccess(AccessWidener.Access a, AccessWidener.Access b) {
+		return (a != null && a.isAccessible()) == (b != null && b.isAccessible())
+				&& (a != null && a.isExtendable()) == (b != null && b.isExtendable())
+				&& (a != null && a.isMutable()) == (b != null && b.isMutable());
+	}
+
+	private static boolean isSameEnumExtensions(Map<String, EnumExtension> a, Map<String, EnumExtension> b) {
+		if (!a.keySet().equals(b.keySet())) {
+			return false;
+		}
+
+		for (EnumExtension enumExtension : a.values()) {
+			if (!isSameEnumExtension(enumExtension, b.get(enumExtension.getName()))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isSameEnumExtension(EnumExtension a, EnumExtension b) {
+		// The id and hash code are written to the @Extended annotation of the added field
+		if (a.hashCode() != b.hashCode() || !a.getId().equals(b.getId()) || !a.getTargetConstructor().equals(b.getTargetConstructor())) {
+			return false;
+		}
+
+		final EnumExtension.Parameters parametersA = a.getParameters();
+		final EnumExtension.Parameters parametersB = b.getParameters();
+
+		if (parametersA instanceof EnumExtension.ListParameters && parametersB instanceof EnumExtension.ListParameters) {
+			if (!((EnumExtension.ListParameters) parametersA).getParamList().equals(((EnumExtension.ListParameters) parametersB).getParamList())) {
+				return false;
+			}
+		} else if (parametersA instanceof EnumExtension.ConstantParameters && parametersB instanceof EnumExtension.ConstantParameters) {
+			if (!Arrays.deepEquals(((EnumExtension.ConstantParameters) parametersA).getConstants(), ((EnumExtension.ConstantParameters) parametersB).getConstants())) {
+				return false;
+			}
+		} else if (parametersA != null || parametersB != null) {
+			return false;
+		}
+
+		final List<EnumExtension.MethodOverride> overridesA = a.getMethodOverrides();
+		final List<EnumExtension.MethodOverride> overridesB = b.getMethodOverrides();
+
+		if (overridesA.size() != overridesB.size()) {
+			return false;
+		}
+
+		for (int i = 0; i < overridesA.size(); i++) {
+			if (!overridesA.get(i).getTargetMethodName().equals(overridesB.get(i).getTargetMethodName())
+					|| !overridesA.get(i).getStaticMethod().equals(overridesB.get(i).getStaticMethod())) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static List<String> getInterfaceNames(Set<InjectedInterface> injectedInterfaces) {
+		if (injectedInterfaces.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		final List<String> names = new ArrayList<>(injectedInterfaces.size());
+
+		for (InjectedInterface injectedInterface : injectedInterfaces) {
+			names.add(injectedInterface.getInterfaceName());
+		}
+
+		names.sort(null);
+		return names;
+	}
+}
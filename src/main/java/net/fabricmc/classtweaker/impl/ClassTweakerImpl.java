@@ -24,6 +24,9 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 
 import org.jetbrains.annotations.Nullable;
@@ -37,24 +40,92 @@ import net.fabricmc.classtweaker.api.InjectedInterface;
 import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
 import net.fabricmc.classtweaker.api.visitor.ClassTweakerVisitor;
 import net.fabricmc.classtweaker.api.visitor.EnumExtensionVisitor;
-import net.fabricmc.classtweaker.classvisitor.AccessWidenerClassVisitor;
-import net.fabricmc.classtweaker.classvisitor.EnumExtensionClassVisitor;
-import net.fabricmc.classtweaker.classvisitor.InterfaceInjectionClassVisitor;
+import net.fabricmc.classtweaker.classvisitor.ClassTweakerClassVisitor;
 
 public final class ClassTweakerImpl implements ClassTweaker, ClassTweakerVisitor {
-	String namespace;
+	// Whether entries can be visited from multiple threads at once
+	private final boolean concurrent;
+	volatile String namespace;
 	// Contains the actual transforms. Class names are as class-file internal binary names (forward slash is used
 	// instead of period as the package separator).
-	final Map<String, AccessWidenerImpl> accessWideners = new HashMap<>();
-	final Map<String, Map<String, EnumExtensionImpl>> enumExtensions = new HashMap<>();
-	final Map<String, Set<InjectedInterfaceImpl>> injectedInterfaces = new HashMap<>();
+	final Map<String, AccessWidenerImpl> accessWideners;
+	final Map<String, Map<String, EnumExtensionImpl>> enumExtensions;
+	final Map<String, Set<InjectedInterfaceImpl>> injectedInterfaces;
 	// Contains the class-names that are affected by loaded tweakers.
 	// Names are period-separated binary names (i.e. a.b.C).
-	final Set<String> targetClasses = new LinkedHashSet<>();
-	final Set<String> classes = new LinkedHashSet<>();
+	// When concurrent these are OrderedNameSets, ordered by the source index and position within the source.
+	final Set<String> targetClasses;
+	final Set<String> classes;
+	// The targets again, for lookups by name in either form
+	private final TargetIndex targetIndex = new TargetIndex();
+	// Unmodifiable views returned by the getters, created once so that the lookups don't allocate
+	private final Map<String, Map<String, EnumExtension>> enumExtensionViews;
+	private final Map<String, Set<InjectedInterface>> injectedInterfaceViews;
+	private final Map<String, AccessWidener> allAccessWideners;
+	private final Map<String, Map<String, EnumExtension>> allEnumExtensions;
+	private final Map<String, Set<InjectedInterface>> allInjectedInterfaces;
+	private final Set<String> targetsView;
+	private final Set<String> classesView;
+	// Deduplicates the owners, names and descriptors of all entries
+	private final StringPool strings;
+	// The order of entries visited directly rather than through visitSource, these come before any source
+	private final AtomicLong directOrder = new AtomicLong(Long.MIN_VALUE);
+
+	public ClassTweakerImpl() {
+		this(false);
+	}
+
+	/**
+	 * @param concurrent whether the class tweaker can be visited from multiple threads at once
+	 */
+	public ClassTweakerImpl(boolean concurrent) {
+		this.concurrent = concurrent;
+		this.strings = new StringPool(concurrent);
+
+		if (concurrent) {
+			accessWideners = new ConcurrentHashMap<>();
+			enumExtensions = new ConcurrentHashMap<>();
+			injectedInterfaces = new ConcurrentHashMap<>();
+			targetClasses = new OrderedNameSet();
+			classes = new OrderedNameSet();
+			enumExtensionViews = new ConcurrentHashMap<>();
+			injectedInterfaceViews = new ConcurrentHashMap<>();
+		} else {
+			accessWideners = new HashMap<>();
+			enumExtensions = new HashMap<>();
+			injectedInterfaces = new HashMap<>();
+			targetClasses = new LinkedHashSet<>();
+			classes = new LinkedHashSet<>();
+			enumExtensionViews = new HashMap<>();
+			injectedInterfaceViews = new HashMap<>();
+		}
+
+		allAccessWideners = Collections.<String, AccessWidener>unmodifiableMap(accessWideners);
+		allEnumExtensions = Collections.unmodifiableMap(enumExtensionViews);
+		allInjectedInterfaces = Collections.unmodifiableMap(injectedInterfaceViews);
+		targetsView = Collections.unmodifiableSet(targetClasses);
+		classesView = Collections.unmodifiableSet(classes);
+	}
+
+	public boolean isConcurrent() {
+		return concurrent;
+	}
+
+	@Override
+	public ClassTweakerVisitor visitSource(int sourceIndex) {
+		if (sourceIndex < 0) {
+			throw new IllegalArgumentException("Source index must not be negative: " + sourceIndex);
+		}
+
+		if (!concurrent) {
+			return this;
+		}
+
+		return new SourceVisitor(sourceIndex);
+	}
 
 	@Override
-	public void visitHeader(String namespace) {
+	public synchronized void visitHeader(String namespace) {
 		if (this.namespace != null && !this.namespace.equals(namespace)) {
 			throw new RuntimeException(String.format("Namespace mismatch, expected %s got %s", this.namespace, namespace));
 		}
@@ -64,12 +135,25 @@ public final class ClassTweakerImpl implements ClassTweaker, ClassTweakerVisitor
 
 	@Override
 	public AccessWidenerVisitor visitAccessWidener(String owner) {
+		return visitAccessWidener(owner, null);
+	}
+
+	private AccessWidenerVisitor visitAccessWidener(String owner, @Nullable SourceVisitor source) {
+		owner = strings.intern(owner);
+
+		if (concurrent) {
+			final AccessWidenerImpl accessWidener = accessWideners.computeIfAbsent(owner, s -> new AccessWidenerImpl(s, true, strings));
+			// Always add the targets, an earlier source may visit the owner after a later one
+			addTargets(owner, source);
+			return accessWidener;
+		}
+
 		AccessWidenerImpl accessWidener = accessWideners.get(owner);
 
 		if (accessWidener == null) {
-			accessWidener = new AccessWidenerImpl(owner);
+			accessWidener = new AccessWidenerImpl(owner, false, strings);
 			accessWideners.put(owner, accessWidener);
-			addTargets(owner);
+			addTargets(owner, source);
 		}
 
 		return accessWidener;
@@ -77,75 +161,182 @@ public final class ClassTweakerImpl implements ClassTweaker, ClassTweakerVisitor
 
 	@Override
 	public EnumExtensionVisitor visitEnum(String owner, String name, String constructorDesc, String id, boolean transitive) {
-		final Map<String, EnumExtensionImpl> enumExtensions = this.enumExtensions.computeIfAbsent(owner, s -> new TreeMap<>());
+		return visitEnum(owner, name, constructorDesc, id, null);
+	}
 
-		if (enumExtensions.containsKey(name)) {
-			throw new RuntimeException(String.format("Duplicate enum extension value name (%s) in enum (%s)", name, owner));
-		}
+	private EnumExtensionVisitor visitEnum(String owner, String name, String constructorDesc, String id, @Nullable SourceVisitor source) {
+		final EnumExtensionImpl enumExtension = new EnumExtensionImpl(strings.intern(name), Type.getType(constructorDesc), strings.intern(id));
+		addEnumExtension(strings.intern(owner), enumExtension, source);
+		return enumExtension;
+	}
 
-		final EnumExtensionImpl enumExtension = new EnumExtensionImpl(name, Type.getType(constructorDesc), id);
-		enumExtensions.put(name, enumExtension);
-		addTargets(owner);
+	private void addEnumExtension(String owner, EnumExtensionImpl enumExtension, @Nullable SourceVisitor source) {
+		final Map<String, EnumExtensionImpl> enumExtensions = this.enumExtensions.computeIfAbsent(owner, s -> {
+			final Map<String, EnumExtensionImpl> map = concurrent ? new ConcurrentSkipListMap<>() : new TreeMap<>();
+			enumExtensionViews.put(s, Collections.<String, EnumExtension>unmodifiableMap(map));
+			return map;
+		});
 
-		return enumExtension;
+		if (enumExtensions.putIfAbsent(enumExtension.getName(), enumExtension) != null) {
+			throw new RuntimeException(String.format("Duplicate enum extension value name (%s) in enum (%s)", enumExtension.getName(), owner));
+		}
+
+		addTargets(owner, source);
 	}
 
 	@Override
 	public void visitInjectedInterface(String owner, String iface, boolean transitive) {
-		final Set<InjectedInterfaceImpl> injectedInterfaces = this.injectedInterfaces.computeIfAbsent(owner, s -> new HashSet<>());
-		final InjectedInterfaceImpl injectedInterface = new InjectedInterfaceImpl(iface);
+		visitInjectedInterface(owner, iface, null);
+	}
+
+	private void visitInjectedInterface(String owner, String iface, @Nullable SourceVisitor source) {
+		addInjectedInterface(strings.intern(owner), new InjectedInterfaceImpl(strings.intern(iface)), source);
+	}
+
+	private void addInjectedInterface(String owner, InjectedInterfaceImpl injectedInterface, @Nullable SourceVisitor source) {
+		final Set<InjectedInterfaceImpl> injectedInterfaces = this.injectedInterfaces.computeIfAbsent(owner, s -> {
+			final Set<InjectedInterfaceImpl> set = concurrent ? ConcurrentHashMap.newKeySet() : new HashSet<>();
+			injectedInterfaceViews.put(s, Collections.unmodifiableSet(set));
+			return set;
+		});
 
-		if (injectedInterfaces.contains(injectedInterface)) {
-			throw new RuntimeException(String.format("Duplicate interface injection (%s) for class (%s)", iface, owner));
+		if (!injectedInterfaces.add(injectedInterface)) {
+			throw new RuntimeException(String.format("Duplicate interface injection (%s) for class (%s)", injectedInterface.getInterfaceName(), owner));
 		}
 
-		injectedInterfaces.add(injectedInterface);
-		addTargets(owner);
+		addTargets(owner, source);
 	}
 
-	private void addTargets(String clazz) {
-		classes.add(clazz);
+	private void addTargets(String clazz, @Nullable SourceVisitor source) {
+		addTarget(classes, clazz, source);
+		addTargetClasses(clazz, source);
+	}
+
+	private void addTargetClasses(String clazz, @Nullable SourceVisitor source) {
 		clazz = clazz.replace('/', '.');
-		targetClasses.add(clazz);
+		addTarget(targetClasses, clazz, source);
+		targetIndex.add(clazz);
 
 		//Also transform all parent classes
-		while (clazz.contains("$")) {
-			clazz = clazz.substring(0, clazz.lastIndexOf("$"));
-			targetClasses.add(clazz);
+		for (int i = clazz.lastIndexOf('$'); i >= 0; i = clazz.lastIndexOf('$', i - 1)) {
+			final String outerClass = clazz.substring(0, i);
+			addTarget(targetClasses, outerClass, source);
+			targetIndex.add(outerClass);
+		}
+	}
+
+	private void addTarget(Set<String> targets, String name, @Nullable SourceVisitor source) {
+		if (!concurrent) {
+			targets.add(name);
+			return;
+		}
+
+		final long order = source != null ? source.nextOrder() : directOrder.getAndIncrement();
+		((OrderedNameSet) targets).add(name, order);
+	}
+
+	/**
+	 * Adds all entries of the owner from another class tweaker, sharing its enum extensions and injected interfaces.
+	 */
+	void addOwner(ClassTweakerImpl from, String owner) {
+		final AccessWidenerImpl accessWidener = from.accessWideners.get(owner);
+
+		if (accessWidener != null) {
+			accessWidener.accept(visitAccessWidener(owner));
+		}
+
+		final Map<String, EnumExtensionImpl> enumExtensions = from.enumExtensions.get(owner);
+
+		if (enumExtensions != null) {
+			for (EnumExtensionImpl enumExtension : enumExtensions.values()) {
+				addEnumExtension(owner, enumExtension, null);
+			}
+		}
+
+		final Set<InjectedInterfaceImpl> injectedInterfaces = from.injectedInterfaces.get(owner);
+
+		if (injectedInterfaces != null) {
+			for (InjectedInterfaceImpl injectedInterface : injectedInterfaces) {
+				addInjectedInterface(owner, injectedInterface, null);
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries of the owner, but keeps it in the classes and targets until {@link #removeClasses} is called.
+	 */
+	void removeOwner(String owner) {
+		accessWideners.remove(owner);
+		enumExtensions.remove(owner);
+		enumExtensionViews.remove(owner);
+		injectedInterfaces.remove(owner);
+		injectedInterfaceViews.remove(owner);
+	}
+
+	boolean hasOwner(String owner) {
+		return accessWideners.containsKey(owner) || enumExtensions.containsKey(owner) || injectedInterfaces.containsKey(owner);
+	}
+
+	/**
+	 * Removes classes that no longer have any entries, and the targets that were only needed by them.
+	 */
+	void removeClasses(Set<String> removed) {
+		if (concurrent) {
+			throw new UnsupportedOperationException("Cannot remove classes from a concurrent class tweaker");
+		}
+
+		classes.removeAll(removed);
+		targetClasses.clear();
+		targetIndex.clear();
+
+		// Rebuilding the targets in the order of the classes gives the same order as when they were added
+		for (String clazz : classes) {
+			addTargetClasses(clazz, null);
 		}
 	}
 
 	@Override
 	public ClassVisitor createClassVisitor(int api, @Nullable ClassVisitor classVisitor, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
-		if (!accessWideners.isEmpty()) {
-			classVisitor = new AccessWidenerClassVisitor(api, classVisitor, this);
+		if (accessWideners.isEmpty() && enumExtensions.isEmpty() && injectedInterfaces.isEmpty()) {
+			return classVisitor;
 		}
 
-		if (!enumExtensions.isEmpty()) {
-			classVisitor = new EnumExtensionClassVisitor(api, classVisitor, this, generatedClassConsumer);
-		}
+		return new ClassTweakerClassVisitor(api, classVisitor, this, generatedClassConsumer);
+	}
 
-		if (!injectedInterfaces.isEmpty()) {
-			classVisitor = new InterfaceInjectionClassVisitor(api, classVisitor, this);
+	@Override
+	public ClassVisitor createClassVisitor(int api, String className, @Nullable ClassVisitor classVisitor, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
+		if (!accessWideners.containsKey(className) && !enumExtensions.containsKey(className) && !injectedInterfaces.containsKey(className)) {
+			return classVisitor;
 		}
 
-		return classVisitor;
+		return new ClassTweakerClassVisitor(api, classVisitor, this, generatedClassConsumer);
 	}
 
 	@Override
 	public Map<String, EnumExtension> getEnumExtensions(String className) {
-		//noinspection unchecked
-		return Collections.unmodifiableMap((Map) enumExtensions.getOrDefault(className.replace(".", "/"), Collections.emptyMap()));
+		// replace(char, char) returns the same string when there is nothing to replace
+		return enumExtensionViews.getOrDefault(className.replace('.', '/'), Collections.emptyMap());
 	}
 
 	@Override
 	public Set<String> getTargets() {
-		return Collections.unmodifiableSet(targetClasses);
+		return targetsView;
 	}
 
 	@Override
 	public Set<String> getClasses() {
-		return Collections.unmodifiableSet(classes);
+		return classesView;
+	}
+
+	@Override
+	public boolean isTarget(CharSequence className) {
+		return targetIndex.contains(className);
+	}
+
+	@Override
+	public boolean hasTargetsInPackage(CharSequence packageName) {
+		return targetIndex.containsPackage(packageName);
 	}
 
 	@Override
@@ -161,25 +352,22 @@ public final class ClassTweakerImpl implements ClassTweaker, ClassTweakerVisitor
 
 	@Override
 	public Map<String, AccessWidener> getAllAccessWideners() {
-		//noinspection unchecked
-		return Collections.unmodifiableMap((Map) accessWideners);
+		return allAccessWideners;
 	}
 
 	@Override
 	public Map<String, Map<String, EnumExtension>> getAllEnumExtensions() {
-		//noinspection unchecked
-		return Collections.unmodifiableMap((Map) enumExtensions);
+		return allEnumExtensions;
 	}
 
 	@Override
 	public Set<InjectedInterface> getInjectedInterfaces(String className) {
-		return Collections.unmodifiableSet(injectedInterfaces.getOrDefault(className, Collections.emptySet()));
+		return injectedInterfaceViews.getOrDefault(className, Collections.emptySet());
 	}
 
 	@Override
 	public Map<String, Set<InjectedInterface>> getAllInjectedInterfaces() {
-		//noinspection unchecked
-		return Collections.unmodifiableMap((Map) injectedInterfaces);
+		return allInjectedInterfaces;
 	}
 
 	@Override
@@ -191,4 +379,40 @@ public final class ClassTweakerImpl implements ClassTweaker, ClassTweakerVisitor
 	public int hashCode() {
 		return Objects.hash(namespace, accessWideners, enumExtensions, targetClasses, classes);
 	}
+
+	/**
+	 * Adds the entries of a single source, ordering them by the source index and then the order they are visited in.
+	 */
+	private final class SourceVisitor implements ClassTweakerVisitor {
+		private final long sourceOrder;
+		private int position;
+
+		SourceVisitor(int sourceIndex) {
+			this.sourceOrder = (long) sourceIndex << 32;
+		}
+
+		long nextOrder() {
+			return sourceOrder | (position++ & 0xFFFFFFFFL);
+		}
+
+		@Override
+		public void visitHeader(String namespace) {
+			ClassTweakerImpl.this.visitHeader(namespace);
+		}
+
+		@Override
+		public AccessWidenerVisitor visitAccessWidener(String owner) {
+			return ClassTweakerImpl.this.visitAccessWidener(owner, this);
+		}
+
+		@Override
+		public EnumExtensionVisitor visitEnum(String owner, String name, String constructorDesc, String id, boolean transitive) {
+			return ClassTweakerImpl.this.visitEnum(owner, name, constructorDesc, id, this);
+		}
+
+		@Override
+		public void visitInjectedInterface(String owner, String iface, boolean transitive) {
+			ClassTweakerImpl.this.visitInjectedInterface(owner, iface, this);
+		}
+	}
 }
@@ -0,0 +1,639 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassVisitor;
+
+import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.EnumExtension;
+import net.fabricmc.classtweaker.api.InjectedInterface;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.api.visitor.EnumExtensionVisitor;
+import net.fabricmc.classtweaker.classvisitor.ClassPlan;
+import net.fabricmc.classtweaker.classvisitor.ClassTweakerClassVisitor;
+import net.fabricmc.classtweaker.utils.EntryTriple;
+
+/**
+ * An immutable copy of a {@link ClassTweaker}, stored in flat arrays rather than maps of objects.
+ * Instances are safe to share between threads.
+ *
+ * <p>Every class with a class tweak has an index in {@link #classes}, which is used for the per class arrays.
+ * The members of all classes are stored in one set of arrays for methods and one for fields, sorted by class.
+ * Their names and descriptors are indices into a shared string table, and their access is packed into a byte
+ * using the {@link BinaryClassTweakerFormat} flags. Members are looked up by class index, name and descriptor
+ * using an open addressing hash table.
+ */
+public final class FrozenClassTweakerImpl implements ClassTweaker {
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+	// Set in classAccess for classes that have an access widener
+	private static final int HAS_ACCESS_WIDENER = 0x80;
+	private static final AccessWidenerImpl.MutableAccess[] CLASS_ACCESS = new AccessWidenerImpl.MutableAccess[8];
+	private static final AccessWidenerImpl.MutableAccess[] METHOD_ACCESS = new AccessWidenerImpl.MutableAccess[8];
+	private static final AccessWidenerImpl.MutableAccess[] FIELD_ACCESS = new AccessWidenerImpl.MutableAccess[8];
+	// The name is only used by enum extensions
+	private static final ClassPlan EMPTY_PLAN = ClassPlan.create("", AccessWidenerImpl.DEFAULT, Collections.emptyMap(), Collections.emptySet());
+
+	static {
+		for (int flags = 0; flags < 8; flags++) {
+			CLASS_ACCESS[flags] = BinaryClassTweakerFormat.getClassAccess(flags);
+			METHOD_ACCESS[flags] = BinaryClassTweakerFormat.getMethodAccess(flags);
+			FIELD_ACCESS[flags] = BinaryClassTweakerFormat.getFieldAccess(flags);
+		}
+	}
+
+	private final String namespace;
+	private final FrozenStringSet targets;
+	private final TargetIndex targetIndex = new TargetIndex();
+	private final double falsePositiveRate;
+	private final TargetBloomFilter targetFilter;
+	private final FrozenStringSet classes;
+	private final String[] strings;
+
+	// Indexed by class
+	private final byte[] classAccess;
+	private final FrozenAccessWidener[] accessWideners;
+	private final Map<String, EnumExtension>[] enumExtensions;
+	private final Set<InjectedInterface>[] injectedInterfaces;
+	private final ClassPlan[] classPlans;
+
+	private final Members methods;
+	private final Members fields;
+
+	public FrozenClassTweakerImpl(ClassTweaker classTweaker) {
+		this(classTweaker, DEFAULT_FALSE_POSITIVE_RATE);
+	}
+
+	/**
+	 * @param falsePositiveRate the false positive rate of {@link #mightTarget}
+	 */
+	@SuppressWarnings("unchecked")
+	public FrozenClassTweakerImpl(ClassTweaker classTweaker, double falsePositiveRate) {
+		namespace = classTweaker.getNamespace();
+		targets = new FrozenStringSet(classTweaker.getTargets());
+		this.falsePositiveRate = falsePositiveRate;
+		targetFilter = new TargetBloomFilter(targets, falsePositiveRate);
+
+		for (String target : targets) {
+			targetIndex.add(target);
+		}
+
+		classes = new FrozenStringSet(classTweaker.getClasses());
+
+		final int classCount = classes.size();
+		final Map<String, AccessWidener> allAccessWideners = classTweaker.getAllAccessWideners();
+		final Map<String, Map<String, EnumExtension>> allEnumExtensions = classTweaker.getAllEnumExtensions();
+		final Map<String, Set<InjectedInterface>> allInjectedInterfaces = classTweaker.getAllInjectedInterfaces();
+		final StringTable stringTable = new StringTable();
+		final Members.Builder methodsBuilder = new Members.Builder(classCount);
+		final Members.Builder fieldsBuilder = new Members.Builder(classCount);
+
+		classAccess = new byte[classCount];
+		accessWideners = new FrozenAccessWidener[classCount];
+		enumExtensions = (Map<String, EnumExtension>[]) new Map<?, ?>[classCount];
+		injectedInterfaces = (Set<InjectedInterface>[]) new Set<?>[classCount];
+
+		for (int i = 0; i < classCount; i++) {
+			final String className = classes.elements[i];
+			final AccessWidener accessWidener = allAccessWideners.get(className);
+
+			if (accessWidener != null) {
+				classAccess[i] = (byte) (HAS_ACCESS_WIDENER | BinaryClassTweakerFormat.getFlags(accessWidener.getClassAccess()));
+				accessWideners[i] = new FrozenAccessWidener(i);
+				methodsBuilder.add(i, accessWidener.getAllMethodAccesses(), stringTable);
+				fieldsBuilder.add(i, accessWidener.getAllFieldAccesses(), stringTable);
+			}
+
+			final Map<String, EnumExtension> classEnumExtensions = allEnumExtensions.get(className);
+
+			if (classEnumExtensions != null && !classEnumExtensions.isEmpty()) {
+				final Map<String, EnumExtension> copy = new TreeMap<>();
+
+				for (EnumExtension enumExtension : classEnumExtensions.values()) {
+					copy.put(enumExtension.getName(), copy(enumExtension));
+				}
+
+				enumExtensions[i] = Collections.unmodifiableMap(copy);
+			}
+
+			final Set<InjectedInterface> classInjectedInterfaces = allInjectedInterfaces.get(className);
+
+			if (classInjectedInterfaces != null && !classInjectedInterfaces.isEmpty()) {
+				// Injected interfaces are immutable
+				injectedInterfaces[i] = Collections.unmodifiableSet(new LinkedHashSet<>(classInjectedInterfaces));
+			}
+		}
+
+		strings = stringTable.toArray();
+		methods = methodsBuilder.build(strings);
+		fields = fieldsBuilder.build(strings);
+		classPlans = new ClassPlan[classCount];
+
+		for (int i = 0; i < classCount; i++) {
+			classPlans[i] = ClassPlan.create(
+					classes.elements[i],
+					accessWideners[i] != null ? accessWideners[i] : AccessWidenerImpl.DEFAULT,
+					enumExtensions[i] != null ? enumExtensions[i] : Collections.emptyMap(),
+					injectedInterfaces[i] != null ? injectedInterfaces[i] : Collections.emptySet()
+			);
+		}
+	}
+
+	private static EnumExtension copy(EnumExtension enumExtension) {
+		final EnumExtensionImpl copy = new EnumExtensionImpl(enumExtension.getName(), enumExtension.getTargetConstructor(), enumExtension.getId());
+		final EnumExtension.Parameters parameters = enumExtension.getParameters();
+
+		// Built using the visitor methods so that the hash code, which ends up in the generated classes, matches
+		if (parameters instanceof EnumExtension.ListParameters) {
+			final EntryTriple paramList = ((EnumExtension.ListParameters) parameters).getParamList();
+			copy.visitParameterList(paramList.getOwner(), paramList.getName(), paramList.getDesc());
+		} else if (parameters instanceof EnumExtension.ConstantParameters) {
+			copy.visitParameterConstants(((EnumExtension.ConstantParameters) parameters).getConstants().clone());
+		}
+
+		for (EnumExtension.MethodOverride methodOverride : enumExtension.getMethodOverrides()) {
+			final EntryTriple staticMethod = methodOverride.getStaticMethod();
+			copy.visitOverride(methodOverride.getTargetMethodName(), staticMethod.getOwner(), staticMethod.getName(), staticMethod.getDesc());
+		}
+
+		return copy;
+	}
+
+	@Override
+	public String getNamespace() {
+		return namespace;
+	}
+
+	@Override
+	public Set<String> getTargets() {
+		return targets;
+	}
+
+	@Override
+	public Set<String> getClasses() {
+		return classes;
+	}
+
+	@Override
+	public boolean isTarget(CharSequence className) {
+		return targetIndex.contains(className);
+	}
+
+	@Override
+	public boolean hasTargetsInPackage(CharSequence packageName) {
+		return targetIndex.containsPackage(packageName);
+	}
+
+	@Override
+	public boolean mightTarget(CharSequence className) {
+		return targetFilter.mightContain(className);
+	}
+
+	@Override
+	public AccessWidener getAccessWidener(String className) {
+		final int index = classes.indexOf(className);
+
+		if (index < 0 || accessWideners[index] == null) {
+			return AccessWidenerImpl.DEFAULT;
+		}
+
+		return accessWideners[index];
+	}
+
+	@Override
+	public Map<String, AccessWidener> getAllAccessWideners() {
+		final Map<String, AccessWidener> map = new LinkedHashMap<>();
+
+		for (int i = 0; i < accessWideners.length; i++) {
+			if (accessWideners[i] != null) {
+				map.put(classes.elements[i], accessWideners[i]);
+			}
+		}
+
+		return Collections.unmodifiableMap(map);
+	}
+
+	@Override
+	public Map<String, EnumExtension> getEnumExtensions(String className) {
+		final int index = classes.indexOf(className.replace('.', '/'));
+
+		if (index < 0 || enumExtensions[index] == null) {
+			return Collections.emptyMap();
+		}
+
+		return enumExtensions[index];
+	}
+
+	@Override
+	public Map<String, Map<String, EnumExtension>> getAllEnumExtensions() {
+		final Map<String, Map<String, EnumExtension>> map = new LinkedHashMap<>();
+
+		for (int i = 0; i < enumExtensions.length; i++) {
+			if (enumExtensions[i] != null) {
+				map.put(classes.elements[i], enumExtensions[i]);
+			}
+		}
+
+		return Collections.unmodifiableMap(map);
+	}
+
+	@Override
+	public Set<InjectedInterface> getInjectedInterfaces(String className) {
+		final int index = classes.indexOf(className);
+
+		if (index < 0 || injectedInterfaces[index] == null) {
+			return Collections.emptySet();
+		}
+
+		return injectedInterfaces[index];
+	}
+
+	@Override
+	public Map<String, Set<InjectedInterface>> getAllInjectedInterfaces() {
+		final Map<String, Set<InjectedInterface>> map = new LinkedHashMap<>();
+
+		for (int i = 0; i < injectedInterfaces.length; i++) {
+			if (injectedInterfaces[i] != null) {
+				map.put(classes.elements[i], injectedInterfaces[i]);
+			}
+		}
+
+		return Collections.unmodifiableMap(map);
+	}
+
+	@Override
+	public ClassVisitor createClassVisitor(int api, @Nullable ClassVisitor classVisitor, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
+		if (!hasAny(accessWideners) && !hasAny(enumExtensions) && !hasAny(injectedInterfaces)) {
+			return classVisitor;
+		}
+
+		return new ClassTweakerClassVisitor(api, classVisitor, this::getClassPlan, generatedClassConsumer);
+	}
+
+	@Override
+	public ClassVisitor createClassVisitor(int api, String className, @Nullable ClassVisitor classVisitor, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
+		final int index = classes.indexOf(className);
+
+		if (index < 0) {
+			return classVisitor;
+		}
+
+		if (accessWideners[index] == null && enumExtensions[index] == null && injectedInterfaces[index] == null) {
+			return classVisitor;
+		}
+
+		return new ClassTweakerClassVisitor(api, classVisitor, this::getClassPlan, generatedClassConsumer);
+	}
+
+	private ClassPlan getClassPlan(String className) {
+		final int index = classes.indexOf(className);
+		return index < 0 ? EMPTY_PLAN : classPlans[index];
+	}
+
+	private static boolean hasAny(Object[] array) {
+		for (Object o : array) {
+			if (o != null) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public ClassTweaker freeze() {
+		return this;
+	}
+
+	@Override
+	public ClassTweaker freeze(double falsePositiveRate) {
+		return falsePositiveRate == this.falsePositiveRate ? this : new FrozenClassTweakerImpl(this, falsePositiveRate);
+	}
+
+	@Override
+	public void visitHeader(String namespace) {
+		throw new UnsupportedOperationException("Frozen class tweakers are read-only");
+	}
+
+	@Override
+	public AccessWidenerVisitor visitAccessWidener(String owner) {
+		throw new UnsupportedOperationException("Frozen class tweakers are read-only");
+	}
+
+	@Override
+	public EnumExtensionVisitor visitEnum(String owner, String name, String constructorDesc, String id, boolean transitive) {
+		throw new UnsupportedOperationException("Frozen class tweakers are read-only");
+	}
+
+	@Override
+	public void visitInjectedInterface(String owner, String iface, boolean transitive) {
+		throw new UnsupportedOperationException("Frozen class tweakers are read-only");
+	}
+
+	private static int hash(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private static int tableSize(int size) {
+		int capacity = 2;
+
+		// Keep the load factor at or below 0.5
+		while (capacity < size * 2) {
+			capacity <<= 1;
+		}
+
+		return capacity;
+	}
+
+	private final class FrozenAccessWidener implements AccessWidener {
+		private final int index;
+
+		private FrozenAccessWidener(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Access getClassAccess() {
+			return CLASS_ACCESS[classAccess[index] & 7];
+		}
+
+		@Override
+		public Access getMethodAccess(EntryTriple entryTriple) {
+			if (!entryTriple.getOwner().equals(classes.elements[index])) {
+				return AccessWidenerImpl.MutableAccess.DEFAULT;
+			}
+
+			return getMethodAccess(entryTriple.getName(), entryTriple.getDesc());
+		}
+
+		@Override
+		public Access getFieldAccess(EntryTriple entryTriple) {
+			if (!entryTriple.getOwner().equals(classes.elements[index])) {
+				return AccessWidenerImpl.MutableAccess.DEFAULT;
+			}
+
+			return getFieldAccess(entryTriple.getName(), entryTriple.getDesc());
+		}
+
+		@Override
+		public Access getMethodAccess(String name, String descriptor) {
+			final int member = methods.find(index, name, descriptor, strings);
+			return member < 0 ? AccessWidenerImpl.MutableAccess.DEFAULT : METHOD_ACCESS[methods.access[member]];
+		}
+
+		@Override
+		public Access getFieldAccess(String name, String descriptor) {
+			final int member = fields.find(index, name, descriptor, strings);
+			return member < 0 ? AccessWidenerImpl.MutableAccess.DEFAULT : FIELD_ACCESS[fields.access[member]];
+		}
+
+		@Override
+		public int getClassAccessBits() {
+			return classAccess[index] & 7;
+		}
+
+		@Override
+		public int getMethodAccessBits(String name, String descriptor) {
+			final int member = methods.find(index, name, descriptor, strings);
+			return member < 0 ? 0 : methods.access[member];
+		}
+
+		@Override
+		public int getFieldAccessBits(String name, String descriptor) {
+			final int member = fields.find(index, name, descriptor, strings);
+			return member < 0 ? 0 : fields.access[member];
+		}
+
+		@Override
+		public Map<EntryTriple, Access> getAllMethodAccesses() {
+			return methods.getAll(index, classes.elements[index], strings, METHOD_ACCESS);
+		}
+
+		@Override
+		public Map<EntryTriple, Access> getAllFieldAccesses() {
+			return fields.getAll(index, classes.elements[index], strings, FIELD_ACCESS);
+		}
+	}
+
+	/**
+	 * The methods or fields of all classes, sorted by class.
+	 */
+	private static final class Members {
+		// The first member of each class, with an extra entry for the end of the last class
+		private final int[] start;
+		private final int[] names;
+		private final int[] descriptors;
+		private final byte[] access;
+		// Open addressing hash table containing the member index plus one, zero is an empty slot
+		private final int[] table;
+
+		private Members(int[] start, int[] names, int[] descriptors, byte[] access, int[] table) {
+			this.start = start;
+			this.names = names;
+			this.descriptors = descriptors;
+			this.access = access;
+			this.table = table;
+		}
+
+		private int find(int owner, String name, String descriptor, String[] strings) {
+			final int mask = table.length - 1;
+			int slot = hash(owner, name, descriptor) & mask;
+			int member;
+
+			while ((member = table[slot] - 1) >= 0) {
+				if (member >= start[owner] && member < start[owner + 1] && strings[names[member]].equals(name) && strings[descriptors[member]].equals(descriptor)) {
+					return member;
+				}
+
+				slot = (slot + 1) & mask;
+			}
+
+			return -1;
+		}
+
+		private Map<EntryTriple, AccessWidener.Access> getAll(int owner, String ownerName, String[] strings, AccessWidenerImpl.MutableAccess[] accessByFlags) {
+			final Map<EntryTriple, AccessWidener.Access> map = new LinkedHashMap<>();
+
+			for (int member = start[owner]; member < start[owner + 1]; member++) {
+				map.put(new EntryTriple(ownerName, strings[names[member]], strings[descriptors[member]]), accessByFlags[access[member]]);
+			}
+
+			return Collections.unmodifiableMap(map);
+		}
+
+		private static int hash(int owner, String name, String descriptor) {
+			return FrozenClassTweakerImpl.hash((owner * 31 + name.hashCode()) * 31 + descriptor.hashCode());
+		}
+
+		private static final class Builder {
+			private final int[] start;
+			private int[] names = new int[16];
+			private int[] descriptors = new int[16];
+			private byte[] access = new byte[16];
+			private int size;
+
+			private Builder(int classCount) {
+				start = new int[classCount + 1];
+			}
+
+			private void add(int owner, Map<EntryTriple, AccessWidener.Access> members, StringTable stringTable) {
+				start[owner] = size;
+
+				for (Map.Entry<EntryTriple, AccessWidener.Access> entry : members.entrySet()) {
+					if (size == names.length) {
+						names = Arrays.copyOf(names, size * 2);
+						descriptors = Arrays.copyOf(descriptors, size * 2);
+						access = Arrays.copyOf(access, size * 2);
+					}
+
+					names[size] = stringTable.add(entry.getKey().getName());
+					descriptors[size] = stringTable.add(entry.getKey().getDesc());
+					access[size] = (byte) BinaryClassTweakerFormat.getFlags(entry.getValue());
+					size++;
+				}
+
+				start[owner + 1] = size;
+			}
+
+			private Members build(String[] strings) {
+				// Classes without an access widener have not been added, they start where the previous class ends
+				for (int i = 1; i < start.length; i++) {
+					start[i] = Math.max(start[i], start[i - 1]);
+				}
+
+				final int[] table = new int[tableSize(size)];
+				final int mask = table.length - 1;
+
+				for (int member = 0, owner = 0; member < size; member++) {
+					while (member >= start[owner + 1]) {
+						owner++;
+					}
+
+					int slot = hash(owner, strings[names[member]], strings[descriptors[member]]) & mask;
+
+					while (table[slot] != 0) {
+						slot = (slot + 1) & mask;
+					}
+
+					table[slot] = member + 1;
+				}
+
+				return new Members(start, Arrays.copyOf(names, size), Arrays.copyOf(descriptors, size), Arrays.copyOf(access, size), table);
+			}
+		}
+	}
+
+	/**
+	 * Assigns each distinct string an index, sharing a single instance between all the members that use it.
+	 */
+	private static final class StringTable {
+		private final Map<String, Integer> indices = new HashMap<>();
+		private String[] strings = new String[16];
+
+		private int add(String string) {
+			final Integer index = indices.get(string);
+
+			if (index != null) {
+				return index;
+			}
+
+			final int size = indices.size();
+
+			if (size == strings.length) {
+				strings = Arrays.copyOf(strings, size * 2);
+			}
+
+			strings[size] = string;
+			indices.put(string, size);
+			return size;
+		}
+
+		private String[] toArray() {
+			return Arrays.copyOf(strings, indices.size());
+		}
+	}
+
+	/**
+	 * An immutable set of strings in insertion order, backed by an open addressing hash table.
+	 */
+	private static final class FrozenStringSet extends AbstractSet<String> {
+		private final String[] elements;
+		// Contains the element index plus one, zero is an empty slot
+		private final int[] table;
+
+		private FrozenStringSet(Collection<String> strings) {
+			elements = strings.toArray(new String[0]);
+			table = new int[tableSize(elements.length)];
+			final int mask = table.length - 1;
+
+			for (int i = 0; i < elements.length; i++) {
+				int slot = hash(elements[i].hashCode()) & mask;
+
+				while (table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+
+				table[slot] = i + 1;
+			}
+		}
+
+		private int indexOf(String string) {
+			final int mask = table.length - 1;
+			int slot = hash(string.hashCode()) & mask;
+			int index;
+
+			while ((index = table[slot] - 1) >= 0) {
+				if (elements[index].equals(string)) {
+					return index;
+				}
+
+				slot = (slot + 1) & mask;
+			}
+
+			return -1;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof String && indexOf((String) o) >= 0;
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			return Collections.unmodifiableList(Arrays.asList(elements)).iterator();
+		}
+
+		@Override
+		public int size() {
+			return elements.length;
+		}
+	}
+}
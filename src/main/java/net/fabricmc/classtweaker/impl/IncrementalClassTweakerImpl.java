@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.ClassTweakerReader;
+import net.fabricmc.classtweaker.api.IncrementalClassTweaker;
+
+public final class IncrementalClassTweakerImpl implements IncrementalClassTweaker {
+	private final ClassTweakerImpl classTweaker = new ClassTweakerImpl();
+	// The rules of each source, in the order the sources were first read
+	private final Map<String, ClassTweakerImpl> sources = new LinkedHashMap<>();
+
+	@Override
+	public ClassTweaker getClassTweaker() {
+		return classTweaker;
+	}
+
+	@Override
+	public Set<String> read(byte[] content, @Nullable String currentNamespace, String id) {
+		final ClassTweakerImpl source = new ClassTweakerImpl();
+		ClassTweakerReader.create(source).read(content, currentNamespace, id);
+
+		if (source.namespace != null && classTweaker.namespace != null && !source.namespace.equals(classTweaker.namespace)) {
+			throw new RuntimeException(String.format("Namespace mismatch, expected %s got %s", classTweaker.namespace, source.namespace));
+		}
+
+		return update(id, source);
+	}
+
+	@Override
+	public Set<String> remove(String id) {
+		return update(id, null);
+	}
+
+	private Set<String> update(String id, @Nullable ClassTweakerImpl source) {
+		final ClassTweakerImpl previous = sources.get(id);
+		final Set<String> owners = getChangedOwners(previous, source);
+
+		if (source != null) {
+			sources.put(id, source);
+		} else {
+			sources.remove(id);
+		}
+
+		try {
+			checkDuplicateEnumValues(owners);
+		} catch (RuntimeException e) {
+			// Put back the previous source, so that a failed read changes nothing
+			if (previous != null) {
+				sources.put(id, previous);
+			} else {
+				sources.remove(id);
+			}
+
+			throw e;
+		}
+
+		if (source != null && source.namespace != null) {
+			classTweaker.visitHeader(source.namespace);
+		}
+
+		final Set<String> removed = new HashSet<>();
+		final Set<String> changedTargets = new LinkedHashSet<>();
+
+		for (String owner : owners) {
+			classTweaker.removeOwner(owner);
+
+			for (ClassTweakerImpl contributor : sources.values()) {
+				if (contributor.classes.contains(owner)) {
+					classTweaker.addOwner(contributor, owner);
+				}
+			}
+
+			if (!classTweaker.hasOwner(owner)) {
+				removed.add(owner);
+			}
+
+			String target = owner.replace('/', '.');
+			changedTargets.add(target);
+
+			while (target.contains("$")) {
+				target = target.substring(0, target.lastIndexOf("$"));
+				changedTargets.add(target);
+			}
+		}
+
+		if (!removed.isEmpty()) {
+			classTweaker.removeClasses(removed);
+		}
+
+		return Collections.unmodifiableSet(changedTargets);
+	}
+
+	/**
+	 * Checks that the enum values of the owners are unique across all the sources, before anything is changed.
+	 */
+	private void checkDuplicateEnumValues(Set<String> owners) {
+		for (String owner : owners) {
+			final Set<String> names = new HashSet<>();
+
+			for (ClassTweakerImpl source : sources.values()) {
+				final Map<String, EnumExtensionImpl> enumExtensions = source.enumExtensions.get(owner);
+
+				if (enumExtensions == null) {
+					continue;
+				}
+
+				for (String name : enumExtensions.keySet()) {
+					if (!names.add(name)) {
+						throw new RuntimeException(String.format("Duplicate enum extension value name (%s) in enum (%s)", name, owner));
+					}
+				}
+			}
+		}
+	}
+
+	private static Set<String> getChangedOwners(@Nullable ClassTweakerImpl previous, @Nullable ClassTweakerImpl source) {
+		final Set<String> owners = new LinkedHashSet<>();
+
+		if (previous != null) {
+			owners.addAll(previous.classes);
+		}
+
+		if (source != null) {
+			owners.addAll(source.classes);
+		}
+
+		if (previous != null && source != null) {
+			owners.removeIf(owner -> ClassTweakerDiffImpl.isSameOwner(previous, source, owner));
+		}
+
+		return owners;
+	}
+
+	@Override
+	public Set<String> getSourceIds() {
+		return Collections.unmodifiableSet(sources.keySet());
+	}
+
+	@Override
+	public Set<String> getSourceIds(String className) {
+		final Set<String> ids = new LinkedHashSet<>();
+
+		for (Map.Entry<String, ClassTweakerImpl> entry : sources.entrySet()) {
+			if (entry.getValue().classes.contains(className)) {
+				ids.add(entry.getKey());
+			}
+		}
+
+		return ids;
+	}
+
+	@Nullable
+	@Override
+	public ClassTweaker getSource(String id) {
+		final ClassTweakerImpl source = sources.get(id);
+		return source != null ? source.freeze() : null;
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.ClassTweakerJarTransformer;
+import net.fabricmc.classtweaker.utils.ZipArchive;
+import net.fabricmc.classtweaker.utils.ZipArchiveWriter;
+
+public final class JarTransformerImpl implements ClassTweakerJarTransformer {
+	private static final String CLASS_EXTENSION = ".class";
+	// The header id of the extra field holding the crc of the input of a transformed class
+	private static final int INPUT_CRC_FIELD = 0x7443;
+	// The header id of the empty extra field marking the classes generated for the preceding entry
+	private static final int GENERATED_FIELD = 0x7447;
+	private static final byte[] GENERATED_EXTRA = ZipArchiveWriter.extraField(GENERATED_FIELD, new byte[0]);
+
+	private final ClassTweaker classTweaker;
+	private final ForkJoinPool pool;
+
+	public JarTransformerImpl(ClassTweaker classTweaker, ForkJoinPool pool) {
+		this.classTweaker = classTweaker;
+		this.pool = pool;
+	}
+
+	@Override
+	public Result transform(Path input, Path output) throws IOException {
+		final List<ZipArchive.Entry> entries = ZipArchive.read(input).getEntries();
+		final Set<String> classes = classTweaker.getClasses();
+		final List<Step> steps = new ArrayList<>(entries.size());
+
+		for (ZipArchive.Entry entry : entries) {
+			final String className = getClassName(entry);
+			steps.add(className != null && classes.contains(className) ? transformStep(entry) : new Step(entry, null));
+		}
+
+		return write(steps, output);
+	}
+
+	@Override
+	public Result transform(Path input, Path previousOutput, ClassTweaker previousClassTweaker, Path output) throws IOException {
+		final List<ZipArchive.Entry> entries = ZipArchive.read(input).getEntries();
+		final List<ZipArchive.Entry> previousEntries = ZipArchive.read(previousOutput).getEntries();
+		final Set<String> affected = ClassTweakerDiffImpl.compute(previousClassTweaker, classTweaker);
+		final Set<String> classes = classTweaker.getClasses();
+
+		final Set<String> names = new HashSet<>();
+		final Map<String, Integer> previousIndex = new HashMap<>();
+
+		for (ZipArchive.Entry entry : entries) {
+			names.add(entry.getName());
+		}
+
+		for (int i = 0; i < previousEntries.size(); i++) {
+			previousIndex.put(previousEntries.get(i).getName(), i);
+		}
+
+		final List<Step> steps = new ArrayList<>(previousEntries.size());
+
+		for (ZipArchive.Entry entry : entries) {
+			final String className = getClassName(entry);
+			final Integer index = previousIndex.get(entry.getName());
+
+			// Reuse the previous output unless the class tweaks or the input entry changed
+			if (index != null && (className == null || !affected.contains(className)) && getInputCrc(previousEntries.get(index)) == entry.getCrc()) {
+				steps.add(new Step(previousEntries.get(index), null));
+
+				if (className != null) {
+					// The following entries marked as generated were generated for this class
+					for (int i = index + 1; i < previousEntries.size(); i++) {
+						final ZipArchive.Entry previous = previousEntries.get(i);
+
+						if (previous.getExtraField(GENERATED_FIELD) == null || names.contains(previous.getName())) {
+							break;
+						}
+
+						steps.add(new Step(previous, null));
+					}
+				}
+			} else if (className != null && classes.contains(className)) {
+				steps.add(transformStep(entry));
+			} else {
+				steps.add(new Step(entry, null));
+			}
+		}
+
+		return write(steps, output);
+	}
+
+	private Step transformStep(ZipArchive.Entry entry) {
+		return new Step(entry, pool.submit(() -> transform(entry)));
+	}
+
+	private ResultImpl write(List<Step> steps, Path output) throws IOException {
+		try {
+			return writeSteps(steps, output);
+		} finally {
+			for (Step step : steps) {
+				if (step.task != null) step.task.cancel(false);
+			}
+		}
+	}
+
+	private ResultImpl writeSteps(List<Step> steps, Path output) throws IOException {
+		final ResultImpl result = new ResultImpl();
+		final Path directory = output.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		final Path tempFile = Files.createTempFile(directory, output.getFileName().toString(), ".tmp");
+
+		try {
+			try (ZipArchiveWriter writer = new ZipArchiveWriter(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+				for (Step step : steps) {
+					final ZipArchive.Entry entry = step.entry;
+					final TransformedEntry transformed = step.task != null ? join(step.task) : null;
+
+					if (transformed == null || transformed.bytes == null) {
+						writer.copy(entry);
+						result.copiedEntries++;
+					} else {
+						writer.replace(transformed.bytes, entry, inputCrcField(entry));
+						result.transformedClasses++;
+					}
+
+					if (transformed != null) {
+						for (ZipArchiveWriter.Compressed generated : transformed.generated) {
+							writer.write(generated, entry, GENERATED_EXTRA);
+							result.generatedClasses++;
+						}
+					}
+				}
+			}
+
+			Files.move(tempFile, output, StandardCopyOption.REPLACE_EXISTING);
+			return result;
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	private TransformedEntry transform(ZipArchive.Entry entry) throws IOException {
+		final List<ZipArchiveWriter.Compressed> generated = new ArrayList<>();
+		final ClassTweaker.TransformResult result = classTweaker.transform(entry.getData(), (name, bytes) -> generated.add(ZipArchiveWriter.compress(name + CLASS_EXTENSION, bytes)));
+		final ZipArchiveWriter.Compressed bytes = result.isChanged() ? ZipArchiveWriter.compress(entry.getName(), result.getBytes()) : null;
+		return new TransformedEntry(bytes, generated);
+	}
+
+	private static TransformedEntry join(ForkJoinTask<TransformedEntry> task) throws IOException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while transforming classes");
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+
+			throw new RuntimeException(cause);
+		}
+	}
+
+	private static byte[] inputCrcField(ZipArchive.Entry input) {
+		final byte[] crc = new byte[4];
+		ByteBuffer.wrap(crc).order(ByteOrder.LITTLE_ENDIAN).putInt(input.getCrc());
+		return ZipArchiveWriter.extraField(INPUT_CRC_FIELD, crc);
+	}
+
+	/**
+	 * @return the crc of the input entry the previous output entry was created from
+	 */
+	private static int getInputCrc(ZipArchive.Entry previous) {
+		final byte[] crc = previous.getExtraField(INPUT_CRC_FIELD);
+
+		if (crc == null || crc.length != 4) {
+			// Copied from the input
+			return previous.getCrc();
+		}
+
+		return ByteBuffer.wrap(crc).order(ByteOrder.LITTLE_ENDIAN).getInt();
+	}
+
+	/**
+	 * @return the internal name of the class stored in the entry, or {@code null} if it isn't a class
+	 */
+	@Nullable
+	static String getClassName(ZipArchive.Entry entry) {
+		final String name = entry.getName();
+
+		if (!name.endsWith(CLASS_EXTENSION)) {
+			return null;
+		}
+
+		return name.substring(0, name.length() - CLASS_EXTENSION.length());
+	}
+
+	private static final class Step {
+		// The entry to copy, or the input entry that is transformed by the task
+		private final ZipArchive.Entry entry;
+		@Nullable
+		private final ForkJoinTask<TransformedEntry> task;
+
+		private Step(ZipArchive.Entry entry, @Nullable ForkJoinTask<TransformedEntry> task) {
+			this.entry = entry;
+			this.task = task;
+		}
+	}
+
+	private static final class TransformedEntry {
+		// Null when the class was not changed
+		@Nullable
+		private final ZipArchiveWriter.Compressed bytes;
+		private final List<ZipArchiveWriter.Compressed> generated;
+
+		private TransformedEntry(@Nullable ZipArchiveWriter.Compressed bytes, List<ZipArchiveWriter.Compressed> generated) {
+			this.bytes = bytes;
+			this.generated = generated;
+		}
+	}
+
+	private static final class ResultImpl implements Result {
+		private int transformedClasses;
+		private int generatedClasses;
+		private int copiedEntries;
+
+		@Override
+		public int getTransformedClasses() {
+			return transformedClasses;
+		}
+
+		@Override
+		public int getGeneratedClasses() {
+			return generatedClasses;
+		}
+
+		@Override
+		public int getCopiedEntries() {
+			return copiedEntries;
+		}
+	}
+}
@@ -0,0 +1,608 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_BOOLEAN;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_BYTE;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_CHAR;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_DOUBLE;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_FLOAT;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_INT;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_LONG;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_NULL;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_PARAMETERS;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_SHORT;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_STRING;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.LIST_PARAMETERS;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Type;
+
+import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.EnumExtension;
+import net.fabricmc.classtweaker.api.InjectedInterface;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.api.visitor.EnumExtensionVisitor;
+import net.fabricmc.classtweaker.classvisitor.ClassTweakerClassVisitor;
+import net.fabricmc.classtweaker.utils.EntryTriple;
+
+/**
+ * A read-only {@link ClassTweaker} answering lookups directly from the compiled binary format, usually backed by a
+ * memory-mapped file. Only the entries that are looked up get decoded, and it is safe to use from multiple threads.
+ *
+ * <p>All values are big endian, strings are referenced by their index in the string table. The layout is:
+ * <pre>
+ * u4 magic, u4 version, u4 namespace, u4 string count (n)
+ * u4[n + 1] string offsets, u2[] string chars (padded to 4 bytes)
+ * targets and classes: u4 count (c), u4[c] strings in iteration order, u4[c] the same strings sorted
+ * access wideners, enum extensions and injected interfaces: u4 count (c), (u4 owner, u4 data offset)[c] sorted by owner
+ * u4 data length, data
+ * </pre>
+ *
+ * <p>Strings are stored as UTF-16 chars so that they can be compared without decoding, sorting uses
+ * {@link String#compareTo(String)}. The data of an access widener is: u4 class flags, u4 method count,
+ * (u4 name, u4 desc, u4 flags)[] sorted by name and desc, followed by the fields in the same way.
+ */
+public final class MappedClassTweakerImpl implements ClassTweaker {
+	private final ByteBuffer buffer;
+	private final int stringOffsets;
+	private final int stringChars;
+	private final String namespace;
+	private final MappedStringSet targets;
+	private final MappedStringSet classes;
+	private final int accessWideners;
+	private final int enumExtensions;
+	private final int injectedInterfaces;
+	private final int data;
+
+	public MappedClassTweakerImpl(ByteBuffer buffer) {
+		this.buffer = buffer;
+
+		if (buffer.limit() < 16 || buffer.getInt(0) != BinaryClassTweakerFormat.MAGIC) {
+			throw new IllegalArgumentException("Not a binary class tweaker");
+		}
+
+		if (buffer.getInt(4) != BinaryClassTweakerFormat.VERSION) {
+			throw new IllegalArgumentException("Unsupported binary class tweaker version: " + buffer.getInt(4));
+		}
+
+		try {
+			final int stringCount = buffer.getInt(12);
+			stringOffsets = 16;
+			stringChars = stringOffsets + (stringCount + 1) * 4;
+			namespace = getString(buffer.getInt(8));
+
+			int position = align(stringChars + buffer.getInt(stringOffsets + stringCount * 4) * 2);
+			targets = new MappedStringSet(position);
+			position += 4 + targets.size * 8;
+			classes = new MappedStringSet(position);
+			position += 4 + classes.size * 8;
+			accessWideners = position;
+			position += 4 + buffer.getInt(position) * 8;
+			enumExtensions = position;
+			position += 4 + buffer.getInt(position) * 8;
+			injectedInterfaces = position;
+			position += 4 + buffer.getInt(position) * 8;
+			data = position + 4;
+
+			if (data + buffer.getInt(position) != buffer.limit()) {
+				throw new IndexOutOfBoundsException();
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Truncated binary class tweaker", e);
+		}
+	}
+
+	private static int align(int position) {
+		return (position + 3) & ~3;
+	}
+
+	@Override
+	public String getNamespace() {
+		return namespace;
+	}
+
+	@Override
+	public Set<String> getTargets() {
+		return targets;
+	}
+
+	@Override
+	public Set<String> getClasses() {
+		return classes;
+	}
+
+	@Override
+	public AccessWidener getAccessWidener(String className) {
+		final int index = findOwner(accessWideners, className);
+
+		if (index < 0) {
+			return AccessWidenerImpl.DEFAULT;
+		}
+
+		return new MappedAccessWidener(getOwner(accessWideners, index), getData(accessWideners, index));
+	}
+
+	@Override
+	public Map<String, AccessWidener> getAllAccessWideners() {
+		final Map<String, AccessWidener> accessWideners = new LinkedHashMap<>();
+
+		for (int i = 0; i < buffer.getInt(this.accessWideners); i++) {
+			final int owner = getOwner(this.accessWideners, i);
+			accessWideners.put(getString(owner), new MappedAccessWidener(owner, getData(this.accessWideners, i)));
+		}
+
+		return Collections.unmodifiableMap(accessWideners);
+	}
+
+	@Override
+	public Map<String, EnumExtension> getEnumExtensions(String className) {
+		final int index = findOwner(enumExtensions, className.replace(".", "/"));
+
+		if (index < 0) {
+			return Collections.emptyMap();
+		}
+
+		return readEnumExtensions(getData(enumExtensions, index));
+	}
+
+	@Override
+	public Map<String, Map<String, EnumExtension>> getAllEnumExtensions() {
+		final Map<String, Map<String, EnumExtension>> enumExtensions = new LinkedHashMap<>();
+
+		for (int i = 0; i < buffer.getInt(this.enumExtensions); i++) {
+			enumExtensions.put(getString(getOwner(this.enumExtensions, i)), readEnumExtensions(getData(this.enumExtensions, i)));
+		}
+
+		return Collections.unmodifiableMap(enumExtensions);
+	}
+
+	@Override
+	public Set<InjectedInterface> getInjectedInterfaces(String className) {
+		final int index = findOwner(injectedInterfaces, className);
+
+		if (index < 0) {
+			return Collections.emptySet();
+		}
+
+		return readInjectedInterfaces(getData(injectedInterfaces, index));
+	}
+
+	@Override
+	public Map<String, Set<InjectedInterface>> getAllInjectedInterfaces() {
+		final Map<String, Set<InjectedInterface>> injectedInterfaces = new LinkedHashMap<>();
+
+		for (int i = 0; i < buffer.getInt(this.injectedInterfaces); i++) {
+			injectedInterfaces.put(getString(getOwner(this.injectedInterfaces, i)), readInjectedInterfaces(getData(this.injectedInterfaces, i)));
+		}
+
+		return Collections.unmodifiableMap(injectedInterfaces);
+	}
+
+	@Override
+	public ClassVisitor createClassVisitor(int api, @Nullable ClassVisitor classVisitor, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
+		if (buffer.getInt(accessWideners) == 0 && buffer.getInt(enumExtensions) == 0 && buffer.getInt(injectedInterfaces) == 0) {
+			return classVisitor;
+		}
+
+		return new ClassTweakerClassVisitor(api, classVisitor, this, generatedClassConsumer);
+	}
+
+	@Override
+	public ClassVisitor createClassVisitor(int api, String className, @Nullable ClassVisitor classVisitor, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
+		if (findOwner(accessWideners, className) < 0 && findOwner(enumExtensions, className) < 0 && findOwner(injectedInterfaces, className) < 0) {
+			return classVisitor;
+		}
+
+		return new ClassTweakerClassVisitor(api, classVisitor, this, generatedClassConsumer);
+	}
+
+	@Override
+	public ClassTweaker freeze() {
+		return this;
+	}
+
+	@Override
+	public void visitHeader(String namespace) {
+		throw new UnsupportedOperationException("Binary class tweakers are read-only");
+	}
+
+	@Override
+	public AccessWidenerVisitor visitAccessWidener(String owner) {
+		throw new UnsupportedOperationException("Binary class tweakers are read-only");
+	}
+
+	@Override
+	public EnumExtensionVisitor visitEnum(String owner, String name, String constructorDesc, String id, boolean transitive) {
+		throw new UnsupportedOperationException("Binary class tweakers are read-only");
+	}
+
+	@Override
+	public void visitInjectedInterface(String owner, String iface, boolean transitive) {
+		throw new UnsupportedOperationException("Binary class tweakers are read-only");
+	}
+
+	private Map<String, EnumExtension> readEnumExtensions(int position) {
+		final Map<String, EnumExtension> enumExtensions = new TreeMap<>();
+		final int count = buffer.getInt(position);
+		position += 4;
+
+		for (int i = 0; i < count; i++) {
+			final String name = getString(buffer.getInt(position));
+			final EnumExtensionImpl enumExtension = new EnumExtensionImpl(name, Type.getType(getString(buffer.getInt(position + 4))), getString(buffer.getInt(position + 8)));
+			final int parameters = buffer.getInt(position + 12);
+			position += 16;
+
+			// Built using the visitor methods so that the hash code, which ends up in the generated classes, matches
+			if (parameters == LIST_PARAMETERS) {
+				enumExtension.visitParameterList(getString(buffer.getInt(position)), getString(buffer.getInt(position + 4)), getString(buffer.getInt(position + 8)));
+				position += 12;
+			} else if (parameters == CONSTANT_PARAMETERS) {
+				final Object[] constants = new Object[buffer.getInt(position)];
+				position += 4;
+
+				for (int j = 0; j < constants.length; j++) {
+					final int tag = buffer.get(position++);
+
+					switch (tag) {
+					case CONSTANT_NULL:
+						break;
+					case CONSTANT_STRING:
+						constants[j] = getString(buffer.getInt(position));
+						position += 4;
+						break;
+					case CONSTANT_CHAR:
+						constants[j] = buffer.getChar(position);
+						position += 2;
+						break;
+					case CONSTANT_BYTE:
+						constants[j] = buffer.get(position);
+						position += 1;
+						break;
+					case CONSTANT_SHORT:
+						constants[j] = buffer.getShort(position);
+						position += 2;
+						break;
+					case CONSTANT_INT:
+						constants[j] = buffer.getInt(position);
+						position += 4;
+						break;
+					case CONSTANT_LONG:
+						constants[j] = buffer.getLong(position);
+						position += 8;
+						break;
+					case CONSTANT_FLOAT:
+						constants[j] = buffer.getFloat(position);
+						position += 4;
+						break;
+					case CONSTANT_DOUBLE:
+						constants[j] = buffer.getDouble(position);
+						position += 8;
+						break;
+					case CONSTANT_BOOLEAN:
+						constants[j] = buffer.get(position) != 0;
+						position += 1;
+						break;
+					default:
+						throw new IllegalStateException("Unknown constant tag: " + tag);
+					}
+				}
+
+				enumExtension.visitParameterConstants(constants);
+			}
+
+			final int overrides = buffer.getInt(position);
+			position += 4;
+
+			for (int j = 0; j < overrides; j++) {
+				enumExtension.visitOverride(
+						getString(buffer.getInt(position)),
+						getString(buffer.getInt(position + 4)),
+						getString(buffer.getInt(position + 8)),
+						getString(buffer.getInt(position + 12))
+				);
+				position += 16;
+			}
+
+			enumExtensions.put(name, enumExtension);
+		}
+
+		return Collections.unmodifiableMap(enumExtensions);
+	}
+
+	private Set<InjectedInterface> readInjectedInterfaces(int position) {
+		final Set<InjectedInterface> injectedInterfaces = new LinkedHashSet<>();
+		final int count = buffer.getInt(position);
+
+		for (int i = 0; i < count; i++) {
+			injectedInterfaces.add(new InjectedInterfaceImpl(getString(buffer.getInt(position + 4 + i * 4))));
+		}
+
+		return Collections.unmodifiableSet(injectedInterfaces);
+	}
+
+	private int getOwner(int table, int index) {
+		return buffer.getInt(table + 4 + index * 8);
+	}
+
+	private int getData(int table, int index) {
+		return data + buffer.getInt(table + 8 + index * 8);
+	}
+
+	/**
+	 * @return the index of the owner in the table, or a negative value if it is not present
+	 */
+	private int findOwner(int table, String owner) {
+		int low = 0;
+		int high = buffer.getInt(table) - 1;
+
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final int cmp = compareString(getOwner(table, mid), owner);
+
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+
+		return -1;
+	}
+
+	@Nullable
+	private String getString(int index) {
+		if (index == BinaryClassTweakerFormat.NO_STRING) {
+			return null;
+		}
+
+		final int start = buffer.getInt(stringOffsets + index * 4);
+		final char[] chars = new char[buffer.getInt(stringOffsets + index * 4 + 4) - start];
+
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = buffer.getChar(stringChars + (start + i) * 2);
+		}
+
+		return new String(chars);
+	}
+
+	/**
+	 * Compares the string from the table to the given string, without decoding it.
+	 */
+	private int compareString(int index, String string) {
+		final int start = buffer.getInt(stringOffsets + index * 4);
+		final int length = buffer.getInt(stringOffsets + index * 4 + 4) - start;
+		final int min = Math.min(length, string.length());
+
+		for (int i = 0; i < min; i++) {
+			final char c = buffer.getChar(stringChars + (start + i) * 2);
+
+			if (c != string.charAt(i)) {
+				return c - string.charAt(i);
+			}
+		}
+
+		return length - string.length();
+	}
+
+	private final class MappedAccessWidener implements AccessWidener {
+		private final int owner;
+		private final int position;
+
+		private MappedAccessWidener(int owner, int position) {
+			this.owner = owner;
+			this.position = position;
+		}
+
+		@Override
+		public Access getClassAccess() {
+			return BinaryClassTweakerFormat.getClassAccess(buffer.getInt(position));
+		}
+
+		@Override
+		public Access getMethodAccess(EntryTriple entryTriple) {
+			if (compareString(owner, entryTriple.getOwner()) != 0) {
+				return AccessWidenerImpl.MutableAccess.DEFAULT;
+			}
+
+			return getMethodAccess(entryTriple.getName(), entryTriple.getDesc());
+		}
+
+		@Override
+		public Access getFieldAccess(EntryTriple entryTriple) {
+			if (compareString(owner, entryTriple.getOwner()) != 0) {
+				return AccessWidenerImpl.MutableAccess.DEFAULT;
+			}
+
+			return getFieldAccess(entryTriple.getName(), entryTriple.getDesc());
+		}
+
+		@Override
+		public Access getMethodAccess(String name, String descriptor) {
+			final int flags = findMember(methods(), name, descriptor);
+			return flags < 0 ? AccessWidenerImpl.MutableAccess.DEFAULT : BinaryClassTweakerFormat.getMethodAccess(flags);
+		}
+
+		@Override
+		public Access getFieldAccess(String name, String descriptor) {
+			final int flags = findMember(fields(), name, descriptor);
+			return flags < 0 ? AccessWidenerImpl.MutableAccess.DEFAULT : BinaryClassTweakerFormat.getFieldAccess(flags);
+		}
+
+		@Override
+		public int getClassAccessBits() {
+			return buffer.getInt(position);
+		}
+
+		@Override
+		public int getMethodAccessBits(String name, String descriptor) {
+			return Math.max(0, findMember(methods(), name, descriptor));
+		}
+
+		@Override
+		public int getFieldAccessBits(String name, String descriptor) {
+			return Math.max(0, findMember(fields(), name, descriptor));
+		}
+
+		@Override
+		public Map<EntryTriple, Access> getAllMethodAccesses() {
+			final Map<EntryTriple, Access> accesses = new LinkedHashMap<>();
+			final int table = methods();
+
+			for (int i = 0; i < buffer.getInt(table); i++) {
+				final int member = table + 4 + i * 12;
+				accesses.put(getMember(member), BinaryClassTweakerFormat.getMethodAccess(buffer.getInt(member + 8)));
+			}
+
+			return Collections.unmodifiableMap(accesses);
+		}
+
+		@Override
+		public Map<EntryTriple, Access> getAllFieldAccesses() {
+			final Map<EntryTriple, Access> accesses = new LinkedHashMap<>();
+			final int table = fields();
+
+			for (int i = 0; i < buffer.getInt(table); i++) {
+				final int member = table + 4 + i * 12;
+				accesses.put(getMember(member), BinaryClassTweakerFormat.getFieldAccess(buffer.getInt(member + 8)));
+			}
+
+			return Collections.unmodifiableMap(accesses);
+		}
+
+		private int methods() {
+			return position + 4;
+		}
+
+		private int fields() {
+			return methods() + 4 + buffer.getInt(methods()) * 12;
+		}
+
+		private EntryTriple getMember(int member) {
+			return new EntryTriple(getString(owner), getString(buffer.getInt(member)), getString(buffer.getInt(member + 4)));
+		}
+
+		/**
+		 * @return the flags of the member, or a negative value if it is not present
+		 */
+		private int findMember(int table, String name, String descriptor) {
+			int low = 0;
+			int high = buffer.getInt(table) - 1;
+
+			while (low <= high) {
+				final int mid = (low + high) >>> 1;
+				final int member = table + 4 + mid * 12;
+				int cmp = compareString(buffer.getInt(member), name);
+
+				if (cmp == 0) {
+					cmp = compareString(buffer.getInt(member + 4), descriptor);
+				}
+
+				if (cmp < 0) {
+					low = mid + 1;
+				} else if (cmp > 0) {
+					high = mid - 1;
+				} else {
+					return buffer.getInt(member + 8);
+				}
+			}
+
+			return -1;
+		}
+	}
+
+	/**
+	 * A set of class names, iterated in the original order and looked up through the sorted copy.
+	 */
+	private final class MappedStringSet extends AbstractSet<String> {
+		private final int position;
+		private final int size;
+
+		private MappedStringSet(int position) {
+			this.position = position;
+			this.size = buffer.getInt(position);
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof String)) {
+				return false;
+			}
+
+			final int sorted = position + 4 + size * 4;
+			int low = 0;
+			int high = size - 1;
+
+			while (low <= high) {
+				final int mid = (low + high) >>> 1;
+				final int cmp = compareString(buffer.getInt(sorted + mid * 4), (String) o);
+
+				if (cmp < 0) {
+					low = mid + 1;
+				} else if (cmp > 0) {
+					high = mid - 1;
+				} else {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			return new Iterator<String>() {
+				private int index;
+
+				@Override
+				public boolean hasNext() {
+					return index < size;
+				}
+
+				@Override
+				public String next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+
+					return getString(buffer.getInt(position + 4 + index++ * 4));
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.TransformCache;
+import net.fabricmc.classtweaker.utils.ClassFileUtils;
+
+/**
+ * Keeps transformed classes in memory, keyed by the class file and the identity of the class tweaker. The map is
+ * accessed under a lock, while the classes are transformed outside of it, so two threads missing the same class both
+ * transform it.
+ *
+ * <p>The cache keeps its own copies of the transformed and generated classes, and every hit gets new copies of them,
+ * so callers can modify the arrays they are given.
+ *
+ * <p>The size of an entry is estimated from the length of the arrays it holds, including the class file of the key.
+ * Once the total grows past the max size, the least recently used entries are removed.
+ */
+public final class MemoryTransformCacheImpl implements TransformCache {
+	// Estimated overhead of an entry, its key and the arrays it holds
+	private static final int ENTRY_OVERHEAD = 128;
+
+	private final long maxSize;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	// In access order, guarded by itself
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+	private long size;
+
+	public MemoryTransformCacheImpl(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	@Override
+	public ClassTweaker.TransformResult transform(ClassTweaker classTweaker, byte[] classBytes, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
+		final String className = ClassFileUtils.readClassName(classBytes);
+
+		if (className == null || !classTweaker.getClasses().contains(className)) {
+			// Nothing to cache, any errors are left to the class tweaker
+			return classTweaker.transform(classBytes, generatedClassConsumer);
+		}
+
+		final Key lookup = new Key(classTweaker, classBytes);
+		final Entry cached;
+
+		synchronized (entries) {
+			cached = entries.get(lookup);
+		}
+
+		if (cached != null) {
+			hits.incrementAndGet();
+
+			if (generatedClassConsumer != null) {
+				for (int i = 0; i < cached.generatedNames.size(); i++) {
+					generatedClassConsumer.accept(cached.generatedNames.get(i), cached.generatedBytes.get(i).clone());
+				}
+			}
+
+			return cached.bytes != null ? new ClassTransformer.TransformResultImpl(cached.bytes.clone(), true) : new ClassTransformer.TransformResultImpl(classBytes, false);
+		}
+
+		misses.incrementAndGet();
+		final Entry entry = new Entry();
+		final ClassTweaker.TransformResult result = classTweaker.transform(classBytes, (name, bytes) -> {
+			entry.generatedNames.add(name);
+			entry.generatedBytes.add(bytes.clone());
+
+			if (generatedClassConsumer != null) {
+				generatedClassConsumer.accept(name, bytes);
+			}
+		});
+
+		entry.bytes = result.isChanged() ? result.getBytes().clone() : null;
+		entry.size = ENTRY_OVERHEAD + classBytes.length + (entry.bytes != null ? entry.bytes.length : 0);
+
+		for (int i = 0; i < entry.generatedNames.size(); i++) {
+			entry.size += 2L * entry.generatedNames.get(i).length() + entry.generatedBytes.get(i).length;
+		}
+
+		// Copied, as the caller could reuse the array
+		put(new Key(new WeakReference<>(classTweaker), lookup.hash, classBytes.clone()), entry);
+		return result;
+	}
+
+	private void put(Key key, Entry entry) {
+		synchronized (entries) {
+			final Entry previous = entries.put(key, entry);
+
+			if (previous != null) {
+				size -= previous.size;
+			}
+
+			size += entry.size;
+			final Iterator<Entry> iterator = entries.values().iterator();
+
+			while (size > maxSize && iterator.hasNext()) {
+				size -= iterator.next().size;
+				iterator.remove();
+			}
+		}
+	}
+
+	@Override
+	public long getHits() {
+		return hits.get();
+	}
+
+	@Override
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Either holds the class tweaker while looking up an entry, or a weak reference to it once stored in the map.
+	 * Keys of collected class tweakers are not equal to any other key, and are eventually evicted.
+	 */
+	private static final class Key {
+		private final Object classTweaker;
+		private final int hash;
+		private final byte[] classBytes;
+
+		private Key(ClassTweaker classTweaker, byte[] classBytes) {
+			this(classTweaker, 31 * System.identityHashCode(classTweaker) + hash(classBytes), classBytes);
+		}
+
+		/**
+		 * Hashes up to 256 bytes spread over the class file, as the keys are compared using all of it anyway.
+		 */
+		private static int hash(byte[] classBytes) {
+			final int step = classBytes.length / 256 + 1;
+			int hash = classBytes.length;
+
+			for (int i = classBytes.length - 1; i >= 0; i -= step) {
+				hash = 31 * hash + classBytes[i];
+			}
+
+			return hash;
+		}
+
+		private Key(Object classTweaker, int hash, byte[] classBytes) {
+			this.classTweaker = classTweaker;
+			this.hash = hash;
+			this.classBytes = classBytes;
+		}
+
+		@Nullable
+		private Object getClassTweaker() {
+			return classTweaker instanceof WeakReference ? ((WeakReference<?>) classTweaker).get() : classTweaker;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+
+			if (!(o instanceof Key)) {
+				return false;
+			}
+
+			final Key key = (Key) o;
+			final Object classTweaker = getClassTweaker();
+			return hash == key.hash && classTweaker != null && classTweaker == key.getClassTweaker() && Arrays.equals(classBytes, key.classBytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private static final class Entry {
+		// Null when the class was not changed
+		@Nullable
+		private byte[] bytes;
+		private final List<String> generatedNames = new ArrayList<>();
+		private final List<byte[]> generatedBytes = new ArrayList<>();
+		private long size;
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A set of names that can be added to from multiple threads, iterated in the order of a key given with each name.
+ * A name added more than once keeps the lowest key, so the order does not depend on the order of the adds.
+ */
+final class OrderedNameSet extends AbstractSet<String> {
+	private final Map<String, Long> order = new ConcurrentHashMap<>();
+
+	void add(String name, long key) {
+		order.merge(name, key, Math::min);
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o != null && order.containsKey(o);
+	}
+
+	@Override
+	public int size() {
+		return order.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return order.isEmpty();
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		final List<Map.Entry<String, Long>> entries = new ArrayList<>(order.entrySet());
+		entries.sort(Map.Entry.comparingByValue());
+
+		final List<String> names = new ArrayList<>(entries.size());
+
+		for (Map.Entry<String, Long> entry : entries) {
+			names.add(entry.getKey());
+		}
+
+		return Collections.unmodifiableList(names).iterator();
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deduplicates the names and descriptors visited into one class tweaker, as every entry read from a file or remapped
+ * is a new string. Scoped to the class tweaker rather than the process, so the strings are released along with it.
+ */
+final class StringPool {
+	private final Map<String, String> strings;
+
+	StringPool(boolean concurrent) {
+		strings = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+	}
+
+	/**
+	 * @return the first string equal to the given one that was passed to this pool
+	 */
+	String intern(String string) {
+		final String existing = strings.putIfAbsent(string, string);
+		return existing != null ? existing : string;
+	}
+}
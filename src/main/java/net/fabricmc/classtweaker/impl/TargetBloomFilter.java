@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import java.util.Collection;
+
+/**
+ * A blocked bloom filter of target names, accepting names in either separator form.
+ *
+ * <p>Both forms of each name are added, so that a lookup of a string only needs its cached {@link String#hashCode()}
+ * rather than reading its characters. This doubles the size of the filter, which is small to begin with.
+ *
+ * <p>The filter is split into blocks of 512 bits, the size of a typical cache line. A name only sets and tests bits
+ * in a single block chosen by its hash, so a lookup touches one cache line however many bits are tested. This needs
+ * a few more bits per name than a standard bloom filter for the same false positive rate.
+ */
+final class TargetBloomFilter {
+	private static final int BLOCK_BITS = 512;
+	private static final int LONGS_PER_BLOCK = BLOCK_BITS / 64;
+	// Blocking raises the false positive rate, make up for it with extra bits
+	private static final double BLOCKING_OVERHEAD = 1.2;
+
+	private final long[] bits;
+	private final int blocks;
+	private final int hashCount;
+
+	TargetBloomFilter(Collection<String> names, double falsePositiveRate) {
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+		}
+
+		final double bitsPerName = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)) * BLOCKING_OVERHEAD;
+		blocks = (int) Math.max(1, Math.min(1 << 24, Math.ceil(bitsPerName * names.size() * 2 / BLOCK_BITS)));
+		bits = new long[blocks * LONGS_PER_BLOCK];
+		hashCount = Math.max(1, Math.min(16, (int) Math.round(bitsPerName / BLOCKING_OVERHEAD * Math.log(2))));
+
+		for (String name : names) {
+			add(name);
+			add(name.replace('.', '/'));
+		}
+	}
+
+	private void add(String name) {
+		final long hash = hash(name);
+		final int block = getBlock(hash);
+		long bitHash = hash;
+
+		for (int i = 0; i < hashCount; i++) {
+			bitHash = nextBitHash(bitHash);
+			final int bit = (int) (bitHash >>> 55);
+			bits[block + (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * @return {@code false} if the name was definitely not added, {@code true} if it might have been
+	 */
+	boolean mightContain(CharSequence name) {
+		final long hash = hash(name);
+		final int block = getBlock(hash);
+		long bitHash = hash;
+
+		for (int i = 0; i < hashCount; i++) {
+			bitHash = nextBitHash(bitHash);
+			final int bit = (int) (bitHash >>> 55);
+
+			if ((bits[block + (bit >>> 6)] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	// Maps the upper half of the hash onto the blocks, without needing a power of two number of blocks
+	private int getBlock(long hash) {
+		return (int) (((hash >>> 32) * blocks) >>> 32) * LONGS_PER_BLOCK;
+	}
+
+	/**
+	 * Steps a linear congruential generator seeded by the hash, whose top 9 bits pick the next bit within the block.
+	 * The top bits of an LCG are well distributed, unlike double hashing within the small range of a block.
+	 */
+	private static long nextBitHash(long bitHash) {
+		return bitHash * 0x5851F42D4C957F2DL + 0x14057B7EF767814FL;
+	}
+
+	// Spreads the String hash code of the name with a multiplicative hash, the upper half picks the block
+	private static long hash(CharSequence name) {
+		int h;
+
+		if (name instanceof String) {
+			h = name.hashCode();
+		} else {
+			h = 0;
+
+			for (int i = 0; i < name.length(); i++) {
+				h = 31 * h + name.charAt(i);
+			}
+		}
+
+		long hash = h * 0x9E3779B97F4A7C15L;
+		hash ^= hash >>> 32;
+		return hash * 0xFF51AFD7ED558CCDL;
+	}
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Looks up targets by name in either separator form without converting the name first.
+ *
+ * <p>The packages of the targets form a trie of name segments, so names in packages without targets are rejected at
+ * the first segment that isn't in the trie, usually the first one. Each node stores its children in an open
+ * addressing hash table keyed by the segment. The targets themselves are stored in one open addressing hash table of
+ * period-separated names, which is probed with the hash the name would have after converting it. This takes a single
+ * probe for targets, rather than walking the trie down to the class.
+ *
+ * <p>Tables are only ever added to, and are replaced by a larger copy when they fill up, so the lookups don't need any
+ * locks. Strings are safely published, so readers see either an empty slot or a complete name.
+ */
+final class TargetIndex {
+	private volatile Node root = new Node("");
+	// A power of two sized table of the targets, at most half full
+	private volatile String[] targets = new String[16];
+	private int targetCount;
+
+	/**
+	 * @param name the period-separated binary name of a target
+	 */
+	void add(String name) {
+		// Most names are added many times, once for each entry of the class
+		if (!contains(name)) {
+			addLocked(name);
+		}
+	}
+
+	private synchronized void addLocked(String name) {
+		if (findTarget(targets, name, name.hashCode()) != null) {
+			return;
+		}
+
+		Node node = root;
+		int start = 0;
+		int end;
+
+		// Only the packages are added to the trie
+		while ((end = name.indexOf('.', start)) >= 0) {
+			node = node.getOrAddChild(name.substring(start, end));
+			start = end + 1;
+		}
+
+		String[] targets = this.targets;
+
+		if ((targetCount + 1) * 2 > targets.length) {
+			final String[] table = new String[targets.length * 2];
+
+			for (String target : targets) {
+				if (target != null) {
+					insert(table, target);
+				}
+			}
+
+			targets = table;
+		}
+
+		insert(targets, name);
+		targetCount++;
+		this.targets = targets;
+	}
+
+	synchronized void clear() {
+		root = new Node("");
+		targets = new String[16];
+		targetCount = 0;
+	}
+
+	/**
+	 * @param name a binary or internal name, separated by periods or forward slashes
+	 */
+	boolean contains(CharSequence name) {
+		final int length = name.length();
+		int hash = 0;
+		int i = 0;
+
+		while (i < length) {
+			final char c = name.charAt(i);
+
+			if (isSeparator(c)) {
+				break;
+			}
+
+			hash = 31 * hash + c;
+			i++;
+		}
+
+		// Classes in the default package have no segment to check
+		if (i < length && root.getChild(name, 0, i, hash) == null) {
+			return false;
+		}
+
+		while (i < length) {
+			final char c = name.charAt(i++);
+			hash = 31 * hash + (c == '/' ? '.' : c);
+		}
+
+		return findTarget(targets, name, hash) != null;
+	}
+
+	/**
+	 * @param packageName a package name separated by periods or forward slashes, with or without a trailing separator
+	 * @return whether the package or any of its subpackages contains a target
+	 */
+	boolean containsPackage(CharSequence packageName) {
+		int length = packageName.length();
+
+		if (length > 0 && isSeparator(packageName.charAt(length - 1))) {
+			length--;
+		}
+
+		if (length == 0) {
+			return false;
+		}
+
+		Node node = root;
+		int start = 0;
+
+		while (true) {
+			int end = start;
+			int hash = 0;
+
+			while (end < length) {
+				final char c = packageName.charAt(end);
+
+				if (isSeparator(c)) {
+					break;
+				}
+
+				hash = 31 * hash + c;
+				end++;
+			}
+
+			node = node.getChild(packageName, start, end, hash);
+
+			if (node == null || end == length) {
+				return node != null;
+			}
+
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * @param hash the hash code of the name once converted to periods
+	 */
+	@Nullable
+	private static String findTarget(String[] targets, CharSequence name, int hash) {
+		final int mask = targets.length - 1;
+
+		for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+			final String target = targets[slot];
+
+			if (target == null || target.hashCode() == hash && matches(target, name)) {
+				return target;
+			}
+		}
+	}
+
+	private static boolean matches(String target, CharSequence name) {
+		if (target.length() != name.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < target.length(); i++) {
+			final char c = name.charAt(i);
+
+			if (target.charAt(i) != (c == '/' ? '.' : c)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static void insert(String[] table, String name) {
+		final int mask = table.length - 1;
+		int slot = spread(name.hashCode()) & mask;
+
+		while (table[slot] != null) {
+			slot = (slot + 1) & mask;
+		}
+
+		table[slot] = name;
+	}
+
+	private static boolean isSeparator(char c) {
+		return c == '.' || c == '/';
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private static final class Node {
+		private static final Node[] EMPTY = new Node[0];
+
+		private final String segment;
+		// Same as segment.hashCode()
+		private final int hash;
+		// A power of two sized table, at most half full and replaced when a child is added
+		private volatile Node[] children = EMPTY;
+		private int childCount;
+
+		private Node(String segment) {
+			this.segment = segment;
+			this.hash = segment.hashCode();
+		}
+
+		@Nullable
+		private Node getChild(CharSequence name, int start, int end, int hash) {
+			final Node[] children = this.children;
+
+			if (children.length == 0) {
+				return null;
+			}
+
+			final int mask = children.length - 1;
+
+			for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+				final Node child = children[slot];
+
+				if (child == null) {
+					return null;
+				}
+
+				if (child.hash == hash && child.matches(name, start, end)) {
+					return child;
+				}
+			}
+		}
+
+		private boolean matches(CharSequence name, int start, int end) {
+			if (segment.length() != end - start) {
+				return false;
+			}
+
+			for (int i = 0; i < segment.length(); i++) {
+				if (segment.charAt(i) != name.charAt(start + i)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		// Only called while holding the lock of the index
+		private Node getOrAddChild(String segment) {
+			final Node existing = getChild(segment, 0, segment.length(), segment.hashCode());
+
+			if (existing != null) {
+				return existing;
+			}
+
+			final Node child = new Node(segment);
+			int capacity = Math.max(children.length, 2);
+
+			while (capacity < (childCount + 1) * 2) {
+				capacity <<= 1;
+			}
+
+			final Node[] table = new Node[capacity];
+
+			for (Node node : children) {
+				if (node != null) {
+					insert(table, node);
+				}
+			}
+
+			insert(table, child);
+			childCount++;
+			children = table;
+			return child;
+		}
+
+		private static void insert(Node[] table, Node node) {
+			final int mask = table.length - 1;
+			int slot = spread(node.hash) & mask;
+
+			while (table[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+
+			table[slot] = node;
+		}
+	}
+}
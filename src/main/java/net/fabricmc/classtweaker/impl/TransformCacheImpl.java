@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.EnumExtension;
+import net.fabricmc.classtweaker.api.InjectedInterface;
+import net.fabricmc.classtweaker.api.TransformCache;
+import net.fabricmc.classtweaker.utils.ClassFileUtils;
+import net.fabricmc.classtweaker.utils.DirectoryCache;
+import net.fabricmc.classtweaker.utils.EntryTriple;
+
+/**
+ * Stores transformed classes in a {@link DirectoryCache}, keyed by the hash of the class file and of the class tweaks
+ * of the class. Entries are spread over subdirectories, as there is one per transformed class.
+ */
+public final class TransformCacheImpl implements TransformCache {
+	private static final int MAGIC = 0x43545443; // CTTC
+	// Increment when the transformed classes or the encoding changes
+	private static final int VERSION = 1;
+	private static final String EXTENSION = ".cttransform";
+
+	private final DirectoryCache directory;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public TransformCacheImpl(Path directory, long maxSize) {
+		this.directory = new DirectoryCache(directory, maxSize, EXTENSION, true);
+	}
+
+	@Override
+	public ClassTweaker.TransformResult transform(ClassTweaker classTweaker, byte[] classBytes, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
+		final String className = ClassFileUtils.readClassName(classBytes);
+
+		if (className == null || !classTweaker.getClasses().contains(className)) {
+			// Nothing to cache, any errors are left to the class tweaker
+			return classTweaker.transform(classBytes, generatedClassConsumer);
+		}
+
+		final String key = getKey(classTweaker, className, classBytes);
+		final Entry cached = get(key);
+
+		if (cached != null) {
+			if (generatedClassConsumer != null) {
+				for (int i = 0; i < cached.generatedNames.size(); i++) {
+					generatedClassConsumer.accept(cached.generatedNames.get(i), cached.generatedBytes.get(i));
+				}
+			}
+
+			return cached.bytes != null ? new ClassTransformer.TransformResultImpl(cached.bytes, true) : new ClassTransformer.TransformResultImpl(classBytes, false);
+		}
+
+		final Entry entry = new Entry();
+		final ClassTweaker.TransformResult result = classTweaker.transform(classBytes, (name, bytes) -> {
+			entry.generatedNames.add(name);
+			entry.generatedBytes.add(bytes);
+
+			if (generatedClassConsumer != null) {
+				generatedClassConsumer.accept(name, bytes);
+			}
+		});
+
+		entry.bytes = result.isChanged() ? result.getBytes() : null;
+		put(key, entry);
+		return result;
+	}
+
+	@Override
+	public long getHits() {
+		return hits.get();
+	}
+
+	@Override
+	public long getMisses() {
+		return misses.get();
+	}
+
+	static String getKey(ClassTweaker classTweaker, String className, byte[] classBytes) {
+		final MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+
+		final ByteArrayOutputStream fingerprint = new ByteArrayOutputStream();
+
+		try {
+			writeFingerprint(new DataOutputStream(fingerprint), classTweaker, className);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+
+		// Including the length keeps the class file and the fingerprint apart
+		digest.update((byte) VERSION);
+		digest.update(new byte[] {(byte) (classBytes.length >>> 24), (byte) (classBytes.length >>> 16), (byte) (classBytes.length >>> 8), (byte) classBytes.length});
+		digest.update(classBytes);
+		digest.update(fingerprint.toByteArray());
+		return DirectoryCache.toKey(digest.digest());
+	}
+
+	/**
+	 * Writes the class tweaks that apply to the class in a canonical order. Class tweaks that are equal according to
+	 * {@link ClassTweakerDiffImpl#isSameOwner} are written the same way.
+	 */
+	private static void writeFingerprint(DataOutputStream out, ClassTweaker classTweaker, String className) throws IOException {
+		out.writeUTF(className);
+
+		final AccessWidener accessWidener = classTweaker.getAccessWidener(className);
+		out.writeByte(getAccessBits(accessWidener.getClassAccess()));
+		writeAccesses(out, accessWidener.getAllMethodAccesses());
+		writeAccesses(out, accessWidener.getAllFieldAccesses());
+
+		final List<EnumExtension> enumExtensions = new ArrayList<>(classTweaker.getEnumExtensions(className).values());
+		enumExtensions.sort(Comparator.comparing(EnumExtension::getName));
+		out.writeInt(enumExtensions.size());
+
+		for (EnumExtension enumExtension : enumExtensions) {
+			// The id and hash code are written to the @Extended annotation of the added field
+			out.writeUTF(enumExtension.getName());
+			out.writeUTF(enumExtension.getId());
+			out.writeInt(enumExtension.hashCode());
+			out.writeUTF(enumExtension.getTargetConstructor().getDescriptor());
+
+			final EnumExtension.Parameters parameters = enumExtension.getParameters();
+
+			if (parameters instanceof EnumExtension.ListParameters) {
+				out.writeByte(1);
+				writeEntryTriple(out, ((EnumExtension.ListParameters) parameters).getParamList());
+			} else if (parameters instanceof EnumExtension.ConstantParameters) {
+				final Object[] constants = ((EnumExtension.ConstantParameters) parameters).getConstants();
+				out.writeByte(2);
+				out.writeInt(constants.length);
+
+				for (Object constant : constants) {
+					out.writeUTF(constant == null ? "" : constant.getClass().getName());
+					out.writeUTF(String.valueOf(constant));
+				}
+			} else {
+				out.writeByte(0);
+			}
+
+			out.writeInt(enumExtension.getMethodOverrides().size());
+
+			for (EnumExtension.MethodOverride methodOverride : enumExtension.getMethodOverrides()) {
+				out.writeUTF(methodOverride.getTargetMethodName());
+				writeEntryTriple(out, methodOverride.getStaticMethod());
+			}
+		}
+
+		final Set<InjectedInterface> injectedInterfaces = classTweaker.getInjectedInterfaces(className);
+		final List<String> interfaceNames = new ArrayList<>(injectedInterfaces.size());
+
+		for (InjectedInterface injectedInterface : injectedInterfaces) {
+			interfaceNames.add(injectedInterface.getInterfaceName());
+		}
+
+		interfaceNames.sort(null);
+		out.writeInt(interfaceNames.size());
+
+		for (String interfaceName : interfaceNames) {
+			out.writeUTF(interfaceName);
+		}
+	}
+
+	private static void writeAccesses(DataOutputStream out, Map<EntryTriple, AccessWidener.Access> accesses) throws IOException {
+		final List<Map.Entry<EntryTriple, AccessWidener.Access>> entries = new ArrayList<>();
+
+		for (Map.Entry<EntryTriple, AccessWidener.Access> entry : accesses.entrySet()) {
+			// A missing access is the same as an unchanged one
+			if (getAccessBits(entry.getValue()) != 0) {
+				entries.add(entry);
+			}
+		}
+
+		entries.sort(Comparator.comparing((Map.Entry<EntryTriple, AccessWidener.Access> entry) -> entry.getKey().getName())
+				.thenComparing(entry -> entry.getKey().getDesc()));
+		out.writeInt(entries.size());
+
+		for (Map.Entry<EntryTriple, AccessWidener.Access> entry : entries) {
+			out.writeUTF(entry.getKey().getName());
+			out.writeUTF(entry.getKey().getDesc());
+			out.writeByte(getAccessBits(entry.getValue()));
+		}
+	}
+
+	private static int getAccessBits(AccessWidener.Access access) {
+		return (access.isAccessible() ? 1 : 0) | (access.isExtendable() ? 2 : 0) | (access.isMutable() ? 4 : 0);
+	}
+
+	private static void writeEntryTriple(DataOutputStream out, EntryTriple entryTriple) throws IOException {
+		out.writeUTF(entryTriple.getOwner());
+		out.writeUTF(entryTriple.getName());
+		out.writeUTF(entryTriple.getDesc());
+	}
+
+	@Nullable
+	private Entry get(String key) {
+		final byte[] bytes = directory.get(key);
+
+		try {
+			if (bytes == null) {
+				throw new IOException("Missing cache entry");
+			}
+
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Invalid cache entry");
+			}
+
+			final Entry entry = new Entry();
+			entry.bytes = in.readBoolean() ? readBytes(in) : null;
+			final int generatedCount = in.readInt();
+
+			for (int i = 0; i < generatedCount; i++) {
+				entry.generatedNames.add(in.readUTF());
+				entry.generatedBytes.add(readBytes(in));
+			}
+
+			if (in.available() != 0) {
+				throw new IOException("Invalid cache entry");
+			}
+
+			hits.incrementAndGet();
+			return entry;
+		} catch (IOException | RuntimeException e) {
+			// Missing or corrupt
+			misses.incrementAndGet();
+			return null;
+		}
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		final int length = in.readInt();
+
+		if (length < 0 || length > in.available()) {
+			throw new IOException("Invalid cache entry");
+		}
+
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	private void put(String key, Entry entry) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try {
+			final DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeBoolean(entry.bytes != null);
+
+			if (entry.bytes != null) {
+				out.writeInt(entry.bytes.length);
+				out.write(entry.bytes);
+			}
+
+			out.writeInt(entry.generatedNames.size());
+
+			for (int i = 0; i < entry.generatedNames.size(); i++) {
+				out.writeUTF(entry.generatedNames.get(i));
+				out.writeInt(entry.generatedBytes.get(i).length);
+				out.write(entry.generatedBytes.get(i));
+			}
+		} catch (IOException e) {
+			// Only thrown for strings too long to encode, the cache is only an optimisation
+			return;
+		}
+
+		directory.put(key, bytes.toByteArray());
+	}
+
+	private static final class Entry {
+		// Null when the class was not changed
+		@Nullable
+		private byte[] bytes;
+		private final List<String> generatedNames = new ArrayList<>();
+		private final List<byte[]> generatedBytes = new ArrayList<>();
+	}
+}
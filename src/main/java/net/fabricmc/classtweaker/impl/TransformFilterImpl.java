@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import static net.fabricmc.classtweaker.utils.ClassFileUtils.readUnsignedShort;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.objectweb.asm.Opcodes;
+
+import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.TransformFilter;
+import net.fabricmc.classtweaker.utils.ClassFileUtils;
+
+public final class TransformFilterImpl implements TransformFilter {
+	// An open addressing hash table of the targeted class names, encoded as they are in the constant pool
+	private final byte[][] names;
+	// Whether the class at the same index only has enum extensions, which are only applied to enums
+	private final boolean[] enumOnly;
+	private final int mask;
+
+	public TransformFilterImpl(ClassTweaker classTweaker) {
+		final Set<String> classes = classTweaker.getClasses();
+		final Map<String, AccessWidener> accessWideners = classTweaker.getAllAccessWideners();
+		int capacity = 2;
+
+		while (capacity < classes.size() * 2) {
+			capacity <<= 1;
+		}
+
+		names = new byte[capacity][];
+		enumOnly = new boolean[capacity];
+		mask = capacity - 1;
+
+		for (String className : classes) {
+			final byte[] name = encode(className);
+			int slot = hash(name, 0, name.length) & mask;
+
+			while (names[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+
+			names[slot] = name;
+			enumOnly[slot] = !accessWideners.containsKey(className)
+					&& classTweaker.getInjectedInterfaces(className).isEmpty()
+					&& !classTweaker.getEnumExtensions(className).isEmpty();
+		}
+	}
+
+	@Override
+	public boolean needsTransform(byte[] classBytes) {
+		if (!ClassFileUtils.isClassFile(classBytes)) {
+			return true;
+		}
+
+		// Truncated or corrupt class files are left for the transformer to reject
+		final int[] constantOffsets = new int[readUnsignedShort(classBytes, ClassFileUtils.CONSTANT_POOL_COUNT)];
+		final int header = ClassFileUtils.readConstantPool(classBytes, constantOffsets);
+		final int nameLengthOffset = ClassFileUtils.findClassName(classBytes, header, constantOffsets);
+
+		if (nameLengthOffset < 0) {
+			return true;
+		}
+
+		final int access = readUnsignedShort(classBytes, header);
+		final int nameOffset = nameLengthOffset + 2;
+		final int nameLength = readUnsignedShort(classBytes, nameLengthOffset);
+		int slot = hash(classBytes, nameOffset, nameLength) & mask;
+		byte[] name;
+
+		while ((name = names[slot]) != null) {
+			if (equals(name, classBytes, nameOffset, nameLength)) {
+				return !enumOnly[slot] || (access & Opcodes.ACC_ENUM) != 0;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		return false;
+	}
+
+	private static int hash(byte[] bytes, int offset, int length) {
+		int hash = 0;
+
+		for (int i = offset; i < offset + length; i++) {
+			hash = 31 * hash + bytes[i];
+		}
+
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean equals(byte[] name, byte[] bytes, int offset, int length) {
+		if (name.length != length) {
+			return false;
+		}
+
+		for (int i = 0; i < length; i++) {
+			if (name[i] != bytes[offset + i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	// Encodes as modified UTF-8, see JVMS: https://docs.oracle.com/javase/specs/jvms/se17/html/jvms-4.html#jvms-4.4.7
+	private static byte[] encode(String string) {
+		int length = 0;
+
+		for (int i = 0; i < string.length(); i++) {
+			final char c = string.charAt(i);
+			length += c >= 0x01 && c <= 0x7F ? 1 : c <= 0x7FF ? 2 : 3;
+		}
+
+		final byte[] bytes = new byte[length];
+		int offset = 0;
+
+		for (int i = 0; i < string.length(); i++) {
+			final char c = string.charAt(i);
+
+			if (c >= 0x01 && c <= 0x7F) {
+				bytes[offset++] = (byte) c;
+			} else if (c <= 0x7FF) {
+				bytes[offset++] = (byte) (0xC0 | (c >> 6));
+				bytes[offset++] = (byte) (0x80 | (c & 0x3F));
+			} else {
+				bytes[offset++] = (byte) (0xE0 | (c >> 12));
+				bytes[offset++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				bytes[offset++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+
+		return bytes;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.impl;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.VersionedClassTweaker;
+
+public final class VersionedClassTweakerImpl implements VersionedClassTweaker {
+	private final AtomicReference<SnapshotImpl> current;
+
+	public VersionedClassTweakerImpl(ClassTweaker classTweaker) {
+		this.current = new AtomicReference<>(new SnapshotImpl(classTweaker.freeze(), 0));
+	}
+
+	@Override
+	public Snapshot getSnapshot() {
+		return current.get();
+	}
+
+	@Override
+	public long set(ClassTweaker classTweaker) {
+		// Freeze before swapping, so that concurrent updates only retry the cheap swap
+		final ClassTweaker frozen = classTweaker.freeze();
+		return current.updateAndGet(snapshot -> new SnapshotImpl(frozen, snapshot.version + 1)).version;
+	}
+
+	@Override
+	public boolean compareAndSet(long expectedVersion, ClassTweaker classTweaker) {
+		final SnapshotImpl snapshot = current.get();
+
+		if (snapshot.version != expectedVersion) {
+			return false;
+		}
+
+		return current.compareAndSet(snapshot, new SnapshotImpl(classTweaker.freeze(), expectedVersion + 1));
+	}
+
+	private static final class SnapshotImpl implements Snapshot {
+		private final ClassTweaker classTweaker;
+		private final long version;
+
+		private SnapshotImpl(ClassTweaker classTweaker, long version) {
+			this.classTweaker = classTweaker;
+			this.version = version;
+		}
+
+		@Override
+		public ClassTweaker getClassTweaker() {
+			return classTweaker;
+		}
+
+		@Override
+		public long getVersion() {
+			return version;
+		}
+	}
+}
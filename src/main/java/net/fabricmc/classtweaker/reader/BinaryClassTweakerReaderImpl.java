@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+
+import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.api.BinaryClassTweakerReader;
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.EnumExtension;
+import net.fabricmc.classtweaker.api.InjectedInterface;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.api.visitor.ClassTweakerVisitor;
+import net.fabricmc.classtweaker.api.visitor.EnumExtensionVisitor;
+import net.fabricmc.classtweaker.impl.MappedClassTweakerImpl;
+import net.fabricmc.classtweaker.utils.EntryTriple;
+
+public final class BinaryClassTweakerReaderImpl implements BinaryClassTweakerReader {
+	private final ClassTweakerVisitor visitor;
+
+	public BinaryClassTweakerReaderImpl(ClassTweakerVisitor visitor) {
+		this.visitor = visitor;
+	}
+
+	public static ClassTweaker load(ByteBuffer buffer) {
+		return new MappedClassTweakerImpl(buffer);
+	}
+
+	public static ClassTweaker load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// The mapping stays valid after the channel is closed
+			return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	@Override
+	public void read(byte[] content) {
+		final ClassTweaker classTweaker = load(ByteBuffer.wrap(content));
+
+		if (classTweaker.getNamespace() != null) {
+			visitor.visitHeader(classTweaker.getNamespace());
+		}
+
+		for (Map.Entry<String, AccessWidener> entry : classTweaker.getAllAccessWideners().entrySet()) {
+			final AccessWidenerVisitor accessWidenerVisitor = visitor.visitAccessWidener(entry.getKey());
+
+			if (accessWidenerVisitor != null) {
+				readAccessWidener(entry.getValue(), accessWidenerVisitor);
+			}
+		}
+
+		for (Map.Entry<String, Map<String, EnumExtension>> entry : classTweaker.getAllEnumExtensions().entrySet()) {
+			for (EnumExtension enumExtension : entry.getValue().values()) {
+				final EnumExtensionVisitor enumExtensionVisitor = visitor.visitEnum(entry.getKey(), enumExtension.getName(), enumExtension.getTargetConstructor().getDescriptor(), enumExtension.getId(), false);
+
+				if (enumExtensionVisitor != null) {
+					readEnumExtension(enumExtension, enumExtensionVisitor);
+				}
+			}
+		}
+
+		for (Map.Entry<String, Set<InjectedInterface>> entry : classTweaker.getAllInjectedInterfaces().entrySet()) {
+			for (InjectedInterface injectedInterface : entry.getValue()) {
+				visitor.visitInjectedInterface(entry.getKey(), injectedInterface.getInterfaceName(), false);
+			}
+		}
+	}
+
+	private static void readAccessWidener(AccessWidener accessWidener, AccessWidenerVisitor visitor) {
+		final AccessWidener.Access classAccess = accessWidener.getClassAccess();
+
+		if (classAccess.isAccessible()) visitor.visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		if (classAccess.isExtendable()) visitor.visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+
+		for (Map.Entry<EntryTriple, AccessWidener.Access> entry : accessWidener.getAllMethodAccesses().entrySet()) {
+			final EntryTriple method = entry.getKey();
+
+			if (entry.getValue().isAccessible()) visitor.visitMethod(method.getName(), method.getDesc(), AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+			if (entry.getValue().isExtendable()) visitor.visitMethod(method.getName(), method.getDesc(), AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		}
+
+		for (Map.Entry<EntryTriple, AccessWidener.Access> entry : accessWidener.getAllFieldAccesses().entrySet()) {
+			final EntryTriple field = entry.getKey();
+
+			if (entry.getValue().isAccessible()) visitor.visitField(field.getName(), field.getDesc(), AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+			if (entry.getValue().isMutable()) visitor.visitField(field.getName(), field.getDesc(), AccessWidenerVisitor.AccessType.MUTABLE, false);
+		}
+	}
+
+	private static void readEnumExtension(EnumExtension enumExtension, EnumExtensionVisitor visitor) {
+		final EnumExtension.Parameters parameters = enumExtension.getParameters();
+
+		if (parameters instanceof EnumExtension.ListParameters) {
+			final EntryTriple paramList = ((EnumExtension.ListParameters) parameters).getParamList();
+			visitor.visitParameterList(paramList.getOwner(), paramList.getName(), paramList.getDesc());
+		} else if (parameters instanceof EnumExtension.ConstantParameters) {
+			visitor.visitParameterConstants(((EnumExtension.ConstantParameters) parameters).getConstants());
+		}
+
+		for (EnumExtension.MethodOverride override : enumExtension.getMethodOverrides()) {
+			final EntryTriple staticMethod = override.getStaticMethod();
+			visitor.visitOverride(override.getTargetMethodName(), staticMethod.getOwner(), staticMethod.getName(), staticMethod.getDesc());
+		}
+
+		visitor.visitEnd();
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.reader;
+
+import java.util.Arrays;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+
+/**
+ * Reads the lines of a UTF-8 encoded class tweaker directly from its bytes.
+ *
+ * <p>All delimiters, line terminators and the comment character are ASCII, and can therefore never be part of a
+ * multibyte UTF-8 sequence. This allows the content to be split without decoding it, only tokens that are requested
+ * as a {@link String} are decoded.
+ *
+ * <p>A single instance is reused for every line of the content, to avoid allocating per line.
+ */
+final class ByteLineReader implements TokenizedLine {
+	private final byte[] content;
+	private int position;
+
+	private int lineStart;
+	private int lineEnd;
+
+	private int tokenCount;
+	private int[] tokenStarts = new int[8];
+	private int[] tokenEnds = new int[8];
+
+	ByteLineReader(byte[] content) {
+		this.content = content;
+	}
+
+	/**
+	 * Advances to the next line, lines are terminated by {@code \n}, {@code \r} or {@code \r\n} to match
+	 * {@link java.io.BufferedReader#readLine()}.
+	 *
+	 * @return false once there are no more lines.
+	 */
+	boolean nextLine() {
+		if (position >= content.length) {
+			return false;
+		}
+
+		int end = position;
+
+		while (end < content.length && content[end] != '\n' && content[end] != '\r') {
+			end++;
+		}
+
+		lineStart = position;
+		lineEnd = end;
+		tokenCount = 0;
+
+		if (end < content.length && content[end] == '\r' && end + 1 < content.length && content[end + 1] == '\n') {
+			end++;
+		}
+
+		position = end + 1;
+		return true;
+	}
+
+	/**
+	 * Removes a trailing comment from the current line.
+	 */
+	void stripComment(int version) {
+		for (int i = lineStart; i < lineEnd; i++) {
+			if (content[i] == '#') {
+				lineEnd = i;
+
+				// In V1, trimming led to leading whitespace being tolerated
+				if (version <= ClassTweaker.AW_V1) {
+					trim();
+				}
+
+				return;
+			}
+		}
+	}
+
+	// Matches String.trim, that only ever removes ASCII characters
+	private void trim() {
+		while (lineStart < lineEnd && (content[lineStart] & 0xFF) <= ' ') {
+			lineStart++;
+		}
+
+		while (lineEnd > lineStart && (content[lineEnd - 1] & 0xFF) <= ' ') {
+			lineEnd--;
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return lineStart == lineEnd;
+	}
+
+	@Override
+	public boolean startsWithWhitespace() {
+		final int first = content[lineStart] & 0xFF;
+
+		if (first < 0x80) {
+			return Character.isWhitespace(first);
+		}
+
+		// Only decode when the line starts with a multibyte character.
+		return Character.isWhitespace(toString().codePointAt(0));
+	}
+
+	@Override
+	public void tokenize(boolean anyWhitespace) {
+		tokenCount = 0;
+		int i = lineStart;
+
+		while (i < lineEnd) {
+			while (i < lineEnd && isDelimiter(content[i], anyWhitespace)) {
+				i++;
+			}
+
+			if (i == lineEnd) {
+				break;
+			}
+
+			final int start = i;
+
+			while (i < lineEnd && !isDelimiter(content[i], anyWhitespace)) {
+				i++;
+			}
+
+			addToken(start, i);
+		}
+	}
+
+	private void addToken(int start, int end) {
+		if (tokenCount == tokenStarts.length) {
+			tokenStarts = Arrays.copyOf(tokenStarts, tokenCount * 2);
+			tokenEnds = Arrays.copyOf(tokenEnds, tokenCount * 2);
+		}
+
+		tokenStarts[tokenCount] = start;
+		tokenEnds[tokenCount] = end;
+		tokenCount++;
+	}
+
+	// Matches the \s regex character class for AW v1, spaces and tabs otherwise.
+	private static boolean isDelimiter(byte b, boolean anyWhitespace) {
+		if (b == ' ' || b == '\t') {
+			return true;
+		}
+
+		return anyWhitespace && (b == '\n' || b == 0x0B || b == '\f' || b == '\r');
+	}
+
+	@Override
+	public int getTokenCount() {
+		return tokenCount;
+	}
+
+	@Override
+	public String getToken(int index) {
+		final int start = tokenStarts[index];
+		return new String(content, start, tokenEnds[index] - start, ClassTweakerReaderImpl.ENCODING);
+	}
+
+	@Override
+	public boolean tokenEquals(int index, String keyword) {
+		return tokenEnds[index] - tokenStarts[index] == keyword.length() && regionMatches(tokenStarts[index], keyword, false);
+	}
+
+	@Override
+	public boolean tokenStartsWith(int index, String prefix) {
+		return tokenEnds[index] - tokenStarts[index] >= prefix.length() && regionMatches(tokenStarts[index], prefix, false);
+	}
+
+	@Override
+	public boolean tokenEqualsIgnoreCase(int index, int offset, String keyword) {
+		final int start = tokenStarts[index] + offset;
+		return tokenEnds[index] - start == keyword.length() && regionMatches(start, keyword, true);
+	}
+
+	private boolean regionMatches(int start, String keyword, boolean ignoreCase) {
+		for (int i = 0; i < keyword.length(); i++) {
+			int b = content[start + i];
+			int c = keyword.charAt(i);
+
+			if (ignoreCase) {
+				b = toLowerCaseAscii(b);
+				c = toLowerCaseAscii(c);
+			}
+
+			if (b != c) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static int toLowerCaseAscii(int c) {
+		return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+	}
+
+	@Override
+	public String toString() {
+		return new String(content, lineStart, lineEnd - lineStart, ClassTweakerReaderImpl.ENCODING);
+	}
+}
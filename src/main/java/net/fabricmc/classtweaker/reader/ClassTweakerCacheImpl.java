@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.reader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.classtweaker.api.ClassTweakerReader;
+import net.fabricmc.classtweaker.utils.DirectoryCache;
+
+/**
+ * Stores the entries of successfully read class tweakers in a {@link DirectoryCache}, keyed by the hash of the
+ * namespace and content.
+ */
+public final class ClassTweakerCacheImpl implements ClassTweakerReader.Cache {
+	private static final int MAGIC = 0x43544343; // CTCC
+	// Increment when the read result or the encoding changes
+	private static final int VERSION = 1;
+	private static final String EXTENSION = ".ctcache";
+
+	private final DirectoryCache directory;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public ClassTweakerCacheImpl(Path directory, long maxSize) {
+		this.directory = new DirectoryCache(directory, maxSize, EXTENSION, false);
+	}
+
+	@Override
+	public long getHits() {
+		return hits.get();
+	}
+
+	@Override
+	public long getMisses() {
+		return misses.get();
+	}
+
+	String getKey(byte[] content, @Nullable String currentNamespace) {
+		final MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+
+		// The namespace is checked while reading, so it changes the result
+		digest.update((byte) VERSION);
+		digest.update(currentNamespace == null ? new byte[0] : currentNamespace.getBytes(ClassTweakerReaderImpl.ENCODING));
+		digest.update((byte) 0);
+		digest.update(content);
+		return DirectoryCache.toKey(digest.digest());
+	}
+
+	@Nullable
+	RecordingVisitor get(String key, String id) {
+		final byte[] bytes = directory.get(key);
+
+		try {
+			if (bytes == null) {
+				throw new IOException("Missing cache entry");
+			}
+
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Invalid cache entry");
+			}
+
+			final RecordingVisitor recording = RecordingVisitor.read(in, id);
+
+			if (in.available() != 0) {
+				throw new IOException("Invalid cache entry");
+			}
+
+			hits.incrementAndGet();
+			return recording;
+		} catch (IOException | RuntimeException e) {
+			// Missing or corrupt
+			misses.incrementAndGet();
+			return null;
+		}
+	}
+
+	void put(String key, RecordingVisitor recording) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try {
+			final DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			recording.write(out);
+		} catch (IOException e) {
+			// Only thrown for strings too long to encode, the cache is only an optimisation
+			return;
+		}
+
+		directory.put(key, bytes.toByteArray());
+	}
+}
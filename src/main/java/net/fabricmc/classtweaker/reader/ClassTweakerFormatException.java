@@ -20,6 +20,8 @@ package net.fabricmc.classtweaker.reader;
  * Thrown when a class tweaker file couldn't be read due to an incorrect format.
  */
 public class ClassTweakerFormatException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
 	private final int lineNumber;
 
 	public ClassTweakerFormatException(int lineNumber, String message) {
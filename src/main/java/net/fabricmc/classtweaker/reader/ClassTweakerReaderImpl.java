@@ -18,16 +18,19 @@ package net.fabricmc.classtweaker.reader;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Type;
 
 import net.fabricmc.classtweaker.api.ClassTweaker;
@@ -50,12 +53,29 @@ public final class ClassTweakerReaderImpl implements ClassTweakerReader {
 	private static final String ENUM_PARAMS_USAGE = "Expected (<tab> params <owner> <name> <desc>) got (%s)";
 	private static final Pattern ENUM_PARAMS_STR_PATTERN = Pattern.compile("[^\\s\"']+|\"([^\"]*)\"|'([^']*)'");
 
+	private static final AccessWidenerVisitor.AccessType[] ACCESS_TYPES = AccessWidenerVisitor.AccessType.values();
+
 	private final ClassTweakerVisitor visitor;
+	@Nullable
+	private final ClassTweakerCacheImpl cache;
 
 	private int lineNumber;
+	private int version;
+	private String id;
+
+	private EnumExtensionVisitor enumExtensionVisitor;
+	private Type enumConstructor;
 
 	public ClassTweakerReaderImpl(ClassTweakerVisitor visitor) {
+		this(visitor, null);
+	}
+
+	/**
+	 * @param cache used when reading bytes, reads from a {@link BufferedReader} are not cached
+	 */
+	public ClassTweakerReaderImpl(ClassTweakerVisitor visitor, @Nullable ClassTweakerCacheImpl cache) {
 		this.visitor = visitor;
+		this.cache = cache;
 	}
 
 	public static int readVersion(byte[] content) {
@@ -73,156 +93,213 @@ public final class ClassTweakerReaderImpl implements ClassTweakerReader {
 
 	@Override
 	public void read(byte[] content, String currentNamespace, String id) {
-		String strContent = new String(content, ENCODING);
+		if (cache != null) {
+			record(content, currentNamespace, id).accept(visitor);
+			return;
+		}
 
-		try {
-			read(new BufferedReader(new StringReader(strContent)), currentNamespace, id);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+		readUncached(content, currentNamespace, id);
+	}
+
+	private void readUncached(byte[] content, String currentNamespace, String id) {
+		final ByteLineReader lines = new ByteLineReader(content);
+		final HeaderImpl header = parseHeader(lines.nextLine() ? lines.toString() : null);
+		visitHeader(header, currentNamespace, id);
+
+		while (lines.nextLine()) {
+			lineNumber++;
+			lines.stripComment(version);
+			readLine(lines);
 		}
 	}
 
 	@Override
-	public void read(BufferedReader reader, String id) throws IOException {
-		read(reader, null, id);
+	public void readAll(List<? extends Source> sources, Executor executor) {
+		final List<CompletableFuture<RecordingVisitor>> recordings = new ArrayList<>(sources.size());
+
+		for (Source source : sources) {
+			recordings.add(CompletableFuture.supplyAsync(() -> record(source.getContent(), source.getCurrentNamespace(), source.getId()), executor));
+		}
+
+		try {
+			// Pass the entries on in the order of the sources, to match reading them one after another
+			for (CompletableFuture<RecordingVisitor> recording : recordings) {
+				recording.join().accept(visitor);
+			}
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+
+			throw e;
+		} finally {
+			for (CompletableFuture<RecordingVisitor> recording : recordings) {
+				recording.cancel(false);
+			}
+		}
 	}
 
-	@Override
-	public void read(BufferedReader reader, String currentNamespace, String id) throws IOException {
-		HeaderImpl header = readHeader(reader);
-		lineNumber = 1;
+	private RecordingVisitor record(byte[] content, String currentNamespace, String id) {
+		String key = null;
 
-		int version = header.version;
+		if (cache != null) {
+			key = cache.getKey(content, currentNamespace);
+			final RecordingVisitor cached = cache.get(key, id);
 
-		if (currentNamespace != null && !header.namespace.equals(currentNamespace)) {
-			throw error("Namespace (%s) does not match current runtime namespace (%s)", header.namespace, currentNamespace);
+			if (cached != null) {
+				return cached;
+			}
 		}
 
-		visitor.visitHeader(header.namespace);
+		final RecordingVisitor recording = new RecordingVisitor();
+		final ClassTweakerReaderImpl reader = new ClassTweakerReaderImpl(recording);
+		recording.lineNumber = () -> reader.lineNumber;
 
-		String line;
+		try {
+			reader.readUncached(content, currentNamespace, id);
+		} catch (RuntimeException e) {
+			recording.failure = e;
+		}
 
-		Pattern delimiter = version < ClassTweaker.AW_V2 ? V1_DELIMITER : V2_DELIMITER;
+		if (cache != null && recording.failure == null) {
+			cache.put(key, recording);
+		}
 
-		EnumExtensionVisitor enumExtensionVisitor = null;
-		Type enumConstructor = null;
+		return recording;
+	}
+
+	@Override
+	public void read(BufferedReader reader, String id) throws IOException {
+		read(reader, null, id);
+	}
+
+	@Override
+	public void read(BufferedReader reader, String currentNamespace, String id) throws IOException {
+		visitHeader(readHeader(reader), currentNamespace, id);
+
+		String line;
 
 		while ((line = reader.readLine()) != null) {
 			lineNumber++;
+			readLine(new StringLine(handleComment(version, line)));
+		}
+	}
 
-			line = handleComment(version, line);
+	private void visitHeader(HeaderImpl header, String currentNamespace, String id) {
+		lineNumber = 1;
+		version = header.version;
+		this.id = id;
+		enumExtensionVisitor = null;
+		enumConstructor = null;
 
-			if (line.isEmpty()) {
-				continue;
-			}
+		if (currentNamespace != null && !header.namespace.equals(currentNamespace)) {
+			throw error("Namespace (%s) does not match current runtime namespace (%s)", header.namespace, currentNamespace);
+		}
 
-			if (Character.isWhitespace(line.codePointAt(0))) {
-				if (enumExtensionVisitor != null) {
-					final String trimmed = line.trim();
+		visitor.visitHeader(header.namespace);
+	}
 
-					if (trimmed.startsWith("params")) {
-						readEnumParams(trimmed, enumExtensionVisitor, enumConstructor);
-					} else if (trimmed.startsWith("override")) {
-						readEnumOverrides(trimmed, enumExtensionVisitor);
-					} else {
-						throw error("Expect params or override", line);
-					}
+	private void readLine(TokenizedLine line) {
+		if (line.isEmpty()) {
+			return;
+		}
 
-					continue;
+		if (line.startsWithWhitespace()) {
+			if (enumExtensionVisitor != null) {
+				final String trimmed = line.toString().trim();
+
+				if (trimmed.startsWith("params")) {
+					readEnumParams(trimmed, enumExtensionVisitor, enumConstructor);
+				} else if (trimmed.startsWith("override")) {
+					readEnumOverrides(trimmed, enumExtensionVisitor);
+				} else {
+					throw error("Expect params or override", line);
 				}
 
-				throw error("Leading whitespace is not allowed");
-			}
-
-			if (enumExtensionVisitor != null) {
-				// No longer within an enum
-				enumExtensionVisitor.visitEnd();
-				enumExtensionVisitor = null;
+				return;
 			}
 
-			// Note that this trims trailing spaces. See the docs of split for details.
-			List<String> tokens = Arrays.asList(delimiter.split(line));
+			throw error("Leading whitespace is not allowed");
+		}
 
-			String firstToken = tokens.get(0);
+		if (enumExtensionVisitor != null) {
+			// No longer within an enum
+			enumExtensionVisitor.visitEnd();
+			enumExtensionVisitor = null;
+		}
 
-			if (version >= ClassTweaker.CT_V1) {
-				if (("extend-enum".equals(firstToken) || (TRANSITIVE_PREFIX + "extend-enum").equals(firstToken))) {
-					if (tokens.size() != 4) {
-						throw error("Expected (extend-enum <className> <name> <desc>) got (%s)", line);
-					}
+		// Note that this ignores trailing delimiters.
+		line.tokenize(version < ClassTweaker.AW_V2);
 
-					try {
-						enumConstructor = Type.getType(tokens.get(3));
-					} catch (IllegalArgumentException e) {
-						throw error(e.getMessage());
-					}
+		if (version >= ClassTweaker.CT_V1) {
+			if (line.tokenEquals(0, "extend-enum") || line.tokenEquals(0, TRANSITIVE_PREFIX + "extend-enum")) {
+				if (line.getTokenCount() != 4) {
+					throw error("Expected (extend-enum <className> <name> <desc>) got (%s)", line);
+				}
 
-					if (enumConstructor.getArgumentTypes().length < 2) {
-						throw error("Invalid enum constructor desc got (%s)", tokens.get(3));
-					}
+				final String constructorDesc = line.getToken(3);
 
-					if (!enumConstructor.getArgumentTypes()[0].getInternalName().equals("java/lang/String")
-							|| !enumConstructor.getArgumentTypes()[1].getInternalName().equals("I")) {
-						throw error("Invalid enum constructor desc got (%s)", tokens.get(3));
-					}
+				try {
+					enumConstructor = Type.getType(constructorDesc);
+				} catch (IllegalArgumentException e) {
+					throw error(e.getMessage());
+				}
 
-					enumExtensionVisitor = visitor.visitEnum(tokens.get(1), tokens.get(2), tokens.get(3), id, tokens.get(0).startsWith(TRANSITIVE_PREFIX));
-					continue;
-				} else if (("inject-interface".equals(firstToken) || (TRANSITIVE_PREFIX + "inject-interface").equals(firstToken))) {
-					if (tokens.size() != 3) {
-						throw error("Expected (inject-interface <className> <interfaceName>) got (%s)", line);
-					}
+				if (enumConstructor.getArgumentTypes().length < 2) {
+					throw error("Invalid enum constructor desc got (%s)", constructorDesc);
+				}
 
-					visitor.visitInjectedInterface(tokens.get(1), tokens.get(2), tokens.get(0).startsWith(TRANSITIVE_PREFIX));
+				if (!enumConstructor.getArgumentTypes()[0].getInternalName().equals("java/lang/String")
+						|| !enumConstructor.getArgumentTypes()[1].getInternalName().equals("I")) {
+					throw error("Invalid enum constructor desc got (%s)", constructorDesc);
+				}
 
-					continue;
+				enumExtensionVisitor = visitor.visitEnum(line.getToken(1), line.getToken(2), constructorDesc, id, line.tokenStartsWith(0, TRANSITIVE_PREFIX));
+				return;
+			} else if (line.tokenEquals(0, "inject-interface") || line.tokenEquals(0, TRANSITIVE_PREFIX + "inject-interface")) {
+				if (line.getTokenCount() != 3) {
+					throw error("Expected (inject-interface <className> <interfaceName>) got (%s)", line);
 				}
+
+				visitor.visitInjectedInterface(line.getToken(1), line.getToken(2), line.tokenStartsWith(0, TRANSITIVE_PREFIX));
+				return;
 			}
+		}
 
-			boolean transitive = false;
+		boolean transitive = false;
 
-			if (version >= ClassTweaker.AW_V2) {
-				// transitive access widener flag
-				if (firstToken.startsWith(TRANSITIVE_PREFIX)) {
-					firstToken = firstToken.substring(TRANSITIVE_PREFIX.length());
-					transitive = true;
-				}
-			}
+		if (version >= ClassTweaker.AW_V2) {
+			// transitive access widener flag
+			transitive = line.tokenStartsWith(0, TRANSITIVE_PREFIX);
+		}
 
-			AccessWidenerVisitor.AccessType access = readAccessType(firstToken);
+		AccessWidenerVisitor.AccessType access = readAccessType(line, transitive ? TRANSITIVE_PREFIX.length() : 0);
 
-			if (tokens.size() < 2) {
-				throw error("Expected <class|field|method> following " + tokens.get(0));
-			}
+		if (line.getTokenCount() < 2) {
+			throw error("Expected <class|field|method> following " + line.getToken(0));
+		}
 
-			switch (tokens.get(1)) {
-			case "class":
-				handleClass(line, tokens, transitive, access);
-				break;
-			case "field":
-				handleField(line, tokens, transitive, access);
-				break;
-			case "method":
-				handleMethod(line, tokens, transitive, access);
-				break;
-			default:
-				throw error("Unsupported type: '" + tokens.get(1) + "'");
-			}
+		if (line.tokenEquals(1, "class")) {
+			handleClass(line, transitive, access);
+		} else if (line.tokenEquals(1, "field")) {
+			handleField(line, transitive, access);
+		} else if (line.tokenEquals(1, "method")) {
+			handleMethod(line, transitive, access);
+		} else {
+			throw error("Unsupported type: '" + line.getToken(1) + "'");
 		}
 	}
 
 	public static HeaderImpl readHeader(byte[] content) {
-		String strContent = new String(content, ENCODING);
-
-		try {
-			return readHeader(new BufferedReader(new StringReader(strContent)));
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
+		final ByteLineReader lines = new ByteLineReader(content);
+		return parseHeader(lines.nextLine() ? lines.toString() : null);
 	}
 
 	public static HeaderImpl readHeader(BufferedReader reader) throws IOException {
-		String headerLine = reader.readLine();
+		return parseHeader(reader.readLine());
+	}
+
+	private static HeaderImpl parseHeader(String headerLine) {
 		String[] header = headerLine.split("\\s+");
 
 		if (header.length != 3 || (!header[0].equals("accessWidener") && !header[0].equals("classTweaker"))) {
@@ -265,12 +342,12 @@ public final class ClassTweakerReaderImpl implements ClassTweakerReader {
 		return new HeaderImpl(version, header[2]);
 	}
 
-	private void handleClass(String line, List<String> tokens, boolean transitive, AccessWidenerVisitor.AccessType access) {
-		if (tokens.size() != 3) {
+	private void handleClass(TokenizedLine line, boolean transitive, AccessWidenerVisitor.AccessType access) {
+		if (line.getTokenCount() != 3) {
 			throw error("Expected (<access> class <className>) got (%s)", line);
 		}
 
-		String name = tokens.get(2);
+		String name = line.getToken(2);
 		validateClassName(name);
 
 		try {
@@ -280,14 +357,14 @@ public final class ClassTweakerReaderImpl implements ClassTweakerReader {
 		}
 	}
 
-	private void handleField(String line, List<String> tokens, boolean transitive, AccessWidenerVisitor.AccessType access) {
-		if (tokens.size() != 5) {
+	private void handleField(TokenizedLine line, boolean transitive, AccessWidenerVisitor.AccessType access) {
+		if (line.getTokenCount() != 5) {
 			throw error("Expected (<access> field <className> <fieldName> <fieldDesc>) got (%s)", line);
 		}
 
-		String owner = tokens.get(2);
-		String fieldName = tokens.get(3);
-		String descriptor = tokens.get(4);
+		String owner = line.getToken(2);
+		String fieldName = line.getToken(3);
+		String descriptor = line.getToken(4);
 
 		validateClassName(owner);
 
@@ -298,14 +375,14 @@ public final class ClassTweakerReaderImpl implements ClassTweakerReader {
 		}
 	}
 
-	private void handleMethod(String line, List<String> tokens, boolean transitive, AccessWidenerVisitor.AccessType access) {
-		if (tokens.size() != 5) {
+	private void handleMethod(TokenizedLine line, boolean transitive, AccessWidenerVisitor.AccessType access) {
+		if (line.getTokenCount() != 5) {
 			throw error("Expected (<access> method <className> <methodName> <methodDesc>) got (%s)", line);
 		}
 
-		String owner = tokens.get(2);
-		String methodName = tokens.get(3);
-		String descriptor = tokens.get(4);
+		String owner = line.getToken(2);
+		String methodName = line.getToken(3);
+		String descriptor = line.getToken(4);
 
 		validateClassName(owner);
 
@@ -386,23 +463,24 @@ public final class ClassTweakerReaderImpl implements ClassTweakerReader {
 		enumExtensionVisitor.visitOverride(tokens.get(1), tokens.get(2), tokens.get(3), tokens.get(4));
 	}
 
-	private AccessWidenerVisitor.AccessType readAccessType(String access) {
-		switch (access.toLowerCase(Locale.ROOT)) {
-		case "accessible":
-			return AccessWidenerVisitor.AccessType .ACCESSIBLE;
-		case "extendable":
-			return AccessWidenerVisitor.AccessType .EXTENDABLE;
-		case "mutable":
-			return AccessWidenerVisitor.AccessType .MUTABLE;
-		default:
-			throw error("Unknown access type: " + access);
+	private AccessWidenerVisitor.AccessType readAccessType(TokenizedLine line, int offset) {
+		for (AccessWidenerVisitor.AccessType access : ACCESS_TYPES) {
+			if (line.tokenEqualsIgnoreCase(0, offset, access.toString())) {
+				return access;
+			}
 		}
+
+		throw error("Unknown access type: " + line.getToken(0).substring(offset));
 	}
 
 	private ClassTweakerFormatException error(String format, Object... args) {
 		// Note that getLineNumber is actually 1 line after the current line position,
 		// because it is 0-based. But since our reporting here is 1-based, it works out.
 		// If this class ever starts reading lines incrementally however, it'd need to be changed.
+		return formatError(lineNumber, format, args);
+	}
+
+	static ClassTweakerFormatException formatError(int lineNumber, String format, Object... args) {
 		String message = String.format(Locale.ROOT, format, args);
 		return new ClassTweakerFormatException(lineNumber, message);
 	}
@@ -414,6 +492,87 @@ public final class ClassTweakerReaderImpl implements ClassTweakerReader {
 		}
 	}
 
+	private static final class StringLine implements TokenizedLine {
+		private final String line;
+		private String[] tokens;
+
+		StringLine(String line) {
+			this.line = line;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return line.isEmpty();
+		}
+
+		@Override
+		public boolean startsWithWhitespace() {
+			return Character.isWhitespace(line.codePointAt(0));
+		}
+
+		@Override
+		public void tokenize(boolean anyWhitespace) {
+			tokens = (anyWhitespace ? V1_DELIMITER : V2_DELIMITER).split(line);
+		}
+
+		@Override
+		public int getTokenCount() {
+			return tokens.length;
+		}
+
+		@Override
+		public String getToken(int index) {
+			return tokens[index];
+		}
+
+		@Override
+		public boolean tokenEquals(int index, String keyword) {
+			return tokens[index].equals(keyword);
+		}
+
+		@Override
+		public boolean tokenStartsWith(int index, String prefix) {
+			return tokens[index].startsWith(prefix);
+		}
+
+		@Override
+		public boolean tokenEqualsIgnoreCase(int index, int offset, String keyword) {
+			return tokens[index].substring(offset).toLowerCase(Locale.ROOT).equals(keyword);
+		}
+
+		@Override
+		public String toString() {
+			return line;
+		}
+	}
+
+	public static final class SourceImpl implements Source {
+		private final byte[] content;
+		private final String currentNamespace;
+		private final String id;
+
+		public SourceImpl(byte[] content, String currentNamespace, String id) {
+			this.content = content;
+			this.currentNamespace = currentNamespace;
+			this.id = id;
+		}
+
+		@Override
+		public byte[] getContent() {
+			return content;
+		}
+
+		@Override
+		public String getCurrentNamespace() {
+			return currentNamespace;
+		}
+
+		@Override
+		public String getId() {
+			return id;
+		}
+	}
+
 	static class HeaderImpl implements Header {
 		private final int version;
 		private final String namespace;
@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.reader;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.api.visitor.ClassTweakerVisitor;
+import net.fabricmc.classtweaker.api.visitor.EnumExtensionVisitor;
+import net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat;
+
+/**
+ * Records the entries read from a single class tweaker, so that they can be read in parallel and later be passed
+ * on to the actual visitor in a fixed order.
+ *
+ * <p>Replaying the entries behaves exactly like {@link ClassTweakerReaderImpl} would have when reading directly into
+ * the visitor, including the errors it would throw.
+ */
+final class RecordingVisitor implements ClassTweakerVisitor {
+	static final int HEADER = 0;
+	static final int CLASS = 1;
+	static final int METHOD = 2;
+	static final int FIELD = 3;
+	static final int ENUM = 4;
+	static final int ENUM_PARAMETER_LIST = 5;
+	static final int ENUM_PARAMETER_CONSTANTS = 6;
+	static final int ENUM_OVERRIDE = 7;
+	static final int ENUM_END = 8;
+	static final int INJECTED_INTERFACE = 9;
+
+	// Provides the line currently being read, for errors thrown when replaying
+	IntSupplier lineNumber;
+	final List<Entry> entries = new ArrayList<>();
+	// Set when reading failed, thrown after replaying the entries that were read before the failure.
+	@Nullable
+	RuntimeException failure;
+
+	/**
+	 * Passes the recorded entries to the visitor, followed by the read failure if there was one.
+	 */
+	void accept(ClassTweakerVisitor visitor) {
+		EnumExtensionVisitor enumExtensionVisitor = null;
+		boolean inEnum = false;
+
+		for (Entry entry : entries) {
+			switch (entry.type) {
+			case HEADER:
+				visitor.visitHeader(entry.owner);
+				break;
+			case CLASS:
+			case METHOD:
+			case FIELD:
+				acceptAccess(visitor, entry);
+				break;
+			case ENUM:
+				enumExtensionVisitor = visitor.visitEnum(entry.owner, entry.name, entry.descriptor, entry.id, entry.transitive);
+				inEnum = true;
+				break;
+			case ENUM_END:
+				inEnum = false;
+
+				if (enumExtensionVisitor != null) {
+					enumExtensionVisitor.visitEnd();
+					enumExtensionVisitor = null;
+				}
+
+				break;
+			case INJECTED_INTERFACE:
+				visitor.visitInjectedInterface(entry.owner, entry.name, entry.transitive);
+				break;
+			default:
+				if (enumExtensionVisitor == null) {
+					// The reader only knows it's reading enum data when the visitor accepted the enum.
+					throw ClassTweakerReaderImpl.formatError(entry.lineNumber, "Leading whitespace is not allowed");
+				}
+
+				acceptEnumData(enumExtensionVisitor, entry);
+			}
+		}
+
+		if (failure != null) {
+			if (inEnum && enumExtensionVisitor == null && failure instanceof ClassTweakerFormatException) {
+				// Reading failed on an indented line, which the reader would have rejected before parsing it.
+				throw ClassTweakerReaderImpl.formatError(((ClassTweakerFormatException) failure).getLineNumber(), "Leading whitespace is not allowed");
+			}
+
+			throw failure;
+		}
+	}
+
+	private static void acceptAccess(ClassTweakerVisitor visitor, Entry entry) {
+		try {
+			switch (entry.type) {
+			case CLASS:
+				visitor.visitAccessWidener(entry.owner).visitClass(entry.access, entry.transitive);
+				break;
+			case METHOD:
+				visitor.visitAccessWidener(entry.owner).visitMethod(entry.name, entry.descriptor, entry.access, entry.transitive);
+				break;
+			default:
+				visitor.visitAccessWidener(entry.owner).visitField(entry.name, entry.descriptor, entry.access, entry.transitive);
+			}
+		} catch (Exception e) {
+			throw ClassTweakerReaderImpl.formatError(entry.lineNumber, e.toString());
+		}
+	}
+
+	private static void acceptEnumData(EnumExtensionVisitor visitor, Entry entry) {
+		switch (entry.type) {
+		case ENUM_PARAMETER_LIST:
+			visitor.visitParameterList(entry.owner, entry.name, entry.descriptor);
+			break;
+		case ENUM_PARAMETER_CONSTANTS:
+			visitor.visitParameterConstants(entry.constants);
+			break;
+		default:
+			visitor.visitOverride(entry.id, entry.owner, entry.name, entry.descriptor);
+		}
+	}
+
+	/**
+	 * Writes the entries of a successful read. The id of the enum extensions is not written, as it comes from the
+	 * caller and not from the read content.
+	 */
+	void write(DataOutput out) throws IOException {
+		if (failure != null) {
+			throw new IllegalStateException("Cannot write a failed read");
+		}
+
+		out.writeInt(entries.size());
+
+		for (Entry entry : entries) {
+			out.writeByte(entry.type);
+			out.writeInt(entry.lineNumber);
+			writeString(out, entry.owner);
+			writeString(out, entry.name);
+			writeString(out, entry.descriptor);
+			writeString(out, entry.type == ENUM ? null : entry.id);
+			out.writeByte(entry.access == null ? -1 : entry.access.ordinal());
+			out.writeBoolean(entry.transitive);
+			out.writeInt(entry.constants == null ? -1 : entry.constants.length);
+
+			if (entry.constants != null) {
+				for (Object constant : entry.constants) {
+					writeConstant(out, constant);
+				}
+			}
+		}
+	}
+
+	static RecordingVisitor read(DataInput in, String id) throws IOException {
+		final RecordingVisitor recording = new RecordingVisitor();
+		final int count = in.readInt();
+
+		for (int i = 0; i < count; i++) {
+			final Entry entry = new Entry(in.readUnsignedByte(), in.readInt());
+			entry.owner = readString(in);
+			entry.name = readString(in);
+			entry.descriptor = readString(in);
+			entry.id = readString(in);
+
+			if (entry.type == ENUM) {
+				entry.id = id;
+			}
+
+			final int access = in.readByte();
+			entry.access = access < 0 ? null : AccessWidenerVisitor.AccessType.values()[access];
+			entry.transitive = in.readBoolean();
+
+			final int constants = in.readInt();
+
+			if (constants >= 0) {
+				entry.constants = new Object[constants];
+
+				for (int j = 0; j < constants; j++) {
+					entry.constants[j] = readConstant(in);
+				}
+			}
+
+			recording.entries.add(entry);
+		}
+
+		return recording;
+	}
+
+	private static void writeString(DataOutput out, @Nullable String string) throws IOException {
+		if (string == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		// Not using writeUTF, as it is limited to 64k bytes
+		final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	@Nullable
+	private static String readString(DataInput in) throws IOException {
+		final int length = in.readInt();
+
+		if (length < 0) {
+			return null;
+		}
+
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeConstant(DataOutput out, Object constant) throws IOException {
+		if (constant == null) {
+			out.writeByte(BinaryClassTweakerFormat.CONSTANT_NULL);
+		} else if (constant instanceof String) {
+			out.writeByte(BinaryClassTweakerFormat.CONSTANT_STRING);
+			writeString(out, (String) constant);
+		} else if (constant instanceof Character) {
+			out.writeByte(BinaryClassTweakerFormat.CONSTANT_CHAR);
+			out.writeChar((Character) constant);
+		} else if (constant instanceof Byte) {
+			out.writeByte(BinaryClassTweakerFormat.CONSTANT_BYTE);
+			out.writeByte((Byte) constant);
+		} else if (constant instanceof Short) {
+			out.writeByte(BinaryClassTweakerFormat.CONSTANT_SHORT);
+			out.writeShort((Short) constant);
+		} else if (constant instanceof Integer) {
+			out.writeByte(BinaryClassTweakerFormat.CONSTANT_INT);
+			out.writeInt((Integer) constant);
+		} else if (constant instanceof Long) {
+			out.writeByte(BinaryClassTweakerFormat.CONSTANT_LONG);
+			out.writeLong((Long) constant);
+		} else if (constant instanceof Float) {
+			out.writeByte(BinaryClassTweakerFormat.CONSTANT_FLOAT);
+			out.writeFloat((Float) constant);
+		} else if (constant instanceof Double) {
+			out.writeByte(BinaryClassTweakerFormat.CONSTANT_DOUBLE);
+			out.writeDouble((Double) constant);
+		} else if (constant instanceof Boolean) {
+			out.writeByte(BinaryClassTweakerFormat.CONSTANT_BOOLEAN);
+			out.writeBoolean((Boolean) constant);
+		} else {
+			throw new IllegalArgumentException("Unsupported enum constant: " + constant.getClass().getName());
+		}
+	}
+
+	@Nullable
+	private static Object readConstant(DataInput in) throws IOException {
+		final int tag = in.readUnsignedByte();
+
+		switch (tag) {
+		case BinaryClassTweakerFormat.CONSTANT_NULL:
+			return null;
+		case BinaryClassTweakerFormat.CONSTANT_STRING:
+			return readString(in);
+		case BinaryClassTweakerFormat.CONSTANT_CHAR:
+			return in.readChar();
+		case BinaryClassTweakerFormat.CONSTANT_BYTE:
+			return in.readByte();
+		case BinaryClassTweakerFormat.CONSTANT_SHORT:
+			return in.readShort();
+		case BinaryClassTweakerFormat.CONSTANT_INT:
+			return in.readInt();
+		case BinaryClassTweakerFormat.CONSTANT_LONG:
+			return in.readLong();
+		case BinaryClassTweakerFormat.CONSTANT_FLOAT:
+			return in.readFloat();
+		case BinaryClassTweakerFormat.CONSTANT_DOUBLE:
+			return in.readDouble();
+		case BinaryClassTweakerFormat.CONSTANT_BOOLEAN:
+			return in.readBoolean();
+		default:
+			throw new IOException("Unknown constant tag: " + tag);
+		}
+	}
+
+	private Entry add(int type) {
+		final Entry entry = new Entry(type, lineNumber.getAsInt());
+		entries.add(entry);
+		return entry;
+	}
+
+	@Override
+	public void visitHeader(String namespace) {
+		add(HEADER).owner = namespace;
+	}
+
+	@Override
+	public AccessWidenerVisitor visitAccessWidener(String owner) {
+		return new AccessWidenerVisitor() {
+			@Override
+			public void visitClass(AccessType access, boolean transitive) {
+				add(CLASS, owner, null, null, access, transitive);
+			}
+
+			@Override
+			public void visitMethod(String name, String descriptor, AccessType access, boolean transitive) {
+				add(METHOD, owner, name, descriptor, access, transitive);
+			}
+
+			@Override
+			public void visitField(String name, String descriptor, AccessType access, boolean transitive) {
+				add(FIELD, owner, name, descriptor, access, transitive);
+			}
+		};
+	}
+
+	private void add(int type, String owner, String name, String descriptor, AccessWidenerVisitor.AccessType access, boolean transitive) {
+		final Entry entry = add(type);
+		entry.owner = owner;
+		entry.name = name;
+		entry.descriptor = descriptor;
+		entry.access = access;
+		entry.transitive = transitive;
+	}
+
+	@Override
+	public EnumExtensionVisitor visitEnum(String owner, String name, String constructorDesc, String id, boolean transitive) {
+		final Entry entry = add(ENUM);
+		entry.owner = owner;
+		entry.name = name;
+		entry.descriptor = constructorDesc;
+		entry.id = id;
+		entry.transitive = transitive;
+
+		return new EnumExtensionVisitor() {
+			@Override
+			public void visitParameterList(String owner, String name, String desc) {
+				final Entry entry = add(ENUM_PARAMETER_LIST);
+				entry.owner = owner;
+				entry.name = name;
+				entry.descriptor = desc;
+			}
+
+			@Override
+			public void visitParameterConstants(Object[] constants) {
+				add(ENUM_PARAMETER_CONSTANTS).constants = constants;
+			}
+
+			@Override
+			public void visitOverride(String methodName, String owner, String name, String desc) {
+				final Entry entry = add(ENUM_OVERRIDE);
+				entry.id = methodName;
+				entry.owner = owner;
+				entry.name = name;
+				entry.descriptor = desc;
+			}
+
+			@Override
+			public void visitEnd() {
+				add(ENUM_END);
+			}
+		};
+	}
+
+	@Override
+	public void visitInjectedInterface(String owner, String iface, boolean transitive) {
+		final Entry entry = add(INJECTED_INTERFACE);
+		entry.owner = owner;
+		entry.name = iface;
+		entry.transitive = transitive;
+	}
+
+	/**
+	 * A single recorded visit, the meaning of the fields depends on the type.
+	 * The header namespace is stored as the owner, an injected interface as the name and the overridden method name
+	 * of an enum override as the id.
+	 */
+	static final class Entry {
+		final int type;
+		final int lineNumber;
+		String owner;
+		String name;
+		String descriptor;
+		String id;
+		AccessWidenerVisitor.AccessType access;
+		boolean transitive;
+		Object[] constants;
+
+		Entry(int type, int lineNumber) {
+			this.type = type;
+			this.lineNumber = lineNumber;
+		}
+	}
+}
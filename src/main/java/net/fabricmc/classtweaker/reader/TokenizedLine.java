@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.reader;
+
+/**
+ * A single line of a class tweaker file, with comments already removed.
+ *
+ * <p>Keywords passed to the comparison methods must be ASCII.
+ */
+interface TokenizedLine {
+	boolean isEmpty();
+
+	/**
+	 * Returns true when the first code point of the line is a whitespace character as defined by {@link Character#isWhitespace(int)}.
+	 */
+	boolean startsWithWhitespace();
+
+	/**
+	 * Splits the line into tokens.
+	 *
+	 * @param anyWhitespace when true tokens are separated by any whitespace (AW v1), otherwise only by spaces and tabs.
+	 */
+	void tokenize(boolean anyWhitespace);
+
+	int getTokenCount();
+
+	String getToken(int index);
+
+	boolean tokenEquals(int index, String keyword);
+
+	boolean tokenStartsWith(int index, String prefix);
+
+	/**
+	 * Compares the token with the given offset removed against the keyword, ignoring case.
+	 */
+	boolean tokenEqualsIgnoreCase(int index, int offset, String keyword);
+
+	/**
+	 * @return the full line, used for error messages.
+	 */
+	@Override
+	String toString();
+}
@@ -19,6 +19,77 @@ package net.fabricmc.classtweaker.utils;
 import org.objectweb.asm.Opcodes;
 
 public class AccessUtils {
+	// The bits of an access widener access, stored for the class and every member
+	public static final int ACCESSIBLE = 1;
+	public static final int EXTENDABLE = 1 << 1;
+	public static final int MUTABLE = 1 << 2;
+
+	// The kinds of target an access applies to
+	public static final int KIND_CLASS = 0;
+	public static final int KIND_METHOD = 1;
+	public static final int KIND_FIELD = 2;
+
+	// The operations applied for each kind and combination of access bits, indexed by kind << 3 | bits
+	private static final int MAKE_PUBLIC = 1;
+	private static final int REMOVE_FINAL = 1 << 1;
+	private static final int MAKE_PROTECTED = 1 << 2;
+	private static final int FINAL_IF_PRIVATE = 1 << 3;
+	// Static interface fields can't be made mutable
+	private static final int REMOVE_FINAL_IF_NOT_INTERFACE_STATIC = 1 << 4;
+	private static final byte[] OPERATIONS = new byte[3 << 3];
+
+	static {
+		for (int bits = 0; bits < 8; bits++) {
+			final boolean accessible = (bits & ACCESSIBLE) != 0;
+			final boolean extendable = (bits & EXTENDABLE) != 0;
+			final boolean mutable = (bits & MUTABLE) != 0;
+
+			// Classes can't be mutable and fields can't be extendable, these bits are ignored
+			OPERATIONS[KIND_CLASS << 3 | bits] = (byte) (accessible || extendable ? MAKE_PUBLIC | (extendable ? REMOVE_FINAL : 0) : 0);
+
+			if (accessible && extendable) {
+				OPERATIONS[KIND_METHOD << 3 | bits] = MAKE_PUBLIC | REMOVE_FINAL;
+			} else if (accessible) {
+				OPERATIONS[KIND_METHOD << 3 | bits] = MAKE_PUBLIC | FINAL_IF_PRIVATE;
+			} else if (extendable) {
+				OPERATIONS[KIND_METHOD << 3 | bits] = MAKE_PROTECTED | REMOVE_FINAL;
+			}
+
+			OPERATIONS[KIND_FIELD << 3 | bits] = (byte) ((accessible ? MAKE_PUBLIC : 0) | (mutable ? REMOVE_FINAL_IF_NOT_INTERFACE_STATIC : 0));
+		}
+	}
+
+	/**
+	 * Applies an access widener access to the access flags of a class, method or field.
+	 *
+	 * <p>The operations for the kind and bits are looked up in a table and applied as masks, so there are no branches
+	 * depending on the access other than the check for constructors, which are never made final.
+	 *
+	 * @param kind one of {@link #KIND_CLASS}, {@link #KIND_METHOD} or {@link #KIND_FIELD}
+	 * @param bits a combination of {@link #ACCESSIBLE}, {@link #EXTENDABLE} and {@link #MUTABLE}
+	 * @param name the name of the member or class, used to skip constructors
+	 * @param ownerAccess the access flags of the class that owns the member
+	 */
+	public static int apply(int kind, int bits, int access, String name, int ownerAccess) {
+		final int operations = OPERATIONS[kind << 3 | (bits & 7)];
+		// Each is 1 when the operation applies, and 0 otherwise
+		final int isStatic = (access & Opcodes.ACC_STATIC) >>> 3;
+		final int inInterface = (ownerAccess & Opcodes.ACC_INTERFACE) >>> 9;
+		int finalIfPrivate = (operations >>> 3) & (access >>> 1) & ~isStatic & ~inInterface & 1;
+		final int protect = (operations >>> 2) & ~access & 1;
+		final int removeFinal = ((operations >>> 1) | ((operations >>> 4) & ~(isStatic & inInterface))) & 1;
+		final int makePublic = operations & 1;
+
+		if (finalIfPrivate != 0 && name.equals("<init>")) {
+			finalIfPrivate = 0;
+		}
+
+		access |= Opcodes.ACC_FINAL * finalIfPrivate;
+		access &= ~(Opcodes.ACC_FINAL * removeFinal);
+		access = (access & ~((Opcodes.ACC_PRIVATE | Opcodes.ACC_PROTECTED) * makePublic)) | (Opcodes.ACC_PUBLIC * makePublic);
+		return (access & ~(Opcodes.ACC_PRIVATE * protect)) | (Opcodes.ACC_PROTECTED * protect);
+	}
+
 	public static int makePublic(int i) {
 		return (i & ~(Opcodes.ACC_PRIVATE | Opcodes.ACC_PROTECTED)) | Opcodes.ACC_PUBLIC;
 	}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.utils;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Helpers to read class files directly, for the cases where the overhead of a {@link org.objectweb.asm.ClassReader} is not needed.
+ */
+public final class ClassFileUtils {
+	public static final int MAGIC = 0xCAFEBABE;
+	// The offset of the constant_pool_count item
+	public static final int CONSTANT_POOL_COUNT = 8;
+
+	// See JVMS: https://docs.oracle.com/javase/specs/jvms/se17/html/jvms-4.html#jvms-4.4
+	public static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	public static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+	private static final int CONSTANT_METHOD_HANDLE = 15;
+	private static final int CONSTANT_METHOD_TYPE = 16;
+	private static final int CONSTANT_DYNAMIC = 17;
+	private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+	private static final int CONSTANT_MODULE = 19;
+	private static final int CONSTANT_PACKAGE = 20;
+
+	private ClassFileUtils() {
+	}
+
+	/**
+	 * @return whether the bytes start with the class file magic and are long enough to contain the constant pool count
+	 */
+	public static boolean isClassFile(byte[] bytes) {
+		return bytes.length >= CONSTANT_POOL_COUNT + 2 && readInt(bytes, 0) == MAGIC;
+	}
+
+	/**
+	 * @param offset the offset of the constant's tag
+	 * @return the length of the constant including its tag, or -1 if the tag is unknown
+	 */
+	public static int getConstantLength(byte[] bytes, int offset) {
+		switch (bytes[offset]) {
+		case CONSTANT_UTF8:
+			return 3 + readUnsignedShort(bytes, offset + 1);
+		case CONSTANT_INTEGER:
+		case CONSTANT_FLOAT:
+		case CONSTANT_FIELDREF:
+		case CONSTANT_METHODREF:
+		case CONSTANT_INTERFACE_METHODREF:
+		case CONSTANT_NAME_AND_TYPE:
+		case CONSTANT_DYNAMIC:
+		case CONSTANT_INVOKE_DYNAMIC:
+			return 5;
+		case CONSTANT_LONG:
+		case CONSTANT_DOUBLE:
+			return 9;
+		case CONSTANT_METHOD_HANDLE:
+			return 4;
+		case CONSTANT_CLASS:
+		case CONSTANT_STRING:
+		case CONSTANT_METHOD_TYPE:
+		case CONSTANT_MODULE:
+		case CONSTANT_PACKAGE:
+			return 3;
+		default:
+			return -1;
+		}
+	}
+
+	/**
+	 * @return whether the constant at the offset takes up two entries in the constant pool
+	 */
+	public static boolean isWideConstant(byte[] bytes, int offset) {
+		return bytes[offset] == CONSTANT_LONG || bytes[offset] == CONSTANT_DOUBLE;
+	}
+
+	/**
+	 * Walks the constant pool once, as the entries have different lengths, checking that every constant lies within
+	 * the class file.
+	 *
+	 * @param offsets receives the offset of the tag of each constant by its index, its length must be the constant
+	 *                pool count. Index zero and the second index of a wide constant are left at zero.
+	 * @return the offset following the constant pool, or -1 if the constant pool could not be read
+	 */
+	public static int readConstantPool(byte[] bytes, int[] offsets) {
+		int offset = CONSTANT_POOL_COUNT + 2;
+
+		for (int i = 1; i < offsets.length; i++) {
+			// Every constant is at least 3 bytes long, enough to read the length of a Utf8 constant
+			if (offset + 3 > bytes.length) {
+				return -1;
+			}
+
+			final int length = getConstantLength(bytes, offset);
+
+			if (length < 0 || offset + length > bytes.length) {
+				return -1;
+			}
+
+			offsets[i] = offset;
+
+			if (isWideConstant(bytes, offset)) {
+				// Takes up two entries
+				i++;
+			}
+
+			offset += length;
+		}
+
+		return offset;
+	}
+
+	/**
+	 * @param header the offset following the constant pool, as returned by {@link #readConstantPool}
+	 * @param offsets the offsets of the constants, as filled in by {@link #readConstantPool}
+	 * @return the offset of the length item of the name of the class, or -1 if it could not be read
+	 */
+	public static int findClassName(byte[] bytes, int header, int[] offsets) {
+		// The access flags and this_class
+		if (header < 0 || header + 4 > bytes.length) {
+			return -1;
+		}
+
+		final int classOffset = getConstant(bytes, offsets, readUnsignedShort(bytes, header + 2), CONSTANT_CLASS);
+
+		if (classOffset < 0) {
+			return -1;
+		}
+
+		final int nameOffset = getConstant(bytes, offsets, readUnsignedShort(bytes, classOffset + 1), CONSTANT_UTF8);
+		return nameOffset < 0 ? -1 : nameOffset + 1;
+	}
+
+	/**
+	 * @param offsets the offsets of the constants, as filled in by {@link #readConstantPool}
+	 * @return the offset of the tag of the constant, or -1 if the index isn't a constant with the tag
+	 */
+	public static int getConstant(byte[] bytes, int[] offsets, int index, int tag) {
+		if (index >= offsets.length || offsets[index] == 0 || bytes[offsets[index]] != tag) {
+			return -1;
+		}
+
+		return offsets[index];
+	}
+
+	/**
+	 * @return the internal name of the class, or {@code null} if the class file could not be read
+	 */
+	@Nullable
+	public static String readClassName(byte[] bytes) {
+		if (!isClassFile(bytes)) {
+			return null;
+		}
+
+		final int[] offsets = new int[readUnsignedShort(bytes, CONSTANT_POOL_COUNT)];
+		final int nameOffset = findClassName(bytes, readConstantPool(bytes, offsets), offsets);
+		return nameOffset < 0 ? null : decodeUtf8(bytes, nameOffset);
+	}
+
+	/**
+	 * Decodes a modified UTF-8 string, see JVMS: https://docs.oracle.com/javase/specs/jvms/se17/html/jvms-4.html#jvms-4.4.7.
+	 *
+	 * @param offset the offset of the length item of the string
+	 * @throws IllegalArgumentException if the string runs past the end of the bytes
+	 */
+	public static String readUtf8(byte[] bytes, int offset) {
+		final String string = decodeUtf8(bytes, offset);
+
+		if (string == null) {
+			throw new IllegalArgumentException("Malformed modified UTF-8 string at offset " + offset);
+		}
+
+		return string;
+	}
+
+	/**
+	 * Same as {@link #readUtf8}, but returns {@code null} if the string runs past the end of the bytes.
+	 */
+	@Nullable
+	public static String decodeUtf8(byte[] bytes, int offset) {
+		if (offset + 2 > bytes.length) {
+			return null;
+		}
+
+		final int end = offset + 2 + readUnsignedShort(bytes, offset);
+
+		if (end > bytes.length) {
+			return null;
+		}
+
+		final char[] chars = new char[end - offset - 2];
+		int length = 0;
+		offset += 2;
+
+		while (offset < end) {
+			final int b = bytes[offset++];
+
+			if ((b & 0x80) == 0) {
+				chars[length++] = (char) (b & 0x7F);
+			} else if ((b & 0xE0) == 0xC0) {
+				if (offset + 1 > end) {
+					return null;
+				}
+
+				chars[length++] = (char) (((b & 0x1F) << 6) | (bytes[offset++] & 0x3F));
+			} else {
+				if (offset + 2 > end) {
+					return null;
+				}
+
+				chars[length++] = (char) (((b & 0xF) << 12) | ((bytes[offset++] & 0x3F) << 6) | (bytes[offset++] & 0x3F));
+			}
+		}
+
+		return new String(chars, 0, length);
+	}
+
+	public static int readUnsignedShort(byte[] bytes, int offset) {
+		return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+	}
+
+	public static int readInt(byte[] bytes, int offset) {
+		return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+	}
+
+	public static void writeShort(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) (value >>> 8);
+		bytes[offset + 1] = (byte) value;
+	}
+}
@@ -141,6 +141,8 @@ public class ConstantParser {
 	}
 
 	public static class ConstantParseException extends Exception {
+		private static final long serialVersionUID = 1L;
+
 		public ConstantParseException(String message, Object... args) {
 			super(String.format(Locale.ROOT, message, args));
 		}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.utils;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores byte arrays in a directory, one file per key. Each entry is written to a temporary file first and then
+ * atomically moved into place, so the directory can be shared by multiple processes. Any problem with the directory is
+ * treated as a miss, or ignored when adding an entry.
+ *
+ * <p>The size of the directory is scanned when the first entry is added, and then tracked for the entries added by
+ * this cache. Once it grows past the max size, the directory is scanned again and the least recently used entries are
+ * removed until it is below three quarters of the max size, so that the next scan isn't needed right away. Hits update
+ * the modification time of the entry, which is used to determine the order.
+ */
+public final class DirectoryCache {
+	private final Path directory;
+	private final long maxSize;
+	private final String extension;
+	private final boolean sharded;
+	// The approximate size of the directory, or -1 before it was first scanned
+	private final AtomicLong size = new AtomicLong(-1);
+
+	/**
+	 * @param extension the file extension of the entries, other files in the directory are left alone
+	 * @param sharded whether to spread the entries over subdirectories named after the first two characters of the
+	 *                key, to keep the directories small
+	 */
+	public DirectoryCache(Path directory, long maxSize, String extension, boolean sharded) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		this.extension = extension;
+		this.sharded = sharded;
+	}
+
+	/**
+	 * @return the lower case hex string of the digest, to be used as a key
+	 */
+	public static String toKey(byte[] digest) {
+		final StringBuilder key = new StringBuilder(digest.length * 2);
+
+		for (byte b : digest) {
+			key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+
+		return key.toString();
+	}
+
+	private Path getPath(String key) {
+		return sharded ? directory.resolve(key.substring(0, 2)).resolve(key + extension) : directory.resolve(key + extension);
+	}
+
+	/**
+	 * @return the contents of the entry, or {@code null} if there is none
+	 */
+	@Nullable
+	public byte[] get(String key) {
+		final Path path = getPath(key);
+
+		try {
+			final byte[] bytes = Files.readAllBytes(path);
+			Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+			return bytes;
+		} catch (IOException e) {
+			// Missing, or evicted by another process while being read
+			return null;
+		}
+	}
+
+	public void put(String key, byte[] bytes) {
+		Path tempFile = null;
+
+		try {
+			final Path path = getPath(key);
+			Files.createDirectories(path.getParent());
+			tempFile = Files.createTempFile(path.getParent(), key, ".tmp");
+			Files.write(tempFile, bytes);
+
+			try {
+				Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				// Without atomic moves other processes could read partial entries, so don't cache at all
+				return;
+			}
+
+			tempFile = null;
+
+			if (size.get() < 0 || size.addAndGet(bytes.length) > maxSize) {
+				evict();
+			}
+		} catch (IOException ignored) {
+			// The cache is only an optimisation
+		} finally {
+			if (tempFile != null) {
+				try {
+					Files.deleteIfExists(tempFile);
+				} catch (IOException ignored) {
+					// Nothing else we can do
+				}
+			}
+		}
+	}
+
+	private synchronized void evict() throws IOException {
+		final List<CacheFile> files = new ArrayList<>();
+
+		if (sharded) {
+			try (DirectoryStream<Path> shards = Files.newDirectoryStream(directory, Files::isDirectory)) {
+				for (Path shard : shards) {
+					scan(shard, files);
+				}
+			}
+		} else {
+			scan(directory, files);
+		}
+
+		long size = 0;
+
+		for (CacheFile file : files) {
+			size += file.size;
+		}
+
+		if (size > maxSize) {
+			files.sort(Comparator.comparing(file -> file.lastModified));
+
+			for (CacheFile file : files) {
+				if (size <= maxSize / 4 * 3) {
+					break;
+				}
+
+				Files.deleteIfExists(file.path);
+				size -= file.size;
+			}
+		}
+
+		this.size.set(size);
+	}
+
+	private void scan(Path directory, List<CacheFile> files) throws IOException {
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path path : stream) {
+				// Temporary files could be in use by other processes
+				if (!path.getFileName().toString().endsWith(extension)) {
+					continue;
+				}
+
+				try {
+					final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+					files.add(new CacheFile(path, attributes.size(), attributes.lastModifiedTime()));
+				} catch (NoSuchFileException ignored) {
+					// Removed by another process
+				}
+			}
+		} catch (NoSuchFileException ignored) {
+			// Removed by another process
+		}
+	}
+
+	private static final class CacheFile {
+		private final Path path;
+		private final long size;
+		private final FileTime lastModified;
+
+		private CacheFile(Path path, long size, FileTime lastModified) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+	}
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A zip file read from its central directory, that gives access to the compressed data of the entries so that they
+ * can be copied without inflating them. Zip64 archives are not supported.
+ */
+public final class ZipArchive {
+	static final int LOCAL_HEADER = 0x04034b50;
+	static final int CENTRAL_HEADER = 0x02014b50;
+	static final int END_HEADER = 0x06054b50;
+	static final int LOCAL_HEADER_SIZE = 30;
+	static final int CENTRAL_HEADER_SIZE = 46;
+	static final int END_HEADER_SIZE = 22;
+	// The entry data is followed by a descriptor containing the crc and sizes
+	static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+	// The name and comment are encoded in UTF-8
+	static final int FLAG_UTF8 = 1 << 11;
+
+	private final byte[] bytes;
+	private final List<Entry> entries;
+
+	public ZipArchive(byte[] bytes) throws IOException {
+		this.bytes = bytes;
+		this.entries = Collections.unmodifiableList(readEntries(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)));
+	}
+
+	public static ZipArchive read(Path path) throws IOException {
+		return new ZipArchive(Files.readAllBytes(path));
+	}
+
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	private List<Entry> readEntries(ByteBuffer buffer) throws IOException {
+		final int end = findEndHeader(buffer);
+		final int count = buffer.getShort(end + 10) & 0xFFFF;
+		final long directoryOffset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+
+		if (count == 0xFFFF || directoryOffset == 0xFFFFFFFFL) {
+			throw new IOException("Zip64 archives are not supported");
+		}
+
+		final List<Entry> entries = new ArrayList<>(count);
+		int offset = (int) directoryOffset;
+
+		for (int i = 0; i < count; i++) {
+			if (offset + CENTRAL_HEADER_SIZE > end || buffer.getInt(offset) != CENTRAL_HEADER) {
+				throw new IOException("Invalid central directory entry at " + offset);
+			}
+
+			final Entry entry = new Entry(buffer, offset);
+			entries.add(entry);
+			offset += CENTRAL_HEADER_SIZE + entry.rawName.length + entry.extra.length + entry.comment.length;
+		}
+
+		return entries;
+	}
+
+	private static int findEndHeader(ByteBuffer buffer) throws IOException {
+		// The end header is followed by a comment of up to 65535 bytes
+		final int min = Math.max(0, buffer.limit() - END_HEADER_SIZE - 0xFFFF);
+
+		for (int offset = buffer.limit() - END_HEADER_SIZE; offset >= min; offset--) {
+			if (buffer.getInt(offset) == END_HEADER && offset + END_HEADER_SIZE + (buffer.getShort(offset + 20) & 0xFFFF) == buffer.limit()) {
+				return offset;
+			}
+		}
+
+		throw new IOException("Not a zip file");
+	}
+
+	/**
+	 * Decodes names as UTF-8 like {@link java.util.zip.ZipFile} and the class loaders do, even without the UTF-8 flag
+	 * as many tools don't set it. Only names that aren't valid UTF-8 are decoded as ISO-8859-1.
+	 */
+	private static String decodeName(byte[] rawName, int flags) {
+		if ((flags & FLAG_UTF8) != 0) {
+			return new String(rawName, StandardCharsets.UTF_8);
+		}
+
+		try {
+			return StandardCharsets.UTF_8.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT)
+					.decode(ByteBuffer.wrap(rawName))
+					.toString();
+		} catch (CharacterCodingException e) {
+			return new String(rawName, StandardCharsets.ISO_8859_1);
+		}
+	}
+
+	public final class Entry {
+		final int versionMadeBy;
+		final int versionNeeded;
+		final int flags;
+		final int method;
+		final int time;
+		final int date;
+		final int crc;
+		final int compressedSize;
+		final int size;
+		final int internalAttributes;
+		final int externalAttributes;
+		final byte[] rawName;
+		final byte[] extra;
+		final byte[] comment;
+		final byte[] localExtra;
+		final int dataOffset;
+		private final String name;
+
+		private Entry(ByteBuffer buffer, int offset) throws IOException {
+			versionMadeBy = buffer.getShort(offset + 4) & 0xFFFF;
+			versionNeeded = buffer.getShort(offset + 6) & 0xFFFF;
+			flags = buffer.getShort(offset + 8) & 0xFFFF;
+			method = buffer.getShort(offset + 10) & 0xFFFF;
+			time = buffer.getShort(offset + 12) & 0xFFFF;
+			date = buffer.getShort(offset + 14) & 0xFFFF;
+			crc = buffer.getInt(offset + 16);
+			compressedSize = buffer.getInt(offset + 20);
+			size = buffer.getInt(offset + 24);
+			final int nameLength = buffer.getShort(offset + 28) & 0xFFFF;
+			final int extraLength = buffer.getShort(offset + 30) & 0xFFFF;
+			final int commentLength = buffer.getShort(offset + 32) & 0xFFFF;
+			internalAttributes = buffer.getShort(offset + 36) & 0xFFFF;
+			externalAttributes = buffer.getInt(offset + 38);
+			final int localOffset = buffer.getInt(offset + 42);
+
+			if (compressedSize < 0 || size < 0 || localOffset < 0) {
+				throw new IOException("Zip64 archives are not supported");
+			}
+
+			int position = offset + CENTRAL_HEADER_SIZE;
+			rawName = Arrays.copyOfRange(bytes, position, position += nameLength);
+			extra = Arrays.copyOfRange(bytes, position, position += extraLength);
+			comment = Arrays.copyOfRange(bytes, position, position + commentLength);
+			name = decodeName(rawName, flags);
+
+			if (localOffset + LOCAL_HEADER_SIZE > bytes.length || buffer.getInt(localOffset) != LOCAL_HEADER) {
+				throw new IOException("Invalid local header for " + name);
+			}
+
+			final int localExtraOffset = localOffset + LOCAL_HEADER_SIZE + (buffer.getShort(localOffset + 26) & 0xFFFF);
+			localExtra = Arrays.copyOfRange(bytes, localExtraOffset, localExtraOffset + (buffer.getShort(localOffset + 28) & 0xFFFF));
+			dataOffset = localExtraOffset + localExtra.length;
+
+			if (dataOffset + compressedSize > bytes.length) {
+				throw new IOException("Truncated data for " + name);
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getCrc() {
+			return crc;
+		}
+
+		/**
+		 * @return the data of the extra field with the header id in the central directory, or {@code null} if there is none
+		 */
+		@Nullable
+		public byte[] getExtraField(int headerId) {
+			int offset = 0;
+
+			while (offset + 4 <= extra.length) {
+				final int id = (extra[offset] & 0xFF) | (extra[offset + 1] & 0xFF) << 8;
+				final int length = (extra[offset + 2] & 0xFF) | (extra[offset + 3] & 0xFF) << 8;
+				offset += 4;
+
+				if (offset + length > extra.length) {
+					break;
+				}
+
+				if (id == headerId) {
+					return Arrays.copyOfRange(extra, offset, offset + length);
+				}
+
+				offset += length;
+			}
+
+			return null;
+		}
+
+		/**
+		 * @return the uncompressed data of the entry
+		 */
+		public byte[] getData() throws IOException {
+			if (method == ZipEntry.STORED) {
+				return Arrays.copyOfRange(bytes, dataOffset, dataOffset + size);
+			}
+
+			if (method != ZipEntry.DEFLATED) {
+				throw new IOException("Unsupported compression method " + method + " for " + name);
+			}
+
+			final Inflater inflater = new Inflater(true);
+
+			try {
+				inflater.setInput(bytes, dataOffset, compressedSize);
+				final byte[] data = new byte[size];
+				int length = 0;
+
+				while (length < size && !inflater.finished()) {
+					final int read = inflater.inflate(data, length, size - length);
+
+					if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						break;
+					}
+
+					length += read;
+				}
+
+				if (length != size) {
+					throw new IOException("Invalid compressed data for " + name);
+				}
+
+				return data;
+			} catch (DataFormatException e) {
+				throw new IOException("Invalid compressed data for " + name, e);
+			} finally {
+				inflater.end();
+			}
+		}
+
+		byte[] getArchiveBytes() {
+			return bytes;
+		}
+	}
+}
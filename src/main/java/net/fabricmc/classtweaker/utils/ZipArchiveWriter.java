@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.utils;
+
+import static net.fabricmc.classtweaker.utils.ZipArchive.CENTRAL_HEADER;
+import static net.fabricmc.classtweaker.utils.ZipArchive.END_HEADER;
+import static net.fabricmc.classtweaker.utils.ZipArchive.FLAG_DATA_DESCRIPTOR;
+import static net.fabricmc.classtweaker.utils.ZipArchive.FLAG_UTF8;
+import static net.fabricmc.classtweaker.utils.ZipArchive.LOCAL_HEADER;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes a zip file, either copying the compressed data of entries from a {@link ZipArchive} or compressing new data.
+ * Zip64 archives are not supported.
+ */
+public final class ZipArchiveWriter implements Closeable {
+	private static final int VERSION_NEEDED = 20;
+	private static final byte[] EMPTY = new byte[0];
+
+	private final OutputStream out;
+	private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+	private final byte[] header = new byte[ZipArchive.CENTRAL_HEADER_SIZE];
+	// The offset of the next byte written to the stream, and of the local header of the current entry
+	private long offset;
+	private long entryOffset;
+	private int count;
+
+	public ZipArchiveWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Copies an entry without inflating it.
+	 */
+	public void copy(ZipArchive.Entry entry) throws IOException {
+		final int flags = entry.flags & ~FLAG_DATA_DESCRIPTOR;
+		writeLocalHeader(entry.versionNeeded, flags, entry.method, entry.time, entry.date, entry.crc, entry.compressedSize, entry.size, entry.rawName, entry.localExtra);
+		out.write(entry.getArchiveBytes(), entry.dataOffset, entry.compressedSize);
+		addCentralHeader(entry.versionMadeBy, entry.versionNeeded, flags, entry.method, entry.time, entry.date, entry.crc, entry.compressedSize, entry.size,
+				entry.rawName, entry.extra, entry.comment, entry.internalAttributes, entry.externalAttributes);
+	}
+
+	/**
+	 * Writes an entry that has already been compressed with {@link #compress}, with the time and attributes of another entry.
+	 */
+	public void write(Compressed compressed, ZipArchive.Entry like) throws IOException {
+		write(compressed, like, EMPTY);
+	}
+
+	/**
+	 * Writes an entry that has already been compressed with {@link #compress}, with the time and attributes of another
+	 * entry and the given extra fields, see {@link #extraField}.
+	 */
+	public void write(Compressed compressed, ZipArchive.Entry like, byte[] extra) throws IOException {
+		final byte[] rawName = compressed.name.getBytes(StandardCharsets.UTF_8);
+		writeLocalHeader(VERSION_NEEDED, FLAG_UTF8, ZipEntry.DEFLATED, like.time, like.date, compressed.crc, compressed.data.length, compressed.size, rawName, extra);
+		out.write(compressed.data);
+		addCentralHeader(VERSION_NEEDED, VERSION_NEEDED, FLAG_UTF8, ZipEntry.DEFLATED, like.time, like.date, compressed.crc, compressed.data.length, compressed.size,
+				rawName, extra, EMPTY, 0, like.externalAttributes);
+	}
+
+	/**
+	 * Writes new data for an entry, that has already been compressed with {@link #compress}, keeping the name of the
+	 * entry exactly as it was stored along with its time and attributes.
+	 */
+	public void replace(Compressed compressed, ZipArchive.Entry entry, byte[] extra) throws IOException {
+		final int flags = entry.flags & FLAG_UTF8;
+		writeLocalHeader(VERSION_NEEDED, flags, ZipEntry.DEFLATED, entry.time, entry.date, compressed.crc, compressed.data.length, compressed.size, entry.rawName, extra);
+		out.write(compressed.data);
+		addCentralHeader(VERSION_NEEDED, VERSION_NEEDED, flags, ZipEntry.DEFLATED, entry.time, entry.date, compressed.crc, compressed.data.length, compressed.size,
+				entry.rawName, extra, EMPTY, 0, entry.externalAttributes);
+	}
+
+	/**
+	 * @return an extra field with the header id and data, to be passed to {@link #write(Compressed, ZipArchive.Entry, byte[])}
+	 */
+	public static byte[] extraField(int headerId, byte[] data) {
+		final byte[] field = new byte[4 + data.length];
+		putShort(field, 0, headerId);
+		putShort(field, 2, data.length);
+		System.arraycopy(data, 0, field, 4, data.length);
+		return field;
+	}
+
+	/**
+	 * Compresses the data of an entry, this can be done on any thread before the entry is written.
+	 */
+	public static Compressed compress(String name, byte[] data) {
+		final CRC32 crc = new CRC32();
+		crc.update(data);
+
+		final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+
+			byte[] buffer = new byte[Math.max(64, data.length / 2)];
+			int length = 0;
+
+			while (!deflater.finished()) {
+				if (length == buffer.length) {
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+
+				length += deflater.deflate(buffer, length, buffer.length - length);
+			}
+
+			return new Compressed(name, Arrays.copyOf(buffer, length), data.length, (int) crc.getValue());
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private void writeLocalHeader(int versionNeeded, int flags, int method, int time, int date, int crc, int compressedSize, int size, byte[] rawName, byte[] extra) throws IOException {
+		if (count == 0xFFFF || offset > 0xFFFFFFFFL - 0xFFFF) {
+			throw new IOException("Zip64 archives are not supported");
+		}
+
+		putInt(header, 0, LOCAL_HEADER);
+		putShort(header, 4, versionNeeded);
+		putShort(header, 6, flags);
+		putShort(header, 8, method);
+		putShort(header, 10, time);
+		putShort(header, 12, date);
+		putInt(header, 14, crc);
+		putInt(header, 18, compressedSize);
+		putInt(header, 22, size);
+		putShort(header, 26, rawName.length);
+		putShort(header, 28, extra.length);
+		out.write(header, 0, ZipArchive.LOCAL_HEADER_SIZE);
+		out.write(rawName);
+		out.write(extra);
+		entryOffset = offset;
+		offset += ZipArchive.LOCAL_HEADER_SIZE + rawName.length + extra.length + compressedSize;
+		count++;
+	}
+
+	private void addCentralHeader(int versionMadeBy, int versionNeeded, int flags, int method, int time, int date, int crc, int compressedSize, int size,
+			byte[] rawName, byte[] extra, byte[] comment, int internalAttributes, int externalAttributes) {
+		putInt(header, 0, CENTRAL_HEADER);
+		putShort(header, 4, versionMadeBy);
+		putShort(header, 6, versionNeeded);
+		putShort(header, 8, flags);
+		putShort(header, 10, method);
+		putShort(header, 12, time);
+		putShort(header, 14, date);
+		putInt(header, 16, crc);
+		putInt(header, 20, compressedSize);
+		putInt(header, 24, size);
+		putShort(header, 28, rawName.length);
+		putShort(header, 30, extra.length);
+		putShort(header, 32, comment.length);
+		putShort(header, 34, 0);
+		putShort(header, 36, internalAttributes);
+		putInt(header, 38, externalAttributes);
+		putInt(header, 42, (int) entryOffset);
+		centralDirectory.write(header, 0, ZipArchive.CENTRAL_HEADER_SIZE);
+		centralDirectory.write(rawName, 0, rawName.length);
+		centralDirectory.write(extra, 0, extra.length);
+		centralDirectory.write(comment, 0, comment.length);
+	}
+
+	/**
+	 * Writes the central directory and closes the stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			final byte[] end = new byte[ZipArchive.END_HEADER_SIZE];
+			putInt(end, 0, END_HEADER);
+			putShort(end, 8, count);
+			putShort(end, 10, count);
+			putInt(end, 12, centralDirectory.size());
+			putInt(end, 16, (int) offset);
+			centralDirectory.writeTo(out);
+			out.write(end);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void putShort(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) value;
+		bytes[offset + 1] = (byte) (value >>> 8);
+	}
+
+	private static void putInt(byte[] bytes, int offset, int value) {
+		putShort(bytes, offset, value);
+		putShort(bytes, offset + 2, value >>> 16);
+	}
+
+	public static final class Compressed {
+		final String name;
+		final byte[] data;
+		final int size;
+		final int crc;
+
+		private Compressed(String name, byte[] data, int size, int crc) {
+			this.name = name;
+			this.data = data;
+			this.size = size;
+			this.crc = crc;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+}
@@ -17,6 +17,8 @@
 package net.fabricmc.classtweaker.validator;
 
 public class ClassTweakerValidationException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
 	public ClassTweakerValidationException(String message, Object... args) {
 		super(String.format(message, args));
 	}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.writer;
+
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_BOOLEAN;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_BYTE;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_CHAR;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_DOUBLE;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_FLOAT;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_INT;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_LONG;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_NULL;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_PARAMETERS;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_SHORT;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.CONSTANT_STRING;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.LIST_PARAMETERS;
+import static net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat.NO_PARAMETERS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.api.BinaryClassTweakerWriter;
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.EnumExtension;
+import net.fabricmc.classtweaker.api.InjectedInterface;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.api.visitor.EnumExtensionVisitor;
+import net.fabricmc.classtweaker.impl.BinaryClassTweakerFormat;
+import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+import net.fabricmc.classtweaker.utils.EntryTriple;
+
+/**
+ * Writes the compiled binary format read by {@link net.fabricmc.classtweaker.impl.MappedClassTweakerImpl}.
+ */
+public final class BinaryClassTweakerWriterImpl implements BinaryClassTweakerWriter {
+	private static final Comparator<EntryTriple> MEMBER_ORDER = Comparator.comparing(EntryTriple::getName).thenComparing(EntryTriple::getDesc);
+
+	private final ClassTweakerImpl classTweaker = new ClassTweakerImpl();
+
+	@Override
+	public void visitHeader(String namespace) {
+		classTweaker.visitHeader(namespace);
+	}
+
+	@Override
+	public AccessWidenerVisitor visitAccessWidener(String owner) {
+		return classTweaker.visitAccessWidener(owner);
+	}
+
+	@Override
+	public EnumExtensionVisitor visitEnum(String owner, String name, String constructorDesc, String id, boolean transitive) {
+		return classTweaker.visitEnum(owner, name, constructorDesc, id, transitive);
+	}
+
+	@Override
+	public void visitInjectedInterface(String owner, String iface, boolean transitive) {
+		classTweaker.visitInjectedInterface(owner, iface, transitive);
+	}
+
+	@Override
+	public byte[] writeBytes() {
+		return write(classTweaker);
+	}
+
+	public static byte[] write(ClassTweaker classTweaker) {
+		try {
+			return new Encoder().encode(classTweaker);
+		} catch (IOException e) {
+			// Only writing to memory
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static final class Encoder {
+		private final Map<String, Integer> stringIndices = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+		private final ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
+		private final DataOutputStream data = new DataOutputStream(dataBytes);
+
+		byte[] encode(ClassTweaker classTweaker) throws IOException {
+			// The data is written first, as it adds to the string table
+			final int namespace = classTweaker.getNamespace() == null ? BinaryClassTweakerFormat.NO_STRING : getString(classTweaker.getNamespace());
+			final int[] targets = getStrings(classTweaker.getTargets());
+			final int[] classes = getStrings(classTweaker.getClasses());
+			final Map<String, Integer> accessWideners = new TreeMap<>();
+			final Map<String, Integer> enumExtensions = new TreeMap<>();
+			final Map<String, Integer> injectedInterfaces = new TreeMap<>();
+
+			for (Map.Entry<String, AccessWidener> entry : classTweaker.getAllAccessWideners().entrySet()) {
+				accessWideners.put(entry.getKey(), data.size());
+				writeAccessWidener(entry.getValue());
+			}
+
+			for (Map.Entry<String, Map<String, EnumExtension>> entry : classTweaker.getAllEnumExtensions().entrySet()) {
+				enumExtensions.put(entry.getKey(), data.size());
+				writeEnumExtensions(entry.getValue());
+			}
+
+			for (Map.Entry<String, Set<InjectedInterface>> entry : classTweaker.getAllInjectedInterfaces().entrySet()) {
+				injectedInterfaces.put(entry.getKey(), data.size());
+				writeInjectedInterfaces(entry.getValue());
+			}
+
+			// Owners are added last, so that the data offsets are known
+			final int[] accessWidenerOwners = getStrings(accessWideners.keySet());
+			final int[] enumExtensionOwners = getStrings(enumExtensions.keySet());
+			final int[] injectedInterfaceOwners = getStrings(injectedInterfaces.keySet());
+
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream(dataBytes.size() + strings.size() * 32);
+			final DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(BinaryClassTweakerFormat.MAGIC);
+			out.writeInt(BinaryClassTweakerFormat.VERSION);
+			out.writeInt(namespace);
+			writeStringTable(out);
+			writeStringSet(out, targets);
+			writeStringSet(out, classes);
+			writeOwners(out, accessWidenerOwners, accessWideners);
+			writeOwners(out, enumExtensionOwners, enumExtensions);
+			writeOwners(out, injectedInterfaceOwners, injectedInterfaces);
+			out.writeInt(dataBytes.size());
+			dataBytes.writeTo(out);
+
+			return bytes.toByteArray();
+		}
+
+		private int getString(String string) {
+			return stringIndices.computeIfAbsent(string, s -> {
+				strings.add(s);
+				return strings.size() - 1;
+			});
+		}
+
+		private int[] getStrings(Set<String> strings) {
+			return strings.stream().mapToInt(this::getString).toArray();
+		}
+
+		private void writeStringTable(DataOutputStream out) throws IOException {
+			out.writeInt(strings.size());
+
+			int offset = 0;
+			out.writeInt(offset);
+
+			for (String string : strings) {
+				offset += string.length();
+				out.writeInt(offset);
+			}
+
+			for (String string : strings) {
+				out.writeChars(string);
+			}
+
+			if (offset % 2 != 0) {
+				// Keep the tables after the strings 4 byte aligned
+				out.writeChar(0);
+			}
+		}
+
+		private void writeStringSet(DataOutputStream out, int[] set) throws IOException {
+			out.writeInt(set.length);
+
+			for (int string : set) {
+				out.writeInt(string);
+			}
+
+			final Integer[] sorted = new Integer[set.length];
+
+			for (int i = 0; i < set.length; i++) {
+				sorted[i] = set[i];
+			}
+
+			Arrays.sort(sorted, Comparator.comparing(strings::get));
+
+			for (int string : sorted) {
+				out.writeInt(string);
+			}
+		}
+
+		private void writeOwners(DataOutputStream out, int[] owners, Map<String, Integer> offsets) throws IOException {
+			out.writeInt(owners.length);
+
+			// The owners are sorted, as they come from a TreeMap
+			for (int owner : owners) {
+				out.writeInt(owner);
+				out.writeInt(offsets.get(strings.get(owner)));
+			}
+		}
+
+		private void writeAccessWidener(AccessWidener accessWidener) throws IOException {
+			data.writeInt(BinaryClassTweakerFormat.getFlags(accessWidener.getClassAccess()));
+			writeMembers(accessWidener.getAllMethodAccesses());
+			writeMembers(accessWidener.getAllFieldAccesses());
+		}
+
+		private void writeMembers(Map<EntryTriple, AccessWidener.Access> accesses) throws IOException {
+			final Map<EntryTriple, AccessWidener.Access> sorted = new TreeMap<>(MEMBER_ORDER);
+			sorted.putAll(accesses);
+			data.writeInt(sorted.size());
+
+			for (Map.Entry<EntryTriple, AccessWidener.Access> entry : sorted.entrySet()) {
+				data.writeInt(getString(entry.getKey().getName()));
+				data.writeInt(getString(entry.getKey().getDesc()));
+				data.writeInt(BinaryClassTweakerFormat.getFlags(entry.getValue()));
+			}
+		}
+
+		private void writeEnumExtensions(Map<String, EnumExtension> enumExtensions) throws IOException {
+			data.writeInt(enumExtensions.size());
+
+			for (EnumExtension enumExtension : enumExtensions.values()) {
+				data.writeInt(getString(enumExtension.getName()));
+				data.writeInt(getString(enumExtension.getTargetConstructor().getDescriptor()));
+				data.writeInt(getString(enumExtension.getId()));
+
+				final EnumExtension.Parameters parameters = enumExtension.getParameters();
+
+				if (parameters instanceof EnumExtension.ListParameters) {
+					final EntryTriple paramList = ((EnumExtension.ListParameters) parameters).getParamList();
+					data.writeInt(LIST_PARAMETERS);
+					data.writeInt(getString(paramList.getOwner()));
+					data.writeInt(getString(paramList.getName()));
+					data.writeInt(getString(paramList.getDesc()));
+				} else if (parameters instanceof EnumExtension.ConstantParameters) {
+					final Object[] constants = ((EnumExtension.ConstantParameters) parameters).getConstants();
+					data.writeInt(CONSTANT_PARAMETERS);
+					data.writeInt(constants.length);
+
+					for (Object constant : constants) {
+						writeConstant(constant);
+					}
+				} else {
+					data.writeInt(NO_PARAMETERS);
+				}
+
+				data.writeInt(enumExtension.getMethodOverrides().size());
+
+				for (EnumExtension.MethodOverride override : enumExtension.getMethodOverrides()) {
+					data.writeInt(getString(override.getTargetMethodName()));
+					data.writeInt(getString(override.getStaticMethod().getOwner()));
+					data.writeInt(getString(override.getStaticMethod().getName()));
+					data.writeInt(getString(override.getStaticMethod().getDesc()));
+				}
+			}
+		}
+
+		private void writeConstant(Object constant) throws IOException {
+			if (constant == null) {
+				data.writeByte(CONSTANT_NULL);
+			} else if (constant instanceof String) {
+				data.writeByte(CONSTANT_STRING);
+				data.writeInt(getString((String) constant));
+			} else if (constant instanceof Character) {
+				data.writeByte(CONSTANT_CHAR);
+				data.writeChar((Character) constant);
+			} else if (constant instanceof Byte) {
+				data.writeByte(CONSTANT_BYTE);
+				data.writeByte((Byte) constant);
+			} else if (constant instanceof Short) {
+				data.writeByte(CONSTANT_SHORT);
+				data.writeShort((Short) constant);
+			} else if (constant instanceof Integer) {
+				data.writeByte(CONSTANT_INT);
+				data.writeInt((Integer) constant);
+			} else if (constant instanceof Long) {
+				data.writeByte(CONSTANT_LONG);
+				data.writeLong((Long) constant);
+			} else if (constant instanceof Float) {
+				data.writeByte(CONSTANT_FLOAT);
+				data.writeFloat((Float) constant);
+			} else if (constant instanceof Double) {
+				data.writeByte(CONSTANT_DOUBLE);
+				data.writeDouble((Double) constant);
+			} else if (constant instanceof Boolean) {
+				data.writeByte(CONSTANT_BOOLEAN);
+				data.writeBoolean((Boolean) constant);
+			} else {
+				throw new IllegalArgumentException("Unsupported enum constant: " + constant.getClass().getName());
+			}
+		}
+
+		private void writeInjectedInterfaces(Set<InjectedInterface> injectedInterfaces) throws IOException {
+			data.writeInt(injectedInterfaces.size());
+
+			for (InjectedInterface injectedInterface : injectedInterfaces) {
+				data.writeInt(getString(injectedInterface.getInterfaceName()));
+			}
+		}
+	}
+}
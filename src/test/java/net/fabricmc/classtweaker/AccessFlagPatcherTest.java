@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.impl.AccessFlagPatcher;
+import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+import net.fabricmc.classtweaker.utils.ClassFileUtils;
+
+class AccessFlagPatcherTest {
+	ClassTweakerImpl classTweaker = new ClassTweakerImpl();
+
+	@Test
+	void testUntargetedClassIsReturned() throws IOException {
+		classTweaker.visitAccessWidener("test/FieldTests").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		byte[] classBytes = readClass("test/MethodTests");
+		assertSame(classBytes, AccessFlagPatcher.patch(classTweaker, classBytes));
+	}
+
+	@Test
+	void testPatchesAccessFlags() throws IOException {
+		AccessWidenerVisitor accessWidener = classTweaker.visitAccessWidener("test/PrivateInnerClass$Inner");
+		accessWidener.visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		accessWidener.visitMethod("<init>", "(Ltest/PrivateInnerClass;)V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		byte[] classBytes = readClass("test/PrivateInnerClass$Inner");
+
+		byte[] patched = AccessFlagPatcher.patch(classTweaker, classBytes);
+		assertNotNull(patched);
+		assertThat(patched).hasSameSizeAs(classBytes).isNotEqualTo(classBytes);
+
+		ClassNode classNode = read(patched);
+		assertEquals(Opcodes.ACC_PUBLIC, classNode.access & (Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL));
+		assertThat(classNode.innerClasses)
+				.filteredOn(innerClass -> innerClass.name.equals("test/PrivateInnerClass$Inner"))
+				.singleElement()
+				.matches(innerClass -> (innerClass.access & (Opcodes.ACC_PUBLIC | Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL)) == Opcodes.ACC_PUBLIC);
+		assertThat(classNode.methods)
+				.filteredOn(method -> method.name.equals("<init>"))
+				.singleElement()
+				.matches(method -> (method.access & Opcodes.ACC_PUBLIC) != 0);
+	}
+
+	@Test
+	void testModifiedUtf8Names() {
+		ClassWriter classWriter = new ClassWriter(0);
+		classWriter.visit(Opcodes.V17, Opcodes.ACC_FINAL, "test/Ünïcödé$Ïnner", null, "java/lang/Object", null);
+		classWriter.visitInnerClass("test/Ünïcödé$Ïnner", "test/Ünïcödé", "Ïnner", Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC);
+		classWriter.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "fïeld\u0000€", "J", null, 1L).visitEnd();
+		classWriter.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "other", "D", null, 1D).visitEnd();
+		classWriter.visitEnd();
+
+		classTweaker.visitAccessWidener("test/Ünïcödé$Ïnner").visitField("fïeld\u0000€", "J", AccessWidenerVisitor.AccessType.MUTABLE, false);
+		byte[] patched = AccessFlagPatcher.patch(classTweaker, classWriter.toByteArray());
+		assertNotNull(patched);
+
+		ClassNode classNode = read(patched);
+		assertEquals(Opcodes.ACC_FINAL, classNode.access);
+		assertThat(classNode.fields).extracting(field -> field.access).containsExactly(Opcodes.ACC_PRIVATE, Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL);
+		assertThat(classNode.innerClasses).extracting(innerClass -> innerClass.access).containsExactly(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC);
+	}
+
+	@Test
+	void testRewrittenCallsAreNotPatched() throws IOException {
+		classTweaker.visitAccessWidener("test/MethodTests").visitMethod("privateMethod", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		assertNull(AccessFlagPatcher.patch(classTweaker, readClass("test/MethodTests")));
+	}
+
+	@Test
+	void testOtherClassTweaksAreNotPatched() throws IOException {
+		classTweaker.visitAccessWidener("test/FinalClass").visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		classTweaker.visitInjectedInterface("test/FinalClass", "java/lang/Runnable", false);
+		assertNull(AccessFlagPatcher.patch(classTweaker, readClass("test/FinalClass")));
+	}
+
+	@Test
+	void testPermittedSubclasses() {
+		ClassWriter classWriter = new ClassWriter(0);
+		classWriter.visit(Opcodes.V17, Opcodes.ACC_ABSTRACT, "test/Sealed", null, "java/lang/Object", null);
+		classWriter.visitPermittedSubclass("test/PermittedClass");
+		classWriter.visitEnd();
+		byte[] classBytes = classWriter.toByteArray();
+
+		classTweaker.visitAccessWidener("test/Sealed").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		byte[] patched = AccessFlagPatcher.patch(classTweaker, classBytes);
+		assertNotNull(patched);
+		assertThat(read(patched).permittedSubclasses).containsExactly("test/PermittedClass");
+
+		classTweaker.visitAccessWidener("test/Sealed").visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		assertNull(AccessFlagPatcher.patch(classTweaker, classBytes));
+
+		// Falls back to the visitors, which remove the attribute
+		ClassNode transformed = read(classTweaker.transform(classBytes).getBytes());
+		assertThat(transformed.permittedSubclasses).isNull();
+		assertEquals(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, transformed.access);
+	}
+
+	@Test
+	void testInvalidClassIsNotPatched() {
+		classTweaker.visitAccessWidener("test/FinalClass").visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		assertNull(AccessFlagPatcher.patch(classTweaker, new byte[] {1, 2, 3}));
+		assertNull(AccessFlagPatcher.patch(classTweaker, new byte[] {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0, 0, 52, 0, 2, 42}));
+	}
+
+	@Test
+	void testCorruptClassNameIsNotPatched() throws IOException {
+		classTweaker.visitAccessWidener("test/FinalClass").visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		byte[] classBytes = readClass("test/FinalClass");
+		int[] constantOffsets = new int[ClassFileUtils.readUnsignedShort(classBytes, ClassFileUtils.CONSTANT_POOL_COUNT)];
+		int header = ClassFileUtils.readConstantPool(classBytes, constantOffsets);
+		int nameIndex = ClassFileUtils.readUnsignedShort(classBytes, constantOffsets[ClassFileUtils.readUnsignedShort(classBytes, header + 2)] + 1);
+
+		// this_class pointing past the constant pool, at the unused index zero, and at a constant that isn't a class
+		for (int thisClass : new int[] {0xFFFF, 0, nameIndex}) {
+			byte[] corrupt = classBytes.clone();
+			ClassFileUtils.writeShort(corrupt, header + 2, thisClass);
+			assertNull(AccessFlagPatcher.patch(classTweaker, corrupt), "this_class " + thisClass);
+		}
+	}
+
+	private static byte[] readClass(String className) throws IOException {
+		ClassWriter classWriter = new ClassWriter(0);
+
+		try (InputStream classData = AccessFlagPatcherTest.class.getClassLoader().getResourceAsStream(className + ".class")) {
+			new ClassReader(Objects.requireNonNull(classData)).accept(classWriter, 0);
+		}
+
+		return classWriter.toByteArray();
+	}
+
+	private static ClassNode read(byte[] classBytes) {
+		ClassNode classNode = new ClassNode();
+		new ClassReader(classBytes).accept(classNode, 0);
+		return classNode;
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static net.fabricmc.classtweaker.utils.AccessUtils.makeFinalIfPrivate;
+import static net.fabricmc.classtweaker.utils.AccessUtils.makeProtected;
+import static net.fabricmc.classtweaker.utils.AccessUtils.makePublic;
+import static net.fabricmc.classtweaker.utils.AccessUtils.removeFinal;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+
+import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.impl.AccessWidenerImpl;
+import net.fabricmc.classtweaker.utils.AccessUtils;
+
+public class AccessUtilsTest {
+	private static final int[] ACCESS_BITS = {Opcodes.ACC_PUBLIC, Opcodes.ACC_PRIVATE, Opcodes.ACC_PROTECTED, Opcodes.ACC_STATIC, Opcodes.ACC_FINAL};
+	private static final int[] OWNER_ACCESS = {0, Opcodes.ACC_FINAL, Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, Opcodes.ACC_ENUM};
+	private static final String[] NAMES = {"<init>", "<clinit>", "method"};
+
+	@Test
+	void testApplyClass() {
+		forEachAccess((access, name, ownerAccess) -> {
+			assertApply(AccessWidenerImpl.ClassAccess.DEFAULT, AccessUtils.KIND_CLASS, access, access, name, ownerAccess);
+			assertApply(AccessWidenerImpl.ClassAccess.ACCESSIBLE, AccessUtils.KIND_CLASS, makePublic(access), access, name, ownerAccess);
+			assertApply(AccessWidenerImpl.ClassAccess.EXTENDABLE, AccessUtils.KIND_CLASS, makePublic(removeFinal(access)), access, name, ownerAccess);
+			assertApply(AccessWidenerImpl.ClassAccess.ACCESSIBLE_EXTENDABLE, AccessUtils.KIND_CLASS, makePublic(removeFinal(access)), access, name, ownerAccess);
+		});
+	}
+
+	@Test
+	void testApplyMethod() {
+		forEachAccess((access, name, ownerAccess) -> {
+			assertApply(AccessWidenerImpl.MethodAccess.DEFAULT, AccessUtils.KIND_METHOD, access, access, name, ownerAccess);
+			assertApply(AccessWidenerImpl.MethodAccess.ACCESSIBLE, AccessUtils.KIND_METHOD, makePublic(makeFinalIfPrivate(access, name, ownerAccess)), access, name, ownerAccess);
+			assertApply(AccessWidenerImpl.MethodAccess.EXTENDABLE, AccessUtils.KIND_METHOD, makeProtected(removeFinal(access)), access, name, ownerAccess);
+			assertApply(AccessWidenerImpl.MethodAccess.ACCESSIBLE_EXTENDABLE, AccessUtils.KIND_METHOD, makePublic(removeFinal(access)), access, name, ownerAccess);
+		});
+	}
+
+	@Test
+	void testApplyField() {
+		forEachAccess((access, name, ownerAccess) -> {
+			final boolean staticInterfaceField = (ownerAccess & Opcodes.ACC_INTERFACE) != 0 && (access & Opcodes.ACC_STATIC) != 0;
+
+			assertApply(AccessWidenerImpl.FieldAccess.DEFAULT, AccessUtils.KIND_FIELD, access, access, name, ownerAccess);
+			assertApply(AccessWidenerImpl.FieldAccess.ACCESSIBLE, AccessUtils.KIND_FIELD, makePublic(access), access, name, ownerAccess);
+			assertApply(AccessWidenerImpl.FieldAccess.MUTABLE, AccessUtils.KIND_FIELD, staticInterfaceField ? access : removeFinal(access), access, name, ownerAccess);
+			assertApply(AccessWidenerImpl.FieldAccess.ACCESSIBLE_MUTABLE, AccessUtils.KIND_FIELD, makePublic(staticInterfaceField ? access : removeFinal(access)), access, name, ownerAccess);
+		});
+	}
+
+	@Test
+	void testIgnoredBits() {
+		forEachAccess((access, name, ownerAccess) -> {
+			// Classes and methods can't be mutable, fields can't be extendable
+			assertEquals(access, AccessUtils.apply(AccessUtils.KIND_CLASS, AccessUtils.MUTABLE, access, name, ownerAccess));
+			assertEquals(access, AccessUtils.apply(AccessUtils.KIND_METHOD, AccessUtils.MUTABLE, access, name, ownerAccess));
+			assertEquals(access, AccessUtils.apply(AccessUtils.KIND_FIELD, AccessUtils.EXTENDABLE, access, name, ownerAccess));
+		});
+	}
+
+	private static void assertApply(AccessWidener.Access access, int kind, int expected, int flags, String name, int ownerAccess) {
+		final String message = String.format("%s %s 0x%x in 0x%x", access, name, flags, ownerAccess);
+		assertEquals(expected, access.apply(flags, name, ownerAccess), message);
+		assertEquals(expected, AccessUtils.apply(kind, access.getBits(), flags, name, ownerAccess), message);
+	}
+
+	private static void forEachAccess(AccessConsumer consumer) {
+		for (int combination = 0; combination < 1 << ACCESS_BITS.length; combination++) {
+			int access = 0;
+
+			for (int i = 0; i < ACCESS_BITS.length; i++) {
+				if ((combination & (1 << i)) != 0) {
+					access |= ACCESS_BITS[i];
+				}
+			}
+
+			for (int ownerAccess : OWNER_ACCESS) {
+				for (String name : NAMES) {
+					consumer.accept(access, name, ownerAccess);
+				}
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface AccessConsumer {
+		void accept(int access, String name, int ownerAccess);
+	}
+}
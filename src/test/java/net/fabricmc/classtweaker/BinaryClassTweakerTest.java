@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.api.BinaryClassTweakerReader;
+import net.fabricmc.classtweaker.api.BinaryClassTweakerWriter;
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.ClassTweakerReader;
+import net.fabricmc.classtweaker.api.ClassTweakerWriter;
+import net.fabricmc.classtweaker.api.EnumExtension;
+import net.fabricmc.classtweaker.api.InjectedInterface;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.api.visitor.EnumExtensionVisitor;
+import net.fabricmc.classtweaker.impl.AccessWidenerImpl;
+import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+import net.fabricmc.classtweaker.utils.EntryTriple;
+
+public class BinaryClassTweakerTest {
+	ClassTweakerImpl classTweaker = new ClassTweakerImpl();
+
+	@Test
+	void testRoundTripTestInputs() throws Exception {
+		read("AccessWidenerReaderTest_transitive.txt");
+		read("AccessWidenerReaderTest_enum.txt");
+		read("AccessWidenerReaderTest_interface.txt");
+
+		assertSameContents(classTweaker, BinaryClassTweakerReader.load(ByteBuffer.wrap(BinaryClassTweakerWriter.write(classTweaker))));
+	}
+
+	@Test
+	void testRoundTripEnumData() {
+		classTweaker.visitHeader("somenamespace");
+		EnumExtensionVisitor enumExtension = classTweaker.visitEnum("test/ComplexEnum", "ADDED", "(Ljava/lang/String;ILjava/lang/String;)V", "test", false);
+		enumExtension.visitOverride("hello", "net/fabricmc/classtweaker/EnumTestConstants", "hello", "(I)Z");
+		enumExtension.visitParameterConstants(new Object[]{"Hello w\u00f6rld!", 'c', (byte) 1, (short) -2, 3, 4L, 5.5F, -6.5D, true, null});
+		classTweaker.visitEnum("test/ComplexEnum", "OTHER", "(Ljava/lang/String;I)V", "other", false);
+
+		ClassTweaker binary = BinaryClassTweakerReader.load(ByteBuffer.wrap(BinaryClassTweakerWriter.write(classTweaker)));
+		assertSameContents(classTweaker, binary);
+
+		Object[] constants = ((EnumExtension.ConstantParameters) binary.getEnumExtensions("test.ComplexEnum").get("ADDED").getParameters()).getConstants();
+		assertArrayEquals(new Object[]{"Hello w\u00f6rld!", 'c', (byte) 1, (short) -2, 3, 4L, 5.5F, -6.5D, true, null}, constants);
+		assertNull(binary.getEnumExtensions("test/ComplexEnum").get("OTHER").getParameters());
+	}
+
+	@Test
+	void testLookups() {
+		classTweaker.visitHeader("somenamespace");
+		classTweaker.visitAccessWidener("a/b/C$Inner").visitMethod("method", "()V", AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		classTweaker.visitAccessWidener("a/b/C$Inner").visitField("field", "I", AccessWidenerVisitor.AccessType.MUTABLE, false);
+		classTweaker.visitAccessWidener("a/b/D").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+
+		ClassTweaker binary = BinaryClassTweakerReader.load(ByteBuffer.wrap(BinaryClassTweakerWriter.write(classTweaker)));
+
+		assertThat(binary.getTargets()).containsExactly("a.b.C$Inner", "a.b.C", "a.b.D");
+		assertThat(binary.getTargets().contains("a.b.C")).isTrue();
+		assertThat(binary.getTargets().contains("a.b.E")).isFalse();
+		assertThat(binary.isTarget("a/b/C")).isTrue();
+		assertThat(binary.isTarget("a/b/E")).isFalse();
+		assertThat(binary.hasTargetsInPackage("a/b/")).isTrue();
+		assertThat(binary.hasTargetsInPackage("a.c")).isFalse();
+		assertThat(binary.getClasses()).containsExactly("a/b/C$Inner", "a/b/D");
+
+		AccessWidener accessWidener = binary.getAccessWidener("a/b/C$Inner");
+		assertSame(AccessWidenerImpl.MethodAccess.EXTENDABLE, accessWidener.getMethodAccess(new EntryTriple("a/b/C$Inner", "method", "()V")));
+		assertThat(accessWidener.getMethodAccess(new EntryTriple("a/b/C$Inner", "method", "()I")).isChanged()).isFalse();
+		assertThat(accessWidener.getMethodAccess(new EntryTriple("a/b/D", "method", "()V")).isChanged()).isFalse();
+		assertThat(accessWidener.getFieldAccess(new EntryTriple("a/b/C$Inner", "field", "I")).isMutable()).isTrue();
+		assertSame(AccessWidenerImpl.MethodAccess.EXTENDABLE, accessWidener.getMethodAccess("method", "()V"));
+		assertThat(accessWidener.getMethodAccess("method", "()I").isChanged()).isFalse();
+		assertThat(accessWidener.getFieldAccess("field", "I").isMutable()).isTrue();
+		assertThat(accessWidener.getClassAccess().isExtendable()).isTrue();
+		assertThat(binary.getAccessWidener("a/b/E").getClassAccess().isChanged()).isFalse();
+		assertThat(binary.getEnumExtensions("a/b/D")).isEmpty();
+		assertThat(binary.getInjectedInterfaces("a/b/D")).isEmpty();
+	}
+
+	@Test
+	void testEmpty() {
+		ClassTweaker binary = BinaryClassTweakerReader.load(ByteBuffer.wrap(BinaryClassTweakerWriter.create().writeBytes()));
+		assertNull(binary.getNamespace());
+		assertThat(binary.getTargets()).isEmpty();
+		assertThat(binary.getAllAccessWideners()).isEmpty();
+	}
+
+	@Test
+	void testReadTextRoundTrip() throws Exception {
+		read("AccessWidenerReaderTest_transitive.txt");
+		read("AccessWidenerReaderTest_enum.txt");
+		read("AccessWidenerReaderTest_interface.txt");
+
+		// binary -> text -> ClassTweaker
+		ClassTweakerWriter textWriter = ClassTweakerWriter.create(ClassTweaker.CT_V1);
+		BinaryClassTweakerReader.create(textWriter).read(BinaryClassTweakerWriter.write(classTweaker));
+
+		ClassTweakerImpl fromText = new ClassTweakerImpl();
+		ClassTweakerReader.create(fromText).read(textWriter.writeString().getBytes(), "test");
+
+		assertSameContents(classTweaker, fromText);
+	}
+
+	@Test
+	void testWriterVisitor() throws Exception {
+		String content = readTestInput("AccessWidenerReaderTest_enum.txt");
+		read("AccessWidenerReaderTest_enum.txt");
+
+		BinaryClassTweakerWriter writer = BinaryClassTweakerWriter.create();
+		ClassTweakerReader.create(writer).read(content.getBytes(), "test");
+
+		assertArrayEquals(BinaryClassTweakerWriter.write(classTweaker), writer.writeBytes());
+	}
+
+	@Test
+	void testLoadFile(@TempDir Path tempDir) throws Exception {
+		read("AccessWidenerReaderTest_transitive.txt");
+
+		Path file = tempDir.resolve("test.ctb");
+		Files.write(file, BinaryClassTweakerWriter.write(classTweaker));
+
+		assertSameContents(classTweaker, BinaryClassTweakerReader.load(file));
+	}
+
+	@Test
+	void testInvalid() {
+		Exception e = assertThrows(IllegalArgumentException.class, () -> BinaryClassTweakerReader.load(ByteBuffer.wrap("classTweaker\tv1\tnamespace\n".getBytes())));
+		assertEquals("Not a binary class tweaker", e.getMessage());
+
+		byte[] bytes = BinaryClassTweakerWriter.write(classTweaker);
+		e = assertThrows(IllegalArgumentException.class, () -> BinaryClassTweakerReader.load(ByteBuffer.wrap(bytes, 0, bytes.length - 1).slice()));
+		assertEquals("Truncated binary class tweaker", e.getMessage());
+	}
+
+	@Test
+	void testTransformsSameAsText() throws Exception {
+		read("AccessWidenerReaderTest_enum.txt");
+		read("AccessWidenerReaderTest_interface.txt");
+		classTweaker.visitAccessWidener("test/MethodTests").visitMethod("privateMethod", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		classTweaker.visitAccessWidener("test/FieldTests").visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		EnumExtensionVisitor enumExtension = classTweaker.visitEnum("test/ComplexEnum", "ADDED", "(Ljava/lang/String;ILjava/lang/String;)V", "test", false);
+		enumExtension.visitOverride("hello", "net/fabricmc/classtweaker/EnumTestConstants", "hello", "(I)Z");
+		enumExtension.visitParameterConstants(new Object[]{"Hello world!"});
+
+		ClassTweaker binary = BinaryClassTweakerReader.load(ByteBuffer.wrap(BinaryClassTweakerWriter.write(classTweaker)));
+
+		for (String target : classTweaker.getTargets()) {
+			Map<String, byte[]> expectedGenerated = new HashMap<>();
+			Map<String, byte[]> actualGenerated = new HashMap<>();
+
+			byte[] expected = transform(classTweaker, target, expectedGenerated::put);
+			assertArrayEquals(expected, transform(binary, target, actualGenerated::put), target);
+			assertArrayEquals(expected, transformTargeted(binary, target), target);
+			assertThat(actualGenerated.keySet()).isEqualTo(expectedGenerated.keySet());
+
+			for (String name : expectedGenerated.keySet()) {
+				assertArrayEquals(expectedGenerated.get(name), actualGenerated.get(name), name);
+			}
+		}
+	}
+
+	private static byte[] transform(ClassTweaker classTweaker, String className, BiConsumer<String, byte[]> generatedClassConsumer) throws IOException {
+		try (InputStream classData = BinaryClassTweakerTest.class.getClassLoader().getResourceAsStream(className.replace('.', '/') + ".class")) {
+			ClassReader classReader = new ClassReader(Objects.requireNonNull(classData));
+			ClassWriter classWriter = new ClassWriter(0);
+			classReader.accept(classTweaker.createClassVisitor(Opcodes.ASM9, classWriter, generatedClassConsumer), 0);
+			return classWriter.toByteArray();
+		}
+	}
+
+	private static byte[] transformTargeted(ClassTweaker classTweaker, String className) throws IOException {
+		try (InputStream classData = BinaryClassTweakerTest.class.getClassLoader().getResourceAsStream(className.replace('.', '/') + ".class")) {
+			ClassReader classReader = new ClassReader(Objects.requireNonNull(classData));
+			ClassWriter classWriter = new ClassWriter(0);
+			classReader.accept(classTweaker.createClassVisitor(Opcodes.ASM9, classReader.getClassName(), classWriter, (name, bytes) -> { }), 0);
+			return classWriter.toByteArray();
+		}
+	}
+
+	static void assertSameContents(ClassTweaker expected, ClassTweaker actual) {
+		assertEquals(expected.getNamespace(), actual.getNamespace());
+		assertThat(actual.getTargets()).containsExactlyInAnyOrderElementsOf(expected.getTargets());
+		assertThat(actual.getClasses()).containsExactlyInAnyOrderElementsOf(expected.getClasses());
+
+		assertThat(actual.getAllAccessWideners()).containsOnlyKeys(expected.getAllAccessWideners().keySet());
+
+		for (String owner : expected.getAllAccessWideners().keySet()) {
+			AccessWidener expectedAccessWidener = expected.getAccessWidener(owner);
+			AccessWidener actualAccessWidener = actual.getAccessWidener(owner);
+
+			assertSame(expectedAccessWidener.getClassAccess(), actualAccessWidener.getClassAccess(), owner);
+			assertEquals(expectedAccessWidener.getAllMethodAccesses(), actualAccessWidener.getAllMethodAccesses(), owner);
+			assertEquals(expectedAccessWidener.getAllFieldAccesses(), actualAccessWidener.getAllFieldAccesses(), owner);
+
+			for (EntryTriple method : expectedAccessWidener.getAllMethodAccesses().keySet()) {
+				assertSame(expectedAccessWidener.getMethodAccess(method), actualAccessWidener.getMethodAccess(method));
+				assertSame(expectedAccessWidener.getMethodAccess(method), actualAccessWidener.getMethodAccess(method.getName(), method.getDesc()));
+			}
+
+			for (EntryTriple field : expectedAccessWidener.getAllFieldAccesses().keySet()) {
+				assertSame(expectedAccessWidener.getFieldAccess(field), actualAccessWidener.getFieldAccess(field));
+				assertSame(expectedAccessWidener.getFieldAccess(field), actualAccessWidener.getFieldAccess(field.getName(), field.getDesc()));
+			}
+		}
+
+		assertThat(actual.getAllEnumExtensions()).containsOnlyKeys(expected.getAllEnumExtensions().keySet());
+
+		for (String owner : expected.getAllEnumExtensions().keySet()) {
+			Map<String, EnumExtension> expectedEnumExtensions = expected.getEnumExtensions(owner);
+			Map<String, EnumExtension> actualEnumExtensions = actual.getEnumExtensions(owner);
+
+			assertThat(actualEnumExtensions).containsOnlyKeys(expectedEnumExtensions.keySet());
+
+			for (String name : expectedEnumExtensions.keySet()) {
+				EnumExtension expectedEnumExtension = expectedEnumExtensions.get(name);
+				EnumExtension actualEnumExtension = actualEnumExtensions.get(name);
+
+				assertEquals(expectedEnumExtension.getId(), actualEnumExtension.getId());
+				assertEquals(expectedEnumExtension.getTargetConstructor(), actualEnumExtension.getTargetConstructor());
+				// The hash code ends up in the transformed classes
+				assertEquals(expectedEnumExtension.hashCode(), actualEnumExtension.hashCode());
+			}
+		}
+
+		assertThat(actual.getAllInjectedInterfaces()).containsOnlyKeys(expected.getAllInjectedInterfaces().keySet());
+
+		for (String owner : expected.getAllInjectedInterfaces().keySet()) {
+			assertThat(interfaceNames(actual.getInjectedInterfaces(owner))).isEqualTo(interfaceNames(expected.getInjectedInterfaces(owner)));
+		}
+	}
+
+	private static Object interfaceNames(Set<InjectedInterface> injectedInterfaces) {
+		return injectedInterfaces.stream().map(InjectedInterface::getInterfaceName).sorted().collect(Collectors.toCollection(ArrayList::new));
+	}
+
+	private void read(String name) throws Exception {
+		ClassTweakerReader.create(classTweaker).read(readTestInput(name).getBytes(), "test");
+	}
+
+	private String readTestInput(String name) throws Exception {
+		URL resource = Objects.requireNonNull(getClass().getResource(name));
+		return new String(Files.readAllBytes(
+				Paths.get(resource.toURI())
+		));
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.classtweaker.api.BinaryClassTweakerReader;
+import net.fabricmc.classtweaker.api.BinaryClassTweakerWriter;
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.ClassTweakerDiff;
+import net.fabricmc.classtweaker.api.ClassTweakerReader;
+
+public class ClassTweakerDiffTest {
+	private static final String BASE = "classTweaker\tv1\tnamed\n"
+			+ "accessible\tclass\ta/Access\n"
+			+ "accessible\tmethod\ta/Outer$Inner\tmethod\t()V\n"
+			+ "mutable\tfield\ta/Field\tfield\tI\n"
+			+ "extend-enum\ta/Enum\tVALUE\t(Ljava/lang/String;ILjava/lang/String;)V\n"
+			+ "\tparams\t\"hello\"\n"
+			+ "inject-interface\ta/Interface\ta/I1\n"
+			+ "inject-interface\ta/Interface\ta/I2\n";
+
+	@Test
+	void testSame() {
+		ClassTweaker before = read(BASE);
+
+		assertThat(ClassTweakerDiff.compute(before, read(BASE))).isEmpty();
+		assertThat(ClassTweakerDiff.compute(before, before.freeze())).isEmpty();
+
+		// Entries that don't change anything, or are listed in another order
+		assertThat(ClassTweakerDiff.compute(before, read(BASE + "accessible\tmethod\ta/Outer$Inner\tmethod\t()V\n"))).isEmpty();
+		assertThat(ClassTweakerDiff.compute(before, read(BASE.replace("a/I1", "a/I3").replace("a/I2", "a/I1").replace("a/I3", "a/I2")))).isEmpty();
+	}
+
+	@Test
+	void testAccessChanges() {
+		ClassTweaker before = read(BASE);
+
+		assertThat(ClassTweakerDiff.compute(before, read(BASE + "extendable\tclass\ta/Access\n"))).containsExactly("a/Access");
+		assertThat(ClassTweakerDiff.compute(before, read(BASE + "accessible\tfield\ta/Field\tfield\tI\n"))).containsExactly("a/Field");
+		assertThat(ClassTweakerDiff.compute(before, read(BASE + "accessible\tfield\ta/Field\tother\tI\n"))).containsExactly("a/Field");
+		assertThat(ClassTweakerDiff.compute(before, read(BASE + "accessible\tclass\ta/New\n"))).containsExactly("a/New");
+		// Outer classes are affected too
+		assertThat(ClassTweakerDiff.compute(before, read(BASE + "extendable\tmethod\ta/Outer$Inner\tmethod\t()V\n"))).containsExactly("a/Outer$Inner", "a/Outer");
+		assertThat(ClassTweakerDiff.compute(read(BASE), read(BASE.replace("accessible\tclass\ta/Access\n", "")))).containsExactly("a/Access");
+	}
+
+	@Test
+	void testEnumChanges() {
+		ClassTweaker before = read(BASE);
+
+		assertThat(ClassTweakerDiff.compute(before, read(BASE.replace("\"hello\"", "\"world\"")))).containsExactly("a/Enum");
+		assertThat(ClassTweakerDiff.compute(before, read(BASE.replace("VALUE", "OTHER")))).containsExactly("a/Enum");
+		// The id of the source is part of the generated field
+		assertThat(ClassTweakerDiff.compute(before, read(BASE, "other"))).containsExactly("a/Enum");
+	}
+
+	@Test
+	void testInterfaceChanges() {
+		ClassTweaker before = read(BASE);
+
+		assertThat(ClassTweakerDiff.compute(before, read(BASE.replace("a/I2", "a/I3")))).containsExactly("a/Interface");
+		assertThat(ClassTweakerDiff.compute(before, read(BASE + "inject-interface\ta/Interface\ta/I3\n"))).containsExactly("a/Interface");
+	}
+
+	@Test
+	void testBinary() {
+		ClassTweaker before = BinaryClassTweakerReader.load(ByteBuffer.wrap(BinaryClassTweakerWriter.write(read(BASE))));
+
+		assertThat(ClassTweakerDiff.compute(before, read(BASE))).isEmpty();
+		assertThat(ClassTweakerDiff.compute(before, read(BASE + "extendable\tclass\ta/Access\n"))).containsExactly("a/Access");
+	}
+
+	private static ClassTweaker read(String content) {
+		return read(content, "test");
+	}
+
+	private static ClassTweaker read(String content, String id) {
+		ClassTweaker classTweaker = ClassTweaker.newInstance();
+		ClassTweakerReader.create(classTweaker).read(content.getBytes(StandardCharsets.UTF_8), id);
+		return classTweaker;
+	}
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.ClassTweakerJarTransformer;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.api.visitor.EnumExtensionVisitor;
+
+public class ClassTweakerJarTransformerTest {
+	private static final String[] CLASSES = {
+			"test/FinalClass",
+			"test/SimpleEnum",
+			"test/ComplexEnum",
+			"test/ComplexEnum$1",
+	};
+
+	@TempDir
+	Path tempDir;
+	ClassTweaker classTweaker = ClassTweaker.newInstance();
+	ForkJoinPool pool = new ForkJoinPool(4);
+	Path input;
+	// The uncompressed contents of the input jar
+	Map<String, byte[]> contents = new LinkedHashMap<>();
+
+	@BeforeEach
+	void setup() throws IOException {
+		classTweaker.visitAccessWidener("test/FinalClass").visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		EnumExtensionVisitor enumExtension = classTweaker.visitEnum("test/ComplexEnum", "ADDED", "(Ljava/lang/String;ILjava/lang/String;)V", "test", false);
+		enumExtension.visitOverride("hello", "net/fabricmc/classtweaker/EnumTestConstants", "hello", "(I)Z");
+		enumExtension.visitParameterConstants(new Object[]{"Hello world!"});
+
+		contents.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+		contents.put("assets/", new byte[0]);
+		contents.put("assets/data.txt", "stored".getBytes(StandardCharsets.UTF_8));
+
+		for (String name : CLASSES) {
+			contents.put(name + ".class", readClass(name));
+		}
+
+		input = tempDir.resolve("input.jar");
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(input))) {
+			for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+				ZipEntry zipEntry = new ZipEntry(entry.getKey());
+
+				if (entry.getKey().endsWith(".txt")) {
+					CRC32 crc = new CRC32();
+					crc.update(entry.getValue());
+					zipEntry.setMethod(ZipEntry.STORED);
+					zipEntry.setSize(entry.getValue().length);
+					zipEntry.setCrc(crc.getValue());
+				}
+
+				zos.putNextEntry(zipEntry);
+				zos.write(entry.getValue());
+				zos.closeEntry();
+			}
+		}
+	}
+
+	@AfterEach
+	void shutdown() {
+		pool.shutdownNow();
+	}
+
+	@Test
+	void testTransform() throws IOException {
+		Path output = tempDir.resolve("output.jar");
+		ClassTweakerJarTransformer.Result result = ClassTweakerJarTransformer.create(classTweaker, pool).transform(input, output);
+
+		Map<String, byte[]> generated = new HashMap<>();
+		Map<String, byte[]> expected = new LinkedHashMap<>();
+
+		for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+			String name = entry.getKey();
+
+			if (name.equals("test/FinalClass.class") || name.equals("test/ComplexEnum.class")) {
+				expected.put(name, classTweaker.transform(entry.getValue(), generated::put).getBytes());
+			} else {
+				expected.put(name, entry.getValue());
+			}
+
+			// Generated classes follow their enum
+			for (Map.Entry<String, byte[]> generatedClass : generated.entrySet()) {
+				expected.put(generatedClass.getKey() + ".class", generatedClass.getValue());
+			}
+
+			generated.clear();
+		}
+
+		assertThat(expected).hasSize(contents.size() + 1);
+		assertEquals(2, result.getTransformedClasses());
+		assertEquals(1, result.getGeneratedClasses());
+		assertEquals(contents.size() - 2, result.getCopiedEntries());
+
+		assertJarContents(expected, output);
+		assertCopiedRaw(output);
+	}
+
+	@Test
+	void testUtf8NamesWithoutFlag() throws IOException {
+		String className = "test/Ünïcödé";
+		ClassWriter classWriter = new ClassWriter(0);
+		classWriter.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL, className, null, "java/lang/Object", null);
+		classWriter.visitEnd();
+		byte[] classBytes = classWriter.toByteArray();
+		classTweaker.visitAccessWidener(className).visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+
+		Path unflagged = tempDir.resolve("unflagged.jar");
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(unflagged))) {
+			zos.putNextEntry(new ZipEntry(className + ".class"));
+			zos.write(classBytes);
+			zos.closeEntry();
+		}
+
+		// Like the many tools that write UTF-8 names without setting the flag
+		clearUtf8Flags(unflagged);
+		Path output = tempDir.resolve("output.jar");
+		ClassTweakerJarTransformer.Result result = ClassTweakerJarTransformer.create(classTweaker, pool).transform(unflagged, output);
+
+		assertEquals(1, result.getTransformedClasses());
+		assertJarContents(Collections.singletonMap(className + ".class", classTweaker.transform(classBytes).getBytes()), output);
+		// The name is kept as it was stored, without the flag
+		assertEquals(0, ByteBuffer.wrap(Files.readAllBytes(output)).order(ByteOrder.LITTLE_ENDIAN).getShort(6) & (1 << 11));
+	}
+
+	/**
+	 * Clears the UTF-8 flag of all local and central headers.
+	 */
+	private static void clearUtf8Flags(Path jar) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(jar)).order(ByteOrder.LITTLE_ENDIAN);
+		int end = buffer.limit() - 22;
+		int count = buffer.getShort(end + 10) & 0xFFFF;
+		int offset = buffer.getInt(end + 16);
+
+		for (int i = 0; i < count; i++) {
+			int localOffset = buffer.getInt(offset + 42);
+			buffer.putShort(offset + 8, (short) (buffer.getShort(offset + 8) & ~(1 << 11)));
+			buffer.putShort(localOffset + 6, (short) (buffer.getShort(localOffset + 6) & ~(1 << 11)));
+			offset += 46 + (buffer.getShort(offset + 28) & 0xFFFF) + (buffer.getShort(offset + 30) & 0xFFFF) + (buffer.getShort(offset + 32) & 0xFFFF);
+		}
+
+		Files.write(jar, buffer.array());
+	}
+
+	@Test
+	void testTransformInPlace() throws IOException {
+		ClassTweakerJarTransformer.create(classTweaker, pool).transform(input, input);
+
+		try (ZipFile zipFile = new ZipFile(input.toFile())) {
+			assertThat(zipFile.size()).isEqualTo(contents.size() + 1);
+		}
+
+		assertThat(Files.list(tempDir)).containsExactly(input);
+	}
+
+	@Test
+	void testNothingTargeted() throws IOException {
+		Path output = tempDir.resolve("output.jar");
+		ClassTweakerJarTransformer.Result result = ClassTweakerJarTransformer.create(ClassTweaker.newInstance(), pool).transform(input, output);
+
+		assertEquals(0, result.getTransformedClasses());
+		assertEquals(contents.size(), result.getCopiedEntries());
+		assertJarContents(contents, output);
+		assertCopiedRaw(output);
+	}
+
+	@Test
+	void testInvalidClass() throws IOException {
+		Path invalid = tempDir.resolve("invalid.jar");
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(invalid))) {
+			zos.putNextEntry(new ZipEntry("test/FinalClass.class"));
+			zos.write(new byte[]{1, 2, 3});
+			zos.closeEntry();
+		}
+
+		Path output = tempDir.resolve("output.jar");
+		assertThrows(RuntimeException.class, () -> ClassTweakerJarTransformer.create(classTweaker, pool).transform(invalid, output));
+		assertThat(Files.list(tempDir)).containsExactlyInAnyOrder(input, invalid);
+		assertThrows(IOException.class, () -> ClassTweakerJarTransformer.create(classTweaker, pool).transform(tempDir.resolve("missing.jar"), output));
+	}
+
+	@Test
+	void testIncremental() throws IOException {
+		Path previous = tempDir.resolve("previous.jar");
+		ClassTweakerJarTransformer.create(classTweaker, pool).transform(input, previous);
+
+		ClassTweaker changed = ClassTweaker.newInstance();
+		changed.visitAccessWidener("test/SimpleEnum").visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		EnumExtensionVisitor enumExtension = changed.visitEnum("test/ComplexEnum", "ADDED", "(Ljava/lang/String;ILjava/lang/String;)V", "test", false);
+		enumExtension.visitOverride("hello", "net/fabricmc/classtweaker/EnumTestConstants", "hello", "(I)Z");
+		enumExtension.visitParameterConstants(new Object[]{"Changed"});
+		enumExtension = changed.visitEnum("test/ComplexEnum", "OTHER", "(Ljava/lang/String;ILjava/lang/String;)V", "test", false);
+		enumExtension.visitOverride("hello", "net/fabricmc/classtweaker/EnumTestConstants", "hello", "(I)Z");
+		enumExtension.visitParameterConstants(new Object[]{"Other"});
+
+		Path full = tempDir.resolve("full.jar");
+		Path output = tempDir.resolve("output.jar");
+		ClassTweakerJarTransformer transformer = ClassTweakerJarTransformer.create(changed, pool);
+		transformer.transform(input, full);
+		ClassTweakerJarTransformer.Result result = transformer.transform(input, previous, classTweaker, output);
+
+		// FinalClass is restored from the input, and the classes generated for the old enum extension are removed
+		assertEquals(2, result.getTransformedClasses());
+		assertEquals(2, result.getGeneratedClasses());
+		assertJarContents(readJar(full), output);
+
+		// Transforming in place with the same class tweaker changes nothing
+		byte[] outputBytes = Files.readAllBytes(output);
+		result = transformer.transform(input, output, changed, output);
+		assertEquals(0, result.getTransformedClasses());
+		assertEquals(contents.size() + 2, result.getCopiedEntries());
+		assertArrayEquals(outputBytes, Files.readAllBytes(output));
+	}
+
+	@Test
+	void testIncrementalInputChanged() throws IOException {
+		Path previous = tempDir.resolve("previous.jar");
+		ClassTweakerJarTransformer.create(classTweaker, pool).transform(input, previous);
+
+		contents.put("assets/data.txt", "changed".getBytes(StandardCharsets.UTF_8));
+		contents.remove("test/SimpleEnum.class");
+		Path changedInput = tempDir.resolve("changed.jar");
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(changedInput))) {
+			for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+				zos.putNextEntry(new ZipEntry(entry.getKey()));
+				zos.write(entry.getValue());
+				zos.closeEntry();
+			}
+		}
+
+		Path full = tempDir.resolve("full.jar");
+		Path output = tempDir.resolve("output.jar");
+		ClassTweakerJarTransformer transformer = ClassTweakerJarTransformer.create(classTweaker, pool);
+		transformer.transform(changedInput, full);
+		ClassTweakerJarTransformer.Result result = transformer.transform(changedInput, previous, classTweaker, output);
+
+		assertEquals(0, result.getTransformedClasses());
+		assertJarContents(readJar(full), output);
+	}
+
+	@Test
+	void testIncrementalTargetedClassChanged() throws IOException {
+		Path previous = tempDir.resolve("previous.jar");
+		ClassTweakerJarTransformer.create(classTweaker, pool).transform(input, previous);
+
+		// The class tweaker is unchanged, but the input of two targeted classes is
+		contents.put("test/FinalClass.class", addField(contents.get("test/FinalClass.class")));
+		contents.put("test/ComplexEnum.class", addField(contents.get("test/ComplexEnum.class")));
+		Path changedInput = tempDir.resolve("changed.jar");
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(changedInput))) {
+			for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+				zos.putNextEntry(new ZipEntry(entry.getKey()));
+				zos.write(entry.getValue());
+				zos.closeEntry();
+			}
+		}
+
+		Path full = tempDir.resolve("full.jar");
+		Path output = tempDir.resolve("output.jar");
+		ClassTweakerJarTransformer transformer = ClassTweakerJarTransformer.create(classTweaker, pool);
+		transformer.transform(changedInput, full);
+		ClassTweakerJarTransformer.Result result = transformer.transform(changedInput, previous, classTweaker, output);
+
+		assertEquals(2, result.getTransformedClasses());
+		assertEquals(1, result.getGeneratedClasses());
+		assertJarContents(readJar(full), output);
+
+		// The transformed classes record the changed input, so they are reused from now on
+		result = transformer.transform(changedInput, output, classTweaker, output);
+		assertEquals(0, result.getTransformedClasses());
+		assertJarContents(readJar(full), output);
+	}
+
+	@Test
+	void testIncrementalNestedClassRemoved() throws IOException {
+		Path previous = tempDir.resolve("previous.jar");
+		ClassTweakerJarTransformer.create(classTweaker, pool).transform(input, previous);
+
+		// Follows the generated classes of the enum it is nested in, but was not generated
+		contents.remove("test/ComplexEnum$1.class");
+		Path changedInput = tempDir.resolve("changed.jar");
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(changedInput))) {
+			for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+				zos.putNextEntry(new ZipEntry(entry.getKey()));
+				zos.write(entry.getValue());
+				zos.closeEntry();
+			}
+		}
+
+		Path full = tempDir.resolve("full.jar");
+		Path output = tempDir.resolve("output.jar");
+		ClassTweakerJarTransformer transformer = ClassTweakerJarTransformer.create(classTweaker, pool);
+		transformer.transform(changedInput, full);
+		ClassTweakerJarTransformer.Result result = transformer.transform(changedInput, previous, classTweaker, output);
+
+		assertEquals(0, result.getTransformedClasses());
+		assertThat(readJar(output)).doesNotContainKey("test/ComplexEnum$1.class");
+		assertJarContents(readJar(full), output);
+	}
+
+	private static byte[] addField(byte[] classBytes) {
+		ClassWriter classWriter = new ClassWriter(0);
+		new ClassReader(classBytes).accept(classWriter, 0);
+		classWriter.visitField(Opcodes.ACC_PUBLIC, "addedField", "I", null, null).visitEnd();
+		return classWriter.toByteArray();
+	}
+
+	/**
+	 * Checks both the central directory, with {@link ZipFile}, and the local headers, with {@link ZipInputStream}.
+	 */
+	static void assertJarContents(Map<String, byte[]> expected, Path jar) throws IOException {
+		List<String> names = new ArrayList<>();
+
+		try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+			for (ZipEntry entry : Collections.list(zipFile.entries())) {
+				names.add(entry.getName());
+
+				try (InputStream is = zipFile.getInputStream(entry)) {
+					assertArrayEquals(expected.get(entry.getName()), is.readAllBytes(), entry.getName());
+				}
+			}
+		}
+
+		assertThat(names).containsExactlyElementsOf(expected.keySet());
+		names.clear();
+
+		try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(jar))) {
+			ZipEntry entry;
+
+			while ((entry = zis.getNextEntry()) != null) {
+				names.add(entry.getName());
+				assertArrayEquals(expected.get(entry.getName()), zis.readAllBytes(), entry.getName());
+			}
+		}
+
+		assertThat(names).containsExactlyElementsOf(expected.keySet());
+	}
+
+	private void assertCopiedRaw(Path output) throws IOException {
+		try (ZipFile inputFile = new ZipFile(input.toFile()); ZipFile outputFile = new ZipFile(output.toFile())) {
+			for (String name : new String[]{"META-INF/MANIFEST.MF", "assets/data.txt", "test/SimpleEnum.class"}) {
+				ZipEntry inputEntry = inputFile.getEntry(name);
+				ZipEntry outputEntry = outputFile.getEntry(name);
+				assertEquals(inputEntry.getMethod(), outputEntry.getMethod(), name);
+				assertEquals(inputEntry.getCompressedSize(), outputEntry.getCompressedSize(), name);
+				assertEquals(inputEntry.getCrc(), outputEntry.getCrc(), name);
+				assertEquals(inputEntry.getTime(), outputEntry.getTime(), name);
+			}
+		}
+	}
+
+	static Map<String, byte[]> readJar(Path jar) throws IOException {
+		Map<String, byte[]> contents = new LinkedHashMap<>();
+
+		try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+			for (ZipEntry entry : Collections.list(zipFile.entries())) {
+				try (InputStream is = zipFile.getInputStream(entry)) {
+					contents.put(entry.getName(), is.readAllBytes());
+				}
+			}
+		}
+
+		return contents;
+	}
+
+	static byte[] readClass(String name) throws IOException {
+		try (InputStream is = Objects.requireNonNull(ClassTweakerJarTransformerTest.class.getClassLoader().getResourceAsStream(name + ".class"), name)) {
+			return is.readAllBytes();
+		}
+	}
+}
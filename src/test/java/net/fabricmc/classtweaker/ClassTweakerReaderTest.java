@@ -27,25 +27,37 @@ import java.io.StringReader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
 
 import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.api.ClassTweaker;
 import net.fabricmc.classtweaker.api.ClassTweakerReader;
+import net.fabricmc.classtweaker.api.ClassTweakerWriter;
 import net.fabricmc.classtweaker.api.visitor.ClassTweakerVisitor;
 import net.fabricmc.classtweaker.impl.AccessWidenerImpl;
 import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
 import net.fabricmc.classtweaker.reader.ClassTweakerFormatException;
 import net.fabricmc.classtweaker.utils.EntryTriple;
+import net.fabricmc.classtweaker.visitors.TransitiveOnlyFilter;
 
 public class ClassTweakerReaderTest {
 	ClassTweakerImpl visitor = new ClassTweakerImpl();
@@ -557,6 +569,339 @@ public class ClassTweakerReaderTest {
 		}
 	}
 
+	/**
+	 * Tests that reading directly from bytes produces the same result as reading from a {@link BufferedReader}.
+	 */
+	@Nested
+	class ByteParsing {
+		@Test
+		void testReadsTestInputsLikeBufferedReader() throws Exception {
+			assertSameAsBufferedReader(readTestInput("AccessWidenerReaderTest_transitive.txt"));
+			assertSameAsBufferedReader(readTestInput("AccessWidenerReaderTest_enum.txt"));
+			assertSameAsBufferedReader(readTestInput("AccessWidenerReaderTest_interface.txt"));
+		}
+
+		@Test
+		void testLineEndings() throws Exception {
+			assertSameAsBufferedReader("accessWidener v1 namespace\r\naccessible class A\rextendable class B\n\naccessible field C f I");
+		}
+
+		@Test
+		void testV1Whitespace() throws Exception {
+			assertSameAsBufferedReader("accessWidener v1 namespace\n   accessible class A #comment\naccessible\u000Bclass\fB  \t\nACCESSIBLE class C");
+		}
+
+		@Test
+		void testV2Whitespace() throws Exception {
+			assertSameAsBufferedReader("accessWidener v2 namespace\ntransitive-accessible \tclass\t\tA   # comment\nEXTENDABLE class B\t");
+		}
+
+		@Test
+		void testNonAsciiNames() throws Exception {
+			assertSameAsBufferedReader("accessWidener v2 namespace\naccessible\tfield\tpkg/Kl\u00e4sse\t\u540d\u524d\tLpkg/\u00fcber;");
+			assertThat(visitor.getTargets()).containsOnly("pkg.Kl\u00e4sse");
+		}
+
+		@Test
+		void testErrors() {
+			assertSameError("accessWidener v1 namespace\n\n# comment\n\nERROR");
+			assertSameError("accessWidener v1 namespace\n   accessible class SomeClass");
+			assertSameError("accessWidener v1 namespace\naccessible field Class field I extra");
+			assertSameError("accessWidener v2 namespace\ntransitive-blergh class Class");
+			assertSameError("accessWidener v2 namespace\naccessible\u000Bclass Class");
+			assertSameError("classTweaker v1 namespace\nextend-enum test/ParamEnum Z (I)V");
+			assertSameError("classTweaker v1 namespace\nextend-enum test/ParamEnum Z (Ljava/lang/String;I)V\n\tblergh");
+		}
+
+		private void assertSameAsBufferedReader(String content) throws IOException {
+			ClassTweakerWriter expected = ClassTweakerWriter.create(ClassTweaker.CT_V1);
+			ClassTweakerReader.create(expected).read(new BufferedReader(new StringReader(content)), "test");
+
+			ClassTweakerWriter actual = ClassTweakerWriter.create(ClassTweaker.CT_V1);
+			ClassTweakerReader.create(ClassTweakerVisitor.forward(actual, visitor)).read(content.getBytes(StandardCharsets.UTF_8), "test");
+
+			assertEquals(expected.writeString(), actual.writeString());
+		}
+
+		private void assertSameError(String content) {
+			ClassTweakerFormatException expected = assertThrows(
+					ClassTweakerFormatException.class,
+					() -> ClassTweakerReader.create(new ClassTweakerImpl()).read(new BufferedReader(new StringReader(content)), "test")
+			);
+			ClassTweakerFormatException actual = assertThrows(
+					ClassTweakerFormatException.class,
+					() -> ClassTweakerReader.create(new ClassTweakerImpl()).read(content.getBytes(StandardCharsets.UTF_8), "test")
+			);
+			assertEquals(expected.getMessage(), actual.getMessage());
+			assertEquals(expected.getLineNumber(), actual.getLineNumber());
+		}
+	}
+
+	@Nested
+	class ReadAll {
+		private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		@AfterEach
+		void shutdown() {
+			executor.shutdownNow();
+		}
+
+		@Test
+		void testSameAsSequential() throws Exception {
+			assertSameAsSequential(
+					Function.identity(),
+					readTestInput("AccessWidenerReaderTest_transitive.txt"),
+					readTestInput("AccessWidenerReaderTest_enum.txt"),
+					readTestInput("AccessWidenerReaderTest_interface.txt"),
+					"accessWidener v1 somenamespace\naccessible class A\nextendable method A m ()V"
+			);
+			assertThat(visitor.getTargets()).contains("A", "test.ParamEnum");
+		}
+
+		@Test
+		void testManySources() {
+			String[] contents = new String[100];
+
+			for (int i = 0; i < contents.length; i++) {
+				contents[i] = "classTweaker v1 somenamespace\naccessible class pkg/Class" + i + "\nmutable field pkg/Class" + (i % 7) + " field" + i + " I\ninject-interface pkg/Class" + i + " pkg/Interface";
+			}
+
+			assertSameAsSequential(Function.identity(), contents);
+		}
+
+		@Test
+		void testFormatErrorStopsReading() {
+			assertSameAsSequential(
+					Function.identity(),
+					"accessWidener v1 somenamespace\naccessible class A",
+					"accessWidener v1 somenamespace\naccessible class B\n\nblergh class C",
+					"accessWidener v1 somenamespace\naccessible class D"
+			);
+			assertThat(visitor.getTargets()).containsOnly("A", "B");
+		}
+
+		@Test
+		void testVisitorErrors() {
+			assertSameAsSequential(
+					Function.identity(),
+					"accessWidener v1 somenamespace\naccessible class A",
+					"accessWidener v1 somenamespace\n\nmutable class B"
+			);
+			assertSameAsSequential(
+					Function.identity(),
+					"classTweaker v1 somenamespace\nextend-enum test/ParamEnum Z (Ljava/lang/String;I)V",
+					"classTweaker v1 somenamespace\nextend-enum test/ParamEnum Z (Ljava/lang/String;I)V"
+			);
+		}
+
+		@Test
+		void testNamespaceMismatch() {
+			List<ClassTweakerReader.Source> sources = Arrays.asList(
+					ClassTweakerReader.Source.of("accessWidener v1 somenamespace\naccessible class A".getBytes(StandardCharsets.UTF_8), "somenamespace", "first"),
+					ClassTweakerReader.Source.of("accessWidener v1 othernamespace\naccessible class B".getBytes(StandardCharsets.UTF_8), "somenamespace", "second")
+			);
+
+			assertFormatError(
+					"Namespace (othernamespace) does not match current runtime namespace (somenamespace)",
+					() -> reader.readAll(sources, executor)
+			);
+			assertThat(visitor.getTargets()).containsOnly("A");
+		}
+
+		@Test
+		void testSkippedEnum() {
+			// The filter skips the non-transitive enum, so its indented lines are rejected while reading
+			assertSameAsSequential(
+					TransitiveOnlyFilter::new,
+					"classTweaker v1 somenamespace\ntransitive-extend-enum test/ParamEnum Z (Ljava/lang/String;I)V\nextend-enum test/ParamEnum X (Ljava/lang/String;I)V\n\tparams 1"
+			);
+			assertSameAsSequential(
+					TransitiveOnlyFilter::new,
+					"classTweaker v1 somenamespace\nextend-enum test/ParamEnum X (Ljava/lang/String;I)V\n\tblergh"
+			);
+		}
+
+		private void assertSameAsSequential(Function<ClassTweakerVisitor, ClassTweakerVisitor> decorator, String... contents) {
+			ClassTweakerWriter expected = ClassTweakerWriter.create(ClassTweaker.CT_V1);
+			ClassTweakerReader sequentialReader = ClassTweakerReader.create(decorator.apply(ClassTweakerVisitor.forward(expected, new ClassTweakerImpl())));
+			RuntimeException expectedError = null;
+
+			try {
+				for (int i = 0; i < contents.length; i++) {
+					sequentialReader.read(contents[i].getBytes(StandardCharsets.UTF_8), "test" + i);
+				}
+			} catch (RuntimeException e) {
+				expectedError = e;
+			}
+
+			List<ClassTweakerReader.Source> sources = new ArrayList<>();
+
+			for (int i = 0; i < contents.length; i++) {
+				sources.add(ClassTweakerReader.Source.of(contents[i].getBytes(StandardCharsets.UTF_8), "test" + i));
+			}
+
+			ClassTweakerWriter actual = ClassTweakerWriter.create(ClassTweaker.CT_V1);
+			ClassTweakerReader parallelReader = ClassTweakerReader.create(decorator.apply(ClassTweakerVisitor.forward(actual, visitor)));
+
+			if (expectedError != null) {
+				RuntimeException actualError = assertThrows(RuntimeException.class, () -> parallelReader.readAll(sources, executor));
+				assertEquals(expectedError.toString(), actualError.toString());
+			} else {
+				parallelReader.readAll(sources, executor);
+			}
+
+			assertEquals(expected.writeString(), actual.writeString());
+		}
+	}
+
+	@Nested
+	class Cached {
+		@TempDir
+		Path cacheDir;
+
+		@Test
+		void testHitSameAsUncached() throws Exception {
+			ClassTweakerReader.Cache cache = ClassTweakerReader.Cache.create(cacheDir, Long.MAX_VALUE);
+			String content = readTestInput("AccessWidenerReaderTest_enum.txt") + "\ninject-interface test/FinalClass test/InterfaceTests";
+
+			String expected = readToString(ClassTweakerReader::create, content, "first");
+			assertEquals(expected, readToString(visitor -> ClassTweakerReader.create(visitor, cache), content, "first"));
+			assertEquals(0, cache.getHits());
+			assertEquals(1, cache.getMisses());
+
+			assertEquals(expected, readToString(visitor -> ClassTweakerReader.create(visitor, cache), content, "first"));
+			assertEquals(1, cache.getHits());
+
+			// The id is not part of the cache key
+			ClassTweakerImpl classTweaker = new ClassTweakerImpl();
+			ClassTweakerReader.create(classTweaker, cache).read(content.getBytes(StandardCharsets.UTF_8), "second");
+			assertEquals(2, cache.getHits());
+			assertThat(classTweaker.getEnumExtensions("test/ParamEnum").values()).allMatch(enumExtension -> enumExtension.getId().equals("second"));
+		}
+
+		@Test
+		void testNamespaceIsPartOfKey() {
+			ClassTweakerReader.Cache cache = ClassTweakerReader.Cache.create(cacheDir, Long.MAX_VALUE);
+			byte[] content = "accessWidener v1 somenamespace\naccessible class A".getBytes(StandardCharsets.UTF_8);
+
+			ClassTweakerReader.create(new ClassTweakerImpl(), cache).read(content, "somenamespace", "test");
+			ClassTweakerReader.create(new ClassTweakerImpl(), cache).read(content, "test");
+
+			assertFormatError(
+					"Namespace (somenamespace) does not match current runtime namespace (othernamespace)",
+					() -> ClassTweakerReader.create(new ClassTweakerImpl(), cache).read(content, "othernamespace", "test")
+			);
+			assertEquals(0, cache.getHits());
+			assertEquals(3, cache.getMisses());
+		}
+
+		@Test
+		void testErrorsAreNotCached() throws Exception {
+			ClassTweakerReader.Cache cache = ClassTweakerReader.Cache.create(cacheDir, Long.MAX_VALUE);
+			byte[] content = "accessWidener v1 somenamespace\naccessible class A\nblergh class B".getBytes(StandardCharsets.UTF_8);
+
+			for (int i = 0; i < 2; i++) {
+				ClassTweakerFormatException e = assertThrows(
+						ClassTweakerFormatException.class,
+						() -> ClassTweakerReader.create(visitor, cache).read(content, "test")
+				);
+				assertEquals(3, e.getLineNumber());
+			}
+
+			assertEquals(2, cache.getMisses());
+			assertThat(visitor.getTargets()).containsOnly("A");
+
+			try (Stream<Path> files = Files.list(cacheDir)) {
+				assertThat(files).isEmpty();
+			}
+		}
+
+		@Test
+		void testVisitorErrorsFromCache() {
+			ClassTweakerReader.Cache cache = ClassTweakerReader.Cache.create(cacheDir, Long.MAX_VALUE);
+			// Only the visitor rejects this, so the content itself can be cached
+			byte[] content = "accessWidener v1 somenamespace\naccessible class A\nmutable class B".getBytes(StandardCharsets.UTF_8);
+
+			for (int i = 0; i < 2; i++) {
+				assertFormatError(
+						"java.lang.UnsupportedOperationException: Classes cannot be made mutable",
+						() -> ClassTweakerReader.create(new ClassTweakerImpl(), cache).read(content, "test")
+				);
+			}
+
+			assertEquals(1, cache.getMisses());
+			assertEquals(1, cache.getHits());
+		}
+
+		@Test
+		void testCorruptEntry() throws Exception {
+			ClassTweakerReader.Cache cache = ClassTweakerReader.Cache.create(cacheDir, Long.MAX_VALUE);
+			String content = "accessWidener v1 somenamespace\naccessible class A";
+			String expected = readToString(visitor -> ClassTweakerReader.create(visitor, cache), content, "test");
+
+			try (Stream<Path> files = Files.list(cacheDir)) {
+				for (Path file : files.collect(Collectors.toList())) {
+					Files.write(file, new byte[]{1, 2, 3});
+				}
+			}
+
+			assertEquals(expected, readToString(visitor -> ClassTweakerReader.create(visitor, cache), content, "test"));
+			assertEquals(0, cache.getHits());
+			assertEquals(expected, readToString(visitor -> ClassTweakerReader.create(visitor, cache), content, "test"));
+			assertEquals(1, cache.getHits());
+		}
+
+		@Test
+		void testEviction() throws Exception {
+			ClassTweakerReader.Cache cache = ClassTweakerReader.Cache.create(cacheDir, 1000);
+
+			for (int i = 0; i < 50; i++) {
+				ClassTweakerReader.create(new ClassTweakerImpl(), cache).read(("accessWidener v1 somenamespace\naccessible class Class" + i).getBytes(StandardCharsets.UTF_8), "test");
+			}
+
+			long size = 0;
+
+			try (Stream<Path> files = Files.list(cacheDir)) {
+				for (Path file : files.collect(Collectors.toList())) {
+					size += Files.size(file);
+				}
+			}
+
+			assertThat(size).isBetween(1L, 1000L);
+		}
+
+		@Test
+		void testReadAll() throws Exception {
+			ClassTweakerReader.Cache cache = ClassTweakerReader.Cache.create(cacheDir, Long.MAX_VALUE);
+			ExecutorService executor = Executors.newFixedThreadPool(2);
+
+			try {
+				List<ClassTweakerReader.Source> sources = Arrays.asList(
+						ClassTweakerReader.Source.of(readTestInput("AccessWidenerReaderTest_transitive.txt").getBytes(StandardCharsets.UTF_8), "first"),
+						ClassTweakerReader.Source.of(readTestInput("AccessWidenerReaderTest_enum.txt").getBytes(StandardCharsets.UTF_8), "second")
+				);
+				ClassTweakerWriter expected = ClassTweakerWriter.create(ClassTweaker.CT_V1);
+				ClassTweakerReader.create(expected).readAll(sources, executor);
+
+				for (int i = 0; i < 2; i++) {
+					ClassTweakerWriter actual = ClassTweakerWriter.create(ClassTweaker.CT_V1);
+					ClassTweakerReader.create(actual, cache).readAll(sources, executor);
+					assertEquals(expected.writeString(), actual.writeString());
+				}
+
+				assertEquals(2, cache.getHits());
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+
+		private String readToString(Function<ClassTweakerVisitor, ClassTweakerReader> readerFactory, String content, String id) {
+			ClassTweakerWriter writer = ClassTweakerWriter.create(ClassTweaker.CT_V1);
+			readerFactory.apply(writer).read(content.getBytes(StandardCharsets.UTF_8), id);
+			return writer.writeString();
+		}
+	}
+
 	Map<String, AccessWidenerImpl.ClassAccess> getClasses() {
 		Map<String, AccessWidenerImpl.ClassAccess> classes = new HashMap<>();
 
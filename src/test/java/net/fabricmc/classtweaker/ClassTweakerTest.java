@@ -17,15 +17,40 @@
 package net.fabricmc.classtweaker;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import org.jetbrains.annotations.Nullable;
 import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
 
 import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.EnumExtension;
+import net.fabricmc.classtweaker.api.IncrementalClassTweaker;
+import net.fabricmc.classtweaker.api.InjectedInterface;
 import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
 import net.fabricmc.classtweaker.classvisitor.AccessWidenerClassVisitor;
+import net.fabricmc.classtweaker.classvisitor.ClassTweakerClassVisitor;
+import net.fabricmc.classtweaker.impl.AccessWidenerImpl;
 import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+import net.fabricmc.classtweaker.utils.EntryTriple;
 
 public class ClassTweakerTest {
 	ClassTweakerImpl widener = new ClassTweakerImpl();
@@ -69,4 +94,251 @@ public class ClassTweakerTest {
 		assertThat(widener.getAccessWidener("a/b/C").getClassAccess())
 				.matches(AccessWidener.Access::isAccessible);
 	}
+
+	@Test
+	void testTargetLookup() {
+		widener.visitAccessWidener("a/b/C$IC1$IC2").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		widener.visitInjectedInterface("a/d/E", "a/b/Iface", false);
+		widener.visitAccessWidener("F").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+
+		for (ClassTweaker classTweaker : new ClassTweaker[]{widener, widener.freeze()}) {
+			for (String name : new String[]{"a.b.C", "a/b/C", "a.b.C$IC1", "a/b/C$IC1$IC2", "a.d.E", "a/d/E", "F"}) {
+				assertTrue(classTweaker.isTarget(name), name);
+				assertTrue(classTweaker.isTarget(new StringBuilder(name)), name);
+			}
+
+			for (String name : new String[]{"", "a", "a.b", "a/b/", "a.b.D", "a.b.C$IC2", "a.b.C.IC1", "a.b.CX", "java/lang/Object", "a.d.E.F", "G"}) {
+				assertFalse(classTweaker.isTarget(name), name);
+			}
+
+			for (String name : new String[]{"a", "a.b", "a/b", "a/b/", "a.d"}) {
+				assertTrue(classTweaker.hasTargetsInPackage(name), name);
+			}
+
+			for (String name : new String[]{"", "java", "java/lang/", "a.b.C", "a.c", "a.b.c", "F"}) {
+				assertFalse(classTweaker.hasTargetsInPackage(name), name);
+			}
+		}
+	}
+
+	@Test
+	void testTargetLookupAfterRemoval() {
+		IncrementalClassTweaker incremental = IncrementalClassTweaker.create();
+		incremental.read("classTweaker v1 named\naccessible class a/b/C$I".getBytes(StandardCharsets.UTF_8), "first");
+		incremental.read("classTweaker v1 named\naccessible class a/d/E".getBytes(StandardCharsets.UTF_8), "second");
+		incremental.remove("first");
+
+		ClassTweaker classTweaker = incremental.getClassTweaker();
+		assertFalse(classTweaker.isTarget("a.b.C"));
+		assertFalse(classTweaker.hasTargetsInPackage("a.b"));
+		assertTrue(classTweaker.isTarget("a/d/E"));
+		assertTrue(classTweaker.hasTargetsInPackage("a"));
+	}
+
+	@Test
+	void testNameAndDescriptorLookup() {
+		AccessWidenerVisitor accessWidenerVisitor = widener.visitAccessWidener("a/b/C");
+		accessWidenerVisitor.visitMethod("method", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		accessWidenerVisitor.visitMethod("method", "()V", AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		accessWidenerVisitor.visitMethod("method", "(I)V", AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		accessWidenerVisitor.visitField("field", "I", AccessWidenerVisitor.AccessType.MUTABLE, false);
+
+		AccessWidener accessWidener = widener.getAccessWidener("a/b/C");
+
+		for (EntryTriple method : accessWidener.getAllMethodAccesses().keySet()) {
+			assertSame(accessWidener.getMethodAccess(method), accessWidener.getMethodAccess(method.getName(), method.getDesc()));
+		}
+
+		assertSame(accessWidener.getFieldAccess(new EntryTriple("a/b/C", "field", "I")), accessWidener.getFieldAccess("field", "I"));
+		assertSame(AccessWidenerImpl.MethodAccess.ACCESSIBLE_EXTENDABLE, accessWidener.getMethodAccess("method", "()V"));
+		assertThat(accessWidener.getMethodAccess("method", "()I").isChanged()).isFalse();
+		assertThat(accessWidener.getMethodAccess("field", "I").isChanged()).isFalse();
+		assertThat(accessWidener.getFieldAccess("method", "()V").isChanged()).isFalse();
+		assertThat(widener.getAccessWidener("a/b/D").getMethodAccess("method", "()V").isChanged()).isFalse();
+	}
+
+	@Test
+	void testNamesAreDeduplicated() {
+		// Equal, but different instances, like the strings read from each line of a file
+		widener.visitAccessWidener(new String("a/b/C")).visitMethod(new String("method"), new String("()V"), AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		widener.visitAccessWidener(new String("a/b/D")).visitField(new String("method"), new String("()V"), AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		widener.visitInjectedInterface(new String("a/b/C"), new String("a/b/D"), false);
+
+		EntryTriple method = widener.getAccessWidener("a/b/C").getAllMethodAccesses().keySet().iterator().next();
+		EntryTriple field = widener.getAccessWidener("a/b/D").getAllFieldAccesses().keySet().iterator().next();
+		assertSame(method.getName(), field.getName());
+		assertSame(method.getDesc(), field.getDesc());
+		assertSame(field.getOwner(), widener.getInjectedInterfaces("a/b/C").iterator().next().getInterfaceName());
+
+		// Each class tweaker has its own strings
+		ClassTweakerImpl other = new ClassTweakerImpl();
+		other.visitAccessWidener(new String("a/b/C")).visitMethod(new String("method"), new String("()V"), AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		assertNotSame(method.getDesc(), other.getAccessWidener("a/b/C").getAllMethodAccesses().keySet().iterator().next().getDesc());
+	}
+
+	/**
+	 * Implementations without the name and descriptor lookups fall back to the entry triple lookups.
+	 */
+	@Test
+	void testNameAndDescriptorLookupDefaults() {
+		AccessWidenerVisitor accessWidenerVisitor = widener.visitAccessWidener("a/b/C");
+		accessWidenerVisitor.visitMethod("method", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		accessWidenerVisitor.visitField("field", "I", AccessWidenerVisitor.AccessType.MUTABLE, false);
+
+		AccessWidener delegate = widener.getAccessWidener("a/b/C");
+		AccessWidener accessWidener = new AccessWidener() {
+			@Override
+			public Access getClassAccess() {
+				return delegate.getClassAccess();
+			}
+
+			@Override
+			public Access getMethodAccess(EntryTriple entryTriple) {
+				return delegate.getMethodAccess(entryTriple);
+			}
+
+			@Override
+			public Access getFieldAccess(EntryTriple entryTriple) {
+				return delegate.getFieldAccess(entryTriple);
+			}
+
+			@Override
+			public Map<EntryTriple, Access> getAllMethodAccesses() {
+				return delegate.getAllMethodAccesses();
+			}
+
+			@Override
+			public Map<EntryTriple, Access> getAllFieldAccesses() {
+				return delegate.getAllFieldAccesses();
+			}
+		};
+
+		assertSame(delegate.getMethodAccess("method", "()V"), accessWidener.getMethodAccess("method", "()V"));
+		assertSame(delegate.getFieldAccess("field", "I"), accessWidener.getFieldAccess("field", "I"));
+		assertThat(accessWidener.getMethodAccessBits("method", "()V")).isEqualTo(delegate.getMethodAccessBits("method", "()V"));
+		assertThat(accessWidener.getMethodAccess("method", "()I").isChanged()).isFalse();
+	}
+
+	@Test
+	void testClassVisitorOnlyContainsNeededStages() {
+		widener.visitAccessWidener("a/b/C$I").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		widener.visitInjectedInterface("a/b/D", "a/b/Iface", false);
+		ClassNode classNode = new ClassNode();
+
+		assertSame(classNode, widener.createClassVisitor(Opcodes.ASM9, "a/b/E", classNode, null));
+		assertSame(classNode, widener.createClassVisitor(Opcodes.ASM9, "a/b/C", classNode, null));
+
+		ClassVisitor accessWidenerVisitor = widener.createClassVisitor(Opcodes.ASM9, "a/b/C$I", classNode, null);
+		assertThat(accessWidenerVisitor).isInstanceOf(ClassTweakerClassVisitor.class);
+		assertSame(classNode, accessWidenerVisitor.getDelegate());
+
+		ClassVisitor interfaceInjectionVisitor = widener.createClassVisitor(Opcodes.ASM9, "a/b/D", classNode, null);
+		assertThat(interfaceInjectionVisitor).isInstanceOf(ClassTweakerClassVisitor.class);
+		assertSame(classNode, interfaceInjectionVisitor.getDelegate());
+	}
+
+	@Test
+	void testTransform() throws Exception {
+		ClassWriter classWriter = new ClassWriter(0);
+
+		try (InputStream classData = getClass().getClassLoader().getResourceAsStream("test/MethodTests.class")) {
+			new ClassReader(Objects.requireNonNull(classData)).accept(classWriter, 0);
+		}
+
+		byte[] classBytes = classWriter.toByteArray();
+
+		ClassTweaker.TransformResult result = widener.transform(classBytes);
+		assertFalse(result.isChanged());
+		assertSame(classBytes, result.getBytes());
+
+		widener.visitAccessWidener("test/MethodTests").visitMethod("privateMethod", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		result = widener.transform(classBytes);
+		assertTrue(result.isChanged());
+
+		ClassNode classNode = new ClassNode();
+		new ClassReader(result.getBytes()).accept(classNode, 0);
+		assertThat(classNode.methods)
+				.filteredOn(method -> method.name.equals("privateMethod"))
+				.singleElement()
+				.matches(method -> method.access == (Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL));
+	}
+
+	/**
+	 * Implementations that don't know about the class name overload of createClassVisitor keep working.
+	 */
+	@Test
+	void testClassVisitorWithoutClassNameOverload() throws Exception {
+		widener.visitAccessWidener("test/MethodTests").visitMethod("privateMethod", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		ClassTweaker classTweaker = new ForwardingClassTweaker(widener);
+
+		ClassVisitor classVisitor = classTweaker.createClassVisitor(Opcodes.ASM9, "a/b/E", new ClassNode(), null);
+		assertThat(classVisitor).isInstanceOf(ClassTweakerClassVisitor.class);
+
+		ClassWriter classWriter = new ClassWriter(0);
+
+		try (InputStream classData = getClass().getClassLoader().getResourceAsStream("test/MethodTests.class")) {
+			new ClassReader(Objects.requireNonNull(classData)).accept(classWriter, 0);
+		}
+
+		byte[] classBytes = classWriter.toByteArray();
+		assertArrayEquals(widener.transform(classBytes).getBytes(), classTweaker.transform(classBytes).getBytes());
+	}
+
+	private static final class ForwardingClassTweaker implements ClassTweaker {
+		private final ClassTweaker delegate;
+
+		private ForwardingClassTweaker(ClassTweaker delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public String getNamespace() {
+			return delegate.getNamespace();
+		}
+
+		@Override
+		public Set<String> getTargets() {
+			return delegate.getTargets();
+		}
+
+		@Override
+		public Set<String> getClasses() {
+			return delegate.getClasses();
+		}
+
+		@Override
+		public AccessWidener getAccessWidener(String className) {
+			return delegate.getAccessWidener(className);
+		}
+
+		@Override
+		public Map<String, AccessWidener> getAllAccessWideners() {
+			return delegate.getAllAccessWideners();
+		}
+
+		@Override
+		public Map<String, EnumExtension> getEnumExtensions(String className) {
+			return delegate.getEnumExtensions(className);
+		}
+
+		@Override
+		public Map<String, Map<String, EnumExtension>> getAllEnumExtensions() {
+			return delegate.getAllEnumExtensions();
+		}
+
+		@Override
+		public Set<InjectedInterface> getInjectedInterfaces(String className) {
+			return delegate.getInjectedInterfaces(className);
+		}
+
+		@Override
+		public Map<String, Set<InjectedInterface>> getAllInjectedInterfaces() {
+			return delegate.getAllInjectedInterfaces();
+		}
+
+		@Override
+		public ClassVisitor createClassVisitor(int api, @Nullable ClassVisitor classVisitor, @Nullable BiConsumer<String, byte[]> generatedClassConsumer) {
+			return delegate.createClassVisitor(api, classVisitor, generatedClassConsumer);
+		}
+	}
 }
@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.ClassTweakerReader;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.impl.AccessWidenerImpl;
+import net.fabricmc.classtweaker.utils.EntryTriple;
+
+public class ConcurrentClassTweakerTest {
+	private static final int THREADS = 8;
+
+	final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void testSameAsSequential() throws Exception {
+		List<byte[]> sources = new ArrayList<>();
+
+		for (int i = 0; i < 200; i++) {
+			sources.add(createSource(i));
+		}
+
+		ClassTweaker expected = ClassTweaker.newInstance();
+
+		for (int i = 0; i < sources.size(); i++) {
+			ClassTweakerReader.create(expected).read(sources.get(i), "source" + i);
+		}
+
+		// Visit the sources in a different order each time, the result must always match the sequential one
+		for (long seed = 0; seed < 5; seed++) {
+			ClassTweaker classTweaker = ClassTweaker.newConcurrentInstance();
+			List<Callable<Void>> tasks = new ArrayList<>();
+
+			for (int i = 0; i < sources.size(); i++) {
+				final int index = i;
+				tasks.add(() -> {
+					ClassTweakerReader.create(classTweaker.visitSource(index)).read(sources.get(index), "source" + index);
+					return null;
+				});
+			}
+
+			Collections.shuffle(tasks, new Random(seed));
+			invokeAll(tasks);
+
+			BinaryClassTweakerTest.assertSameContents(expected, classTweaker);
+			assertThat(classTweaker.getTargets()).containsExactlyElementsOf(expected.getTargets());
+			assertThat(classTweaker.getClasses()).containsExactlyElementsOf(expected.getClasses());
+		}
+	}
+
+	@Test
+	void testMergesAccessAtomically() throws Exception {
+		ClassTweaker classTweaker = ClassTweaker.newConcurrentInstance();
+		List<Callable<Void>> tasks = new ArrayList<>();
+
+		for (int i = 0; i < 1000; i++) {
+			final AccessWidenerVisitor.AccessType access = i % 2 == 0 ? AccessWidenerVisitor.AccessType.ACCESSIBLE : AccessWidenerVisitor.AccessType.EXTENDABLE;
+			final int index = i;
+			tasks.add(() -> {
+				AccessWidenerVisitor visitor = classTweaker.visitAccessWidener("a/Shared");
+				visitor.visitMethod("method", "()V", access, false);
+				visitor.visitMethod("method" + index, "()V", access, false);
+				return null;
+			});
+		}
+
+		invokeAll(tasks);
+
+		assertSame(AccessWidenerImpl.ClassAccess.ACCESSIBLE_EXTENDABLE, classTweaker.getAccessWidener("a/Shared").getClassAccess());
+		assertSame(AccessWidenerImpl.MethodAccess.ACCESSIBLE_EXTENDABLE, classTweaker.getAccessWidener("a/Shared").getMethodAccess(new EntryTriple("a/Shared", "method", "()V")));
+		assertSame(AccessWidenerImpl.MethodAccess.ACCESSIBLE_EXTENDABLE, classTweaker.getAccessWidener("a/Shared").getMethodAccess("method", "()V"));
+		assertEquals(1001, classTweaker.getAccessWidener("a/Shared").getAllMethodAccesses().size());
+		assertThat(classTweaker.getClasses()).containsExactly("a/Shared");
+	}
+
+	@Test
+	void testDuplicateEnumValueThrowsOnce() throws Exception {
+		ClassTweaker classTweaker = ClassTweaker.newConcurrentInstance();
+		AtomicInteger failures = new AtomicInteger();
+		List<Callable<Void>> tasks = new ArrayList<>();
+
+		for (int i = 0; i < 100; i++) {
+			tasks.add(() -> {
+				try {
+					classTweaker.visitEnum("a/Enum", "VALUE", "(Ljava/lang/String;I)V", "test", false);
+				} catch (RuntimeException e) {
+					failures.incrementAndGet();
+				}
+
+				return null;
+			});
+		}
+
+		invokeAll(tasks);
+
+		assertEquals(99, failures.get());
+		assertThat(classTweaker.getEnumExtensions("a/Enum")).containsOnlyKeys("VALUE");
+	}
+
+	@Test
+	void testDirectVisitsKeepOrder() {
+		ClassTweaker classTweaker = ClassTweaker.newConcurrentInstance();
+		classTweaker.visitSource(0).visitAccessWidener("a/Z");
+		classTweaker.visitAccessWidener("a/B$Inner");
+		classTweaker.visitInjectedInterface("a/A", "a/I", false);
+		classTweaker.visitAccessWidener("a/B$Inner");
+
+		assertThat(classTweaker.getTargets()).containsExactly("a.B$Inner", "a.B", "a.A", "a.Z");
+		assertThat(classTweaker.getClasses()).containsExactly("a/B$Inner", "a/A", "a/Z");
+		assertThat(classTweaker.getTargets().contains("a.B")).isTrue();
+		assertThat(classTweaker.getTargets().contains("a/B")).isFalse();
+	}
+
+	@Test
+	void testSourceIndex() {
+		assertThrows(IllegalArgumentException.class, () -> ClassTweaker.newConcurrentInstance().visitSource(-1));
+
+		ClassTweaker classTweaker = ClassTweaker.newInstance();
+		assertSame(classTweaker, classTweaker.visitSource(1));
+	}
+
+	/**
+	 * Transforms a few thousand synthetic classes on several threads at once, sharing one class tweaker.
+	 */
+	@Test
+	void testConcurrentTransform() throws Exception {
+		final int classCount = 3000;
+		List<byte[]> classes = new ArrayList<>();
+
+		for (int i = 0; i < classCount; i++) {
+			classes.add(createClass(i));
+		}
+
+		ClassTweaker sequential = ClassTweaker.newInstance();
+		ClassTweaker concurrent = ClassTweaker.newConcurrentInstance();
+
+		for (int i = 0; i < classCount; i++) {
+			visitRules(sequential, i);
+			visitRules(concurrent, i);
+		}
+
+		List<byte[]> expected = new ArrayList<>();
+
+		for (byte[] classBytes : classes) {
+			expected.add(sequential.transform(classBytes).getBytes());
+		}
+
+		for (ClassTweaker classTweaker : new ClassTweaker[]{sequential, concurrent, sequential.freeze()}) {
+			List<Callable<Void>> tasks = new ArrayList<>();
+
+			for (int thread = 0; thread < THREADS; thread++) {
+				final int offset = thread * classCount / THREADS;
+				tasks.add(() -> {
+					for (int i = 0; i < classCount; i++) {
+						final int index = (offset + i) % classCount;
+						assertArrayEquals(expected.get(index), classTweaker.transform(classes.get(index)).getBytes(), "class " + index);
+						assertEquals(index % 5 == 0 ? 1 : 0, classTweaker.getInjectedInterfaces(className(index)).size());
+					}
+
+					return null;
+				});
+			}
+
+			invokeAll(tasks);
+		}
+	}
+
+	@Test
+	void testLookupsDontAllocate() {
+		ClassTweaker classTweaker = ClassTweaker.newInstance();
+		classTweaker.visitEnum("a/Enum", "VALUE", "(Ljava/lang/String;I)V", "test", false);
+		classTweaker.visitInjectedInterface("a/Target", "a/I", false);
+
+		assertSame(classTweaker.getEnumExtensions("a/Enum"), classTweaker.getEnumExtensions("a.Enum"));
+		assertSame(classTweaker.getInjectedInterfaces("a/Target"), classTweaker.getInjectedInterfaces("a/Target"));
+		assertSame(classTweaker.getTargets(), classTweaker.getTargets());
+		assertSame(classTweaker.getAllEnumExtensions(), classTweaker.getAllEnumExtensions());
+		assertThrows(UnsupportedOperationException.class, () -> classTweaker.getEnumExtensions("a/Enum").clear());
+		assertThrows(UnsupportedOperationException.class, () -> classTweaker.getAllEnumExtensions().get("a/Enum").clear());
+	}
+
+	private void invokeAll(List<Callable<Void>> tasks) throws InterruptedException, ExecutionException {
+		for (Future<Void> future : executor.invokeAll(tasks)) {
+			future.get();
+		}
+	}
+
+	private static String className(int index) {
+		return "synthetic/pkg" + index % 10 + "/Class" + index;
+	}
+
+	private static void visitRules(ClassTweaker classTweaker, int index) {
+		final String className = className(index);
+
+		switch (index % 3) {
+		case 0:
+			// Only access flag changes
+			classTweaker.visitAccessWidener(className).visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+			classTweaker.visitAccessWidener(className).visitField("field", "I", AccessWidenerVisitor.AccessType.MUTABLE, false);
+			break;
+		case 1:
+			// Method calls to the private method are rewritten
+			classTweaker.visitAccessWidener(className).visitMethod("method", "()I", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+			break;
+		default:
+			break;
+		}
+
+		if (index % 5 == 0) {
+			classTweaker.visitInjectedInterface(className, "synthetic/Interface" + index % 7, false);
+		}
+	}
+
+	private static byte[] createClass(int index) {
+		final String className = className(index);
+		final ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		classWriter.visit(Opcodes.V17, Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null, "java/lang/Object", null);
+		classWriter.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "field", "I", null, null).visitEnd();
+
+		MethodVisitor methodVisitor = classWriter.visitMethod(Opcodes.ACC_PRIVATE, "method", "()I", null, null);
+		methodVisitor.visitCode();
+		methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+		methodVisitor.visitFieldInsn(Opcodes.GETFIELD, className, "field", "I");
+		methodVisitor.visitInsn(Opcodes.IRETURN);
+		methodVisitor.visitMaxs(0, 0);
+		methodVisitor.visitEnd();
+
+		methodVisitor = classWriter.visitMethod(0, "caller", "()I", null, null);
+		methodVisitor.visitCode();
+		methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+		methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, className, "method", "()I", false);
+		methodVisitor.visitInsn(Opcodes.IRETURN);
+		methodVisitor.visitMaxs(0, 0);
+		methodVisitor.visitEnd();
+
+		classWriter.visitEnd();
+		return classWriter.toByteArray();
+	}
+
+	private static byte[] createSource(int index) {
+		StringBuilder sb = new StringBuilder("classTweaker\tv1\tnamed\n");
+		sb.append("accessible\tclass\tpkg").append(index % 7).append("/C").append(index * 3 % 50).append("$Inner").append(index % 4).append('\n');
+		sb.append(index % 2 == 0 ? "accessible" : "extendable").append("\tmethod\tpkg/Shared\tmethod").append(index % 10).append("\t()V\n");
+		sb.append(index % 3 == 0 ? "accessible" : "mutable").append("\tfield\tpkg/Shared\tfield").append(index % 5).append("\tI\n");
+		sb.append("inject-interface\tpkg/Target").append(index % 20).append("\tpkg/I").append(index).append('\n');
+		sb.append("extend-enum\tpkg/Enum").append(index % 3).append("\tVALUE").append(index).append("\t(Ljava/lang/String;I)V\n");
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
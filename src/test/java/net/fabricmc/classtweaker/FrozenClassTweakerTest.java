@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.classtweaker.api.AccessWidener;
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.ClassTweakerReader;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.api.visitor.EnumExtensionVisitor;
+import net.fabricmc.classtweaker.impl.AccessWidenerImpl;
+import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+import net.fabricmc.classtweaker.utils.EntryTriple;
+
+public class FrozenClassTweakerTest {
+	ClassTweakerImpl classTweaker = new ClassTweakerImpl();
+
+	@Test
+	void testSameContents() throws Exception {
+		read("AccessWidenerReaderTest_transitive.txt");
+		read("AccessWidenerReaderTest_enum.txt");
+		read("AccessWidenerReaderTest_interface.txt");
+		EnumExtensionVisitor enumExtension = classTweaker.visitEnum("test/ComplexEnum", "ADDED", "(Ljava/lang/String;ILjava/lang/String;)V", "test", false);
+		enumExtension.visitOverride("hello", "net/fabricmc/classtweaker/EnumTestConstants", "hello", "(I)Z");
+		enumExtension.visitParameterConstants(new Object[]{"Hello world!"});
+
+		ClassTweaker frozen = classTweaker.freeze();
+		BinaryClassTweakerTest.assertSameContents(classTweaker, frozen);
+		assertThat(frozen.getTargets()).containsExactlyElementsOf(classTweaker.getTargets());
+		assertThat(frozen.getClasses()).containsExactlyElementsOf(classTweaker.getClasses());
+	}
+
+	@Test
+	void testLookups() {
+		classTweaker.visitHeader("somenamespace");
+		classTweaker.visitAccessWidener("a/b/C$Inner").visitMethod("method", "()V", AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		classTweaker.visitAccessWidener("a/b/C$Inner").visitField("field", "I", AccessWidenerVisitor.AccessType.MUTABLE, false);
+		classTweaker.visitAccessWidener("a/b/D").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		classTweaker.visitAccessWidener("a/b/D").visitMethod("method", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		classTweaker.visitInjectedInterface("a/b/E", "a/b/I", false);
+
+		ClassTweaker frozen = classTweaker.freeze();
+
+		assertEquals("somenamespace", frozen.getNamespace());
+		assertThat(frozen.getTargets()).containsExactly("a.b.C$Inner", "a.b.C", "a.b.D", "a.b.E");
+		assertThat(frozen.getTargets().contains("a.b.C")).isTrue();
+		assertThat(frozen.getTargets().contains("a/b/C")).isFalse();
+		assertThat(frozen.getClasses()).containsExactly("a/b/C$Inner", "a/b/D", "a/b/E");
+
+		AccessWidener accessWidener = frozen.getAccessWidener("a/b/C$Inner");
+		assertSame(AccessWidenerImpl.MethodAccess.EXTENDABLE, accessWidener.getMethodAccess(new EntryTriple("a/b/C$Inner", "method", "()V")));
+		assertSame(AccessWidenerImpl.MethodAccess.EXTENDABLE, accessWidener.getMethodAccess("method", "()V"));
+		assertThat(accessWidener.getMethodAccess(new EntryTriple("a/b/D", "method", "()V")).isChanged()).isFalse();
+		assertThat(accessWidener.getMethodAccess("method", "()I").isChanged()).isFalse();
+		assertThat(accessWidener.getMethodAccess("field", "I").isChanged()).isFalse();
+		assertThat(accessWidener.getFieldAccess("field", "I").isMutable()).isTrue();
+		assertThat(accessWidener.getClassAccess().isExtendable()).isTrue();
+		assertSame(AccessWidenerImpl.MethodAccess.ACCESSIBLE, frozen.getAccessWidener("a/b/D").getMethodAccess("method", "()V"));
+
+		// Classes without an access widener
+		assertThat(frozen.getAccessWidener("a/b/E").getClassAccess().isChanged()).isFalse();
+		assertThat(frozen.getAccessWidener("a/b/F").getMethodAccess("method", "()V").isChanged()).isFalse();
+		assertThat(frozen.getEnumExtensions("a/b/D")).isEmpty();
+		assertThat(frozen.getInjectedInterfaces("a/b/D")).isEmpty();
+		assertThat(frozen.getInjectedInterfaces("a/b/E")).hasSize(1);
+	}
+
+	@Test
+	void testEmpty() {
+		ClassTweaker frozen = classTweaker.freeze();
+		assertThat(frozen.getNamespace()).isNull();
+		assertThat(frozen.getTargets()).isEmpty();
+		assertThat(frozen.getAllAccessWideners()).isEmpty();
+		assertThat(frozen.getAccessWidener("a/b/C").getClassAccess().isChanged()).isFalse();
+	}
+
+	@Test
+	void testIsSnapshot() {
+		classTweaker.visitAccessWidener("a/b/C").visitField("field", "I", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		EnumExtensionVisitor enumExtension = classTweaker.visitEnum("a/b/E", "ADDED", "(Ljava/lang/String;I)V", "test", false);
+		ClassTweaker frozen = classTweaker.freeze();
+		int enumHashCode = frozen.getEnumExtensions("a/b/E").get("ADDED").hashCode();
+
+		classTweaker.visitAccessWidener("a/b/C").visitField("field", "I", AccessWidenerVisitor.AccessType.MUTABLE, false);
+		classTweaker.visitAccessWidener("a/b/D").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		enumExtension.visitParameterConstants(new Object[]{"changed"});
+
+		assertThat(frozen.getAccessWidener("a/b/C").getFieldAccess("field", "I").isMutable()).isFalse();
+		assertThat(frozen.getClasses()).containsExactly("a/b/C", "a/b/E");
+		assertEquals(enumHashCode, frozen.getEnumExtensions("a/b/E").get("ADDED").hashCode());
+		assertNotEquals(enumHashCode, classTweaker.getEnumExtensions("a/b/E").get("ADDED").hashCode());
+	}
+
+	@Test
+	void testReadOnly() {
+		classTweaker.visitAccessWidener("a/b/C").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		classTweaker.visitEnum("a/b/E", "ADDED", "(Ljava/lang/String;I)V", "test", false);
+		ClassTweaker frozen = classTweaker.freeze();
+
+		assertSame(frozen, frozen.freeze());
+		assertThrows(UnsupportedOperationException.class, () -> frozen.visitAccessWidener("a/b/C"));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.visitInjectedInterface("a/b/C", "a/b/I", false));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.getClasses().add("a/b/D"));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.getEnumExtensions("a/b/E").clear());
+
+		Iterator<String> iterator = frozen.getTargets().iterator();
+		iterator.next();
+		assertThrows(UnsupportedOperationException.class, iterator::remove);
+	}
+
+	/**
+	 * Checks that a class tweaker with 100k rules keeps every entry when frozen, and stores each name and descriptor
+	 * only once. The heap used before and after freezing is compared by FootprintBenchmark.
+	 */
+	@Test
+	void testFootprint() {
+		for (int i = 0; i < 100_000; i++) {
+			AccessWidenerVisitor accessWidener = classTweaker.visitAccessWidener("net/minecraft/pkg" + (i % 40) + "/Class" + (i % 20_000));
+
+			switch (i % 5) {
+			case 0:
+				accessWidener.visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+				break;
+			case 1:
+			case 2:
+				accessWidener.visitMethod("method" + i, "(ILnet/minecraft/pkg" + (i % 40) + "/Class" + (i % 1000) + ";)V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+				break;
+			default:
+				accessWidener.visitField("field" + i, "Lnet/minecraft/pkg" + (i % 40) + "/Class" + (i % 1000) + ";", AccessWidenerVisitor.AccessType.MUTABLE, false);
+			}
+		}
+
+		ClassTweaker frozen = classTweaker.freeze();
+		Set<String> descriptors = new HashSet<>();
+		Set<String> descriptorInstances = Collections.newSetFromMap(new IdentityHashMap<>());
+		int methods = 0;
+		int fields = 0;
+
+		for (AccessWidener accessWidener : frozen.getAllAccessWideners().values()) {
+			for (EntryTriple entry : accessWidener.getAllMethodAccesses().keySet()) {
+				descriptors.add(entry.getDesc());
+				descriptorInstances.add(entry.getDesc());
+				methods++;
+			}
+
+			for (EntryTriple entry : accessWidener.getAllFieldAccesses().keySet()) {
+				descriptors.add(entry.getDesc());
+				descriptorInstances.add(entry.getDesc());
+				fields++;
+			}
+		}
+
+		assertThat(frozen.getClasses()).hasSize(20_000);
+		assertThat(methods).isEqualTo(40_000);
+		assertThat(fields).isEqualTo(40_000);
+		// 400 method and 400 field descriptors, each shared by the 100 members that use it
+		assertThat(descriptors).hasSize(800);
+		assertThat(descriptorInstances).hasSize(descriptors.size());
+	}
+
+	@Test
+	void testMightTarget() {
+		for (int i = 0; i < 3000; i++) {
+			classTweaker.visitAccessWidener("net/minecraft/pkg" + (i % 40) + "/Class" + i).visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		}
+
+		for (double falsePositiveRate : new double[]{0.01, 0.001}) {
+			ClassTweaker frozen = classTweaker.freeze(falsePositiveRate);
+
+			for (String target : classTweaker.getTargets()) {
+				assertThat(frozen.mightTarget(target)).isTrue();
+				assertThat(frozen.mightTarget(target.replace('.', '/'))).isTrue();
+			}
+
+			int falsePositives = 0;
+
+			for (int i = 3000; i < 63000; i++) {
+				if (frozen.mightTarget("net/minecraft/pkg" + (i % 40) + "/Class" + i)) {
+					falsePositives++;
+				}
+			}
+
+			assertThat(falsePositives / 60000.0).as("False positive rate").isLessThan(falsePositiveRate * 1.5);
+			assertSame(frozen, frozen.freeze(falsePositiveRate));
+		}
+
+		assertThat(classTweaker.mightTarget("net/minecraft/pkg0/Class0")).isTrue();
+		assertThat(classTweaker.mightTarget("net/minecraft/pkg0/Class1")).isFalse();
+		assertThrows(IllegalArgumentException.class, () -> classTweaker.freeze(0));
+		assertThrows(IllegalArgumentException.class, () -> classTweaker.freeze(1));
+	}
+
+	@Test
+	void testMightTargetEmpty() {
+		ClassTweaker frozen = classTweaker.freeze();
+		assertThat(frozen.mightTarget("a/b/C")).isFalse();
+		assertThat(frozen.mightTarget("")).isFalse();
+	}
+
+	private void read(String name) throws Exception {
+		URL resource = Objects.requireNonNull(getClass().getResource(name));
+		ClassTweakerReader.create(classTweaker).read(Files.readAllBytes(Paths.get(resource.toURI())), "test");
+	}
+}
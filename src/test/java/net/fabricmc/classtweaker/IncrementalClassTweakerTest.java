@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.ClassTweakerReader;
+import net.fabricmc.classtweaker.api.IncrementalClassTweaker;
+import net.fabricmc.classtweaker.impl.AccessWidenerImpl;
+import net.fabricmc.classtweaker.utils.EntryTriple;
+
+public class IncrementalClassTweakerTest {
+	IncrementalClassTweaker incremental = IncrementalClassTweaker.create();
+
+	@Test
+	void testSameAsFullRead() {
+		Random random = new Random(42);
+		Map<String, byte[]> sources = new LinkedHashMap<>();
+
+		for (int i = 0; i < 30; i++) {
+			sources.put("source" + i, createSource(i, random));
+			incremental.read(sources.get("source" + i), "source" + i);
+		}
+
+		assertSameAsFullRead(sources);
+
+		for (int step = 0; step < 100; step++) {
+			int index = random.nextInt(30);
+			String id = "source" + index;
+
+			if (random.nextInt(5) == 0) {
+				sources.remove(id);
+				incremental.remove(id);
+			} else {
+				byte[] content = createSource(index, random);
+				// A re-read source keeps its position, a new source is read last
+				sources.put(id, content);
+				incremental.read(content, id);
+			}
+
+			assertSameAsFullRead(sources);
+		}
+	}
+
+	@Test
+	void testChangedTargets() {
+		incremental.read(bytes("accessWidener v2 named\naccessible method a/B$C method ()V\naccessible class a/D"), "first");
+		incremental.read(bytes("accessWidener v2 named\naccessible method a/B$C method ()V\naccessible class a/E"), "second");
+
+		assertThat(incremental.read(bytes("accessWidener v2 named\naccessible method a/B$C method ()V\naccessible class a/D"), "first")).isEmpty();
+		assertThat(incremental.read(bytes("accessWidener v2 named\naccessible method a/B$C method ()V\naccessible class a/D\nmutable field a/D field I"), "first"))
+				.containsExactly("a.D");
+		assertThat(incremental.read(bytes("accessWidener v2 named\naccessible class a/D\nmutable field a/D field I"), "first"))
+				.containsExactly("a.B$C", "a.B");
+
+		// The method is still made accessible by the second source
+		assertSame(AccessWidenerImpl.MethodAccess.ACCESSIBLE, incremental.getClassTweaker().getAccessWidener("a/B$C").getMethodAccess("method", "()V"));
+		assertThat(incremental.getSourceIds("a/B$C")).containsExactly("second");
+
+		assertThat(incremental.remove("second")).containsExactly("a.B$C", "a.B", "a.E");
+		assertThat(incremental.getClassTweaker().getTargets()).containsExactly("a.D");
+		assertThat(incremental.getClassTweaker().getClasses()).containsExactly("a/D");
+		assertThat(incremental.remove("second")).isEmpty();
+	}
+
+	@Test
+	void testFailedReadChangesNothing() {
+		incremental.read(bytes("classTweaker v1 named\nextend-enum a/Enum A (Ljava/lang/String;I)V"), "first");
+		incremental.read(bytes("classTweaker v1 named\nextend-enum a/Enum B (Ljava/lang/String;I)V"), "second");
+
+		assertThrows(RuntimeException.class, () -> incremental.read(bytes("classTweaker v1 named\nextend-enum a/Enum A (Ljava/lang/String;I)V"), "second"));
+		assertThrows(RuntimeException.class, () -> incremental.read(bytes("classTweaker v1 named\ninvalid"), "second"));
+		assertThrows(RuntimeException.class, () -> incremental.read(bytes("classTweaker v1 other\naccessible class a/B"), "third"));
+
+		assertThat(incremental.getClassTweaker().getEnumExtensions("a/Enum")).containsOnlyKeys("A", "B");
+		assertThat(incremental.getSourceIds()).containsExactly("first", "second");
+		assertThat(incremental.getSource("second").getEnumExtensions("a/Enum")).containsOnlyKeys("B");
+	}
+
+	@Test
+	void testSources() {
+		incremental.read(bytes("accessWidener v2 named\naccessible method a/B method ()V\nextendable method a/B method ()V"), "first");
+		incremental.read(bytes("accessWidener v2 named\naccessible method a/B method ()V"), "second");
+
+		ClassTweaker first = incremental.getSource("first");
+		assertSame(AccessWidenerImpl.MethodAccess.ACCESSIBLE_EXTENDABLE, first.getAccessWidener("a/B").getMethodAccess(new EntryTriple("a/B", "method", "()V")));
+		assertSame(AccessWidenerImpl.MethodAccess.ACCESSIBLE, incremental.getSource("second").getAccessWidener("a/B").getMethodAccess(new EntryTriple("a/B", "method", "()V")));
+		assertThat(incremental.getSourceIds("a/B")).containsExactly("first", "second");
+		assertNull(incremental.getSource("third"));
+		assertThrows(UnsupportedOperationException.class, () -> first.visitAccessWidener("a/C"));
+	}
+
+	private void assertSameAsFullRead(Map<String, byte[]> sources) {
+		ClassTweaker expected = ClassTweaker.newInstance();
+
+		for (Map.Entry<String, byte[]> entry : sources.entrySet()) {
+			ClassTweakerReader.create(expected).read(entry.getValue(), entry.getKey());
+		}
+
+		BinaryClassTweakerTest.assertSameContents(expected, incremental.getClassTweaker());
+		assertThat(incremental.getSourceIds()).containsExactlyElementsOf(sources.keySet());
+	}
+
+	private static byte[] createSource(int index, Random random) {
+		StringBuilder sb = new StringBuilder("classTweaker\tv1\tnamed\n");
+		String[] accesses = {"accessible", "extendable"};
+
+		for (int i = random.nextInt(10); i >= 0; i--) {
+			sb.append("accessible\tclass\tpkg/C").append(random.nextInt(20)).append("$Inner").append(random.nextInt(3)).append('\n');
+			sb.append(accesses[random.nextInt(2)]).append("\tmethod\tpkg/C").append(random.nextInt(20)).append("\tmethod").append(random.nextInt(3)).append("\t()V\n");
+			sb.append(random.nextBoolean() ? "accessible" : "mutable").append("\tfield\tpkg/C").append(random.nextInt(20)).append("\tfield").append(random.nextInt(3)).append("\tI\n");
+		}
+
+		if (random.nextBoolean()) {
+			sb.append("inject-interface\tpkg/C").append(random.nextInt(20)).append("\tpkg/I").append(random.nextInt(3)).append('\n');
+		}
+
+		// The value names are unique to the source index, and sources are only ever replaced by one with the same index
+		sb.append("extend-enum\tpkg/Enum").append(random.nextInt(3)).append("\tVALUE").append(index).append("_").append(random.nextInt(3)).append("\t(Ljava/lang/String;I)V\n");
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] bytes(String content) {
+		return content.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.TransformCache;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.api.visitor.EnumExtensionVisitor;
+
+class TransformCacheTest {
+	@TempDir
+	Path cacheDir;
+	ClassTweaker classTweaker = ClassTweaker.newInstance();
+
+	@BeforeEach
+	void setup() {
+		classTweaker.visitAccessWidener("test/FinalClass").visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		classTweaker.visitAccessWidener("test/MethodTests").visitMethod("privateMethod", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		classTweaker.visitInjectedInterface("test/PackagePrivateClass", "java/lang/Runnable", false);
+		EnumExtensionVisitor enumExtension = classTweaker.visitEnum("test/ComplexEnum", "ADDED", "(Ljava/lang/String;ILjava/lang/String;)V", "test", false);
+		enumExtension.visitOverride("hello", "net/fabricmc/classtweaker/EnumTestConstants", "hello", "(I)Z");
+		enumExtension.visitParameterConstants(new Object[]{"Hello world!"});
+	}
+
+	@Test
+	void testHitSameAsUncached() throws IOException {
+		TransformCache cache = TransformCache.create(cacheDir, Long.MAX_VALUE);
+
+		for (String className : new String[]{"test/FinalClass", "test/MethodTests", "test/PackagePrivateClass", "test/ComplexEnum"}) {
+			byte[] classBytes = readClass(className);
+			Map<String, byte[]> expectedGenerated = new LinkedHashMap<>();
+			ClassTweaker.TransformResult expected = classTweaker.transform(classBytes, expectedGenerated::put);
+			assertTrue(expected.isChanged(), className);
+
+			for (int i = 0; i < 2; i++) {
+				Map<String, byte[]> generated = new LinkedHashMap<>();
+				ClassTweaker.TransformResult actual = cache.transform(classTweaker, classBytes, generated::put);
+
+				assertTrue(actual.isChanged());
+				assertArrayEquals(expected.getBytes(), actual.getBytes(), className);
+				assertThat(generated).containsOnlyKeys(expectedGenerated.keySet());
+
+				for (Map.Entry<String, byte[]> entry : expectedGenerated.entrySet()) {
+					assertArrayEquals(entry.getValue(), generated.get(entry.getKey()), entry.getKey());
+				}
+			}
+		}
+
+		assertEquals(4, cache.getHits());
+		assertEquals(4, cache.getMisses());
+	}
+
+	@Test
+	void testUnchangedClass() throws IOException {
+		TransformCache cache = TransformCache.create(cacheDir, Long.MAX_VALUE);
+		// Targeted, but the class is already public so nothing changes
+		classTweaker.visitAccessWidener("test/PrivateMethodSubclassTest").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		byte[] classBytes = readClass("test/PrivateMethodSubclassTest");
+
+		for (int i = 0; i < 2; i++) {
+			ClassTweaker.TransformResult result = cache.transform(classTweaker, classBytes, null);
+			assertFalse(result.isChanged());
+			assertSame(classBytes, result.getBytes());
+		}
+
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	void testUntargetedClassesAreNotCached() throws IOException {
+		TransformCache cache = TransformCache.create(cacheDir, Long.MAX_VALUE);
+		byte[] classBytes = readClass("test/FieldTests");
+
+		assertSame(classBytes, cache.transform(classTweaker, classBytes, null).getBytes());
+		assertEquals(0, cache.getMisses());
+		assertThat(listEntries()).isEmpty();
+	}
+
+	@Test
+	void testKeyOnlyDependsOnClassTweaksOfTheClass() throws IOException {
+		TransformCache cache = TransformCache.create(cacheDir, Long.MAX_VALUE);
+		byte[] classBytes = readClass("test/FinalClass");
+		cache.transform(classTweaker, classBytes, null);
+
+		// Changes to other classes, and the order the class tweaks were visited in, keep the entry
+		ClassTweaker other = ClassTweaker.newInstance();
+		other.visitAccessWidener("test/MethodTests").visitMethod("privateMethod", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		other.visitAccessWidener("test/FinalClass").visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		cache.transform(classTweaker, classBytes, null);
+		assertEquals(1, cache.getHits());
+
+		ClassTweaker.TransformResult result = cache.transform(other.freeze(), classBytes, null);
+		assertEquals(2, cache.getHits());
+		assertArrayEquals(classTweaker.transform(classBytes).getBytes(), result.getBytes());
+
+		other.visitAccessWidener("test/FinalClass").visitMethod("<init>", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		result = cache.transform(other, classBytes, null);
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertArrayEquals(other.transform(classBytes).getBytes(), result.getBytes());
+
+		// A different class file
+		byte[] changedBytes = classBytes.clone();
+		changedBytes[changedBytes.length - 1] ^= 1;
+		cache.transform(classTweaker, changedBytes, null);
+		assertEquals(3, cache.getMisses());
+	}
+
+	@Test
+	void testEnumExtensionsArePartOfKey() throws IOException {
+		TransformCache cache = TransformCache.create(cacheDir, Long.MAX_VALUE);
+		byte[] classBytes = readClass("test/ComplexEnum");
+		cache.transform(classTweaker, classBytes, (name, bytes) -> { });
+
+		ClassTweaker other = ClassTweaker.newInstance();
+		EnumExtensionVisitor enumExtension = other.visitEnum("test/ComplexEnum", "ADDED", "(Ljava/lang/String;ILjava/lang/String;)V", "test", false);
+		enumExtension.visitOverride("hello", "net/fabricmc/classtweaker/EnumTestConstants", "hello", "(I)Z");
+		enumExtension.visitParameterConstants(new Object[]{"Goodbye world!"});
+		Map<String, byte[]> generated = new LinkedHashMap<>();
+		ClassTweaker.TransformResult result = cache.transform(other, classBytes, generated::put);
+
+		assertEquals(0, cache.getHits());
+		assertArrayEquals(other.transform(classBytes, (name, bytes) -> { }).getBytes(), result.getBytes());
+		assertThat(generated).isNotEmpty();
+	}
+
+	@Test
+	void testCorruptEntry() throws IOException {
+		TransformCache cache = TransformCache.create(cacheDir, Long.MAX_VALUE);
+		byte[] classBytes = readClass("test/FinalClass");
+		byte[] expected = cache.transform(classTweaker, classBytes, null).getBytes();
+
+		for (Path file : listEntries()) {
+			Files.write(file, new byte[]{1, 2, 3});
+		}
+
+		assertArrayEquals(expected, cache.transform(classTweaker, classBytes, null).getBytes());
+		assertEquals(0, cache.getHits());
+		assertArrayEquals(expected, cache.transform(classTweaker, classBytes, null).getBytes());
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	void testEviction() throws IOException {
+		TransformCache cache = TransformCache.create(cacheDir, 4000);
+		byte[] classBytes = readClass("test/FinalClass");
+
+		for (int i = 0; i < 50; i++) {
+			// Each access widened method is a different key
+			classTweaker.visitAccessWidener("test/FinalClass").visitMethod("method" + i, "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+			cache.transform(classTweaker, classBytes, null);
+		}
+
+		long size = 0;
+
+		for (Path file : listEntries()) {
+			size += Files.size(file);
+		}
+
+		assertThat(size).isBetween(1L, 4000L);
+	}
+
+	@Nested
+	class InMemory {
+		@Test
+		void testHitSameAsUncached() throws IOException {
+			TransformCache cache = TransformCache.createInMemory(Long.MAX_VALUE);
+			byte[] classBytes = readClass("test/ComplexEnum");
+			Map<String, byte[]> expectedGenerated = new LinkedHashMap<>();
+			byte[] expected = classTweaker.transform(classBytes, expectedGenerated::put).getBytes();
+
+			for (int i = 0; i < 3; i++) {
+				Map<String, byte[]> generated = new LinkedHashMap<>();
+				// A copy, as each class loader reads the class file again
+				ClassTweaker.TransformResult result = cache.transform(classTweaker, classBytes.clone(), generated::put);
+
+				assertTrue(result.isChanged());
+				assertArrayEquals(expected, result.getBytes());
+				assertThat(generated).containsOnlyKeys(expectedGenerated.keySet());
+			}
+
+			assertEquals(2, cache.getHits());
+			assertEquals(1, cache.getMisses());
+		}
+
+		@Test
+		void testHitsAreNotAffectedByCallers() throws IOException {
+			TransformCache cache = TransformCache.createInMemory(Long.MAX_VALUE);
+			byte[] classBytes = readClass("test/ComplexEnum");
+			Map<String, byte[]> expectedGenerated = new LinkedHashMap<>();
+			byte[] expected = classTweaker.transform(classBytes, expectedGenerated::put).getBytes();
+
+			for (int i = 0; i < 3; i++) {
+				Map<String, byte[]> generated = new LinkedHashMap<>();
+				byte[] bytes = cache.transform(classTweaker, classBytes, generated::put).getBytes();
+
+				assertArrayEquals(expected, bytes);
+				assertThat(generated).containsOnlyKeys(expectedGenerated.keySet());
+
+				for (Map.Entry<String, byte[]> entry : generated.entrySet()) {
+					assertArrayEquals(expectedGenerated.get(entry.getKey()), entry.getValue(), entry.getKey());
+					// Callers, such as class loaders defining the classes, could modify the arrays
+					Arrays.fill(entry.getValue(), (byte) 0);
+				}
+
+				Arrays.fill(bytes, (byte) 0);
+			}
+
+			assertEquals(2, cache.getHits());
+		}
+
+		@Test
+		void testClassTweakerIsPartOfKey() throws IOException {
+			TransformCache cache = TransformCache.createInMemory(Long.MAX_VALUE);
+			byte[] classBytes = readClass("test/FinalClass");
+			cache.transform(classTweaker, classBytes, null);
+
+			// An equal, but different class tweaker
+			ClassTweaker other = ClassTweaker.newInstance();
+			other.visitAccessWidener("test/FinalClass").visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+			cache.transform(other, classBytes, null);
+			assertEquals(0, cache.getHits());
+
+			cache.transform(classTweaker, classBytes, null);
+			cache.transform(other, classBytes, null);
+			assertEquals(2, cache.getHits());
+
+			byte[] changedBytes = classBytes.clone();
+			changedBytes[changedBytes.length - 1] ^= 1;
+			cache.transform(classTweaker, changedBytes, null);
+			assertEquals(3, cache.getMisses());
+		}
+
+		@Test
+		void testUntargetedClassesAreNotCached() throws IOException {
+			TransformCache cache = TransformCache.createInMemory(Long.MAX_VALUE);
+			byte[] classBytes = readClass("test/FieldTests");
+
+			assertSame(classBytes, cache.transform(classTweaker, classBytes, null).getBytes());
+			assertEquals(0, cache.getMisses());
+		}
+
+		@Test
+		void testEviction() throws IOException {
+			byte[] finalClass = readClass("test/FinalClass");
+			byte[] methodTests = readClass("test/MethodTests");
+			// Only room for one of the classes
+			TransformCache cache = TransformCache.createInMemory(3L * Math.max(finalClass.length, methodTests.length));
+
+			cache.transform(classTweaker, finalClass, null);
+			cache.transform(classTweaker, methodTests, null);
+			cache.transform(classTweaker, methodTests, null);
+			assertEquals(1, cache.getHits());
+
+			cache.transform(classTweaker, finalClass, null);
+			assertEquals(1, cache.getHits());
+			assertEquals(3, cache.getMisses());
+		}
+	}
+
+	private List<Path> listEntries() throws IOException {
+		try (Stream<Path> files = Files.walk(cacheDir)) {
+			return files.filter(Files::isRegularFile).collect(Collectors.toList());
+		}
+	}
+
+	private static byte[] readClass(String className) throws IOException {
+		try (InputStream classData = TransformCacheTest.class.getClassLoader().getResourceAsStream(className + ".class")) {
+			return Objects.requireNonNull(classData).readAllBytes();
+		}
+	}
+}
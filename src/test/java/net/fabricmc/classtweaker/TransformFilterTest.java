@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import net.fabricmc.classtweaker.api.ClassTweakerReader;
+import net.fabricmc.classtweaker.api.TransformFilter;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+import net.fabricmc.classtweaker.utils.ClassFileUtils;
+
+class TransformFilterTest {
+	ClassTweakerImpl classTweaker = new ClassTweakerImpl();
+
+	@Test
+	void testTargetedClasses() throws IOException {
+		classTweaker.visitAccessWidener("test/FinalClass").visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		classTweaker.visitInjectedInterface("test/PackagePrivateClass", "java/lang/Runnable", false);
+		TransformFilter filter = TransformFilter.create(classTweaker);
+
+		assertTrue(filter.needsTransform(readClass("test/FinalClass")));
+		assertTrue(filter.needsTransform(readClass("test/PackagePrivateClass")));
+		assertFalse(filter.needsTransform(readClass("test/MethodTests")));
+	}
+
+	@Test
+	void testEmpty() throws IOException {
+		assertFalse(TransformFilter.create(classTweaker).needsTransform(readClass("test/FinalClass")));
+	}
+
+	@Test
+	void testOuterClassesAreNotTransformed() throws IOException {
+		classTweaker.visitAccessWidener("test/PrivateInnerClass$Inner").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		TransformFilter filter = TransformFilter.create(classTweaker);
+
+		assertThat(classTweaker.getTargets()).contains("test.PrivateInnerClass");
+		assertFalse(filter.needsTransform(readClass("test/PrivateInnerClass")));
+		assertTrue(filter.needsTransform(readClass("test/PrivateInnerClass$Inner")));
+	}
+
+	@Test
+	void testEnumExtensionsOnlyTransformEnums() throws IOException {
+		classTweaker.visitEnum("test/SimpleEnum", "ADDED", "(Ljava/lang/String;I)V", "test", false).visitEnd();
+		classTweaker.visitEnum("test/FinalClass", "ADDED", "(Ljava/lang/String;I)V", "test", false).visitEnd();
+		classTweaker.visitEnum("test/FieldTests", "ADDED", "(Ljava/lang/String;I)V", "test", false).visitEnd();
+		classTweaker.visitAccessWidener("test/FieldTests").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		TransformFilter filter = TransformFilter.create(classTweaker);
+
+		assertTrue(filter.needsTransform(readClass("test/SimpleEnum")));
+		assertFalse(filter.needsTransform(readClass("test/FinalClass")));
+		assertTrue(filter.needsTransform(readClass("test/FieldTests")));
+	}
+
+	@Test
+	void testConstantPoolLayout() {
+		ClassWriter classWriter = new ClassWriter(0);
+		// Place some wide constants before the name of the class
+		classWriter.newConst(1L);
+		classWriter.newConst(2D);
+		classWriter.newConst("ä");
+		classWriter.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "test/Ünïcödé\u0000€", null, "java/lang/Object", null);
+		classWriter.visitEnd();
+		byte[] classBytes = classWriter.toByteArray();
+
+		assertFalse(TransformFilter.create(classTweaker).needsTransform(classBytes));
+		classTweaker.visitAccessWidener("test/Ünïcödé\u0000€").visitClass(AccessWidenerVisitor.AccessType.EXTENDABLE, false);
+		assertTrue(TransformFilter.create(classTweaker).needsTransform(classBytes));
+	}
+
+	@Test
+	void testInvalidClassNeedsTransform() {
+		TransformFilter filter = TransformFilter.create(classTweaker);
+		assertTrue(filter.needsTransform(new byte[] {1, 2, 3}));
+		assertTrue(filter.needsTransform(new byte[] {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0, 0, 52, 0, 2, 42}));
+	}
+
+	@Test
+	void testTruncatedClassNeedsTransform() throws IOException {
+		TransformFilter filter = TransformFilter.create(classTweaker);
+		byte[] classBytes = readClass("test/FinalClass");
+		assertFalse(filter.needsTransform(classBytes));
+		assertEquals("test/FinalClass", ClassFileUtils.readClassName(classBytes));
+
+		// Cutting the class off anywhere before the end of this_class must neither throw nor skip the class
+		int header = ClassFileUtils.readConstantPool(classBytes, new int[ClassFileUtils.readUnsignedShort(classBytes, ClassFileUtils.CONSTANT_POOL_COUNT)]);
+
+		for (int length = 0; length < header + 4; length++) {
+			byte[] truncated = Arrays.copyOf(classBytes, length);
+			assertTrue(filter.needsTransform(truncated), "length " + length);
+			assertNull(ClassFileUtils.readClassName(truncated), "length " + length);
+		}
+	}
+
+	@Test
+	void testCorruptClassNeedsTransform() throws IOException {
+		TransformFilter filter = TransformFilter.create(classTweaker);
+		byte[] classBytes = readClass("test/FinalClass");
+		int[] constantOffsets = new int[ClassFileUtils.readUnsignedShort(classBytes, ClassFileUtils.CONSTANT_POOL_COUNT)];
+		int header = ClassFileUtils.readConstantPool(classBytes, constantOffsets);
+		int nameIndex = ClassFileUtils.readUnsignedShort(classBytes, constantOffsets[ClassFileUtils.readUnsignedShort(classBytes, header + 2)] + 1);
+
+		// this_class pointing past the constant pool, at the unused index zero, and at a constant that isn't a class
+		for (int thisClass : new int[] {0xFFFF, 0, nameIndex}) {
+			byte[] corrupt = classBytes.clone();
+			ClassFileUtils.writeShort(corrupt, header + 2, thisClass);
+			assertTrue(filter.needsTransform(corrupt), "this_class " + thisClass);
+			assertNull(ClassFileUtils.readClassName(corrupt), "this_class " + thisClass);
+		}
+
+		// A constant pool count larger than the constant pool
+		byte[] corrupt = classBytes.clone();
+		ClassFileUtils.writeShort(corrupt, ClassFileUtils.CONSTANT_POOL_COUNT, 0xFFFF);
+		assertTrue(filter.needsTransform(corrupt));
+		assertNull(ClassFileUtils.readClassName(corrupt));
+	}
+
+	/**
+	 * The filter must never skip a class that would be changed by the class tweaker.
+	 */
+	@Test
+	void testMatchesTransform() throws Exception {
+		try (InputStream inputStream = getClass().getResourceAsStream("AccessWidenerReaderTest_enum.txt")) {
+			ClassTweakerReader.create(classTweaker).read(Objects.requireNonNull(inputStream).readAllBytes(), "test");
+		}
+
+		classTweaker.visitAccessWidener("test/PrivateInnerClass$Inner").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		classTweaker.visitAccessWidener("test/MethodTests").visitMethod("privateMethod", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		classTweaker.visitInjectedInterface("test/FinalClass", "java/lang/Runnable", false);
+		TransformFilter filter = TransformFilter.create(classTweaker);
+
+		Path classFolder = Paths.get(getClass().getResource("/test/PackagePrivateClass.class").toURI()).getParent();
+		List<Path> classFiles;
+
+		try (Stream<Path> stream = Files.list(classFolder)) {
+			classFiles = stream.filter(path -> path.toString().endsWith(".class")).collect(Collectors.toList());
+		}
+
+		for (Path classFile : classFiles) {
+			byte[] classBytes = Files.readAllBytes(classFile);
+			boolean changed = classTweaker.transform(classBytes, (name, bytes) -> { }).isChanged();
+			assertThat(filter.needsTransform(classBytes)).as(classFile.getFileName().toString()).isEqualTo(changed);
+		}
+	}
+
+	private static byte[] readClass(String className) throws IOException {
+		ClassWriter classWriter = new ClassWriter(0);
+
+		try (InputStream classData = TransformFilterTest.class.getClassLoader().getResourceAsStream(className + ".class")) {
+			new ClassReader(Objects.requireNonNull(classData)).accept(classWriter, 0);
+		}
+
+		return classWriter.toByteArray();
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import net.fabricmc.classtweaker.api.ClassTweaker;
+import net.fabricmc.classtweaker.api.ClassTweakerReader;
+import net.fabricmc.classtweaker.api.VersionedClassTweaker;
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+
+public class VersionedClassTweakerTest {
+	@Test
+	void testVersions() {
+		VersionedClassTweaker versioned = VersionedClassTweaker.create();
+		assertEquals(0, versioned.getVersion());
+		assertThat(versioned.get().getTargets()).isEmpty();
+
+		long version = versioned.reload(visitor -> ClassTweakerReader.create(visitor).read("accessWidener v2 named\naccessible class a/B".getBytes(StandardCharsets.UTF_8), "test"));
+		assertEquals(1, version);
+		assertEquals(1, versioned.getVersion());
+		assertThat(versioned.get().getTargets()).containsExactly("a.B");
+
+		ClassTweaker classTweaker = ClassTweaker.newInstance();
+		classTweaker.visitAccessWidener("a/C").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		assertEquals(2, versioned.set(classTweaker));
+
+		// Later changes to the passed class tweaker are not published
+		classTweaker.visitAccessWidener("a/D").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		assertThat(versioned.get().getTargets()).containsExactly("a.C");
+		assertThrows(UnsupportedOperationException.class, () -> versioned.get().visitAccessWidener("a/E"));
+	}
+
+	@Test
+	void testSnapshotIsKept() {
+		ClassTweaker classTweaker = ClassTweaker.newInstance();
+		classTweaker.visitAccessWidener("a/B").visitClass(AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		VersionedClassTweaker versioned = VersionedClassTweaker.create(classTweaker);
+
+		VersionedClassTweaker.Snapshot snapshot = versioned.getSnapshot();
+		versioned.set(ClassTweaker.newInstance());
+
+		assertEquals(0, snapshot.getVersion());
+		assertThat(snapshot.getClassTweaker().getTargets()).containsExactly("a.B");
+		assertNotSame(snapshot, versioned.getSnapshot());
+
+		// A class transformed with the old snapshot is still changed
+		ClassWriter classWriter = new ClassWriter(0);
+		classWriter.visit(Opcodes.V17, 0, "a/B", null, "java/lang/Object", null);
+		classWriter.visitEnd();
+		byte[] classBytes = classWriter.toByteArray();
+
+		assertTrue(snapshot.getClassTweaker().transform(classBytes).isChanged());
+		assertFalse(versioned.get().transform(classBytes).isChanged());
+	}
+
+	@Test
+	void testFailedReloadKeepsVersion() {
+		VersionedClassTweaker versioned = VersionedClassTweaker.create();
+		VersionedClassTweaker.Snapshot snapshot = versioned.getSnapshot();
+
+		assertThrows(RuntimeException.class, () -> versioned.reload(visitor -> ClassTweakerReader.create(visitor).read("accessWidener v2 named\ninvalid".getBytes(StandardCharsets.UTF_8), "test")));
+		assertSame(snapshot, versioned.getSnapshot());
+	}
+
+	@Test
+	void testCompareAndSet() {
+		VersionedClassTweaker versioned = VersionedClassTweaker.create();
+
+		assertFalse(versioned.compareAndSet(1, ClassTweaker.newInstance()));
+		assertTrue(versioned.compareAndSet(0, ClassTweaker.newInstance()));
+		assertFalse(versioned.compareAndSet(0, ClassTweaker.newInstance()));
+		assertEquals(1, versioned.getVersion());
+	}
+
+	@Test
+	void testConcurrentUpdates() throws Exception {
+		VersionedClassTweaker versioned = VersionedClassTweaker.create();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			List<Future<Long>> futures = new ArrayList<>();
+
+			for (int i = 0; i < 100; i++) {
+				futures.add(executor.submit(() -> versioned.set(ClassTweaker.newInstance())));
+			}
+
+			Set<Long> versions = new HashSet<>();
+
+			for (Future<Long> future : futures) {
+				versions.add(future.get());
+			}
+
+			// Every update got its own version
+			assertEquals(100, versions.size());
+			assertEquals(100, versioned.getVersion());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -24,6 +24,10 @@ import java.util.Map;
 
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
 import test.PrivateInnerClass;
 
 import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
@@ -186,5 +190,19 @@ class AccessWidenerClassVisitorTest extends ClassVisitorTest {
 			assertThat(result).isEqualTo(456);
 			assertThat(resultWithLambda).isEqualTo(456);
 		}
+
+		@Test
+		void testOnlyMethodsThatCanCallRewrittenMethodsAreWrapped() {
+			classTweaker.visitAccessWidener("test/MethodTests").visitMethod("<init>", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+			ClassVisitor visitor = new AccessWidenerClassVisitor(Opcodes.ASM9, new ClassNode(), classTweaker);
+			visitor.visit(Opcodes.V1_8, Opcodes.ACC_FINAL, "test/MethodTests", null, "java/lang/Object", null);
+			assertThat(visitor.visitMethod(Opcodes.ACC_PRIVATE, "test", "()V", null, null)).isInstanceOf(MethodNode.class);
+
+			classTweaker.visitAccessWidener("test/MethodTests").visitMethod("privateMethod", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+			visitor = new AccessWidenerClassVisitor(Opcodes.ASM9, new ClassNode(), classTweaker);
+			visitor.visit(Opcodes.V1_8, Opcodes.ACC_FINAL, "test/MethodTests", null, "java/lang/Object", null);
+			assertThat(visitor.visitMethod(Opcodes.ACC_PRIVATE, "test", "()V", null, null)).isNotInstanceOf(MethodNode.class);
+			assertThat(visitor.visitMethod(Opcodes.ACC_NATIVE, "test", "()I", null, null)).isInstanceOf(MethodNode.class);
+		}
 	}
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.classtweaker.classvisitor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.classtweaker.api.visitor.AccessWidenerVisitor;
+import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
+
+class ClassPlanTest {
+	private final ClassTweakerImpl classTweaker = new ClassTweakerImpl();
+
+	@Test
+	void testInjectInterfaces() {
+		classTweaker.visitInjectedInterface("a/b/C", "a/b/I", false);
+		classTweaker.visitInjectedInterface("a/b/C", "a/b/J", false);
+		ClassPlan plan = ClassPlan.create(classTweaker, "a/b/C");
+
+		assertThat(plan.injectInterfaces(new String[0])).containsExactly("a/b/I", "a/b/J");
+		assertThat(plan.injectInterfaces(new String[]{"a/b/J", "a/b/K"})).containsExactly("a/b/J", "a/b/K", "a/b/I");
+		assertThat(plan.injectSignature(null)).isNull();
+		assertThat(plan.injectSignature("Ljava/lang/Object;La/b/J;")).isEqualTo("Ljava/lang/Object;La/b/J;La/b/I;");
+		assertThat(plan.injectSignature("Ljava/lang/Object;La/b/I;")).isEqualTo("Ljava/lang/Object;La/b/I;La/b/J;");
+		assertThat(plan.injectSignature("Ljava/lang/Object;")).isEqualTo("Ljava/lang/Object;La/b/I;La/b/J;");
+	}
+
+	@Test
+	void testWithoutInjectedInterfaces() {
+		ClassPlan plan = ClassPlan.create(classTweaker, "a/b/C");
+		String[] interfaces = {"a/b/I"};
+
+		assertThat(plan.injectInterfaces(interfaces)).isSameAs(interfaces);
+		assertThat(plan.injectSignature("Ljava/lang/Object;")).isEqualTo("Ljava/lang/Object;");
+		assertThat(plan.hasEnumExtensions()).isFalse();
+		assertThat(plan.rewriteCalls).isFalse();
+	}
+
+	@Test
+	void testRewriteCalls() {
+		classTweaker.visitAccessWidener("a/b/C").visitMethod("<init>", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		assertThat(ClassPlan.create(classTweaker, "a/b/C").rewriteCalls).isFalse();
+
+		classTweaker.visitAccessWidener("a/b/C").visitMethod("method", "()V", AccessWidenerVisitor.AccessType.ACCESSIBLE, false);
+		assertThat(ClassPlan.create(classTweaker, "a/b/C").rewriteCalls).isTrue();
+	}
+
+	@Test
+	void testEnumOverrides() {
+		classTweaker.visitEnum("a/b/E", "PLAIN", "(Ljava/lang/String;I)V", "test", false);
+		ClassPlan plan = ClassPlan.create(classTweaker, "a/b/E");
+		assertThat(plan.enumExtensions).containsOnlyKeys("PLAIN");
+		assertThat(plan.generateOverrides).isFalse();
+
+		classTweaker.visitEnum("a/b/E", "OVERRIDDEN", "(Ljava/lang/String;I)V", "test", false)
+				.visitOverride("hello", "a/b/Constants", "hello", "(I)Z");
+		plan = ClassPlan.create(classTweaker, "a/b/E");
+		assertThat(plan.enumExtensions).containsOnlyKeys("PLAIN", "OVERRIDDEN");
+		assertThat(plan.generateOverrides).isTrue();
+		assertThat(plan.innerClassNames).containsExactly(
+				entry("OVERRIDDEN", "a/b/E$test$" + "OVERRIDDEN".hashCode())
+		);
+	}
+}
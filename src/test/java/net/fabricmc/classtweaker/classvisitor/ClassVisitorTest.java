@@ -36,6 +36,7 @@ import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.ClassNode;
 
+import net.fabricmc.classtweaker.api.ClassTweaker;
 import net.fabricmc.classtweaker.impl.ClassTweakerImpl;
 
 public abstract class ClassVisitorTest {
@@ -111,38 +112,57 @@ public abstract class ClassVisitorTest {
 				InputStream classData = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
 
 				if (classData != null) {
-					if (classTweaker.getTargets().contains(name)) {
-						try {
-							ClassReader classReader = new ClassReader(classData);
-							ClassWriter classWriter = new ClassWriter(0);
-							ClassVisitor visitor = classWriter;
-							visitor = classTweaker.createClassVisitor(Opcodes.ASM9, visitor, generatedClasses::put);
-							classReader.accept(visitor, 0);
-							byte[] bytes = classWriter.toByteArray();
-
-							writeClass(name, bytes);
-							return defineClass(name, bytes, 0, bytes.length);
-						} catch (IOException e) {
-							throw new ClassNotFoundException();
-						}
-					} else {
-						ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+					ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 
-						try {
-							int i;
-							byte[] data = new byte[16384];
+					try {
+						int i;
+						byte[] data = new byte[16384];
 
-							while ((i = classData.read(data, 0, data.length)) != -1) {
-								buffer.write(data, 0, i);
-							}
-						} catch (IOException e) {
-							throw new ClassNotFoundException();
+						while ((i = classData.read(data, 0, data.length)) != -1) {
+							buffer.write(data, 0, i);
 						}
+					} catch (IOException e) {
+						throw new ClassNotFoundException();
+					}
 
-						byte[] bytes = buffer.toByteArray();
+					byte[] classBytes = buffer.toByteArray();
+
+					if (classTweaker.getTargets().contains(name)) {
+						ClassReader classReader = new ClassReader(classBytes);
+						ClassWriter classWriter = new ClassWriter(0);
+						ClassVisitor visitor = classWriter;
+						visitor = classTweaker.createClassVisitor(Opcodes.ASM9, visitor, generatedClasses::put);
+						classReader.accept(visitor, 0);
+						byte[] bytes = classWriter.toByteArray();
+
+						// The fused visitor must produce exactly the same classes as chaining the individual visitors
+						Map<String, byte[]> chainedGeneratedClasses = new HashMap<>();
+						ClassWriter chainedClassWriter = new ClassWriter(0);
+						ClassVisitor chainedVisitor = new AccessWidenerClassVisitor(Opcodes.ASM9, chainedClassWriter, classTweaker);
+						chainedVisitor = new EnumExtensionClassVisitor(Opcodes.ASM9, chainedVisitor, classTweaker, chainedGeneratedClasses::put);
+						chainedVisitor = new InterfaceInjectionClassVisitor(Opcodes.ASM9, chainedVisitor, classTweaker);
+						classReader.accept(chainedVisitor, 0);
+						assertThat(chainedClassWriter.toByteArray()).isEqualTo(bytes);
+						chainedGeneratedClasses.forEach((n, b) -> assertThat(generatedClasses.get(n)).isEqualTo(b));
+
+						// The visitor created for just this class must produce the same result
+						ClassWriter targetedClassWriter = new ClassWriter(0);
+						classReader.accept(classTweaker.createClassVisitor(Opcodes.ASM9, classReader.getClassName(), targetedClassWriter, (n, b) -> { }), 0);
+						assertThat(targetedClassWriter.toByteArray()).isEqualTo(bytes);
+
+						// As does transforming the whole class, once both are written with the same constant pool order
+						ClassTweaker.TransformResult result = classTweaker.transform(classBytes, (n, b) -> { });
+						assertThat(result.isChanged()).isEqualTo(result.getBytes() != classBytes);
+						assertThat(rewrite(result.getBytes())).isEqualTo(rewrite(bytes));
+
+						// And the frozen copy of the class tweaker must produce the same bytes
+						assertThat(classTweaker.freeze().transform(classBytes, (n, b) -> { }).getBytes()).isEqualTo(result.getBytes());
 
 						writeClass(name, bytes);
 						return defineClass(name, bytes, 0, bytes.length);
+					} else {
+						writeClass(name, classBytes);
+						return defineClass(name, classBytes, 0, classBytes.length);
 					}
 				}
 			}
@@ -150,6 +170,12 @@ public abstract class ClassVisitorTest {
 			return super.loadClass(name, resolve);
 		}
 
+		private byte[] rewrite(byte[] bytes) {
+			ClassWriter classWriter = new ClassWriter(0);
+			new ClassReader(bytes).accept(classWriter, 0);
+			return classWriter.toByteArray();
+		}
+
 		private void writeClass(String name, byte[] bytes) {
 			try {
 				Path out = Paths.get("test", "classes", name.substring(name.lastIndexOf(".") + 1) + ".class");